@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ * <p>
+ * Accept the same arguments as the standard JMH launcher but write the results as JSON (in {@code jmh-result.json}
+ * unless {@code -rff} is used) by default so that they can be collected and compared over time.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public final class BenchmarkRunner
+{
+    private BenchmarkRunner()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param args the JMH command line arguments
+     * @throws Exception when failing to run the benchmarks
+     */
+    public static void main(String[] args) throws Exception
+    {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+            || commandLineOptions.shouldListWithParams() || commandLineOptions.shouldListProfilers()
+            || commandLineOptions.shouldListResultFormats()) {
+            // Nothing to run, let the standard launcher deal with it
+            Main.main(args);
+        } else {
+            ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+            if (!commandLineOptions.getResultFormat().hasValue()) {
+                options.resultFormat(ResultFormatType.JSON);
+            }
+
+            new Runner(options.build()).run();
+        }
+    }
+}
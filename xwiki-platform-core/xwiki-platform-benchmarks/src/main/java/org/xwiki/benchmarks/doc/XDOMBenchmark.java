@@ -0,0 +1,130 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.doc;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.benchmarks.internal.AbstractOldcoreBenchmark;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Measure the access to the XDOM of a big (500KB) document. This benchmark is mostly about allocations so it's
+ * meant to be executed with the GC profiler ({@code -prof gc}) and compared using {@code gc.alloc.rate.norm}.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@AllComponents
+public class XDOMBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final int CONTENT_SIZE = 500 * 1024;
+
+    private XWikiDocument document;
+
+    /**
+     * @throws Exception when failing to initialize the environment
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        setUpOldcore();
+
+        XWikiContext xcontext = getXWikiContext();
+
+        this.document = new XWikiDocument(new DocumentReference("xwiki", "Benchmark", "BigPage"));
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+
+        StringBuilder content = new StringBuilder(CONTENT_SIZE);
+        for (int i = 0; content.length() < CONTENT_SIZE; ++i) {
+            content.append("= Heading ").append(i).append(" =\n\n");
+            content.append("Some **bold**, //italic// and [[linked>>Space.Page").append(i % 100).append("]] text");
+            content.append(" with an image:Space.Image@image").append(i % 10).append(".png.\n\n");
+            content.append("* item 1\n* item 2\n** sub item\n\n");
+            content.append("|=Column 1|=Column 2\n|Cell 1|Cell 2\n\n");
+            content.append("{{info}}A macro{{/info}}\n\n");
+        }
+        this.document.setContent(content.toString());
+
+        xcontext.setDoc(this.document);
+
+        // Parse the content once
+        this.document.getReadOnlyXDOM();
+    }
+
+    /**
+     * @throws Exception when failing to dispose the environment
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        tearDownOldcore();
+    }
+
+    /**
+     * @return a copy of the cached XDOM
+     */
+    @Benchmark
+    public XDOM getXDOM()
+    {
+        return this.document.getXDOM();
+    }
+
+    /**
+     * @return the cached XDOM
+     */
+    @Benchmark
+    public XDOM getReadOnlyXDOM()
+    {
+        return this.document.getReadOnlyXDOM();
+    }
+
+    /**
+     * @return the pages linked from the document
+     */
+    @Benchmark
+    public Set<String> getUniqueLinkedPages()
+    {
+        return this.document.getUniqueLinkedPages(getXWikiContext());
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.doc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.benchmarks.internal.AbstractOldcoreBenchmark;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.ComponentList;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.doc.XWikiDocumentBinaryCodec;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.test.component.XWikiDocumentFilterUtilsComponentList;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Measure the copy and the XML serialization of documents, which happen on each document save and import/export, and
+ * compare them with the binary serialization.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@ReferenceComponentList
+@XWikiDocumentFilterUtilsComponentList
+@ComponentList(XWikiDocumentBinaryCodec.class)
+public class XWikiDocumentBenchmark extends AbstractOldcoreBenchmark
+{
+    /**
+     * Report the size of the serialized document along with the time measured by the serialization benchmarks.
+     *
+     * @version $Id$
+     * @since 12.6RC1
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes
+    {
+        /**
+         * The size in bytes of the document serialized by the last operation.
+         */
+        public long bytes;
+
+        /**
+         * Reset the size at the beginning of each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            this.bytes = 0;
+        }
+    }
+
+    /**
+     * The number of objects in the document.
+     */
+    @Param({ "1", "50" })
+    public int objects;
+
+    private XWikiDocument document;
+
+    private String xml;
+
+    private XWikiDocumentBinaryCodec codec;
+
+    private byte[] binary;
+
+    /**
+     * @throws Exception when failing to initialize the environment
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        setUpOldcore();
+
+        XWikiContext xcontext = getXWikiContext();
+        doReturn("UTF-8").when(this.oldcore.getSpyXWiki()).getEncoding();
+
+        XWikiDocument classDocument = new XWikiDocument(new DocumentReference("xwiki", "Benchmark", "BenchmarkClass"));
+        BaseClass xclass = classDocument.getXClass();
+        xclass.addTextField("string", "String", 30);
+        xclass.addTextAreaField("area", "Area", 10, 10);
+        xclass.addBooleanField("boolean", "Boolean", "yesno");
+        xclass.addNumberField("int", "Int", 10, "integer");
+        xclass.addStaticListField("list", "List", 5, true, "a|b|c|d");
+        this.oldcore.getSpyXWiki().saveDocument(classDocument, xcontext);
+
+        this.document = new XWikiDocument(new DocumentReference("xwiki", "Benchmark", "Page"));
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+        this.document.setTitle("Benchmark page");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            content.append("= Heading ").append(i).append(" =\n\nSome **bold** and //italic// text.\n\n");
+        }
+        this.document.setContent(content.toString());
+
+        for (int i = 0; i < this.objects; ++i) {
+            BaseObject xobject = this.document.newXObject(classDocument.getDocumentReference(), xcontext);
+            xobject.setStringValue("string", "value " + i);
+            xobject.setLargeStringValue("area", content.substring(0, 1000));
+            xobject.setIntValue("boolean", i % 2);
+            xobject.setIntValue("int", i);
+            xobject.setStringListValue("list", Arrays.asList("a", "c"));
+        }
+
+        this.xml = this.document.toXML(xcontext);
+
+        this.codec = this.componentManager.getInstance(XWikiDocumentBinaryCodec.class);
+        this.binary = this.codec.encode(this.document);
+    }
+
+    /**
+     * @throws Exception when failing to dispose the environment
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        tearDownOldcore();
+    }
+
+    /**
+     * @return the copy of the document
+     */
+    @Benchmark
+    public XWikiDocument cloneDocument()
+    {
+        return this.document.clone();
+    }
+
+    /**
+     * @param sizes the size of the serialized document
+     * @return the XML serialization of the document
+     * @throws XWikiException when failing to serialize the document
+     */
+    @Benchmark
+    public String toXML(Sizes sizes) throws XWikiException
+    {
+        String result = this.document.toXML(getXWikiContext());
+
+        sizes.bytes = result.getBytes(StandardCharsets.UTF_8).length;
+
+        return result;
+    }
+
+    /**
+     * @return the document parsed from XML
+     * @throws XWikiException when failing to parse the document
+     */
+    @Benchmark
+    public XWikiDocument fromXML() throws XWikiException
+    {
+        XWikiDocument parsedDocument = new XWikiDocument(this.document.getDocumentReference());
+        parsedDocument.fromXML(this.xml);
+
+        return parsedDocument;
+    }
+
+    /**
+     * @param sizes the size of the serialized document
+     * @return the binary serialization of the document
+     * @throws IOException when failing to serialize the document
+     */
+    @Benchmark
+    public byte[] encode(Sizes sizes) throws IOException
+    {
+        byte[] result = this.codec.encode(this.document);
+
+        sizes.bytes = result.length;
+
+        return result;
+    }
+
+    /**
+     * @return the document parsed from its binary serialization
+     * @throws IOException when failing to parse the document
+     */
+    @Benchmark
+    public XWikiDocument decode() throws IOException
+    {
+        return this.codec.decode(this.binary);
+    }
+
+    /**
+     * @return the copy of the document made through its binary serialization
+     * @throws IOException when failing to copy the document
+     */
+    @Benchmark
+    public XWikiDocument binaryCopy() throws IOException
+    {
+        return this.codec.copy(this.document);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.eventstream;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.internal.ContextComponentManagerProvider;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.context.internal.DefaultExecution;
+import org.xwiki.environment.Environment;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.eventstream.internal.DefaultEvent;
+import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.eventstream.store.solr.internal.EventsSolrCoreInitializer;
+import org.xwiki.eventstream.store.solr.internal.SolrEventStore;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.properties.converter.Converter;
+import org.xwiki.properties.internal.DefaultConverterManager;
+import org.xwiki.properties.internal.converter.ConvertUtilsConverter;
+import org.xwiki.properties.internal.converter.EnumConverter;
+import org.xwiki.search.solr.internal.DefaultSolr;
+import org.xwiki.search.solr.internal.DefaultSolrConfiguration;
+import org.xwiki.search.solr.internal.DefaultSolrUtils;
+import org.xwiki.search.solr.internal.EmbeddedSolr;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the time needed by {@link SolrEventStore} to mark 2000 events as read (or unread) for a user, like when the
+ * user clears the notifications, against an embedded Solr instance.
+ * <p>
+ * Each operation switches the status of all the events so that Solr actually has something to update.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@ComponentList({ EventsSolrCoreInitializer.class, SolrEventStore.class, DefaultExecution.class, DefaultSolr.class,
+    EmbeddedSolr.class, DefaultSolrUtils.class, DefaultConverterManager.class, ConvertUtilsConverter.class,
+    DefaultSolrConfiguration.class, EnumConverter.class, ContextComponentManagerProvider.class })
+public class EventStatusBenchmark
+{
+    private static final int EVENTS = 2000;
+
+    private static final String USER = "xwiki:XWiki.User";
+
+    private MockitoComponentManager componentManager;
+
+    private File permanentDirectory;
+
+    private EventStore store;
+
+    private final List<Event> events = new ArrayList<>(EVENTS);
+
+    private boolean read;
+
+    /**
+     * @throws Exception when failing to initialize the event store
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager = new MockitoComponentManager();
+        this.componentManager.initializeTest(this);
+
+        this.permanentDirectory = Files.createTempDirectory("eventstatusbenchmark").toFile();
+        Environment environment = this.componentManager.registerMockComponent(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+        ConfigurationSource properties =
+            this.componentManager.registerMockComponent(ConfigurationSource.class, "xwikiproperties");
+        when(properties.getProperty(anyString(), anyString())).then(invocation -> invocation.getArgument(1));
+
+        this.componentManager.registerMockComponent(ObservationManager.class);
+        this.componentManager.registerMockComponent(ContextStoreManager.class);
+        this.componentManager.registerMockComponent(EntityReferenceSerializer.TYPE_STRING);
+        this.componentManager.registerMockComponent(EntityReferenceSerializer.TYPE_STRING, "compact");
+        this.componentManager
+            .registerMockComponent(new DefaultParameterizedType(null, Converter.class, DocumentReference.class));
+        this.componentManager
+            .registerMockComponent(new DefaultParameterizedType(null, Converter.class, SpaceReference.class));
+        this.componentManager
+            .registerMockComponent(new DefaultParameterizedType(null, Converter.class, WikiReference.class));
+
+        this.store = this.componentManager.getInstance(EventStore.class, "solr");
+
+        CompletableFuture<Event> future = null;
+        for (int i = 0; i < EVENTS; ++i) {
+            DefaultEvent event = new DefaultEvent();
+            event.setId("event" + i);
+            future = this.store.saveEvent(event);
+            this.events.add(event);
+        }
+        future.get();
+    }
+
+    /**
+     * @throws Exception when failing to dispose the event store
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.componentManager.dispose();
+
+        FileUtils.deleteDirectory(this.permanentDirectory);
+    }
+
+    /**
+     * @return the last saved status
+     * @throws Exception when failing to save the status
+     */
+    @Benchmark
+    public EventStatus markAllAsRead() throws Exception
+    {
+        this.read = !this.read;
+
+        CompletableFuture<EventStatus> future = null;
+        for (Event event : this.events) {
+            future = this.store.saveEventStatus(new DefaultEventStatus(event, USER, this.read));
+        }
+
+        // Wait until the status are stored
+        return future.get();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.internal;
+
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.test.MockitoOldcore;
+
+/**
+ * Base class for the benchmarks which need a (mocked) oldcore environment, initialized the same way as in the
+ * {@code @OldcoreTest} unit tests: the component manager is filled according to the {@code @ComponentList} and related
+ * annotations found on the benchmark class and documents are saved in an in-memory store.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public abstract class AbstractOldcoreBenchmark
+{
+    protected MockitoComponentManager componentManager;
+
+    protected MockitoOldcore oldcore;
+
+    /**
+     * Initialize the component manager and the oldcore environment.
+     *
+     * @throws Exception when failing to initialize the environment
+     */
+    protected void setUpOldcore() throws Exception
+    {
+        this.componentManager = new MockitoComponentManager();
+        this.oldcore = new MockitoOldcore(this.componentManager);
+
+        this.componentManager.initializeTest(this, this.componentManager, this.oldcore);
+
+        this.oldcore.before(getClass());
+        this.oldcore.registerMockEnvironment();
+    }
+
+    /**
+     * Release the resources allocated by {@link #setUpOldcore()}.
+     *
+     * @throws Exception when failing to dispose the environment
+     */
+    protected void tearDownOldcore() throws Exception
+    {
+        this.oldcore.after();
+        this.componentManager.dispose();
+    }
+
+    /**
+     * @return the XWiki context of the oldcore environment
+     */
+    protected XWikiContext getXWikiContext()
+    {
+        return this.oldcore.getXWikiContext();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.lesscss;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.lesscss.compiler.LESSCompiler;
+import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.LESSContext;
+import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReferenceFactory;
+import org.xwiki.lesscss.internal.colortheme.CurrentColorThemeGetter;
+import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
+import org.xwiki.lesscss.internal.compiler.DefaultLESSCompiler;
+import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
+import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
+import org.xwiki.lesscss.internal.skin.SkinReferenceFactory;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.skin.Skin;
+import org.xwiki.skin.SkinManager;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateContent;
+import org.xwiki.template.TemplateManager;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the compilation of LESS resources with {@link DefaultLESSCompiler}, which happen each time a skin or a color
+ * theme is modified (and on each request when the LESS cache is disabled).
+ * <p>
+ * The LESS cache is disabled so that each call actually compiles the resource.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@ComponentList({ DefaultLESSCompiler.class, CachedLESSCompiler.class, Less4jCompiler.class })
+public class LESSCompilerBenchmark
+{
+    private static final String SKIN = "flamingo";
+
+    /**
+     * The number of rules in the compiled resource.
+     */
+    @Param({ "100", "1000" })
+    public int rules;
+
+    private MockitoComponentManager componentManager;
+
+    private LESSCompiler compiler;
+
+    private LESSResourceReference resource;
+
+    /**
+     * @throws Exception when failing to initialize the compiler
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager = new MockitoComponentManager();
+        this.componentManager.initializeTest(this);
+
+        this.componentManager.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        this.componentManager.registerMockComponent(LESSResourcesCache.class);
+        this.componentManager.registerMockComponent(CurrentColorThemeGetter.class);
+        this.componentManager.registerMockComponent(SkinReferenceFactory.class);
+        this.componentManager.registerMockComponent(ColorThemeReferenceFactory.class);
+        LESSContext lessContext = this.componentManager.registerMockComponent(LESSContext.class);
+        when(lessContext.isCacheDisabled()).thenReturn(true);
+        LESSConfiguration lessConfiguration = this.componentManager.registerMockComponent(LESSConfiguration.class);
+        when(lessConfiguration.getMaximumSimultaneousCompilations()).thenReturn(4);
+
+        Skin skin = mock(Skin.class);
+        SkinManager skinManager = this.componentManager.registerMockComponent(SkinManager.class);
+        when(skinManager.getSkin(SKIN)).thenReturn(skin);
+
+        TemplateContent templateContent = mock(TemplateContent.class);
+        when(templateContent.getContent()).thenReturn(generateLESS());
+        Template template = mock(Template.class);
+        when(template.getContent()).thenReturn(templateContent);
+        TemplateManager templateManager = this.componentManager.registerMockComponent(TemplateManager.class);
+        when(templateManager.getTemplate(eq("less/benchmark.less"), any(Skin.class))).thenReturn(template);
+
+        this.compiler = this.componentManager.getInstance(LESSCompiler.class);
+        this.resource = new LESSSkinFileResourceReference("benchmark.less", templateManager, skinManager);
+    }
+
+    private String generateLESS()
+    {
+        StringBuilder less = new StringBuilder();
+
+        less.append("@main-color: #336699;\n");
+        less.append(".rounded(@radius: 4px) { border-radius: @radius; }\n");
+        for (int i = 0; i < this.rules; ++i) {
+            less.append(".block").append(i).append(" {\n");
+            less.append("  color: darken(@main-color, ").append(i % 20).append("%);\n");
+            less.append("  .rounded(").append(i % 8).append("px);\n");
+            less.append("  .title { font-size: ").append(10 + i % 10).append("px; }\n");
+            less.append("  &:hover { background-color: fade(@main-color, 50%); }\n");
+            less.append("}\n");
+        }
+
+        return less.toString();
+    }
+
+    /**
+     * @throws Exception when failing to dispose the compiler
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.componentManager.dispose();
+    }
+
+    /**
+     * @return the compiled CSS
+     * @throws LESSCompilerException when failing to compile the resource
+     */
+    @Benchmark
+    public String compile() throws LESSCompilerException
+    {
+        return this.compiler.compile(this.resource, false, false, SKIN, false);
+    }
+}
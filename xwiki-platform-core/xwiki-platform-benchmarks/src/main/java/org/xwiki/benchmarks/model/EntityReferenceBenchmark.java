@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.benchmarks.internal.AbstractOldcoreBenchmark;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+/**
+ * Measure the serialization and resolution of entity references, which happen many times in each request.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@ReferenceComponentList
+public class EntityReferenceBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final String DOCUMENT = "wiki:Space1.Space\\.2.Page";
+
+    private EntityReferenceSerializer<String> serializer;
+
+    private EntityReferenceResolver<String> resolver;
+
+    private DocumentReferenceResolver<String> documentResolver;
+
+    private DocumentReference documentReference;
+
+    /**
+     * @throws Exception when failing to initialize the environment
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        setUpOldcore();
+
+        this.serializer = this.componentManager.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        this.resolver = this.componentManager.getInstance(EntityReferenceResolver.TYPE_STRING);
+        this.documentResolver = this.componentManager.getInstance(DocumentReferenceResolver.TYPE_STRING);
+
+        this.documentReference = this.documentResolver.resolve(DOCUMENT);
+    }
+
+    /**
+     * @throws Exception when failing to dispose the environment
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        tearDownOldcore();
+    }
+
+    /**
+     * @return the serialized reference
+     */
+    @Benchmark
+    public String serialize()
+    {
+        return this.serializer.serialize(this.documentReference);
+    }
+
+    /**
+     * @return the resolved reference
+     */
+    @Benchmark
+    public EntityReference resolve()
+    {
+        return this.resolver.resolve(DOCUMENT, EntityType.DOCUMENT);
+    }
+
+    /**
+     * @return the resolved document reference
+     */
+    @Benchmark
+    public DocumentReference resolveDocument()
+    {
+        return this.documentResolver.resolve(DOCUMENT);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.notifications;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.internal.DefaultEvent;
+import org.xwiki.model.internal.reference.DefaultStringEntityReferenceSerializer;
+import org.xwiki.model.internal.reference.DefaultSymbolScheme;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.NotificationFilter.FilterPolicy;
+import org.xwiki.notifications.filters.internal.status.EventReadAlertFilter;
+import org.xwiki.notifications.filters.internal.status.EventReadEmailFilter;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
+import org.xwiki.notifications.internal.SimilarityCalculator;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.notifications.sources.ParametrizedNotificationManager;
+import org.xwiki.notifications.sources.internal.DefaultParametrizedNotificationManager;
+import org.xwiki.notifications.sources.internal.EventSearcher;
+import org.xwiki.notifications.sources.internal.PreferenceDateNotificationFilter;
+import org.xwiki.notifications.sources.internal.RecordableEventDescriptorHelper;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+import org.xwiki.user.group.GroupManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the time needed to read the notifications of one of 10k users through
+ * {@link DefaultParametrizedNotificationManager}, when the events are filtered on read (the default) and when they were
+ * prefiltered for each user when stored.
+ * <p>
+ * Each user follows a small part of the wiki, so filtering on read has to go through a lot of events before finding
+ * enough notifications while the prefiltered events are already the ones of the user. The events are kept in memory:
+ * the measure covers the notification manager (fetch loop, rights, filters and grouping), not the event store queries.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@ComponentList({ DefaultParametrizedNotificationManager.class, SimilarityCalculator.class,
+    DefaultStringEntityReferenceSerializer.class, DefaultSymbolScheme.class })
+public class NotificationReadBenchmark
+{
+    private static final int USERS = 10000;
+
+    private static final int EVENTS = 50000;
+
+    /**
+     * The number of spaces in which the events happen, each user following one of them.
+     */
+    private static final int SPACES = 2000;
+
+    private static final int EXPECTED_COUNT = 10;
+
+    /**
+     * {@code filterOnRead} to evaluate the filters of the user on each read, {@code prefiltered} to read the events
+     * which were associated with the user when stored.
+     */
+    @Param({ "filterOnRead", "prefiltered" })
+    public String mode;
+
+    private MockitoComponentManager componentManager;
+
+    private ParametrizedNotificationManager manager;
+
+    private final List<DocumentReference> users = new ArrayList<>(USERS);
+
+    private final Map<DocumentReference, String> followedSpaces = new HashMap<>(USERS);
+
+    /**
+     * All the events, the most recent first.
+     */
+    private final List<Event> events = new ArrayList<>(EVENTS);
+
+    /**
+     * The events associated with each user, the most recent first.
+     */
+    private final Map<DocumentReference, List<Event>> userEvents = new HashMap<>(USERS);
+
+    private NotificationFilter followedSpaceFilter;
+
+    /**
+     * @throws Exception when failing to initialize the notification manager
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager = new MockitoComponentManager();
+        this.componentManager.initializeTest(this);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < EVENTS; ++i) {
+            DefaultEvent event = new DefaultEvent();
+            event.setId("event" + i);
+            event.setType("update");
+            event.setDate(new Date(now - i * 1000L));
+            event.setDocument(new DocumentReference("xwiki", "Space" + (i % SPACES), "Page" + (i % 7)));
+            this.events.add(event);
+        }
+
+        for (int i = 0; i < USERS; ++i) {
+            DocumentReference user = new DocumentReference("xwiki", "XWiki", "User" + i);
+            this.users.add(user);
+            this.followedSpaces.put(user, "Space" + (i % SPACES));
+        }
+
+        this.followedSpaceFilter = mock(NotificationFilter.class);
+        when(this.followedSpaceFilter.getName()).thenReturn("followedSpace");
+        when(this.followedSpaceFilter.filterEvent(any(), any(), any(), any())).then(invocation -> {
+            Event event = invocation.getArgument(0);
+            DocumentReference user = invocation.getArgument(1);
+
+            return event.getDocument().getLastSpaceReference().getName().equals(this.followedSpaces.get(user))
+                ? FilterPolicy.NO_EFFECT : FilterPolicy.FILTER;
+        });
+
+        // Associate each event with the users following its space, like the user event dispatcher does when
+        // prefiltering
+        for (int i = 0; i < EVENTS; ++i) {
+            for (int j = i % SPACES; j < USERS; j += SPACES) {
+                this.userEvents.computeIfAbsent(this.users.get(j), k -> new ArrayList<>()).add(this.events.get(i));
+            }
+        }
+
+        EventSearcher searcher = this.componentManager.registerMockComponent(EventSearcher.class);
+        when(searcher.searchEvents(anyInt(), anyInt(), any())).then(invocation -> {
+            int offset = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            NotificationParameters parameters = invocation.getArgument(2);
+
+            List<Event> source =
+                "prefiltered".equals(this.mode) ? this.userEvents.get(parameters.user) : this.events;
+
+            return new ArrayList<>(
+                source.subList(Math.min(offset, source.size()), Math.min(offset + limit, source.size())));
+        });
+
+        AuthorizationManager authorization = this.componentManager.registerMockComponent(AuthorizationManager.class);
+        when(authorization.hasAccesses(any(Right.class), any(DocumentReference.class), anyCollection()))
+            .then(invocation -> {
+                Collection<EntityReference> references = invocation.getArgument(2);
+                Map<EntityReference, Boolean> accesses = new LinkedHashMap<>(references.size());
+                references.forEach(reference -> accesses.put(reference, true));
+
+                return accesses;
+            });
+        ContextualAuthorizationManager contextualAuthorization =
+            this.componentManager.registerMockComponent(ContextualAuthorizationManager.class);
+        when(contextualAuthorization.hasAccess(any(Right.class), any(EntityReference.class))).thenReturn(true);
+
+        RecordableEventDescriptorHelper descriptorHelper =
+            this.componentManager.registerMockComponent(RecordableEventDescriptorHelper.class);
+        when(descriptorHelper.hasDescriptor(anyString(), any())).thenReturn(true);
+
+        this.componentManager.registerMockComponent(PreferenceDateNotificationFilter.class);
+        this.componentManager.registerMockComponent(GroupManager.class);
+        this.componentManager.registerMockComponent(NotificationFilter.class, EventReadAlertFilter.FILTER_NAME);
+        this.componentManager.registerMockComponent(NotificationFilter.class, EventReadEmailFilter.FILTER_NAME);
+
+        this.manager = this.componentManager.getInstance(ParametrizedNotificationManager.class);
+    }
+
+    /**
+     * @throws Exception when failing to dispose the notification manager
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.componentManager.dispose();
+    }
+
+    /**
+     * @return the notifications of a random user
+     * @throws NotificationException when failing to get the notifications
+     */
+    @Benchmark
+    public List<CompositeEvent> read() throws NotificationException
+    {
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = this.users.get(ThreadLocalRandom.current().nextInt(USERS));
+        parameters.format = NotificationFormat.ALERT;
+        parameters.expectedCount = EXPECTED_COUNT;
+        if ("prefiltered".equals(this.mode)) {
+            // What DefaultNotificationParametersFactory sets up when prefiltering is enabled
+            parameters.filters.add(new ForUserEventFilter(NotificationFormat.ALERT, null));
+        } else {
+            parameters.filters.add(this.followedSpaceFilter);
+        }
+
+        return this.manager.getEvents(parameters);
+    }
+}
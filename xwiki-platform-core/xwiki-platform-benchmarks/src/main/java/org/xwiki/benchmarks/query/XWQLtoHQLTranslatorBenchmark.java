@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.query;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.query.xwql.internal.hql.XWQLtoHQLTranslator;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the translation of XWQL statements into HQL, which happen for each XWQL query executed.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XWQLtoHQLTranslatorBenchmark
+{
+    private static final Map<String, String> STATEMENTS = new HashMap<>();
+
+    static {
+        STATEMENTS.put("short", "where doc.space = 'Main' order by doc.date desc");
+        STATEMENTS.put("object", "select doc.fullName from Document as doc, doc.object(XWiki.XWikiUsers) as user"
+            + " where user.email like '%@example.com' order by user.last_name");
+        STATEMENTS.put("properties",
+            "select doc.fullName from Document as doc, doc.object(XWiki.XWikiUsers) as user,"
+                + " doc.object(XWiki.TagClass) as tag where user.first_name = :name and user.active = 1"
+                + " and :tag member of tag.tags and doc.hidden <> true order by doc.date desc");
+    }
+
+    /**
+     * The identifier of the XWQL statement to translate.
+     */
+    @Param({ "short", "object", "properties" })
+    public String statement;
+
+    private XWQLtoHQLTranslator translator;
+
+    private String input;
+
+    /**
+     * Create the translator.
+     */
+    @Setup
+    public void setUp()
+    {
+        DocumentAccessBridge documentAccessBridge = mock(DocumentAccessBridge.class);
+        when(documentAccessBridge.getPropertyType(anyString(), anyString())).thenReturn("StringProperty");
+        when(documentAccessBridge.getPropertyType(anyString(), eq("tags"))).thenReturn("StringListProperty");
+        when(documentAccessBridge.getPropertyType(anyString(), eq("active"))).thenReturn("IntegerProperty");
+
+        this.translator = new XWQLtoHQLTranslator()
+        {
+            @Override
+            public DocumentAccessBridge getDocumentAccessBridge()
+            {
+                return documentAccessBridge;
+            }
+        };
+
+        this.input = STATEMENTS.get(this.statement);
+    }
+
+    /**
+     * @return the HQL statement
+     * @throws Exception when failing to translate the statement
+     */
+    @Benchmark
+    public String translate() throws Exception
+    {
+        return this.translator.translate(this.input);
+    }
+}
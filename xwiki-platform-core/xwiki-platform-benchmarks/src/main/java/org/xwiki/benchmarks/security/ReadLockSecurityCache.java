@@ -0,0 +1,197 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.security;
+
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.xwiki.security.GroupSecurityReference;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+import org.xwiki.security.authorization.cache.ConflictingInsertionException;
+import org.xwiki.security.authorization.cache.ParentEntryEvictedException;
+import org.xwiki.security.authorization.cache.SecurityShadowEntry;
+import org.xwiki.security.authorization.cache.internal.SecurityCache;
+
+/**
+ * Reproduce the locking of the security cache before the reads became lock free (each lookup taking the fair read
+ * lock and each modification the write lock) to compare both.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+final class ReadLockSecurityCache implements SecurityCache
+{
+    private final SecurityCache cache;
+
+    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
+
+    private final Lock readLock = this.readWriteLock.readLock();
+
+    private final Lock writeLock = this.readWriteLock.writeLock();
+
+    /**
+     * @param cache the cache to protect
+     */
+    ReadLockSecurityCache(SecurityCache cache)
+    {
+        this.cache = cache;
+    }
+
+    @Override
+    public SecurityAccessEntry get(UserSecurityReference user, SecurityReference entity)
+    {
+        this.readLock.lock();
+        try {
+            return this.cache.get(user, entity);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public SecurityRuleEntry get(SecurityReference entity)
+    {
+        this.readLock.lock();
+        try {
+            return this.cache.get(entity);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(UserSecurityReference user, SecurityReference entity)
+    {
+        this.writeLock.lock();
+        try {
+            this.cache.remove(user, entity);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(SecurityReference entity)
+    {
+        this.writeLock.lock();
+        try {
+            this.cache.remove(entity);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void add(SecurityRuleEntry entry) throws ParentEntryEvictedException, ConflictingInsertionException
+    {
+        this.writeLock.lock();
+        try {
+            this.cache.add(entry);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void add(SecurityAccessEntry entry) throws ParentEntryEvictedException, ConflictingInsertionException
+    {
+        this.writeLock.lock();
+        try {
+            this.cache.add(entry);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void add(SecurityAccessEntry entry, SecurityReference wiki)
+        throws ParentEntryEvictedException, ConflictingInsertionException
+    {
+        this.writeLock.lock();
+        try {
+            this.cache.add(entry, wiki);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void add(SecurityRuleEntry entry, Collection<GroupSecurityReference> groups)
+        throws ParentEntryEvictedException, ConflictingInsertionException
+    {
+        this.writeLock.lock();
+        try {
+            this.cache.add(entry, groups);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void add(SecurityShadowEntry entry, Collection<GroupSecurityReference> groups)
+        throws ParentEntryEvictedException, ConflictingInsertionException
+    {
+        this.writeLock.lock();
+        try {
+            this.cache.add(entry, groups);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<GroupSecurityReference> getImmediateGroupsFor(UserSecurityReference user)
+    {
+        this.readLock.lock();
+        try {
+            return this.cache.getImmediateGroupsFor(user);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<GroupSecurityReference> getGroupsFor(UserSecurityReference user, SecurityReference entityWiki)
+    {
+        this.readLock.lock();
+        try {
+            return this.cache.getGroupsFor(user, entityWiki);
+        } finally {
+            this.readLock.unlock();
+        }
+    }
+
+    @Override
+    public void suspendInvalidation()
+    {
+        this.cache.suspendInvalidation();
+    }
+
+    @Override
+    public void resumeInvalidation()
+    {
+        this.cache.resumeInvalidation();
+    }
+}
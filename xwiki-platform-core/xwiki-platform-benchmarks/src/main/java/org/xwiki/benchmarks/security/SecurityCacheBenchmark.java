@@ -0,0 +1,307 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.benchmarks.internal.MapCache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.metrics.internal.DefaultMetricsManager;
+import org.xwiki.model.internal.reference.DefaultStringEntityReferenceSerializer;
+import org.xwiki.model.internal.reference.DefaultSymbolScheme;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.DefaultSecurityReferenceFactory;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.SecurityAccess;
+import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.security.authorization.SecurityRule;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+import org.xwiki.security.authorization.cache.internal.DefaultSecurityCache;
+import org.xwiki.security.authorization.cache.internal.SecurityCache;
+import org.xwiki.security.authorization.internal.AbstractSecurityAccessEntry;
+import org.xwiki.security.authorization.internal.AbstractSecurityRuleEntry;
+import org.xwiki.security.authorization.internal.XWikiSecurityAccess;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the lookups in the {@link DefaultSecurityCache}, which happen for each right check, with an increasing
+ * number of concurrent readers, alone or while the cache is being modified. The {@code locking} parameter allows to
+ * compare the lock free reads with the previous behavior (each lookup taking the fair read lock).
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@ComponentList({ DefaultSecurityCache.class, DefaultStringEntityReferenceSerializer.class, DefaultSymbolScheme.class,
+    DefaultSecurityReferenceFactory.class, DefaultMetricsManager.class })
+public class SecurityCacheBenchmark
+{
+    private static final int USERS = 100;
+
+    private static final int DOCUMENTS = 1000;
+
+    private static final class RuleEntry extends AbstractSecurityRuleEntry
+    {
+        private final SecurityReference reference;
+
+        RuleEntry(SecurityReference reference)
+        {
+            this.reference = reference;
+        }
+
+        @Override
+        public SecurityReference getReference()
+        {
+            return this.reference;
+        }
+
+        @Override
+        public Collection<SecurityRule> getRules()
+        {
+            return Collections.emptyList();
+        }
+    }
+
+    private static final class AccessEntry extends AbstractSecurityAccessEntry
+    {
+        private final UserSecurityReference user;
+
+        private final SecurityReference reference;
+
+        AccessEntry(UserSecurityReference user, SecurityReference reference)
+        {
+            this.user = user;
+            this.reference = reference;
+        }
+
+        @Override
+        public SecurityReference getReference()
+        {
+            return this.reference;
+        }
+
+        @Override
+        public UserSecurityReference getUserReference()
+        {
+            return this.user;
+        }
+
+        @Override
+        public SecurityAccess getAccess()
+        {
+            return XWikiSecurityAccess.getDefaultAccess();
+        }
+    }
+
+    /**
+     * {@code none} to measure the {@link DefaultSecurityCache} as is, {@code readLock} to take a fair read lock for
+     * each lookup (and the write lock for each modification) like the cache used to do.
+     */
+    @Param({ "none", "readLock" })
+    public String locking;
+
+    private MockitoComponentManager componentManager;
+
+    private SecurityCache cache;
+
+    private final List<UserSecurityReference> users = new ArrayList<>(USERS);
+
+    private final List<SecurityReference> documents = new ArrayList<>(DOCUMENTS);
+
+    /**
+     * @throws Exception when failing to initialize the cache
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager = new MockitoComponentManager();
+        this.componentManager.initializeTest(this);
+        this.componentManager.registerMemoryConfigurationSource();
+
+        XWikiBridge bridge = this.componentManager.registerMockComponent(XWikiBridge.class);
+        when(bridge.getMainWikiReference()).thenReturn(new WikiReference("xwiki"));
+        when(bridge.toCompatibleEntityReference(any(EntityReference.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+        CacheManager cacheManager = this.componentManager.registerMockComponent(CacheManager.class);
+        when(cacheManager.createNewCache(any(CacheConfiguration.class))).thenAnswer(invocation -> new MapCache<>());
+
+        SecurityReferenceFactory factory = this.componentManager.getInstance(SecurityReferenceFactory.class);
+        this.cache = this.componentManager.getInstance(SecurityCache.class);
+        if ("readLock".equals(this.locking)) {
+            this.cache = new ReadLockSecurityCache(this.cache);
+        }
+
+        WikiReference wikiReference = new WikiReference("xwiki");
+        this.cache.add(new RuleEntry(factory.newEntityReference(wikiReference)));
+
+        SpaceReference usersSpace = new SpaceReference("XWiki", wikiReference);
+        this.cache.add(new RuleEntry(factory.newEntityReference(usersSpace)));
+        for (int i = 0; i < USERS; ++i) {
+            UserSecurityReference user = factory.newUserReference(new DocumentReference("User" + i, usersSpace));
+            this.cache.add(new RuleEntry(user), null);
+            this.users.add(user);
+        }
+
+        SpaceReference space = new SpaceReference("Space", wikiReference);
+        this.cache.add(new RuleEntry(factory.newEntityReference(space)));
+        for (int i = 0; i < DOCUMENTS; ++i) {
+            SecurityReference document = factory.newEntityReference(new DocumentReference("Page" + i, space));
+            this.cache.add(new RuleEntry(document));
+            this.documents.add(document);
+        }
+
+        for (UserSecurityReference user : this.users) {
+            for (SecurityReference document : this.documents) {
+                this.cache.add(new AccessEntry(user, document));
+            }
+        }
+    }
+
+    /**
+     * @throws Exception when failing to dispose the cache
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        this.componentManager.dispose();
+    }
+
+    private SecurityAccessEntry getAccess()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return this.cache.get(this.users.get(random.nextInt(USERS)), this.documents.get(random.nextInt(DOCUMENTS)));
+    }
+
+    /**
+     * @return the rules of a document
+     */
+    @Benchmark
+    @Threads(8)
+    public SecurityRuleEntry getRules()
+    {
+        return this.cache.get(this.documents.get(ThreadLocalRandom.current().nextInt(DOCUMENTS)));
+    }
+
+    /**
+     * @return the access of a user on a document
+     */
+    @Benchmark
+    @Threads(1)
+    public SecurityAccessEntry getAccess1()
+    {
+        return getAccess();
+    }
+
+    /**
+     * @return the access of a user on a document
+     */
+    @Benchmark
+    @Threads(8)
+    public SecurityAccessEntry getAccess8()
+    {
+        return getAccess();
+    }
+
+    /**
+     * @return the access of a user on a document
+     */
+    @Benchmark
+    @Threads(32)
+    public SecurityAccessEntry getAccess32()
+    {
+        return getAccess();
+    }
+
+    /**
+     * @return the access of a user on a document
+     */
+    @Benchmark
+    @Threads(64)
+    public SecurityAccessEntry getAccess64()
+    {
+        return getAccess();
+    }
+
+    /**
+     * @return the access of a user on a document, while another thread is invalidating and loading access entries
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public SecurityAccessEntry mixedGetAccess()
+    {
+        return getAccess();
+    }
+
+    /**
+     * Invalidate and load again the access of a user on a document while other threads are reading the cache.
+     * 
+     * @throws Exception when failing to add the entry
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedUpdateAccess() throws Exception
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UserSecurityReference user = this.users.get(random.nextInt(USERS));
+        SecurityReference document = this.documents.get(random.nextInt(DOCUMENTS));
+
+        this.cache.remove(user, document);
+        this.cache.add(new AccessEntry(user, document));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.benchmarks.internal.AbstractOldcoreBenchmark;
+import org.xwiki.benchmarks.internal.MapCache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.metrics.internal.DefaultMetricsManager;
+import org.xwiki.model.internal.reference.UidStringEntityReferenceSerializer;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.test.annotation.ComponentList;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiCacheStore;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the document cache hit path of {@link XWikiCacheStore}, which is taken by most of the document loads of a
+ * running wiki.
+ * <p>
+ * The underlying store is the in-memory store of the oldcore test tools: the cache hit path never reaches it.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@ComponentList({ UidStringEntityReferenceSerializer.class, DefaultMetricsManager.class })
+@ReferenceComponentList
+public class XWikiCacheStoreBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final int DOCUMENTS = 1000;
+
+    private XWikiCacheStore store;
+
+    private final List<DocumentReference> references = new ArrayList<>(DOCUMENTS);
+
+    /**
+     * @throws Exception when failing to initialize the environment
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        setUpOldcore();
+
+        this.componentManager.registerMockComponent(RemoteObservationManagerContext.class);
+        this.componentManager.registerMockComponent(ObservationManager.class);
+        CacheManager cacheManager = this.componentManager.registerMockComponent(CacheManager.class);
+        when(cacheManager.createNewCache(any(CacheConfiguration.class))).thenAnswer(invocation -> new MapCache<>());
+
+        XWikiContext xcontext = getXWikiContext();
+
+        this.store = new XWikiCacheStore(this.oldcore.getMockStore(), xcontext);
+
+        for (int i = 0; i < DOCUMENTS; ++i) {
+            DocumentReference reference = new DocumentReference("xwiki", "Space" + (i % 10), "Page" + i);
+            XWikiDocument document = new XWikiDocument(reference);
+            document.setContent("Content of page " + i);
+            this.oldcore.getSpyXWiki().saveDocument(document, xcontext);
+
+            this.references.add(reference);
+
+            // Warm the cache
+            this.store.loadXWikiDoc(new XWikiDocument(reference), xcontext);
+        }
+    }
+
+    /**
+     * @throws Exception when failing to dispose the environment
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        tearDownOldcore();
+    }
+
+    private XWikiDocument loadRandom() throws XWikiException
+    {
+        DocumentReference reference = this.references.get(ThreadLocalRandom.current().nextInt(DOCUMENTS));
+
+        return this.store.loadXWikiDoc(new XWikiDocument(reference), getXWikiContext());
+    }
+
+    /**
+     * @return the loaded document
+     * @throws XWikiException when failing to load the document
+     */
+    @Benchmark
+    public XWikiDocument loadCached() throws XWikiException
+    {
+        return loadRandom();
+    }
+
+    /**
+     * @return the loaded document
+     * @throws XWikiException when failing to load the document
+     */
+    @Benchmark
+    @Threads(8)
+    public XWikiDocument loadCachedConcurrently() throws XWikiException
+    {
+        return loadRandom();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.user;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.benchmarks.internal.AbstractOldcoreBenchmark;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.user.internal.group.GroupMembershipIndex;
+
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measure the loading of the group memberships of a wiki by {@link GroupMembershipIndex}, the resolution of the nested
+ * groups of a user and the update of a group, with 100000 users each member of 3 groups and 5000 groups organized as a
+ * binary tree.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@ReferenceComponentList
+@ComponentList(GroupMembershipIndex.class)
+public class GroupMembershipIndexBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final String WIKI = "wiki";
+
+    private static final String SPACE = "XWiki";
+
+    private static final int USERS = 100000;
+
+    private static final int GROUPS = 5000;
+
+    private static final Collection<String> WIKIS = Collections.singletonList(WIKI);
+
+    private final List<Object[]> memberships = new ArrayList<>();
+
+    private final DocumentReference rootGroup = new DocumentReference(WIKI, SPACE, "Group0");
+
+    private final DocumentReference updatedGroup = new DocumentReference(WIKI, SPACE, "Group1");
+
+    private GroupMembershipIndex index;
+
+    private int user;
+
+    /**
+     * @throws Exception when failing to initialize the index
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        setUpOldcore();
+
+        // Each user is member of 3 groups, and each group is member of its parent in a binary tree of groups
+        for (int i = 0; i < USERS; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                this.memberships.add(new Object[] { "XWiki.Group" + ((i * 3 + j * 7) % GROUPS), "XWiki.User" + i });
+            }
+        }
+        for (int i = 1; i < GROUPS; ++i) {
+            this.memberships.add(new Object[] { "XWiki.Group" + ((i - 1) / 2), "XWiki.Group" + i });
+        }
+
+        Query query = mock(Query.class);
+        when(query.<Object[]>execute()).thenReturn(this.memberships);
+        QueryManager queryManager = this.oldcore.getQueryManager();
+        when(queryManager.createQuery(anyString(), eq(Query.HQL))).thenReturn(query);
+
+        this.index = this.componentManager.getInstance(GroupMembershipIndex.class);
+
+        // Load the memberships of the wiki
+        this.index.getMembers(this.rootGroup, false);
+    }
+
+    /**
+     * @throws Exception when failing to dispose the environment
+     */
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        tearDownOldcore();
+    }
+
+    /**
+     * @return the direct members of the root group
+     */
+    @Benchmark
+    public Collection<DocumentReference> load()
+    {
+        this.index.removeWiki(WIKI);
+
+        return this.index.getMembers(this.rootGroup, false);
+    }
+
+    /**
+     * @return the groups of a user, including the groups of groups
+     */
+    @Benchmark
+    public Collection<DocumentReference> resolveNestedGroups()
+    {
+        this.user = (this.user + 97) % USERS;
+
+        return this.index.getGroups(new DocumentReference(WIKI, SPACE, "User" + this.user), WIKIS, true);
+    }
+
+    /**
+     * Replace the direct members of a group, like when the group document is saved.
+     */
+    @Benchmark
+    public void updateGroup()
+    {
+        this.index.setMembers(this.updatedGroup, this.index.getMembers(this.updatedGroup, false));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.xar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.xar.XarException;
+import org.xwiki.xar.XarPackage;
+
+/**
+ * Measure the parsing of XAR packages with {@link XarPackage}, which happen each time a XAR extension is installed or
+ * upgraded.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class XarPackageBenchmark
+{
+    private static final String SPACE = "Space";
+
+    /**
+     * The number of documents in the package.
+     */
+    @Param({ "100", "1000" })
+    public int entries;
+
+    private File file;
+
+    /**
+     * @throws Exception when failing to generate the XAR package
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.file = File.createTempFile("benchmark", ".xar");
+
+        XarPackage xarPackage = new XarPackage();
+        xarPackage.setPackageName("benchmark");
+
+        try (ZipArchiveOutputStream zipStream = new ZipArchiveOutputStream(this.file)) {
+            for (int i = 0; i < this.entries; ++i) {
+                String name = "Page" + i;
+                String entryName = SPACE + '/' + name + ".xml";
+
+                zipStream.putArchiveEntry(new ZipArchiveEntry(entryName));
+                zipStream.write(generateDocument(name).getBytes(StandardCharsets.UTF_8));
+                zipStream.closeArchiveEntry();
+
+                xarPackage.addEntry(new LocalDocumentReference(SPACE, name), entryName);
+            }
+
+            xarPackage.write(zipStream, StandardCharsets.UTF_8.name());
+        }
+    }
+
+    private String generateDocument(String name)
+    {
+        StringBuilder xml = new StringBuilder();
+
+        xml.append("<?xml version=\"1.1\" encoding=\"UTF-8\"?>\n");
+        xml.append("<xwikidoc version=\"1.3\" reference=\"").append(SPACE).append('.').append(name)
+            .append("\" locale=\"\">\n");
+        xml.append("  <web>").append(SPACE).append("</web>\n");
+        xml.append("  <name>").append(name).append("</name>\n");
+        xml.append("  <language/>\n");
+        xml.append("  <defaultLanguage/>\n");
+        xml.append("  <translation>0</translation>\n");
+        xml.append("  <creator>XWiki.Admin</creator>\n");
+        xml.append("  <parent>Main.WebHome</parent>\n");
+        xml.append("  <author>XWiki.Admin</author>\n");
+        xml.append("  <contentAuthor>XWiki.Admin</contentAuthor>\n");
+        xml.append("  <version>1.1</version>\n");
+        xml.append("  <title>").append(name).append("</title>\n");
+        xml.append("  <comment/>\n");
+        xml.append("  <minorEdit>false</minorEdit>\n");
+        xml.append("  <syntaxId>xwiki/2.1</syntaxId>\n");
+        xml.append("  <hidden>false</hidden>\n");
+        xml.append("  <content>");
+        for (int i = 0; i < 50; ++i) {
+            xml.append("= Heading ").append(i).append(" =\n\nSome **bold** text.\n\n");
+        }
+        xml.append("</content>\n");
+        xml.append("</xwikidoc>\n");
+
+        return xml.toString();
+    }
+
+    /**
+     * @throws IOException when failing to delete the XAR package
+     */
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(this.file.toPath());
+    }
+
+    /**
+     * @return the parsed package
+     * @throws IOException when failing to read the XAR package
+     * @throws XarException when failing to parse the XAR package
+     */
+    @Benchmark
+    public XarPackage readFile() throws IOException, XarException
+    {
+        return new XarPackage(this.file);
+    }
+
+    /**
+     * @return the parsed package
+     * @throws IOException when failing to read the XAR package
+     * @throws XarException when failing to parse the XAR package
+     */
+    @Benchmark
+    public XarPackage readStream() throws IOException, XarException
+    {
+        try (InputStream stream = Files.newInputStream(this.file.toPath())) {
+            return new XarPackage(stream);
+        }
+    }
+}
@@ -26,6 +26,7 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -96,7 +97,12 @@ public abstract class AbstractAsynchronousEventStore implements EventStore, Init
         /**
          * @since 12.6RC1
          */
-        PREFILTER_EVENT
+        PREFILTER_EVENT,
+
+        /**
+         * @since 12.6RC1
+         */
+        EXECUTE
     }
 
     /**
@@ -147,6 +153,15 @@ public EventStoreTaskType getType()
         {
             return this.type;
         }
+
+        /**
+         * @return the future notified when the task is done
+         * @since 12.6RC1
+         */
+        public CompletableFuture<O> getFuture()
+        {
+            return this.future;
+        }
     }
 
     @Inject
@@ -244,6 +259,19 @@ public CompletableFuture<Optional<EventStatus>> deleteMailEntityEvent(EntityEven
         return addTask(event, EventStoreTaskType.DELETE_MAIL_ENTITY);
     }
 
+    /**
+     * Execute the passed code in the thread handling the store tasks, after the tasks already queued.
+     * 
+     * @param <O> the type of the result
+     * @param callable the code to execute
+     * @return the {@link CompletableFuture} providing the result of the execution
+     * @since 12.6RC1
+     */
+    protected <O> CompletableFuture<O> execute(Callable<O> callable)
+    {
+        return addTask(callable, EventStoreTaskType.EXECUTE);
+    }
+
     @Override
     public CompletableFuture<Event> prefilterEvent(Event event)
     {
@@ -292,7 +320,7 @@ private void processTasks(EventStoreTask<?, ?> firstTask)
         }
     }
 
-    private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamException
+    private boolean processTask(EventStoreTask<?, ?> task) throws Exception
     {
         switch (task.type) {
             case DELETE_EVENT:
@@ -331,6 +359,11 @@ private boolean processTask(EventStoreTask<?, ?> task) throws EventStreamExcepti
                 processTaskOutput((EventStoreTask<Event, Event>) task, syncPrefilterEvent((Event) task.input));
                 break;
 
+            case EXECUTE:
+                processTaskOutput((EventStoreTask<Object, Callable<Object>>) task,
+                    ((Callable<Object>) task.input).call());
+                break;
+
             default:
                 break;
         }
@@ -444,7 +477,10 @@ protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
     {
         if (this.notifyAll) {
             for (EventStoreTask task : tasks) {
-                complete(task, task.output);
+                // Don't notify the success of a task which failed
+                if (!task.future.isCompletedExceptionally()) {
+                    complete(task, task.output);
+                }
             }
         }
     }
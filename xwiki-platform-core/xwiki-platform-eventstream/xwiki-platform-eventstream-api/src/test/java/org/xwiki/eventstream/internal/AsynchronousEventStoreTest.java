@@ -21,6 +21,7 @@
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
@@ -32,15 +33,24 @@
 import org.xwiki.eventstream.EventSearchResult;
 import org.xwiki.eventstream.EventStatus;
 import org.xwiki.eventstream.EventStreamException;
+import org.xwiki.eventstream.events.EventStreamAddedEvent;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectComponentManager;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.mockito.MockitoComponentManager;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 
 /**
  * Validate {@link AbstractAsynchronousEventStore}.
@@ -171,12 +181,34 @@ protected Optional<Event> syncDeleteEvent(Event event) throws EventStreamExcepti
         }
     }
 
+    public static class TestBatchAsynchronousEventStore extends TestAbstractAsynchronousEventStore
+    {
+        @Override
+        public void initialize() throws InitializationException
+        {
+            initialize(2, false, true);
+        }
+
+        @Override
+        protected Event syncSaveEvent(Event event) throws EventStreamException
+        {
+            if (event.getId().startsWith("failing")) {
+                throw new EventStreamException("Failed to save the event");
+            }
+
+            return super.syncSaveEvent(event);
+        }
+    }
+
     @InjectComponentManager
     private MockitoComponentManager componentManager;
 
     @InjectMockComponents
     private TestAbstractAsynchronousEventStore store;
 
+    @InjectMockComponents
+    private TestBatchAsynchronousEventStore batchStore;
+
     private DefaultEvent event(String id)
     {
         DefaultEvent event = new DefaultEvent();
@@ -308,4 +340,22 @@ void prefilter() throws InterruptedException, ExecutionException, EventStreamExc
         assertTrue(this.store.getEvent(event1.getId()).get().isPrefiltered());
         assertFalse(this.store.getEvent(event2.getId()).get().isPrefiltered());
     }
+
+    @Test
+    void failingTaskIsNotNotified()
+    {
+        DefaultEvent event1 = event("failing");
+        DefaultEvent event2 = event("id2");
+
+        CompletableFuture<Event> future1 = this.batchStore.saveEvent(event1);
+        CompletableFuture<Event> future2 = this.batchStore.saveEvent(event2);
+
+        assertThrows(ExecutionException.class, () -> future1.get());
+        assertSame(event2, assertDoesNotThrow(() -> future2.get()));
+
+        // The future is completed before the listeners are notified
+        verify(this.batchStore.observation, timeout(10000)).notify(any(EventStreamAddedEvent.class), same(event2));
+        verify(this.batchStore.observation, never()).notify(any(EventStreamAddedEvent.class), same(event1));
+        verify(this.batchStore.observation, never()).notify(any(EventStreamAddedEvent.class), isNull());
+    }
 }
@@ -50,21 +50,59 @@ public class EventsSolrCoreInitializer extends AbstractSolrCoreInitializer
 
     /**
      * The name of the field containing the list of users having this event in its inbox in read state.
+     * <p>
+     * Only used to migrate the status stored before 12.6, see {@link #SOLR_FIELD_STATUS_EVENT}.
      */
     public static final String SOLR_FIELD_READLISTENERS = "readListeners";
 
     /**
      * The name of the field containing the list of users having this event in its inbox in unread state.
+     * <p>
+     * Only used to migrate the status stored before 12.6, see {@link #SOLR_FIELD_STATUS_EVENT}.
      */
     public static final String SOLR_FIELD_UNREADLISTENERS = "unreadListeners";
 
     /**
      * The name of the field containing the list of users who should get this event by mail.
+     * <p>
+     * Only used to migrate the status stored before 12.6, see {@link #SOLR_FIELD_STATUS_EVENT}.
      * 
      * @since 12.6RC1
      */
     public static final String SOLR_FIELD_MAILLISTENERS = "mailListeners";
 
+    /**
+     * The name of the field containing the identifier of the event associated with a status document.
+     * <p>
+     * Status documents are small documents stored next to the events so that changing the status of an event for an
+     * entity does not require to re-index the whole event.
+     * 
+     * @since 12.6RC1
+     */
+    public static final String SOLR_FIELD_STATUS_EVENT = "statusEvent";
+
+    /**
+     * The name of the field containing the identifier of the entity associated with a status document.
+     * 
+     * @since 12.6RC1
+     */
+    public static final String SOLR_FIELD_STATUS_ENTITY = "statusEntity";
+
+    /**
+     * The name of the field indicating if the event is read by the entity, only set in inbox status documents.
+     * 
+     * @since 12.6RC1
+     */
+    public static final String SOLR_FIELD_STATUS_READ = "statusRead";
+
+    /**
+     * The name of the field indicating that the entity should get the event by mail, only set in mail status
+     * documents.
+     * 
+     * @since 12.6RC1
+     */
+    public static final String SOLR_FIELD_STATUS_MAIL = "statusMail";
+
     /**
      * The name of the field containing the different variation of space reference.
      * 
@@ -79,10 +117,15 @@ public class EventsSolrCoreInitializer extends AbstractSolrCoreInitializer
      */
     public static final String FIELD_DOCUMENT_INDEX = "document_index";
 
+    /**
+     * The version of the schema in which the status are stored in dedicated documents.
+     */
+    private static final long SCHEMA_VERSION_12_6_STATUS = SCHEMA_VERSION_12_6 + 1;
+
     @Override
     protected long getVersion()
     {
-        return SCHEMA_VERSION_12_6;
+        return SCHEMA_VERSION_12_6_STATUS;
     }
 
     @Override
@@ -126,5 +169,12 @@ protected void migrateSchema(long cversion) throws SolrException
         if (cversion < SCHEMA_VERSION_12_6) {
             setStringField(SOLR_FIELD_MAILLISTENERS, true, false);
         }
+
+        if (cversion < SCHEMA_VERSION_12_6_STATUS) {
+            setStringField(SOLR_FIELD_STATUS_EVENT, false, false);
+            setStringField(SOLR_FIELD_STATUS_ENTITY, false, false);
+            setBooleanField(SOLR_FIELD_STATUS_READ, false, false);
+            setBooleanField(SOLR_FIELD_STATUS_MAIL, false, false);
+        }
     }
 }
@@ -21,11 +21,18 @@
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,6 +48,7 @@
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.eventstream.EntityEvent;
 import org.xwiki.eventstream.Event;
@@ -92,6 +100,25 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
         SEARCH_FIELD_MAPPING.put(Event.FIELD_SPACE, EventsSolrCoreInitializer.FIELD_SPACE_INDEX);
     }
 
+    private static final String STATUS_ID_PREFIX_INBOX = "status/";
+
+    private static final String STATUS_ID_PREFIX_MAIL = "mail/";
+
+    private static final String STATUS_ID_SEPARATOR = "/";
+
+    private static final String SOLR_EXISTS = ":[* TO *]";
+
+    private static final String SOLR_AND = " AND ";
+
+    private static final String SOLR_OR = " OR ";
+
+    private static final int MIGRATION_BATCH_SIZE = 100;
+
+    /**
+     * The maximum time to wait before doing a hard commit, soft commits are used in between.
+     */
+    private static final long HARD_COMMIT_INTERVAL = 60000;
+
     @Inject
     private Solr solr;
 
@@ -107,23 +134,164 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
 
     private SolrClient client;
 
+    // The following are only manipulated by the store thread
+
+    private final Map<String, SolrInputDocument> pendingDocuments = new LinkedHashMap<>();
+
+    private final Set<String> pendingDeletes = new LinkedHashSet<>();
+
+    private EventStreamException flushError;
+
+    private long lastHardCommit = System.currentTimeMillis();
+
+    private volatile boolean disposed;
+
     @Override
     public void initialize() throws InitializationException
     {
-        initialize(100, false, true);
-
         try {
             this.client = this.solr.getClient(EventsSolrCoreInitializer.NAME);
         } catch (SolrException e) {
             throw new InitializationException("Failed to get the events Solr core", e);
         }
+
+        initialize(100, false, true);
+
+        // The store can be used while the status stored by previous versions are being migrated
+        Thread thread = new Thread(this::migrateListeners);
+        thread.setName("Migration of the status of the Solr event store");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.disposed = true;
+
+        super.dispose();
+    }
+
+    /**
+     * Move the status stored in the events documents before 12.6 to dedicated status documents.
+     * <p>
+     * Package protected for the tests.
+     */
+    void migrateListeners()
+    {
+        try {
+            // Each batch is executed by the store thread so that it cannot overwrite a status saved in the meantime
+            long previous = Long.MAX_VALUE;
+            for (long remaining = execute(this::migrateListenersBatch).get(); remaining > 0 && remaining < previous
+                && !this.disposed; remaining = execute(this::migrateListenersBatch).get()) {
+                previous = remaining;
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("The migration of the events status has been interrupted");
+
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to migrate the events status", e.getCause());
+        }
+    }
+
+    /**
+     * @return the number of events which still needed to be migrated before this batch
+     */
+    private long migrateListenersBatch() throws EventStreamException, SolrServerException, IOException
+    {
+        // Make sure the changes of the previous tasks are visible to the real time get
+        flush();
+
+        SolrQuery query = new SolrQuery();
+        query.addFilterQuery(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS + SOLR_EXISTS + SOLR_OR
+            + EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS + SOLR_EXISTS + SOLR_OR
+            + EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS + SOLR_EXISTS);
+        query.setFields(EventsSolrCoreInitializer.SOLR_FIELD_ID, EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS,
+            EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS, EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS);
+        query.setRows(MIGRATION_BATCH_SIZE);
+
+        // The migrated documents don't match the query anymore so we always ask for the first page
+        SolrDocumentList documents = this.client.query(query).getResults();
+
+        if (!documents.isEmpty()) {
+            this.logger.info("Migrating the status of [{}] remaining events", documents.getNumFound());
+
+            Map<String, SolrInputDocument> statusDocuments = new LinkedHashMap<>();
+            for (SolrDocument document : documents) {
+                String eventId = this.utils.get(EventsSolrCoreInitializer.SOLR_FIELD_ID, document);
+
+                for (Object entityId : getFieldValues(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS, document)) {
+                    statusDocuments.put(toStatusId(STATUS_ID_PREFIX_INBOX, eventId, entityId.toString()),
+                        toStatusDocument(eventId, entityId.toString(), true));
+                }
+                for (Object entityId : getFieldValues(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS,
+                    document)) {
+                    statusDocuments.put(toStatusId(STATUS_ID_PREFIX_INBOX, eventId, entityId.toString()),
+                        toStatusDocument(eventId, entityId.toString(), false));
+                }
+                for (Object entityId : getFieldValues(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, document)) {
+                    statusDocuments.put(toStatusId(STATUS_ID_PREFIX_MAIL, eventId, entityId.toString()),
+                        toMailDocument(eventId, entityId.toString()));
+                }
+
+                // Remove the old fields from the event
+                SolrInputDocument eventDocument = new SolrInputDocument();
+                this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, eventId, eventDocument);
+                this.utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET,
+                    EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS, null, eventDocument);
+                this.utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET,
+                    EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS, null, eventDocument);
+                this.utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET,
+                    EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, null, eventDocument);
+                addPending(eventId, eventDocument);
+            }
+
+            // Don't overwrite the status saved since the upgrade
+            if (!statusDocuments.isEmpty()) {
+                for (SolrDocument existing : this.client.getById(statusDocuments.keySet())) {
+                    statusDocuments.remove(this.utils.get(EventsSolrCoreInitializer.SOLR_FIELD_ID, existing));
+                }
+            }
+
+            // Sent to Solr (and committed) with the changes of the other tasks
+            statusDocuments.forEach(this::addPending);
+        }
+
+        return documents.getNumFound();
+    }
+
+    private Collection<Object> getFieldValues(String fieldName, SolrDocument document)
+    {
+        Collection<Object> values = document.getFieldValues(fieldName);
+
+        return values != null ? values : Collections.emptyList();
     }
 
     @Override
     protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
     {
         try {
-            commit();
+            flush();
+        } catch (EventStreamException e) {
+            // Already remembered in flushError
+        }
+
+        if (this.flushError != null) {
+            this.logger.error("Failed to save events", this.flushError);
+
+            // The changes of all the tasks were sent together so we can't know which one is responsible. Failed tasks
+            // are not notified as saved.
+            for (EventStoreTask<?, ?> task : tasks) {
+                task.getFuture().completeExceptionally(this.flushError);
+            }
+
+            this.flushError = null;
+        }
+
+        try {
+            commit(tasks.contains(EventStoreTask.STOP));
         } catch (EventStreamException e) {
             this.logger.error("Failed to commit", e);
         }
@@ -131,14 +299,45 @@ protected void afterTasks(List<EventStoreTask<?, ?>> tasks)
         super.afterTasks(tasks);
     }
 
-    @Override
-    protected Event syncSaveEvent(Event event) throws EventStreamException
+    private void addPending(String id, SolrInputDocument document)
+    {
+        // Only the last change of a given document is sent to Solr
+        this.pendingDeletes.remove(id);
+        this.pendingDocuments.put(id, document);
+    }
+
+    private void deletePending(String id)
+    {
+        this.pendingDocuments.remove(id);
+        this.pendingDeletes.add(id);
+    }
+
+    /**
+     * Send all the pending changes to Solr in a single request.
+     */
+    private void flush() throws EventStreamException
     {
         try {
-            this.client.add(toSolrInputDocument(event));
+            if (!this.pendingDocuments.isEmpty()) {
+                this.client.add(this.pendingDocuments.values());
+            }
+            if (!this.pendingDeletes.isEmpty()) {
+                this.client.deleteById(new ArrayList<>(this.pendingDeletes));
+            }
         } catch (Exception e) {
-            throw new EventStreamException("Failed to save event", e);
+            this.flushError = new EventStreamException("Failed to send the events changes to Solr", e);
+
+            throw this.flushError;
+        } finally {
+            this.pendingDocuments.clear();
+            this.pendingDeletes.clear();
         }
+    }
+
+    @Override
+    protected Event syncSaveEvent(Event event) throws EventStreamException
+    {
+        addPending(event.getId(), toSolrInputDocument(event));
 
         return event;
     }
@@ -146,7 +345,10 @@ protected Event syncSaveEvent(Event event) throws EventStreamException
     @Override
     protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStreamException
     {
-        saveEventStatus(status.getEvent().getId(), status.getEntityId(), status.isRead(), !status.isRead());
+        String eventId = status.getEvent().getId();
+
+        addPending(toStatusId(STATUS_ID_PREFIX_INBOX, eventId, status.getEntityId()),
+            toStatusDocument(eventId, status.getEntityId(), status.isRead()));
 
         return status;
     }
@@ -154,7 +356,10 @@ protected EventStatus syncSaveEventStatus(EventStatus status) throws EventStream
     @Override
     protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStreamException
     {
-        saveMailEntityEvent(event.getEvent().getId(), event.getEntityId(), true);
+        String eventId = event.getEvent().getId();
+
+        addPending(toStatusId(STATUS_ID_PREFIX_MAIL, eventId, event.getEntityId()),
+            toMailDocument(eventId, event.getEntityId()));
 
         return event;
     }
@@ -162,7 +367,7 @@ protected EntityEvent syncSaveMailEntityEvent(EntityEvent event) throws EventStr
     @Override
     protected Optional<EventStatus> syncDeleteEventStatus(EventStatus status) throws EventStreamException
     {
-        saveEventStatus(status.getEvent().getId(), status.getEntityId(), false, false);
+        deletePending(toStatusId(STATUS_ID_PREFIX_INBOX, status.getEvent().getId(), status.getEntityId()));
 
         return Optional.of(status);
     }
@@ -170,7 +375,7 @@ protected Optional<EventStatus> syncDeleteEventStatus(EventStatus status) throws
     @Override
     protected Optional<EntityEvent> syncDeleteMailEntityEvent(EntityEvent event) throws EventStreamException
     {
-        saveMailEntityEvent(event.getEvent().getId(), event.getEntityId(), false);
+        deletePending(toStatusId(STATUS_ID_PREFIX_MAIL, event.getEvent().getId(), event.getEntityId()));
 
         return Optional.of(event);
     }
@@ -178,17 +383,19 @@ protected Optional<EntityEvent> syncDeleteMailEntityEvent(EntityEvent event) thr
     @Override
     protected Event syncPrefilterEvent(Event event) throws EventStreamException
     {
-        SolrInputDocument document = new SolrInputDocument();
+        SolrInputDocument document = this.pendingDocuments.get(event.getId());
 
-        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, event.getId(), document);
+        if (document == null) {
+            document = new SolrInputDocument();
 
-        this.utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET, Event.FIELD_PREFILTERED, true, document);
+            this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, event.getId(), document);
 
-        try {
-            this.client.add(document);
-        } catch (Exception e) {
-            throw new EventStreamException(
-                String.format("Failed to to set the event [%s] as prefiltered", event.getId()), e);
+            this.utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET, Event.FIELD_PREFILTERED, true, document);
+
+            addPending(event.getId(), document);
+        } else if (!(document.getFieldValue(Event.FIELD_PREFILTERED) instanceof Map)) {
+            // The event is saved in the same batch, just update the document which is going to be sent
+            this.utils.set(Event.FIELD_PREFILTERED, true, document);
         }
 
         // Update the event so that we return something with the right value
@@ -199,45 +406,35 @@ protected Event syncPrefilterEvent(Event event) throws EventStreamException
         return event;
     }
 
-    private void saveEventStatus(String eventId, String entityId, boolean read, boolean unread)
-        throws EventStreamException
+    private String toStatusId(String prefix, String eventId, String entityId)
     {
-        SolrInputDocument document = new SolrInputDocument();
+        return prefix + eventId + STATUS_ID_SEPARATOR + entityId;
+    }
 
-        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, eventId, document);
+    private SolrInputDocument toStatusDocument(String eventId, String entityId, boolean read)
+    {
+        SolrInputDocument document = new SolrInputDocument();
 
-        this.utils.setAtomic(
-            read ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
-            EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS, entityId, document);
-        this.utils.setAtomic(
-            unread ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
-            EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS, entityId, document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, toStatusId(STATUS_ID_PREFIX_INBOX, eventId, entityId),
+            document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_EVENT, eventId, document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_ENTITY, entityId, document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_READ, read, document);
 
-        try {
-            this.client.add(document);
-        } catch (Exception e) {
-            throw new EventStreamException(
-                String.format("Failed to update the event status for event [%s] and entity id [%s]", eventId, entityId),
-                e);
-        }
+        return document;
     }
 
-    private void saveMailEntityEvent(String eventId, String entityId, boolean add) throws EventStreamException
+    private SolrInputDocument toMailDocument(String eventId, String entityId)
     {
         SolrInputDocument document = new SolrInputDocument();
 
-        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, eventId, document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, toStatusId(STATUS_ID_PREFIX_MAIL, eventId, entityId),
+            document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_EVENT, eventId, document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_ENTITY, entityId, document);
+        this.utils.set(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_MAIL, true, document);
 
-        this.utils.setAtomic(
-            add ? SolrUtils.ATOMIC_UPDATE_MODIFIER_ADD_DISTINCT : SolrUtils.ATOMIC_UPDATE_MODIFIER_REMOVE,
-            EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS, entityId, document);
-
-        try {
-            this.client.add(document);
-        } catch (Exception e) {
-            throw new EventStreamException(String.format(
-                "Failed to update the event mail status for event [%s] and entity id [%s]", eventId, entityId), e);
-        }
+        return document;
     }
 
     private SolrInputDocument toSolrInputDocument(Event event)
@@ -293,6 +490,9 @@ private SolrInputDocument toSolrInputDocument(Event event)
     @Override
     protected Optional<Event> syncDeleteEvent(String eventId) throws EventStreamException
     {
+        // Make sure the event is up to date if it was saved in the same batch (getById is a real time get)
+        flush();
+
         Optional<Event> event = getEvent(eventId);
 
         if (event.isPresent()) {
@@ -312,15 +512,29 @@ private void deleteById(String eventId) throws EventStreamException
     {
         try {
             this.client.deleteById(eventId);
+
+            // Delete the associated status documents
+            this.client.deleteByQuery(
+                EventsSolrCoreInitializer.SOLR_FIELD_STATUS_EVENT + ':' + this.utils.toFilterQueryString(eventId));
         } catch (Exception e) {
             throw new EventStreamException("Failed to delete the event", e);
         }
     }
 
-    private void commit() throws EventStreamException
+    private void commit(boolean force) throws EventStreamException
     {
+        long now = System.currentTimeMillis();
+
         try {
-            this.client.commit();
+            if (force || now - this.lastHardCommit >= HARD_COMMIT_INTERVAL) {
+                this.client.commit();
+
+                this.lastHardCommit = now;
+            } else {
+                // A soft commit is enough to make the changes visible, the update log takes care of durability until
+                // the next hard commit
+                this.client.commit(true, true, true);
+            }
         } catch (Exception e) {
             throw new EventStreamException("Failed to commit", e);
         }
@@ -407,6 +621,9 @@ private SolrQuery toSolrQuery(EventQuery query)
             addConditions(simpleQuery.getConditions(), solrQuery);
         }
 
+        // Exclude the status documents
+        solrQuery.addFilterQuery('-' + EventsSolrCoreInitializer.SOLR_FIELD_STATUS_EVENT + SOLR_EXISTS);
+
         return solrQuery;
     }
 
@@ -447,39 +664,27 @@ private String serializeCondition(QueryCondition condition)
 
     private String serializeStatusCondition(StatusQueryCondition condition)
     {
-        // Filter on status
-        if (condition.getStatusRead() != null) {
-            StringBuilder builder = new StringBuilder();
-            if (condition.getStatusEntityId() != null) {
-                builder.append(condition.getStatusRead() ? EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS
-                    : EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS);
-                builder.append(':');
-                builder.append(this.utils.toFilterQueryString(condition.getStatusEntityId()));
-            } else {
-                builder.append(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS);
-                builder.append(':');
-                builder.append("[* TO *]");
-                builder.append(" OR ");
-                builder.append(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS);
-                builder.append(':');
-                builder.append("[* TO *]");
-            }
+        StringBuilder builder = new StringBuilder();
 
-            return builder.toString();
-        } else if (condition.getStatusEntityId() != null) {
-            StringBuilder builder = new StringBuilder();
-            builder.append(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS);
-            builder.append(':');
-            builder.append(this.utils.toFilterQueryString(condition.getStatusEntityId()));
-            builder.append(" OR ");
-            builder.append(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS);
+        // Filter on status
+        if (condition.getStatusEntityId() != null) {
+            builder.append(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_ENTITY);
             builder.append(':');
             builder.append(this.utils.toFilterQueryString(condition.getStatusEntityId()));
+            builder.append(SOLR_AND);
+        }
 
-            return builder.toString();
+        builder.append(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_READ);
+        if (condition.getStatusRead() != null) {
+            builder.append(':');
+            builder.append(condition.getStatusRead());
+        } else if (condition.getStatusEntityId() != null) {
+            builder.append(SOLR_EXISTS);
+        } else {
+            return null;
         }
 
-        return null;
+        return toStatusJoin(builder.toString());
     }
 
     private String serializeMailCondition(MailEntityQueryCondition condition)
@@ -487,16 +692,39 @@ private String serializeMailCondition(MailEntityQueryCondition condition)
         // Filter on status
         if (condition.getStatusEntityId() != null) {
             StringBuilder builder = new StringBuilder();
-            builder.append(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS);
+            builder.append(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_ENTITY);
             builder.append(':');
             builder.append(this.utils.toFilterQueryString(condition.getStatusEntityId()));
+            builder.append(SOLR_AND);
+            builder.append(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_MAIL);
+            builder.append(":true");
 
-            return builder.toString();
+            return toStatusJoin(builder.toString());
         }
 
         return null;
     }
 
+    /**
+     * @param statusQuery the query to execute on the status documents
+     * @return the query matching the events associated with the status documents matching the passed query
+     */
+    private String toStatusJoin(String statusQuery)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("_query_:\"{!join from=");
+        builder.append(EventsSolrCoreInitializer.SOLR_FIELD_STATUS_EVENT);
+        builder.append(" to=");
+        builder.append(EventsSolrCoreInitializer.SOLR_FIELD_ID);
+        builder.append('}');
+        // The nested query is a quoted string
+        builder.append(statusQuery.replace("\\", "\\\\").replace("\"", "\\\""));
+        builder.append('"');
+
+        return builder.toString();
+    }
+
     /**
      * @param condition
      * @return
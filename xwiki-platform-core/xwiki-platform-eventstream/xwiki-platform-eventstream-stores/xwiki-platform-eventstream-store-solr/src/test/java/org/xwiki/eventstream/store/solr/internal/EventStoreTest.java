@@ -32,8 +32,10 @@
 import javax.inject.Named;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.jupiter.api.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -53,6 +55,8 @@
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.properties.converter.Converter;
+import org.xwiki.search.solr.Solr;
+import org.xwiki.search.solr.SolrUtils;
 import org.xwiki.search.solr.test.SolrComponentList;
 import org.xwiki.test.annotation.AfterComponent;
 import org.xwiki.test.annotation.ComponentList;
@@ -65,6 +69,7 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
@@ -429,13 +434,10 @@ public void searchStatus()
         this.eventStore.saveEventStatus(status21);
         this.eventStore.saveEventStatus(status22).get();
 
+        // The status are not stored in the event document
         SolrDocument document1 = this.eventStore.getEventDocument(EVENT1.getId());
-        assertEquals(Arrays.asList("entity1"), document1.get(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS));
-        assertEquals(Arrays.asList("entity2"), document1.get(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS));
-
-        SolrDocument document2 = this.eventStore.getEventDocument(EVENT2.getId());
-        assertEquals(Arrays.asList("entity3"), document2.get(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS));
-        assertEquals(Arrays.asList("entity1"), document2.get(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS));
+        assertNull(document1.get(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS));
+        assertNull(document1.get(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS));
 
         assertSearch(Arrays.asList(EVENT1, EVENT2), new SimpleEventQuery().withStatus(true));
 
@@ -450,6 +452,8 @@ public void searchStatus()
         assertSearch(Arrays.asList(EVENT1), new SimpleEventQuery().withStatus("entity1", true));
 
         assertSearch(Arrays.asList(EVENT2), new SimpleEventQuery().withStatus("entity1", false));
+
+        assertSearch(Arrays.asList(EVENT1), new SimpleEventQuery().withStatus("entity1").not().withStatus("entity1", false));
     }
 
     public void searchMail()
@@ -466,17 +470,81 @@ public void searchMail()
         this.eventStore.saveMailEntityEvent(mail22).get();
 
         SolrDocument document1 = this.eventStore.getEventDocument(EVENT1.getId());
-        assertEquals(Arrays.asList("entity1"), document1.get(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS));
-        assertEquals(Arrays.asList("entity2"), document1.get(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS));
-
-        SolrDocument document2 = this.eventStore.getEventDocument(EVENT2.getId());
-        assertEquals(Arrays.asList("entity3"), document2.get(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS));
-        assertEquals(Arrays.asList("entity1"), document2.get(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS));
+        assertNull(document1.get(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS));
 
         assertSearch(Arrays.asList(EVENT1, EVENT2), new SimpleEventQuery().withMail("entity1"));
 
         assertSearch(Arrays.asList(EVENT1), new SimpleEventQuery().withMail("entity2"));
 
         assertSearch(Arrays.asList(EVENT2), new SimpleEventQuery().withMail("entity3"));
+
+        // Mail entries are not inbox status
+        assertSearch(Arrays.asList(EVENT1, EVENT2), new SimpleEventQuery().withStatus("entity1"));
+        assertSearch(Arrays.asList(), new SimpleEventQuery().withStatus("entity4"));
+    }
+
+    @Test
+    public void saveStatusInSameBatch() throws Exception
+    {
+        DefaultEvent event = event("batch");
+
+        this.eventStore.saveEvent(event);
+        this.eventStore.prefilterEvent(event);
+        this.eventStore.saveEventStatus(eventstatus(event, "entity1", false));
+        this.eventStore.saveEventStatus(eventstatus(event, "entity2", false));
+        this.eventStore.saveEventStatus(eventstatus(event, "entity1", true));
+        this.eventStore.deleteEventStatus(eventstatus(event, "entity2", false)).get();
+
+        assertSearch(Arrays.asList(event), new SimpleEventQuery().eq(Event.FIELD_PREFILTERED, true));
+        assertSearch(Arrays.asList(event), new SimpleEventQuery().withStatus("entity1", true));
+        assertSearch(Arrays.asList(), new SimpleEventQuery().withStatus("entity1", false));
+        assertSearch(Arrays.asList(), new SimpleEventQuery().withStatus("entity2"));
+
+        // Deleting the event also delete its status
+        this.eventStore.deleteEvent(event).get();
+
+        assertSearch(Arrays.asList(), new SimpleEventQuery().withStatus("entity1"));
+
+        this.eventStore.saveEvent(event).get();
+
+        assertSearch(Arrays.asList(), new SimpleEventQuery().withStatus("entity1"));
+    }
+
+    @Test
+    public void migrateListeners() throws Exception
+    {
+        DefaultEvent event = event("old");
+        this.eventStore.saveEvent(event).get();
+
+        // Status stored in the event like before 12.6
+        Solr solr = this.componentManager.getInstance(Solr.class);
+        SolrClient client = solr.getClient(EventsSolrCoreInitializer.NAME);
+        SolrUtils utils = this.componentManager.getInstance(SolrUtils.class);
+        SolrInputDocument document = new SolrInputDocument();
+        utils.set(EventsSolrCoreInitializer.SOLR_FIELD_ID, event.getId(), document);
+        utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET, EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS,
+            Arrays.asList("entity1"), document);
+        utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET, EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS,
+            Arrays.asList("entity2", "entity3"), document);
+        utils.setAtomic(SolrUtils.ATOMIC_UPDATE_MODIFIER_SET, EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS,
+            Arrays.asList("entity1"), document);
+        client.add(document);
+        client.commit();
+
+        // Status modified since the upgrade
+        this.eventStore.saveEventStatus(eventstatus(event, "entity3", true)).get();
+
+        this.eventStore.migrateListeners();
+
+        assertSearch(Arrays.asList(event), new SimpleEventQuery().withStatus("entity1", true));
+        assertSearch(Arrays.asList(event), new SimpleEventQuery().withStatus("entity2", false));
+        assertSearch(Arrays.asList(event), new SimpleEventQuery().withStatus("entity3", true));
+        assertSearch(Arrays.asList(), new SimpleEventQuery().withStatus("entity3", false));
+        assertSearch(Arrays.asList(event), new SimpleEventQuery().withMail("entity1"));
+
+        SolrDocument migrated = client.getById(event.getId());
+        assertNull(migrated.getFieldValue(EventsSolrCoreInitializer.SOLR_FIELD_READLISTENERS));
+        assertNull(migrated.getFieldValue(EventsSolrCoreInitializer.SOLR_FIELD_UNREADLISTENERS));
+        assertNull(migrated.getFieldValue(EventsSolrCoreInitializer.SOLR_FIELD_MAILLISTENERS));
     }
 }
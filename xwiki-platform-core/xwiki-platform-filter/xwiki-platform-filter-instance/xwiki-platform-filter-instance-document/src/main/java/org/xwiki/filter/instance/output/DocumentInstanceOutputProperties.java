@@ -76,6 +76,11 @@ public class DocumentInstanceOutputProperties extends InstanceOutputProperties
      */
     private boolean stoppedWhenSaveFail = true;
 
+    /**
+     * @see #getSaveThreads()
+     */
+    private int saveThreads = 1;
+
     /**
      * @return The base reference to use to resolve reference from events
      */
@@ -237,4 +242,26 @@ public void setStoppedWhenSaveFail(boolean stoppedWhenSaveFail)
     {
         this.stoppedWhenSaveFail = stoppedWhenSaveFail;
     }
+
+    /**
+     * @return the number of threads to use to save the documents, documents are saved in parallel when greater than 1
+     * @since 12.6RC1
+     */
+    @PropertyName("Save threads")
+    @PropertyDescription("The number of threads to use to save the documents."
+        + " When greater than 1 documents are saved in parallel and their indexing is done after the import.")
+    public int getSaveThreads()
+    {
+        return this.saveThreads;
+    }
+
+    /**
+     * @param saveThreads the number of threads to use to save the documents, documents are saved in parallel when
+     *            greater than 1
+     * @since 12.6RC1
+     */
+    public void setSaveThreads(int saveThreads)
+    {
+        this.saveThreads = saveThreads;
+    }
 }
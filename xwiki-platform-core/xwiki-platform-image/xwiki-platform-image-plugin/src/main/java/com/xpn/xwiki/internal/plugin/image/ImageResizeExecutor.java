@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Execute the image resizes, limiting the number of resizes running at the same time and making sure that the same
+ * resize is not executed several times concurrently.
+ * <p>
+ * The resizes are executed in the thread of the caller so that they have access to its context.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class ImageResizeExecutor
+{
+    private final Semaphore permits;
+
+    private final Map<String, CompletableFuture<Object>> running = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxConcurrentResizes the maximum number of resizes to run at the same time
+     */
+    public ImageResizeExecutor(int maxConcurrentResizes)
+    {
+        this.permits = new Semaphore(Math.max(1, maxConcurrentResizes), true);
+    }
+
+    /**
+     * Execute a resize, or wait for the result of the same resize if it's already running.
+     *
+     * @param <T> the type of the resize result
+     * @param key the key identifying the resize
+     * @param resize the resize to execute
+     * @return the result of the resize
+     * @throws Exception when the resize fails
+     */
+    public <T> T execute(String key, Callable<T> resize) throws Exception
+    {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> runningFuture = this.running.putIfAbsent(key, future);
+        if (runningFuture != null) {
+            return waitFor(runningFuture);
+        }
+
+        try {
+            this.permits.acquire();
+            try {
+                T result = resize.call();
+                future.complete(result);
+
+                return result;
+            } finally {
+                this.permits.release();
+            }
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+
+            throw e;
+        } finally {
+            this.running.remove(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T waitFor(CompletableFuture<Object> future) throws Exception
+    {
+        try {
+            return (T) future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw (Exception) cause;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.AutoCloseInputStream;
+
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+
+/**
+ * The content of a scaled image, read from the file of the {@link ScaledImageStore}.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class ScaledImageContent extends XWikiAttachmentContent
+{
+    private volatile File file;
+
+    private final Callable<File> rescaler;
+
+    /**
+     * @param file the file containing the scaled image
+     */
+    public ScaledImageContent(File file)
+    {
+        this(file, null);
+    }
+
+    /**
+     * @param file the file containing the scaled image
+     * @param rescaler scales and stores the image again when the file is removed from the {@link ScaledImageStore}
+     *            before the content is read, {@code null} to fail in this case
+     */
+    public ScaledImageContent(File file, Callable<File> rescaler)
+    {
+        this.file = file;
+        this.rescaler = rescaler;
+    }
+
+    /**
+     * @param content the content to copy
+     */
+    public ScaledImageContent(ScaledImageContent content)
+    {
+        super(content);
+
+        this.file = content.file;
+        this.rescaler = content.rescaler;
+    }
+
+    @Override
+    public ScaledImageContent clone()
+    {
+        return new ScaledImageContent(this);
+    }
+
+    @Override
+    @Deprecated
+    public byte[] getContent()
+    {
+        try (InputStream stream = getContentInputStream()) {
+            return IOUtils.toByteArray(stream);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load scaled image content", e);
+        }
+    }
+
+    @Override
+    public InputStream getContentInputStream()
+    {
+        try {
+            return new AutoCloseInputStream(new FileInputStream(getFile()));
+        } catch (FileNotFoundException e) {
+            if (this.rescaler == null) {
+                throw new RuntimeException("Failed to get InputStream", e);
+            }
+        }
+
+        // The file was evicted from the store right after being checked
+        try {
+            return new AutoCloseInputStream(new FileInputStream(rescale()));
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Failed to get InputStream", e);
+        }
+    }
+
+    @Override
+    public long getLongSize()
+    {
+        return getFile().length();
+    }
+
+    @Override
+    public File getContentFile()
+    {
+        return getFile();
+    }
+
+    /**
+     * @return the file containing the scaled image, scaled and stored again if it was evicted from the store since this
+     *         content was created
+     */
+    private File getFile()
+    {
+        File currentFile = this.file;
+        if (this.rescaler != null && !currentFile.exists()) {
+            currentFile = rescale();
+        }
+
+        return currentFile;
+    }
+
+    private File rescale()
+    {
+        try {
+            this.file = this.rescaler.call();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to scale the image again", e);
+        }
+
+        return this.file;
+    }
+}
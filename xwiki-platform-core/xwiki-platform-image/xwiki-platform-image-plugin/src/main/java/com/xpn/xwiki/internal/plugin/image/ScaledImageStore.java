@@ -0,0 +1,239 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store the scaled images on the filesystem so that they survive restarts and don't use any heap. The total size of
+ * the stored images is bounded: the least recently used images are deleted when it's exceeded.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class ScaledImageStore
+{
+    /**
+     * Write the content of a scaled image.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface ImageWriter
+    {
+        /**
+         * @param output the stream where to write the scaled image, nothing should be written if the original image
+         *            should be used as is
+         * @throws Exception when failing to scale the image
+         */
+        void write(OutputStream output) throws Exception;
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScaledImageStore.class);
+
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private final File directory;
+
+    private final long capacity;
+
+    /**
+     * The size of the stored images indexed by file name, from the least recently used to the most recently used.
+     */
+    private final Map<String, Long> sizes = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long size;
+
+    /**
+     * @param directory the directory where to store the images
+     * @param capacity the maximum total size of the stored images, in bytes
+     */
+    public ScaledImageStore(File directory, long capacity)
+    {
+        this.directory = directory;
+        this.capacity = capacity;
+
+        load();
+    }
+
+    private void load()
+    {
+        List<File> files = new ArrayList<>();
+        File[] subdirectories = this.directory.listFiles(File::isDirectory);
+        if (subdirectories != null) {
+            for (File subdirectory : subdirectories) {
+                File[] subdirectoryFiles = subdirectory.listFiles(File::isFile);
+                if (subdirectoryFiles != null) {
+                    for (File file : subdirectoryFiles) {
+                        if (file.getName().endsWith(TEMPORARY_EXTENSION)) {
+                            // Left by a previous execution
+                            delete(file);
+                        } else {
+                            files.add(file);
+                        }
+                    }
+                }
+            }
+        }
+
+        // The last modified date is updated each time an image is used
+        files.sort(Comparator.comparingLong(File::lastModified));
+
+        synchronized (this) {
+            for (File file : files) {
+                this.sizes.put(file.getName(), file.length());
+                this.size += file.length();
+            }
+
+            evict(null);
+        }
+
+        LOGGER.debug("Loaded [{}] scaled images using [{}] bytes from [{}]", this.sizes.size(), this.size,
+            this.directory);
+    }
+
+    /**
+     * @param key the key of the scaled image
+     * @return the file containing the scaled image, or {@code null} if it's not stored; an empty file means that the
+     *         original image should be used as is
+     */
+    public synchronized File get(String key)
+    {
+        String name = getName(key);
+        Long length = this.sizes.get(name);
+        if (length == null) {
+            return null;
+        }
+
+        File file = getFile(name);
+        // Remember the access order for the next restarts
+        if (!file.setLastModified(System.currentTimeMillis()) && !file.exists()) {
+            // The file was deleted behind our back, consider the image as not stored
+            this.sizes.remove(name);
+            this.size -= length;
+
+            return null;
+        }
+
+        return file;
+    }
+
+    /**
+     * Store a new scaled image, making room for it by deleting the least recently used images if needed.
+     *
+     * @param key the key of the scaled image
+     * @param writer writes the content of the scaled image
+     * @return the file containing the scaled image; an empty file means that the original image should be used as is
+     * @throws Exception when failing to scale or store the image
+     */
+    public File store(String key, ImageWriter writer) throws Exception
+    {
+        String name = getName(key);
+        File file = getFile(name);
+
+        File parent = file.getParentFile();
+        if (!parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Failed to create directory [" + parent + "]");
+        }
+
+        // Write in a temporary file first so that an incomplete image is never served
+        File temporaryFile = File.createTempFile(name, TEMPORARY_EXTENSION, parent);
+        try {
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+                writer.write(output);
+            }
+
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (temporaryFile.exists()) {
+                delete(temporaryFile);
+            }
+        }
+
+        synchronized (this) {
+            long length = file.length();
+            Long previousLength = this.sizes.put(name, length);
+            this.size += length - (previousLength != null ? previousLength : 0L);
+
+            evict(name);
+        }
+
+        return file;
+    }
+
+    /**
+     * @return the total size of the stored images, in bytes
+     */
+    public synchronized long getSize()
+    {
+        return this.size;
+    }
+
+    private void evict(String keptName)
+    {
+        Iterator<Map.Entry<String, Long>> iterator = this.sizes.entrySet().iterator();
+        while (this.size > this.capacity && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            // Never delete the image which was just stored, even if it's bigger than the capacity
+            if (!entry.getKey().equals(keptName)) {
+                delete(getFile(entry.getKey()));
+                this.size -= entry.getValue();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void delete(File file)
+    {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete scaled image file [{}]", file, e);
+        }
+    }
+
+    private String getName(String key)
+    {
+        return DigestUtils.sha1Hex(key);
+    }
+
+    private File getFile(String name)
+    {
+        // Spread the files in several directories to keep them small
+        return new File(new File(this.directory, name.substring(0, 2)), name);
+    }
+}
@@ -21,9 +21,11 @@
 
 import java.awt.Image;
 import java.awt.image.RenderedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -34,11 +36,15 @@
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.environment.Environment;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Api;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.internal.plugin.image.ImageResizeExecutor;
+import com.xpn.xwiki.internal.plugin.image.ScaledImageContent;
+import com.xpn.xwiki.internal.plugin.image.ScaledImageStore;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
 import com.xpn.xwiki.web.Utils;
@@ -72,6 +78,19 @@ public class ImagePlugin extends XWikiDefaultPlugin
      */
     private int capacity = 50;
 
+    /**
+     * Store of the scaled images on the filesystem, {@code null} if disabled. When enabled it's used instead of the
+     * image cache. The maximum size of the store, in megabytes, can be configured using the key
+     * {@code xwiki.plugin.image.store.capacity}.
+     */
+    private ScaledImageStore imageStore;
+
+    /**
+     * Executes the image resizes. The maximum number of resizes running at the same time can be configured using the
+     * key {@code xwiki.plugin.image.resize.maxConcurrent}.
+     */
+    private ImageResizeExecutor resizeExecutor;
+
     /**
      * Default JPEG image quality.
      */
@@ -115,6 +134,19 @@ public void init(XWikiContext context)
         super.init(context);
 
         initCache(context);
+        initStore(context);
+
+        int maxConcurrentResizes = Runtime.getRuntime().availableProcessors();
+        String maxConcurrentResizesParam = context.getWiki().Param("xwiki.plugin.image.resize.maxConcurrent");
+        if (!StringUtils.isBlank(maxConcurrentResizesParam)) {
+            try {
+                maxConcurrentResizes = Integer.parseInt(maxConcurrentResizesParam.trim());
+            } catch (NumberFormatException e) {
+                LOG.warn("Failed to parse xwiki.plugin.image.resize.maxConcurrent configuration parameter. "
+                    + "Using {} as the maximum number of concurrent resizes.", maxConcurrentResizes);
+            }
+        }
+        this.resizeExecutor = new ImageResizeExecutor(maxConcurrentResizes);
 
         String imageProcessorHint = context.getWiki().Param("xwiki.plugin.image.processorHint", "thumbnailator");
         this.imageProcessor = Utils.getComponent(ImageProcessor.class, imageProcessorHint);
@@ -166,6 +198,36 @@ private void initCache(XWikiContext context)
         }
     }
 
+    /**
+     * Initializes the filesystem store of the scaled images, if enabled.
+     *
+     * @param context the XWiki context
+     */
+    private void initStore(XWikiContext context)
+    {
+        String capacityParam = context.getWiki().Param("xwiki.plugin.image.store.capacity");
+        if (!StringUtils.isBlank(capacityParam)) {
+            try {
+                long storeCapacity = Long.parseLong(capacityParam.trim());
+                if (storeCapacity > 0) {
+                    File directory =
+                        new File(Utils.getComponent(Environment.class).getPermanentDirectory(), "cache/image");
+                    this.imageStore = new ScaledImageStore(directory, storeCapacity * 1024L * 1024L);
+                }
+            } catch (NumberFormatException e) {
+                LOG.warn("Failed to parse xwiki.plugin.image.store.capacity configuration parameter. "
+                    + "The scaled images won't be stored on the filesystem.");
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The scaled images stored on the filesystem are kept since they are identified by the version of the original
+     * image.
+     * </p>
+     */
     @Override
     public void flushCache()
     {
@@ -249,9 +311,15 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
 
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
-        XWikiAttachment thumbnail = (this.imageCache == null)
-            ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
-            : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+        XWikiAttachment thumbnail;
+        if (this.imageStore != null) {
+            thumbnail = downloadImageFromStore(image, width, height, keepAspectRatio, quality, context);
+        } else if (this.imageCache == null) {
+            thumbnail = this.resizeExecutor.execute(getKey(image, width, height, keepAspectRatio, quality),
+                () -> shrinkImage(image, width, height, keepAspectRatio, quality, context));
+        } else {
+            thumbnail = downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+        }
 
         // If the image has been transformed, update the file name extension to match the image format.
         String fileName = thumbnail.getFilename();
@@ -280,17 +348,86 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
     private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width, int height,
         boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
     {
-        String key = String.format("%s;%s;%s;%s;%s;%s;%s", image.getId(), image.getVersion(), image.getDate().getTime(),
-            width, height, keepAspectRatio, quality);
+        String key = getKey(image, width, height, keepAspectRatio, quality);
 
         XWikiAttachment thumbnail = this.imageCache.get(key);
         if (thumbnail == null) {
-            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
+            thumbnail = this.resizeExecutor.execute(key,
+                () -> shrinkImage(image, width, height, keepAspectRatio, quality, context));
             this.imageCache.set(key, thumbnail);
         }
         return thumbnail;
     }
 
+    private String getKey(XWikiAttachment image, int width, int height, boolean keepAspectRatio, float quality)
+    {
+        return String.format("%s;%s;%s;%s;%s;%s;%s", image.getId(), image.getVersion(), image.getDate().getTime(),
+            width, height, keepAspectRatio, quality);
+    }
+
+    /**
+     * Downloads the given image from the filesystem store, scaling and storing it first if needed.
+     *
+     * @param image the image to be downloaded
+     * @param width the desired image width; this value is taken into account only if it is greater than zero and less
+     *            than the current image width
+     * @param height the desired image height; this value is taken into account only if it is greater than zero and less
+     *            than the current image height
+     * @param keepAspectRatio {@code true} to preserve aspect ratio when resizing the image, {@code false} otherwise
+     * @param quality the desired compression quality
+     * @param context the XWiki context
+     * @return the transformed image
+     * @throws Exception if transforming the image fails
+     */
+    private XWikiAttachment downloadImageFromStore(XWikiAttachment image, int width, int height,
+        boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
+    {
+        // The id of the attachment is a hash of its reference, use the reference to avoid collisions on the long term
+        String key = String.format("%s;%s;%s;%s;%s;%s;%s", image.getReference(), image.getVersion(),
+            image.getDate().getTime(), width, height, keepAspectRatio, quality);
+
+        Callable<File> storedImage = () -> getStoredImage(key, image, width, height, keepAspectRatio, quality, context);
+
+        File file = storedImage.call();
+        if (file.length() == 0) {
+            return image;
+        }
+
+        // Create an image attachment for the stored image, its content is read from the file when sent (and the image
+        // scaled again if the file was evicted from the store in the meantime)
+        XWikiAttachment thumbnail = (XWikiAttachment) image.clone();
+        thumbnail.setAttachment_content(new ScaledImageContent(file, storedImage));
+        thumbnail.setLongSize(file.length());
+
+        return thumbnail;
+    }
+
+    private File getStoredImage(String key, XWikiAttachment image, int width, int height, boolean keepAspectRatio,
+        float quality, XWikiContext context) throws Exception
+    {
+        File file = this.imageStore.get(key);
+        if (file == null) {
+            file = this.resizeExecutor.execute(key, () -> {
+                // The image might have been stored while waiting
+                File storedFile = this.imageStore.get(key);
+                if (storedFile != null) {
+                    return storedFile;
+                }
+
+                return this.imageStore.store(key, output -> {
+                    RenderedImage shrunkImage = scaleImage(image, width, height, keepAspectRatio, quality, context);
+                    // Nothing is written when the original image should be used
+                    if (shrunkImage != null) {
+                        this.imageProcessor.writeImage(shrunkImage, image.getMimeType(context), getQuality(quality),
+                            output);
+                    }
+                });
+            });
+        }
+
+        return file;
+    }
+
     /**
      * Reduces the size (i.e. the number of bytes) of an image by scaling its width and height and by reducing its
      * compression quality. This helps decreasing the time needed to download the image attachment.
@@ -311,26 +448,12 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
     private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
         boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
     {
-        Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
-
-        // Compute the new image dimension.
-        int currentWidth = image.getWidth(null);
-        int currentHeight = image.getHeight(null);
-        int[] dimensions =
-            reduceImageDimensions(currentWidth, currentHeight, requestedWidth, requestedHeight, keepAspectRatio);
-
-        float quality = requestedQuality;
-        if (quality < 0) {
-            // If no scaling is needed and the quality parameter is not specified, return the original image.
-            if (dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
-                return attachment;
-            }
-            quality = this.defaultQuality;
+        RenderedImage shrunkImage =
+            scaleImage(attachment, requestedWidth, requestedHeight, keepAspectRatio, requestedQuality, context);
+        if (shrunkImage == null) {
+            return attachment;
         }
 
-        // Scale the image to the new dimensions.
-        RenderedImage shrunkImage = this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
-
         // Create an image attachment for the shrunk image.
         XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
         thumbnail.loadAttachmentContent(context);
@@ -338,7 +461,7 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
         this.imageProcessor.writeImage(shrunkImage,
             attachment.getMimeType(context),
-            quality,
+            getQuality(requestedQuality),
             acos);
 
         IOUtils.closeQuietly(acos);
@@ -346,6 +469,46 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         return thumbnail;
     }
 
+    /**
+     * Scales an image to the requested dimensions.
+     *
+     * @param attachment the image to be scaled
+     * @param requestedWidth the desired image width; this value is taken into account only if it is greater than zero
+     *            and less than the current image width
+     * @param requestedHeight the desired image height; this value is taken into account only if it is greater than zero
+     *            and less than the current image height
+     * @param keepAspectRatio {@code true} to preserve the image aspect ratio even when both requested dimensions are
+     *            properly specified, {@code false} otherwise
+     * @param requestedQuality the desired compression quality
+     * @param context the XWiki context
+     * @return the scaled image, or {@code null} if the original image should be used as is
+     * @throws Exception if scaling the image fails
+     */
+    private RenderedImage scaleImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
+        boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
+    {
+        Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
+
+        // Compute the new image dimension.
+        int currentWidth = image.getWidth(null);
+        int currentHeight = image.getHeight(null);
+        int[] dimensions =
+            reduceImageDimensions(currentWidth, currentHeight, requestedWidth, requestedHeight, keepAspectRatio);
+
+        // If no scaling is needed and the quality parameter is not specified, return the original image.
+        if (requestedQuality < 0 && dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
+            return null;
+        }
+
+        // Scale the image to the new dimensions.
+        return this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
+    }
+
+    private float getQuality(float requestedQuality)
+    {
+        return requestedQuality < 0 ? this.defaultQuality : requestedQuality;
+    }
+
     /**
      * Computes the new image dimension which:
      * <ul>
@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link ImageResizeExecutor}.
+ *
+ * @version $Id$
+ */
+public class ImageResizeExecutorTest
+{
+    @Test
+    public void coalesceIdenticalResizes() throws Exception
+    {
+        ImageResizeExecutor executor = new ImageResizeExecutor(4);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Object result = new Object();
+
+        List<Object> results = new ArrayList<>();
+        Thread first = new Thread(() -> {
+            try {
+                results.add(executor.execute("key", () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    release.await();
+                    return result;
+                }));
+            } catch (Exception e) {
+                // Checked by the assertions below
+            }
+        });
+        first.start();
+        started.await();
+
+        List<Object> secondResults = new ArrayList<>();
+        Thread second = new Thread(() -> {
+            try {
+                secondResults.add(executor.execute("key", () -> {
+                    executions.incrementAndGet();
+                    return new Object();
+                }));
+            } catch (Exception e) {
+                // Checked by the assertions below
+            }
+        });
+        second.start();
+
+        // Wait for the second resize to wait for the first one
+        while (second.getState() != Thread.State.WAITING && second.isAlive()) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, executions.get());
+        assertSame(result, results.get(0));
+        assertSame(result, secondResults.get(0));
+
+        // The next resize is executed again
+        assertSame(executions, executor.execute("key", () -> executions));
+    }
+
+    @Test
+    public void limitConcurrentResizes() throws Exception
+    {
+        ImageResizeExecutor executor = new ImageResizeExecutor(2);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int index = i;
+                futures.add(threads.submit(() -> executor.execute("key" + index, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return index;
+                })));
+            }
+
+            for (int i = 0; i < 8; i++) {
+                assertEquals(i, futures.get(i).get(10, TimeUnit.SECONDS).intValue());
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void executeFailure()
+    {
+        ImageResizeExecutor executor = new ImageResizeExecutor(1);
+
+        IllegalStateException exception = new IllegalStateException();
+        assertSame(exception, assertThrows(IllegalStateException.class, () -> executor.execute("key", () -> {
+            throw exception;
+        })));
+    }
+}
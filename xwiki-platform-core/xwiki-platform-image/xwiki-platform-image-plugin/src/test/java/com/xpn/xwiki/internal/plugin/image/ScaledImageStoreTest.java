@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.plugin.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Validate {@link ScaledImageStore}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class ScaledImageStoreTest
+{
+    @XWikiTempDir
+    private File directory;
+
+    private File store(ScaledImageStore store, String key, int length) throws Exception
+    {
+        byte[] content = new byte[length];
+        Arrays.fill(content, (byte) key.charAt(0));
+
+        return store.store(key, output -> output.write(content));
+    }
+
+    @Test
+    public void storeAndGet() throws Exception
+    {
+        ScaledImageStore store = new ScaledImageStore(this.directory, 100);
+
+        assertNull(store.get("a"));
+
+        File file = store(store, "a", 10);
+
+        assertEquals(file, store.get("a"));
+        assertArrayEquals(new byte[] { 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a' },
+            Files.readAllBytes(file.toPath()));
+        assertEquals(10, store.getSize());
+        assertNull(store.get("b"));
+    }
+
+    @Test
+    public void storeNothing() throws Exception
+    {
+        ScaledImageStore store = new ScaledImageStore(this.directory, 100);
+
+        File file = store.store("a", output -> {
+        });
+
+        assertEquals(0, file.length());
+        assertEquals(file, store.get("a"));
+    }
+
+    @Test
+    public void getWhenFileDeleted() throws Exception
+    {
+        ScaledImageStore store = new ScaledImageStore(this.directory, 100);
+
+        File file = store(store, "a", 10);
+        Files.delete(file.toPath());
+
+        assertNull(store.get("a"));
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception
+    {
+        ScaledImageStore store = new ScaledImageStore(this.directory, 25);
+
+        File fileA = store(store, "a", 10);
+        File fileB = store(store, "b", 10);
+        store.get("a");
+        File fileC = store(store, "c", 10);
+
+        assertNotNull(store.get("a"));
+        assertNull(store.get("b"));
+        assertFalse(fileB.exists());
+        assertNotNull(store.get("c"));
+        assertEquals(20, store.getSize());
+
+        // An image bigger than the capacity is kept until the next one is stored
+        File fileD = store(store, "d", 30);
+        assertEquals(fileD, store.get("d"));
+        assertFalse(fileA.exists());
+        assertFalse(fileC.exists());
+        assertEquals(30, store.getSize());
+    }
+
+    @Test
+    public void storeFailure() throws Exception
+    {
+        ScaledImageStore store = new ScaledImageStore(this.directory, 100);
+
+        IOException exception = new IOException("error");
+        assertSame(exception, assertThrows(IOException.class, () -> store.store("a", output -> {
+            output.write(1);
+            throw exception;
+        })));
+
+        assertNull(store.get("a"));
+        assertEquals(0, store.getSize());
+    }
+
+    @Test
+    public void reload() throws Exception
+    {
+        ScaledImageStore store = new ScaledImageStore(this.directory, 100);
+
+        File fileA = store(store, "a", 10);
+        File fileB = store(store, "b", 20);
+        File temporaryFile = new File(fileA.getParentFile(), fileA.getName() + "123.tmp");
+        temporaryFile.createNewFile();
+
+        store = new ScaledImageStore(this.directory, 100);
+
+        assertEquals(fileA, store.get("a"));
+        assertNotNull(store.get("b"));
+        assertEquals(30, store.getSize());
+        assertFalse(temporaryFile.exists());
+
+        // The least recently used images exceeding a reduced capacity are deleted
+        fileA.setLastModified(1000000L);
+        fileB.setLastModified(2000000L);
+        store = new ScaledImageStore(this.directory, 25);
+
+        assertEquals(20, store.getSize());
+        assertFalse(fileA.exists());
+    }
+}
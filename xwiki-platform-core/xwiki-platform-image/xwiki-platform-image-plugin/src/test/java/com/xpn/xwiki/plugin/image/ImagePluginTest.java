@@ -22,27 +22,40 @@
 import java.awt.Image;
 import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Date;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.model.reference.DocumentReference;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 import com.xpn.xwiki.web.XWikiServletRequest;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -173,4 +186,104 @@ public void testCacheOfScaledAttachment() throws Exception
         verify(imageProcessor, times(1)).writeImage(renderedImage, "image/png", .5F, attachmentOutputStream);
         verify(imageCache, times(1)).set(cacheKey, attachment);
     }
+
+    @Test
+    public void storeOfScaledAttachment() throws Exception
+    {
+        this.oldCore.registerMockEnvironment();
+        doReturn("1").when(this.oldCore.getSpyXWiki()).Param("xwiki.plugin.image.store.capacity");
+        this.plugin = new ImagePlugin("image", ImagePlugin.class.getName(), this.oldCore.getXWikiContext());
+
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment =
+            new XWikiAttachment(new XWikiDocument(new DocumentReference("wiki", "Space", "Page")), "image.png");
+        attachment.setMimeType("image/png");
+        attachment.setContent(new ByteArrayInputStream(IMAGE_CONTENT));
+        attachment.setDate(new Date(0));
+
+        XWikiServletRequest request = mock(XWikiServletRequest.class);
+        when(request.getParameter("width")).thenReturn("30");
+        when(request.getParameter("height")).thenReturn("30");
+        xcontext.setRequest(request);
+
+        Image image = mock(Image.class);
+        when(image.getWidth(null)).thenReturn(400);
+        when(image.getHeight(null)).thenReturn(300);
+        when(this.imageProcessor.readImage(any(InputStream.class))).thenReturn(image);
+        RenderedImage renderedImage = mock(RenderedImage.class);
+        when(this.imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        byte[] scaledContent = new byte[] { 1, 2, 3 };
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(scaledContent);
+            return null;
+        }).when(this.imageProcessor).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+
+        XWikiAttachment scaled = this.plugin.downloadAttachment(attachment, xcontext);
+
+        assertNotSame(attachment, scaled);
+        assertEquals(3, scaled.getLongSize());
+        assertArrayEquals(scaledContent, IOUtils.toByteArray(scaled.getAttachment_content().getContentInputStream()));
+
+        // Load again, this time from the store
+        XWikiAttachment stored = this.plugin.downloadAttachment(attachment, xcontext);
+        assertEquals(scaled.getAttachment_content().getContentFile(), stored.getAttachment_content().getContentFile());
+        verify(this.imageProcessor, times(1)).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+
+        // The image is scaled again when the file disappears before the content is sent, starting with its size
+        // which is used for the response headers
+        File file = stored.getAttachment_content().getContentFile();
+        Files.delete(file.toPath());
+        assertEquals(3, stored.getContentLongSize(xcontext));
+        assertTrue(file.exists());
+        assertEquals(file, stored.getAttachment_content().getContentFile());
+        assertArrayEquals(scaledContent, IOUtils.toByteArray(stored.getAttachment_content().getContentInputStream()));
+        verify(this.imageProcessor, times(2)).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+
+        // Same when the file is requested first (to send it directly)
+        Files.delete(file.toPath());
+        assertTrue(stored.getAttachment_content().getContentFile().isFile());
+        verify(this.imageProcessor, times(3)).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+
+        // A missing file is a store miss
+        Files.delete(file.toPath());
+        scaled = this.plugin.downloadAttachment(attachment, xcontext);
+        assertArrayEquals(scaledContent, IOUtils.toByteArray(scaled.getAttachment_content().getContentInputStream()));
+        verify(this.imageProcessor, times(4)).writeImage(same(renderedImage), eq("image/png"), eq(.5F),
+            any(OutputStream.class));
+    }
+
+    @Test
+    public void storeWhenNoScalingNeeded() throws Exception
+    {
+        this.oldCore.registerMockEnvironment();
+        doReturn("1").when(this.oldCore.getSpyXWiki()).Param("xwiki.plugin.image.store.capacity");
+        this.plugin = new ImagePlugin("image", ImagePlugin.class.getName(), this.oldCore.getXWikiContext());
+
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment =
+            new XWikiAttachment(new XWikiDocument(new DocumentReference("wiki", "Space", "Page")), "image.png");
+        attachment.setMimeType("image/png");
+        attachment.setContent(new ByteArrayInputStream(IMAGE_CONTENT));
+        attachment.setDate(new Date(0));
+
+        XWikiServletRequest request = mock(XWikiServletRequest.class);
+        when(request.getParameter("width")).thenReturn("500");
+        xcontext.setRequest(request);
+
+        Image image = mock(Image.class);
+        when(image.getWidth(null)).thenReturn(400);
+        when(image.getHeight(null)).thenReturn(300);
+        when(this.imageProcessor.readImage(any(InputStream.class))).thenReturn(image);
+
+        // The original image is used as is
+        assertSame(attachment, this.plugin.downloadAttachment(attachment, xcontext));
+        assertSame(attachment, this.plugin.downloadAttachment(attachment, xcontext));
+        verify(this.imageProcessor, times(1)).readImage(any(InputStream.class));
+    }
 }
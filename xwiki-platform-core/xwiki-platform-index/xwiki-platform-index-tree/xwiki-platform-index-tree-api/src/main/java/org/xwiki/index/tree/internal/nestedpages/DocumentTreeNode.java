@@ -32,6 +32,7 @@
 import javax.inject.Provider;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -51,6 +52,9 @@
 import org.xwiki.security.authorization.Right;
 import org.xwiki.tree.TreeNode;
 
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+
 /**
  * The document tree node.
  * 
@@ -83,6 +87,9 @@ public class DocumentTreeNode extends AbstractDocumentTreeNode implements Initia
     @Inject
     private ContextualAuthorizationManager authorization;
 
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
     @Inject
     @Named("childPage/nestedPages")
     private QueryFilter childPageFilter;
@@ -152,12 +159,32 @@ protected List<String> getChildren(DocumentReference documentReference, int offs
         int childDocumentsLimit = limit - children.size();
         if (childDocumentsLimit > 0) {
             int childDocumentsOffset = Math.max(offset - pseudoChildren.size(), 0);
-            children.addAll(serialize(getChildDocuments(documentReference, childDocumentsOffset, childDocumentsLimit)));
+            List<DocumentReference> childDocuments =
+                getChildDocuments(documentReference, childDocumentsOffset, childDocumentsLimit);
+            loadDocuments(childDocuments);
+            children.addAll(serialize(childDocuments));
         }
 
         return children;
     }
 
+    /**
+     * The child documents are going to be displayed so we load them all at once (they end up in the document cache)
+     * instead of one by one.
+     */
+    private void loadDocuments(List<DocumentReference> documentReferences)
+    {
+        if (!documentReferences.isEmpty()) {
+            XWikiContext xcontext = this.xcontextProvider.get();
+            try {
+                xcontext.getWiki().getDocuments(documentReferences, xcontext);
+            } catch (XWikiException e) {
+                this.logger.warn("Failed to load the documents [{}]. Root cause [{}].", documentReferences,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+    }
+
     private List<String> getPseudoChildren(DocumentReference documentReference)
     {
         List<String> pseudoChildren = new ArrayList<String>();
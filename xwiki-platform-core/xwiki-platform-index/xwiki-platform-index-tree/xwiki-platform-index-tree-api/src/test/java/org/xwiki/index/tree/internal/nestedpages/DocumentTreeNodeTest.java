@@ -53,6 +53,9 @@
 import org.xwiki.tree.TreeFilter;
 import org.xwiki.tree.TreeNode;
 
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -131,6 +134,15 @@
     @Named("test")
     private TreeFilter filter;
 
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Mock
+    private XWikiContext xcontext;
+
+    @Mock
+    private XWiki xwiki;
+
     private DocumentReference documentReference =
         new DocumentReference("wiki", Arrays.asList("Path", "To", "Page"), "WebHome");
 
@@ -166,6 +178,9 @@ public void before() throws Exception
 
         when(this.queryManager.getNamedQuery("nestedPagesOrderedByName")).thenReturn(this.nestedPagesOrderedByName);
         when(this.nestedPagesOrderedByName.addFilter(any(QueryFilter.class))).thenReturn(this.nestedPagesOrderedByName);
+
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
     }
 
     /**
@@ -219,6 +234,10 @@ public void pagination() throws Exception
 
         verify(this.nestedPagesOrderedByName).setOffset(1);
         verify(this.nestedPagesOrderedByName).setLimit(3);
+
+        // The child documents are loaded all at once
+        verify(this.xwiki).getDocuments(Collections.singletonList(alice), this.xcontext);
+        verify(this.xwiki).getDocuments(Arrays.asList(bob, carol), this.xcontext);
     }
 
     @Test
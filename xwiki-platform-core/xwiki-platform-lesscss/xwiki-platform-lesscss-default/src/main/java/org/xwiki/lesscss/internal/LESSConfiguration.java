@@ -56,4 +56,23 @@ public boolean isGenerateInlineSourceMaps()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "generateInlineSourceMaps", false);
     }
+
+    /**
+     * @return whether the compiled CSS should also be stored in the permanent directory so that it survives restarts
+     * @since 12.6RC1
+     */
+    public boolean isPersistentCacheEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "persistentCache", true);
+    }
+
+    /**
+     * @return whether the main style of the default skin of each wiki should be compiled in the background as soon as
+     *         the application is ready
+     * @since 12.6RC1
+     */
+    public boolean isPrecompilationEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "precompileAtStartup", true);
+    }
 }
@@ -104,37 +104,56 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
             return compiler.compute(lessResourceReference, includeSkinStyle, useVelocity, true, skin);
         }
 
-        T result = null;
-
         SkinReference skinReference = skinReferenceFactory.createReference(skin);
         ColorThemeReference colorThemeReference = colorThemeReferenceFactory.createReference(
                 currentColorThemeGetter.getCurrentColorTheme(true, "default"));
 
+        // Check if the result is in the cache (the cache is thread safe so there is no need to wait for a running
+        // computation when the result is already there)
+        if (!force) {
+            T result = cache.get(lessResourceReference, skinReference, colorThemeReference);
+            if (result != null) {
+                return getCachedResult(result, lessResourceReference, includeSkinStyle, useVelocity, skin);
+            }
+        }
+
         // Only one computation is allowed in the same time per color theme, then the waiting threads will be able to
         // use the last result stored in the cache.
         Object mutex = cache.getMutex(lessResourceReference, skinReference, colorThemeReference);
         synchronized (mutex) {
+            String persistentKey = null;
 
-            // Check if the result is in the cache
             if (!force) {
-                result = cache.get(lessResourceReference, skinReference, colorThemeReference);
-                if (result != null) {
-                    // The LESS file contains Velocity code that call resources (ie: $xwiki.getSkinFile), and the HTML
-                    // exporter listens these calls to know which resources must be exported.
-                    // If we only use the cache, we would have a correct CSS file but some resources will be missing.
-                    // So we need to execute the velocity again, even if the LESS file is cached.
-                    // To perform this quickly, we do not recompile the LESS code (which would be useless anyway), but
-                    // we only do the Velocity Execution step.
-                    if (lessContext.isHtmlExport() && useVelocity && this instanceof DefaultLESSCompiler) {
-                        compiler.compute(lessResourceReference, includeSkinStyle, true, false, skin);
+                // The result might have been computed while we were waiting for the mutex
+                T result = cache.get(lessResourceReference, skinReference, colorThemeReference);
+                if (result == null) {
+                    // Check if the result was stored by a previous run
+                    persistentKey = getPersistentKey(lessResourceReference, includeSkinStyle, useVelocity, skin,
+                        skinReference, colorThemeReference);
+                    if (persistentKey != null) {
+                        result = getPersistentResult(persistentKey);
+                        if (result != null) {
+                            cache.set(lessResourceReference, skinReference, colorThemeReference, result);
+                        }
                     }
-                    return cloneResult(result);
+                }
+                if (result != null) {
+                    return getCachedResult(result, lessResourceReference, includeSkinStyle, useVelocity, skin);
                 }
             }
 
-            // Either the result was in the cache or the force flag is set to true, we need to compile
+            // Either the result was not in the cache or the force flag is set to true, we need to compile
+            T result = null;
             try {
                 result = compiler.compute(lessResourceReference, includeSkinStyle, useVelocity, true, skin);
+
+                if (persistentKey == null) {
+                    persistentKey = getPersistentKey(lessResourceReference, includeSkinStyle, useVelocity, skin,
+                        skinReference, colorThemeReference);
+                }
+                if (persistentKey != null) {
+                    setPersistentResult(persistentKey, result);
+                }
             } catch (LESSCompilerException e) {
                 logger.error("Error during the compilation of the resource [{}].", lessResourceReference, e);
                 // We must cache the result, even if the compilation have failed, to prevent re-compiling again and
@@ -144,11 +163,66 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
                 // Put the result in the cache
                 cache.set(lessResourceReference, skinReference, colorThemeReference, result);
             }
+
+            return cloneResult(result);
+        }
+    }
+
+    private T getCachedResult(T result, LESSResourceReference lessResourceReference, boolean includeSkinStyle,
+        boolean useVelocity, String skin) throws LESSCompilerException
+    {
+        // The LESS file contains Velocity code that call resources (ie: $xwiki.getSkinFile), and the HTML
+        // exporter listens these calls to know which resources must be exported.
+        // If we only use the cache, we would have a correct CSS file but some resources will be missing.
+        // So we need to execute the velocity again, even if the LESS file is cached.
+        // To perform this quickly, we do not recompile the LESS code (which would be useless anyway), but
+        // we only do the Velocity Execution step.
+        if (lessContext.isHtmlExport() && useVelocity && this instanceof DefaultLESSCompiler) {
+            compiler.compute(lessResourceReference, includeSkinStyle, true, false, skin);
         }
 
         return cloneResult(result);
     }
 
+    /**
+     * Compute the key under which the result is stored in the persistent cache. The default implementation does not
+     * support any persistent cache.
+     *
+     * @param lessResourceReference reference to the LESS content
+     * @param includeSkinStyle include the main LESS file of the skin
+     * @param useVelocity either or not the resource be parsed by Velocity before compiling it
+     * @param skin name of the skin used for the context
+     * @param skinReference reference of the skin
+     * @param colorThemeReference reference of the color theme
+     * @return the key in the persistent cache or {@code null} if the result should not be persisted
+     * @since 12.6RC1
+     */
+    protected String getPersistentKey(LESSResourceReference lessResourceReference, boolean includeSkinStyle,
+        boolean useVelocity, String skin, SkinReference skinReference, ColorThemeReference colorThemeReference)
+    {
+        return null;
+    }
+
+    /**
+     * @param persistentKey the key in the persistent cache
+     * @return the result stored in the persistent cache or {@code null} if there is none
+     * @since 12.6RC1
+     */
+    protected T getPersistentResult(String persistentKey)
+    {
+        return null;
+    }
+
+    /**
+     * @param persistentKey the key in the persistent cache
+     * @param result the result to store in the persistent cache
+     * @since 12.6RC1
+     */
+    protected void setPersistentResult(String persistentKey, T result)
+    {
+        // No persistent cache by default
+    }
+
     /**
      * Returns a clone of the result to avoid returning the instance stored in the cache. Need to be implemented by
      * subclasses.
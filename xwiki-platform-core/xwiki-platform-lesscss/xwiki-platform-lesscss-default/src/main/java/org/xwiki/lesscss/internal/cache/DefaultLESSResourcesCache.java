@@ -49,6 +49,9 @@ public class DefaultLESSResourcesCache extends AbstractCache<String> implements
     @Inject
     private CacheManager cacheManager;
 
+    @Inject
+    private PersistentLESSResourcesCache persistentCache;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -61,4 +64,13 @@ public void initialize() throws InitializationException
                     String.format("Failed to initialize LESS skin files cache [%s].", LESS_FILES_CACHE_ID), e);
         }
     }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+
+        // Also forget the files generated by the previous runs
+        persistentCache.clear();
+    }
 }
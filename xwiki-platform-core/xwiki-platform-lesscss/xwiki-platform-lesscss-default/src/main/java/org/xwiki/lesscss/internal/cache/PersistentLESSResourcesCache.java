@@ -0,0 +1,290 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.colortheme.DocumentColorThemeReference;
+import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
+import org.xwiki.lesscss.internal.skin.DocumentSkinReference;
+import org.xwiki.lesscss.internal.skin.SkinReference;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.lesscss.resources.LESSResourceReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skin.Skin;
+import org.xwiki.skin.SkinManager;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Store the generated CSS in the permanent directory so that it does not need to be compiled again after a restart.
+ * <p>
+ * The files are named after a hash of everything the compilation result depends on (the LESS sources and the skin
+ * templates they import, the version of the skin and color theme documents, the XWiki version and the context key used
+ * by the memory cache), so a modified source simply produces a new entry and nothing has to be invalidated on disk.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = PersistentLESSResourcesCache.class)
+@Singleton
+public class PersistentLESSResourcesCache
+{
+    private static final String CACHE_DIRECTORY = "cache/lesscss";
+
+    private static final String FILE_EXTENSION = ".css";
+
+    private static final String LESS_FOLDER = "less";
+
+    private static final String FOLDER_SEPARATOR = "/";
+
+    /**
+     * Match the files imported by a LESS source (with or without import options and url()).
+     */
+    private static final Pattern IMPORT_PATTERN =
+        Pattern.compile("@import\\s*(?:\\([^)]*\\)\\s*)?(?:url\\(\\s*)?[\"']([^\"']+)[\"']");
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private CacheKeyFactory cacheKeyFactory;
+
+    @Inject
+    private LESSResourceReferenceFactory lessResourceReferenceFactory;
+
+    @Inject
+    private TemplateManager templateManager;
+
+    @Inject
+    private SkinManager skinManager;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Compute the key under which the result of a compilation is stored on disk.
+     *
+     * @param lessResourceReference the reference to the LESS content
+     * @param includeSkinStyle if the main LESS file of the skin is included
+     * @param useVelocity if the resource is parsed by Velocity before being compiled
+     * @param skin the name of the skin
+     * @param skinReference the reference of the skin
+     * @param colorThemeReference the reference of the color theme
+     * @return the key, or {@code null} if the sources could not be read
+     */
+    public String getKey(LESSResourceReference lessResourceReference, boolean includeSkinStyle, boolean useVelocity,
+        String skin, SkinReference skinReference, ColorThemeReference colorThemeReference)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        XWiki xwiki = xcontext.getWiki();
+
+        try {
+            MessageDigest digest = DigestUtils.getSha256Digest();
+
+            update(digest, xwiki.getVersion());
+            update(digest,
+                this.cacheKeyFactory.getCacheKey(lessResourceReference, skinReference, colorThemeReference, true));
+            update(digest, String.valueOf(includeSkinStyle));
+            update(digest, String.valueOf(useVelocity));
+            // The imported files are resolved from the skin templates so their content is part of the key too
+            Skin skinObject = this.skinManager.getSkin(skin);
+            Set<String> imports = new HashSet<>();
+            String content = lessResourceReference.getContent(skin);
+            update(digest, content);
+            updateImports(digest, content, LESS_FOLDER, skinObject, imports);
+            if (includeSkinStyle) {
+                content = this.lessResourceReferenceFactory
+                    .createReferenceForSkinFile(CachedLESSCompiler.MAIN_SKIN_STYLE_FILENAME).getContent(skin);
+                update(digest, content);
+                updateImports(digest, content, LESS_FOLDER, skinObject, imports);
+            }
+            if (skinReference instanceof DocumentSkinReference) {
+                update(digest, ((DocumentSkinReference) skinReference).getSkinDocument(), xwiki, xcontext);
+            }
+            if (colorThemeReference instanceof DocumentColorThemeReference) {
+                update(digest, ((DocumentColorThemeReference) colorThemeReference).getColorThemeDocument(), xwiki,
+                    xcontext);
+            }
+
+            return Hex.encodeHexString(digest.digest());
+        } catch (LESSCompilerException | XWikiException e) {
+            this.logger.debug("Failed to compute the persistent cache key of the resource [{}]: {}",
+                lessResourceReference, e.getMessage());
+
+            return null;
+        }
+    }
+
+    private void update(MessageDigest digest, String value)
+    {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separate the values to make sure two different lists of values can't produce the same input
+        digest.update((byte) 0);
+    }
+
+    private void updateImports(MessageDigest digest, String content, String folder, Skin skin, Set<String> imports)
+    {
+        if (content == null || skin == null) {
+            return;
+        }
+
+        Matcher matcher = IMPORT_PATTERN.matcher(content);
+        while (matcher.find()) {
+            // Same resolution as the LESS compiler (see AbstractLESSSource#relativeSource)
+            String templateName = folder + FOLDER_SEPARATOR + matcher.group(1);
+
+            // Each file is taken into account only once (and LESS files can import each other)
+            if (imports.add(templateName)) {
+                String importedContent = getTemplateContent(templateName, skin);
+
+                update(digest, templateName);
+                update(digest, importedContent);
+                updateImports(digest, importedContent, StringUtils.substringBeforeLast(templateName, FOLDER_SEPARATOR),
+                    skin, imports);
+            }
+        }
+    }
+
+    private String getTemplateContent(String templateName, Skin skin)
+    {
+        Template template = this.templateManager.getTemplate(templateName, skin);
+
+        if (template != null) {
+            try {
+                return template.getContent().getContent();
+            } catch (Exception e) {
+                this.logger.debug("Failed to read the LESS template [{}]: {}", templateName, e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    private void update(MessageDigest digest, DocumentReference documentReference, XWiki xwiki,
+        XWikiContext xcontext) throws XWikiException
+    {
+        XWikiDocument document = xwiki.getDocument(documentReference, xcontext);
+
+        update(digest, document.getVersion());
+        update(digest, document.getDate() != null ? String.valueOf(document.getDate().getTime()) : null);
+    }
+
+    private File getCacheDirectory()
+    {
+        return new File(this.environment.getPermanentDirectory(), CACHE_DIRECTORY);
+    }
+
+    private File getFile(String key)
+    {
+        return new File(getCacheDirectory(), key + FILE_EXTENSION);
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(LESSResourceReference, boolean, boolean, String, SkinReference,
+     *            ColorThemeReference)}
+     * @return the stored CSS or {@code null} if there is none
+     */
+    public String get(String key)
+    {
+        File file = getFile(key);
+
+        if (file.exists()) {
+            try {
+                return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                this.logger.warn("Failed to read the compiled LESS file [{}]: {}", file, e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param key the key returned by {@link #getKey(LESSResourceReference, boolean, boolean, String, SkinReference,
+     *            ColorThemeReference)}
+     * @param css the CSS to store
+     */
+    public void set(String key, String css)
+    {
+        File file = getFile(key);
+
+        try {
+            File directory = getCacheDirectory();
+            directory.mkdirs();
+
+            // Write in a temporary file first so that a concurrent reader (or a crash) never sees a partial file
+            File temporaryFile = File.createTempFile(key, ".tmp", directory);
+            try {
+                FileUtils.write(temporaryFile, css, StandardCharsets.UTF_8);
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile.toPath());
+            }
+        } catch (IOException e) {
+            this.logger.warn("Failed to store the compiled LESS file [{}]: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Remove all the stored CSS.
+     */
+    public void clear()
+    {
+        try {
+            FileUtils.deleteDirectory(getCacheDirectory());
+        } catch (IOException e) {
+            this.logger.warn("Failed to delete the compiled LESS files: {}", e.getMessage());
+        }
+    }
+}
@@ -28,10 +28,14 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
-import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
 import org.xwiki.lesscss.compiler.LESSCompiler;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
 import org.xwiki.lesscss.internal.cache.AbstractCachedCompiler;
+import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
+import org.xwiki.lesscss.internal.cache.PersistentLESSResourcesCache;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.skin.SkinReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
 
 /**
@@ -52,6 +56,12 @@ public class DefaultLESSCompiler extends AbstractCachedCompiler<String> implemen
     @Inject
     private CachedLESSCompiler cachedLESSCompiler;
 
+    @Inject
+    private PersistentLESSResourcesCache persistentCache;
+
+    @Inject
+    private LESSConfiguration lessConfiguration;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -73,6 +83,30 @@ public String compile(LESSResourceReference lessResourceReference, boolean inclu
         return super.getResult(lessResourceReference, includeSkinStyle, useVelocity, skin, force);
     }
 
+    @Override
+    protected String getPersistentKey(LESSResourceReference lessResourceReference, boolean includeSkinStyle,
+        boolean useVelocity, String skin, SkinReference skinReference, ColorThemeReference colorThemeReference)
+    {
+        if (lessConfiguration.isPersistentCacheEnabled()) {
+            return persistentCache.getKey(lessResourceReference, includeSkinStyle, useVelocity, skin, skinReference,
+                colorThemeReference);
+        }
+
+        return null;
+    }
+
+    @Override
+    protected String getPersistentResult(String persistentKey)
+    {
+        return persistentCache.get(persistentKey);
+    }
+
+    @Override
+    protected void setPersistentResult(String persistentKey, String result)
+    {
+        persistentCache.set(persistentKey, result);
+    }
+
     @Override
     protected String cloneResult(String toClone)
     {
@@ -0,0 +1,177 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.listeners;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.lesscss.compiler.LESSCompiler;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.lesscss.resources.LESSResourceReferenceFactory;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+import org.xwiki.wiki.manager.WikiManagerException;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+
+/**
+ * Compile the main style of the default skin of each wiki in the background as soon as the application is ready, so
+ * that the first requests don't have to wait for it.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named("lessPrecompilation")
+@Singleton
+public class LESSPrecompilationListener implements EventListener, Disposable
+{
+    private class PrecompilationRunnable extends AbstractXWikiRunnable
+    {
+        PrecompilationRunnable(XWikiContext xcontext)
+        {
+            // Work with a copy of the initialization context since the context stub is only available after the first
+            // request
+            super(XWikiContext.EXECUTIONCONTEXT_KEY, xcontext.clone());
+        }
+
+        @Override
+        protected void runInternal()
+        {
+            XWikiContext xcontext = xcontextProvider.get();
+
+            Collection<String> wikiIds;
+            try {
+                wikiIds = wikiDescriptorManager.getAllIds();
+            } catch (WikiManagerException e) {
+                logger.warn("Failed to get the wikis to precompile the LESS style for: {}",
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                return;
+            }
+
+            for (String wikiId : wikiIds) {
+                // Stop as soon as the listener is disposed
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                xcontext.setWikiId(wikiId);
+
+                precompile(xcontext);
+            }
+        }
+
+        private void precompile(XWikiContext xcontext)
+        {
+            String skin = xcontext.getWiki().getSkin(xcontext);
+
+            LESSResourceReference mainStyle =
+                lessResourceReferenceFactory.createReferenceForSkinFile(CachedLESSCompiler.MAIN_SKIN_STYLE_FILENAME);
+
+            try {
+                lessCompilerProvider.get().compile(mainStyle, false, true, skin, false);
+            } catch (Exception e) {
+                logger.warn("Failed to precompile the LESS style of skin [{}] for wiki [{}]: {}", skin,
+                    xcontext.getWikiId(), ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+    }
+
+    @Inject
+    private Provider<LESSCompiler> lessCompilerProvider;
+
+    @Inject
+    private LESSResourceReferenceFactory lessResourceReferenceFactory;
+
+    @Inject
+    private LESSConfiguration lessConfiguration;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    private ExecutorService executor;
+
+    @Override
+    public String getName()
+    {
+        return "LESS Precompilation Listener";
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return Arrays.<Event>asList(new ApplicationReadyEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        // Wikis are initialized lazily (WikiReadyEvent is only sent on their first access) so all the wikis are
+        // precompiled when the application is ready
+        if (lessConfiguration.isPrecompilationEnabled() && data instanceof XWikiContext) {
+            getExecutor().execute(new PrecompilationRunnable((XWikiContext) data));
+        }
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if (this.executor == null) {
+            // A single low priority thread is enough: the compilation is also limited by the maximum number of
+            // simultaneous compilations and we don't want to slow down the real requests
+            this.executor = Executors.newSingleThreadExecutor(new BasicThreadFactory.Builder()
+                .namingPattern("XWiki LESS precompilation thread").daemon(true).priority(Thread.MIN_PRIORITY).build());
+        }
+
+        return this.executor;
+    }
+
+    @Override
+    public synchronized void dispose()
+    {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+}
@@ -113,6 +113,7 @@ public void clear() throws Exception
 
         // Verify
         verify(cache).removeAll();
+        verify(mocker.getInstance(PersistentLESSResourcesCache.class)).clear();
     }
 
     @Test
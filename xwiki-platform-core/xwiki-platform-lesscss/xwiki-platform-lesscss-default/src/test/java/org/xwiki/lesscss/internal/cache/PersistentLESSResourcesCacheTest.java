@@ -0,0 +1,192 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.skin.SkinReference;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.lesscss.resources.LESSResourceReferenceFactory;
+import org.xwiki.skin.Skin;
+import org.xwiki.skin.SkinManager;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateContent;
+import org.xwiki.template.TemplateManager;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link PersistentLESSResourcesCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class PersistentLESSResourcesCacheTest
+{
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    @MockComponent
+    private Environment environment;
+
+    @MockComponent
+    private CacheKeyFactory cacheKeyFactory;
+
+    @MockComponent
+    private LESSResourceReferenceFactory lessResourceReferenceFactory;
+
+    @MockComponent
+    private TemplateManager templateManager;
+
+    @MockComponent
+    private SkinManager skinManager;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @InjectMockComponents
+    private PersistentLESSResourcesCache persistentCache;
+
+    private Skin skin;
+
+    private LESSResourceReference resource;
+
+    private SkinReference skinReference;
+
+    private ColorThemeReference colorThemeReference;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+
+        XWiki xwiki = mock(XWiki.class);
+        when(xwiki.getVersion()).thenReturn("12.6");
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+
+        this.skin = mock(Skin.class);
+        when(this.skinManager.getSkin("skin")).thenReturn(this.skin);
+
+        this.skinReference = mock(SkinReference.class);
+        this.colorThemeReference = mock(ColorThemeReference.class);
+        this.resource = mock(LESSResourceReference.class);
+        when(this.resource.getContent("skin")).thenReturn("@import \"variables.less\";\n.block { color: @main; }");
+        when(this.cacheKeyFactory.getCacheKey(this.resource, this.skinReference, this.colorThemeReference, true))
+            .thenReturn("cachekey");
+
+        mockTemplate("less/variables.less", "@import (reference) \"mixins/colors.less\";\n@main: @red;");
+        mockTemplate("less/mixins/colors.less", "@red: red;");
+    }
+
+    private void mockTemplate(String name, String content) throws Exception
+    {
+        TemplateContent templateContent = mock(TemplateContent.class);
+        when(templateContent.getContent()).thenReturn(content);
+        Template template = mock(Template.class);
+        when(template.getContent()).thenReturn(templateContent);
+        when(this.templateManager.getTemplate(name, this.skin)).thenReturn(template);
+    }
+
+    private String getKey()
+    {
+        return this.persistentCache.getKey(this.resource, false, true, "skin", this.skinReference,
+            this.colorThemeReference);
+    }
+
+    @Test
+    public void setGetAndClear()
+    {
+        String key = getKey();
+        assertNotNull(key);
+        assertNull(this.persistentCache.get(key));
+
+        this.persistentCache.set(key, "css");
+
+        assertEquals("css", this.persistentCache.get(key));
+        assertTrue(new File(this.permanentDirectory, "cache/lesscss/" + key + ".css").exists());
+
+        // Replace the stored CSS
+        this.persistentCache.set(key, "other css");
+
+        assertEquals("other css", this.persistentCache.get(key));
+
+        this.persistentCache.clear();
+
+        assertNull(this.persistentCache.get(key));
+        assertFalse(new File(this.permanentDirectory, "cache/lesscss").exists());
+    }
+
+    @Test
+    public void getKeyDependsOnImportedFiles() throws Exception
+    {
+        String key = getKey();
+        this.persistentCache.set(key, "css");
+
+        assertEquals(key, getKey());
+
+        // Modify a file imported by an imported file
+        mockTemplate("less/mixins/colors.less", "@red: #f00;");
+        String key2 = getKey();
+
+        assertNotEquals(key, key2);
+        assertNull(this.persistentCache.get(key2));
+
+        // Modify a directly imported file
+        mockTemplate("less/variables.less", "@import (reference) \"mixins/colors.less\";\n@main: blue;");
+
+        assertNotEquals(key2, getKey());
+
+        // The entries of the previous contents are still there but they are not used anymore
+        assertEquals("css", this.persistentCache.get(key));
+    }
+
+    @Test
+    public void getKeyDependsOnContext() throws Exception
+    {
+        String key = getKey();
+
+        when(this.cacheKeyFactory.getCacheKey(this.resource, this.skinReference, this.colorThemeReference, true))
+            .thenReturn("othercachekey");
+
+        assertNotEquals(key, getKey());
+    }
+}
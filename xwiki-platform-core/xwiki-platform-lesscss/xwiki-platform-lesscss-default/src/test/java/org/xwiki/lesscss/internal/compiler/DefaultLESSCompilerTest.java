@@ -26,8 +26,10 @@
 import org.junit.Rule;
 import org.junit.Test;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
 import org.xwiki.lesscss.internal.LESSContext;
 import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
+import org.xwiki.lesscss.internal.cache.PersistentLESSResourcesCache;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReferenceFactory;
 import org.xwiki.lesscss.internal.colortheme.CurrentColorThemeGetter;
@@ -217,4 +219,43 @@ public void compileWhenError() throws Exception
                 eq(lessResourceReference), eq(expectedException));
     }
 
+    @Test
+    public void compileWhenInPersistentCache() throws Exception
+    {
+        // Mocks
+        when(mocker.getInstance(LESSConfiguration.class).isPersistentCacheEnabled()).thenReturn(true);
+        PersistentLESSResourcesCache persistentCache = mocker.getInstance(PersistentLESSResourcesCache.class);
+        when(persistentCache.getKey(lessResourceReference, false, false, "skin", skinReference, colorThemeReference))
+            .thenReturn("key");
+        when(persistentCache.get("key")).thenReturn("persisted output");
+
+        // Test
+        assertEquals("persisted output",
+                mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false));
+
+        // Verify
+        verify(cachedLESSCompiler, never()).compute(any(LESSResourceReference.class), anyBoolean(), anyBoolean(),
+                anyBoolean(), any());
+        verify(cache).set(lessResourceReference, skinReference, colorThemeReference, "persisted output");
+    }
+
+    @Test
+    public void compileWhenNotInPersistentCache() throws Exception
+    {
+        // Mocks
+        when(mocker.getInstance(LESSConfiguration.class).isPersistentCacheEnabled()).thenReturn(true);
+        PersistentLESSResourcesCache persistentCache = mocker.getInstance(PersistentLESSResourcesCache.class);
+        when(persistentCache.getKey(lessResourceReference, false, false, "skin", skinReference, colorThemeReference))
+            .thenReturn("key");
+        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin"))).
+                thenReturn("compiled output");
+
+        // Test
+        assertEquals("compiled output",
+                mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false));
+
+        // Verify
+        verify(persistentCache).set("key", "compiled output");
+        verify(cache).set(lessResourceReference, skinReference, colorThemeReference, "compiled output");
+    }
 }
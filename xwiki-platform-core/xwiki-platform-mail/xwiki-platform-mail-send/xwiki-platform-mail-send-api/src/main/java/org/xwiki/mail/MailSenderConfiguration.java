@@ -23,6 +23,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents all XWiki configuration options for the Mail Sending feature.
@@ -97,11 +98,48 @@
 
     /**
      * @return the delay to wait between each mail being sent, in milliseconds. This is done to support mail throttling
-     *         and not considered a spammer by mail servers.
+     *         and not considered a spammer by mail servers. When several mails are sent in parallel (see
+     *         {@link #getSendWorkers()}) this delay applies to all of them: two mails never start being sent with less
+     *         than this delay between them.
      * @since 6.4RC1
      */
     long getSendWaitTime();
 
+    /**
+     * @return the minimum delay between two mails sent through the same SMTP server, in milliseconds, in addition to
+     *         {@link #getSendWaitTime()}. Mainly useful when different wikis use different SMTP servers, with
+     *         different throttling requirements.
+     * @since 12.6RC1
+     */
+    @Unstable
+    default long getSendWaitTimePerHost()
+    {
+        return 0L;
+    }
+
+    /**
+     * @return the number of mails sent in parallel, each through its own connection to the SMTP server
+     * @since 12.6RC1
+     */
+    @Unstable
+    default int getSendWorkers()
+    {
+        return 1;
+    }
+
+    /**
+     * @return true if the content of the mails to send should be kept in memory until they are sent instead of being
+     *         serialized on the file system first, or false otherwise. When true, only the content of the mails that
+     *         failed to be sent is serialized (so that they can be resent), but the mails waiting in the send queue
+     *         are lost if XWiki is stopped
+     * @since 12.6RC1
+     */
+    @Unstable
+    default boolean keepsMailContentInMemory()
+    {
+        return false;
+    }
+
     /**
      * @return the max size of the prepare queue. When this size is reached calls to put new elements on the queue will
      *         block
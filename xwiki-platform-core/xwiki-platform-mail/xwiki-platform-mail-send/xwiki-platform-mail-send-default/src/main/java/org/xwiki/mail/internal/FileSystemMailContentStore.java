@@ -31,7 +31,6 @@
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
-import javax.mail.Multipart;
 import javax.mail.Part;
 import javax.mail.Session;
 
@@ -146,21 +145,13 @@ private List<File> extractTemporaryFilesFromHeaders(ExtendedMimeMessage message)
     {
         List<File> temporaryFiles = new ArrayList<>();
         try {
-            Object content = message.getContent();
-            if (content instanceof Multipart) {
-                Multipart multipart = (Multipart) content;
-                for (int i = 0; i < multipart.getCount(); i++) {
-                    Part part = multipart.getBodyPart(i);
-                    String[] temporaryFileLocations =
-                        part.getHeader(AttachmentMimeBodyPartFactory.TMP_ATTACHMENT_LOCATION_FILE_HEADER);
-                    if (temporaryFileLocations != null && temporaryFileLocations.length > 0) {
-                        temporaryFiles.add(new File(temporaryFileLocations[0]));
-                        // Remove the special marker header so that it doesn't get sent.
-                        part.removeHeader(AttachmentMimeBodyPartFactory.TMP_ATTACHMENT_LOCATION_FILE_HEADER);
-                        // Note: for the removed header to be really removed we need to save the message.
-                        message.saveChanges();
-                    }
-                }
+            for (Part part : AttachmentMimeBodyPartFactory.getTemporaryFileParts(message)) {
+                temporaryFiles.add(
+                    new File(part.getHeader(AttachmentMimeBodyPartFactory.TMP_ATTACHMENT_LOCATION_FILE_HEADER)[0]));
+                // Remove the special marker header so that it doesn't get sent.
+                part.removeHeader(AttachmentMimeBodyPartFactory.TMP_ATTACHMENT_LOCATION_FILE_HEADER);
+                // Note: for the removed header to be really removed we need to save the message.
+                message.saveChanges();
             }
         } catch (Exception e) {
             throw new MailStoreException("Failed to extract temporary file refernces from headers", e);
@@ -104,6 +104,12 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
     private static final String PREPARE_QUEUE_CAPACITY_PROPERTY = "prepareQueueCapacity";
     private static final String SEND_QUEUE_CAPACITY_PROPERTY = "sendQueueCapacity";
 
+    private static final String SEND_WAIT_TIME_PER_HOST_PROPERTY = "sendWaitTimePerHost";
+
+    private static final String SEND_WORKERS_PROPERTY = "sendWorkers";
+
+    private static final String KEEP_CONTENT_IN_MEMORY_PROPERTY = "keepContentInMemory";
+
     /**
      * The default size of the prepare queue.
      */
@@ -323,6 +329,24 @@ public long getSendWaitTime()
         return waitTime;
     }
 
+    @Override
+    public long getSendWaitTimePerHost()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_WAIT_TIME_PER_HOST_PROPERTY, 0L);
+    }
+
+    @Override
+    public int getSendWorkers()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + SEND_WORKERS_PROPERTY, 1);
+    }
+
+    @Override
+    public boolean keepsMailContentInMemory()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + KEEP_CONTENT_IN_MEMORY_PROPERTY, false);
+    }
+
     @Override
     public int getPrepareQueueCapacity()
     {
@@ -20,6 +20,9 @@
 package org.xwiki.mail.internal.factory.attachment;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.activation.DataHandler;
@@ -29,7 +32,10 @@
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.Part;
 import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
 
 import org.apache.commons.io.FileUtils;
 import org.xwiki.component.annotation.Component;
@@ -68,6 +74,33 @@ public void initialize()
         this.temporaryDirectory.mkdirs();
     }
 
+    /**
+     * @param message the message to look into
+     * @return the parts of the message holding the location of a temporary attachment file (see
+     *         {@link #TMP_ATTACHMENT_LOCATION_FILE_HEADER})
+     * @throws MessagingException when failing to read the message parts
+     * @throws IOException when failing to read the message content
+     * @since 12.6RC1
+     */
+    public static List<Part> getTemporaryFileParts(MimeMessage message) throws MessagingException, IOException
+    {
+        List<Part> parts = new ArrayList<>();
+
+        Object content = message.getContent();
+        if (content instanceof Multipart) {
+            Multipart multipart = (Multipart) content;
+            for (int i = 0; i < multipart.getCount(); i++) {
+                Part part = multipart.getBodyPart(i);
+                String[] temporaryFileLocations = part.getHeader(TMP_ATTACHMENT_LOCATION_FILE_HEADER);
+                if (temporaryFileLocations != null && temporaryFileLocations.length > 0) {
+                    parts.add(part);
+                }
+            }
+        }
+
+        return parts;
+    }
+
     @Override
     public MimeBodyPart create(Attachment attachment, Map<String, Object> parameters) throws MessagingException
     {
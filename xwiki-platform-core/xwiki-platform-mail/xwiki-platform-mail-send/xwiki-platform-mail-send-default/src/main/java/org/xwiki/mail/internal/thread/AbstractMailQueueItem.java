@@ -40,6 +40,8 @@ public abstract class AbstractMailQueueItem implements MailQueueItem
 
     private String batchId;
 
+    private final long creationTime = System.nanoTime();
+
     /**
      * @param session see {@link #getSession()}
      * @param listener see {@link #getListener()}
@@ -82,4 +84,14 @@ public String getBatchId()
     {
         return this.batchId;
     }
+
+    /**
+     * @return the value of {@link System#nanoTime()} when the item was created, used to measure the time it spent in
+     *         the queue
+     * @since 12.6RC1
+     */
+    public long getCreationTime()
+    {
+        return this.creationTime;
+    }
 }
@@ -24,6 +24,7 @@
 import org.slf4j.Logger;
 import org.xwiki.context.Execution;
 import org.xwiki.mail.MailSenderConfiguration;
+import org.xwiki.metrics.MetricsManager;
 
 /**
  * Common code that sets up a XWiki Context in a Thread.
@@ -47,6 +48,12 @@ public abstract class AbstractMailRunnable implements MailRunnable
     @Inject
     protected Execution execution;
 
+    /**
+     * Measure the time spent by the mail items in the queue and their processing time.
+     */
+    @Inject
+    protected MetricsManager metrics;
+
     protected void removeContext()
     {
         this.execution.removeContext();
@@ -65,6 +65,17 @@ default void addMessage(T mailQueueItem, long timeout, TimeUnit unit) throws Int
      */
     T peekMessage();
 
+    /**
+     * Retrieves and removes the next mail on the queue, waiting for a mail to be added if the queue is empty.
+     *
+     * @param timeout how long to wait before giving up, in units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the {@code timeout} parameter
+     * @return the next mail on the queue, or {@code null} if no mail was added before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     * @since 12.6RC1
+     */
+    T takeMessage(long timeout, TimeUnit unit) throws InterruptedException;
+
     /**
      * Removes the next mail on the queue.
      *
@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spread the mails sent by the sender workers in time: two mails never start being sent with less than the global
+ * delay between them, and two mails sent through the same SMTP host never start with less than the per host delay
+ * between them.
+ * <p>
+ * Each caller reserves the first free slot and then sleeps until it, so waiting workers don't hold any lock.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class MailSendRateLimiter
+{
+    private long nextSlot = Long.MIN_VALUE;
+
+    private final Map<String, Long> nextHostSlots = new HashMap<>();
+
+    /**
+     * Wait until a mail can be sent.
+     *
+     * @param host the SMTP host through which the mail will be sent
+     * @param waitTime the minimum delay between two mails, in milliseconds
+     * @param hostWaitTime the minimum delay between two mails sent through the same host, in milliseconds
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire(String host, long waitTime, long hostWaitTime) throws InterruptedException
+    {
+        long wait = reserve(host, TimeUnit.MILLISECONDS.toNanos(waitTime), TimeUnit.MILLISECONDS.toNanos(hostWaitTime),
+            System.nanoTime());
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Reserve the first free slot to send a mail.
+     *
+     * @param host the SMTP host through which the mail will be sent
+     * @param waitTime the minimum delay between two mails, in nanoseconds
+     * @param hostWaitTime the minimum delay between two mails sent through the same host, in nanoseconds
+     * @param now the current time, in nanoseconds
+     * @return the time to wait before sending the mail, in nanoseconds
+     */
+    synchronized long reserve(String host, long waitTime, long hostWaitTime, long now)
+    {
+        long slot = Math.max(now, this.nextSlot);
+        Long nextHostSlot = this.nextHostSlots.get(host);
+        if (nextHostSlot != null) {
+            slot = Math.max(slot, nextHostSlot);
+        }
+
+        // Without a global delay, a mail delayed by its host must not delay the mails sent through the other hosts
+        if (waitTime > 0) {
+            this.nextSlot = slot + waitTime;
+        }
+        if (hostWaitTime > 0) {
+            this.nextHostSlots.put(host, slot + hostWaitTime);
+        } else {
+            this.nextHostSlots.remove(host);
+        }
+
+        return slot - now;
+    }
+}
@@ -39,6 +39,7 @@
 import org.xwiki.mail.MailListener;
 import org.xwiki.mail.MailStatusResult;
 import org.xwiki.mail.internal.UpdateableMailStatusResult;
+import org.xwiki.mail.internal.factory.attachment.AttachmentMimeBodyPartFactory;
 
 import com.xpn.xwiki.XWikiContext;
 
@@ -74,10 +75,13 @@ public void run()
                     // Important: only remove the mail item after the message has been created and put on the sender
                     // queue.
                     PrepareMailQueueItem mailItem = this.prepareMailQueueManager.peekMessage();
+                    this.metrics.stopTimer("mail.prepare.queue", mailItem.getCreationTime());
+                    long start = this.metrics.startTimer();
                     try {
                         prepareMail(mailItem);
                     } finally {
                         this.prepareMailQueueManager.removeMessageFromQueue(mailItem);
+                        this.metrics.stopTimer("mail.prepare", start);
                     }
                 }
                 // Note: a short pause to catch thread interruptions and to be kind on CPU.
@@ -168,10 +172,16 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
         // Ensure mimeMessage to be extended
         ExtendedMimeMessage message = ExtendedMimeMessage.wrap(mimeMessage);
 
-        // Step 2: Persist the MimeMessage
+        // Step 2: Persist the MimeMessage, unless it should be kept in memory until it's sent. Messages holding
+        // temporary attachment files are always persisted since the serialization is what removes these files.
         // Note: Message identifier is stabilized at this step by the serialization process
+        boolean keepInMemory = this.configuration.keepsMailContentInMemory() && !hasTemporaryFiles(message);
         try {
-            this.mailContentStore.save(item.getBatchId(), message);
+            if (keepInMemory) {
+                message.ensureSaved();
+            } else {
+                this.mailContentStore.save(item.getBatchId(), message);
+            }
         } catch (Exception e) {
             // An error occurred, notify the user if a listener has been provided
             if (listener != null) {
@@ -185,11 +195,25 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
             listener.onPrepareMessageSuccess(message, Collections.emptyMap());
         }
 
-        // Step 4: Put the MimeMessage id on the Mail Send Queue for sending
+        // Step 4: Put the MimeMessage (or only its id when it's been persisted) on the Mail Send Queue for sending
         // Extract the wiki id from the context
-        this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message.getUniqueMessageId(),
-            item.getSession(), listener, item.getBatchId(), extractWikiId(item)));
+        if (keepInMemory) {
+            this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message, item.getSession(), listener,
+                item.getBatchId(), extractWikiId(item)));
+        } else {
+            this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message.getUniqueMessageId(),
+                item.getSession(), listener, item.getBatchId(), extractWikiId(item)));
+        }
+    }
 
+    private boolean hasTemporaryFiles(MimeMessage message)
+    {
+        try {
+            return !AttachmentMimeBodyPartFactory.getTemporaryFileParts(message).isEmpty();
+        } catch (Exception e) {
+            // Can't tell, persist the message to be safe
+            return true;
+        }
     }
 
     private String extractWikiId(PrepareMailQueueItem item)
@@ -19,7 +19,10 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -37,11 +40,14 @@
 import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailContentStore;
 import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailStoreException;
 
 import com.xpn.xwiki.XWikiContext;
 
 /**
- * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * Runnable that waits for mails on a Queue, and for each mail tries to send it. The mails are sent by a pool of
+ * workers (see {@link org.xwiki.mail.MailSenderConfiguration#getSendWorkers()}), the thread running this runnable
+ * being the first one.
  *
  * @version $Id$
  * @since 6.4
@@ -51,6 +57,8 @@
 @Singleton
 public class SendMailRunnable extends AbstractMailRunnable
 {
+    private static final String SMTP_HOST_PROPERTY = "mail.smtp.host";
+
     @Inject
     private MailQueueManager<SendMailQueueItem> sendMailQueueManager;
 
@@ -64,25 +72,37 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
-
-    private Session currentSession;
-
-    private int count;
+    private final MailSendRateLimiter rateLimiter = new MailSendRateLimiter();
 
     @Override
     public void run()
     {
-        try {
-            // Make sure we initialize an execution context.
-            prepareContext();
+        // This thread is the first worker, start the other ones
+        int workerCount = Math.max(1, this.configuration.getSendWorkers());
+        List<Thread> workerThreads = new ArrayList<>(workerCount - 1);
+        for (int i = 2; i <= workerCount; i++) {
+            Thread workerThread = new Thread(new Worker());
+            workerThread.setName(String.format("%s %d", Thread.currentThread().getName(), i));
+            workerThread.setDaemon(true);
+            workerThread.start();
+            workerThreads.add(workerThread);
+        }
 
-            runInternal();
-        } catch (ExecutionContextException e) {
-            // Not much to do but log.
-            logger.error("Failed to initialize the send mail thread's execution context", e);
+        try {
+            new Worker().run();
         } finally {
-            closeTransport();
+            for (Thread workerThread : workerThreads) {
+                // Make sure the worker goes out of its wait so that it stops immediately
+                workerThread.interrupt();
+            }
+            for (Thread workerThread : workerThreads) {
+                try {
+                    workerThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
         }
     }
 
@@ -101,104 +121,187 @@ private void prepareContextForQueueItem(SendMailQueueItem mailItem)
         xcontext.setWikiId(mailItem.getWikiId());
     }
 
-    private void runInternal()
+    private void waitSendWaitTime(SendMailQueueItem mailItem) throws InterruptedException
+    {
+        // Email throttling: wait until the configured delays since the previous mails have elapsed
+        this.rateLimiter.acquire(mailItem.getSession().getProperty(SMTP_HOST_PROPERTY),
+            this.configuration.getSendWaitTime(), this.configuration.getSendWaitTimePerHost());
+    }
+
+    /**
+     * A sender worker, taking mails from the queue and sending them through its own connection to the SMTP server.
+     * Several workers can run at the same time.
+     */
+    private final class Worker implements Runnable
     {
-        do {
+        private Transport currentTransport;
+
+        private Session currentSession;
+
+        private int count;
+
+        @Override
+        public void run()
+        {
             try {
-                // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item from the queue after the mail has been sent as
-                    // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
-                    try {
-                        sendMail(mailItem);
-                    } finally {
-                        this.sendMailQueueManager.removeMessageFromQueue(mailItem);
+                // Make sure we initialize an execution context.
+                prepareContext();
+
+                runInternal();
+            } catch (ExecutionContextException e) {
+                // Not much to do but log.
+                logger.error("Failed to initialize the send mail thread's execution context", e);
+            } finally {
+                closeTransport(this.currentTransport);
+            }
+        }
+
+        private void runInternal()
+        {
+            do {
+                try {
+                    // Wait for the next message in the queue (without polling). The timeout is only used to check
+                    // regularly if the thread should stop.
+                    SendMailQueueItem mailItem = sendMailQueueManager.takeMessage(1L, TimeUnit.SECONDS);
+                    if (mailItem != null) {
+                        metrics.stopTimer("mail.send.queue", mailItem.getCreationTime());
+                        prepareContextForQueueItem(mailItem);
+                        try {
+                            waitSendWaitTime(mailItem);
+                        } catch (InterruptedException e) {
+                            // The mail is not in the queue anymore, so make sure it can be resent
+                            abortMail(mailItem, e);
+                            throw e;
+                        }
+                        long start = metrics.startTimer();
+                        try {
+                            sendMail(mailItem);
+                        } finally {
+                            metrics.stopTimer("mail.send", start);
+                        }
                     }
-                    // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
-                    waitSendWaitTime();
+                } catch (InterruptedException e) {
+                    // Thread has been stopped, exit
+                    logger.debug("Mail Sender Thread was forcefully stopped", e);
+                    break;
+                } catch (Exception e) {
+                    // There was an unexpected problem, we just log the problem but keep the thread alive!
+                    logger.error("Unexpected error in the Mail Sender Thread", e);
+                }
+            } while (!shouldStop);
+        }
+
+        /**
+         * Send the mail.
+         *
+         * @param item the queue item containing all the data for sending the mail
+         */
+        private void sendMail(SendMailQueueItem item)
+        {
+            MailListener listener = item.getListener();
+
+            // Step 1: Load the message from the filesystem store, unless it's been kept in memory
+            ExtendedMimeMessage message = loadMessage(item);
+            if (message == null) {
+                return;
+            }
+
+            try {
+                // Step 2: If the current Session in use is different from the one passed then close
+                // the current Transport, get a new one and reconnect.
+                // Also do that every 100 mails sent.
+                // TODO: explain why!
+                if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
+                    closeTransport(this.currentTransport);
+                    this.currentSession = item.getSession();
+                    this.currentTransport = this.currentSession.getTransport("smtp");
+                    this.currentTransport.connect();
+                } else if (!this.currentTransport.isConnected()) {
+                    this.currentTransport.connect();
+                }
+
+                // Step 3: Send the mail
+                // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
+                // message; this prevent the MessageID header to be changed.
+                this.currentTransport.sendMessage(message, message.getAllRecipients());
+                this.count++;
+
+                // Step 4: Notify the user of the success if a listener has been provided
+                if (listener != null) {
+                    listener.onSendMessageSuccess(message, Collections.<String, Object>emptyMap());
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(50L);
-            } catch (InterruptedException e) {
-                // Thread has been stopped, exit
-                this.logger.debug("Mail Sender Thread was forcefully stopped", e);
-                break;
             } catch (Exception e) {
-                // There was an unexpected problem, we just log the problem but keep the thread alive!
-                this.logger.error("Unexpected error in the Mail Sender Thread", e);
+                // The content of a message kept in memory is only persisted now, so that it can be resent
+                if (item.getMessage() != null) {
+                    saveMailContent(item);
+                }
+
+                // An error occurred, notify the user if a listener has been provided.
+                if (listener != null) {
+                    listener.onSendMessageError(message, e, Collections.<String, Object>emptyMap());
+                }
             }
-        } while (!this.shouldStop);
+        }
     }
 
     /**
-     * Send the mail.
-     *
      * @param item the queue item containing all the data for sending the mail
+     * @return the message to send, or {@code null} if it couldn't be loaded (the listener is notified)
      */
-    protected void sendMail(SendMailQueueItem item)
+    private ExtendedMimeMessage loadMessage(SendMailQueueItem item)
     {
-        prepareContextForQueueItem(item);
-
-        MailListener listener = item.getListener();
-
-        ExtendedMimeMessage message;
-        try {
-            // Step 1: Load the message from the filesystem store
-            message = this.mailContentStore.load(item.getSession(), item.getBatchId(), item.getUniqueMessageId());
-        } catch (Exception e) {
-            if (listener != null) {
-                listener.onSendMessageFatalError(item.getUniqueMessageId(), e, Collections.<String, Object>emptyMap());
+        ExtendedMimeMessage message = item.getMessage();
+        if (message == null) {
+            try {
+                message = this.mailContentStore.load(item.getSession(), item.getBatchId(), item.getUniqueMessageId());
+            } catch (Exception e) {
+                if (item.getListener() != null) {
+                    item.getListener().onSendMessageFatalError(item.getUniqueMessageId(), e,
+                        Collections.<String, Object>emptyMap());
+                }
             }
-            return;
         }
 
-        try {
-            // Step 2: If the current Session in use is different from the one passed then close
-            // the current Transport, get a new one and reconnect.
-            // Also do that every 100 mails sent.
-            // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
-                closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
-            }
-
-            // Step 3: Send the mail
-            // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
-            // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+        return message;
+    }
 
-            // Step 4: Notify the user of the success if a listener has been provided
-            if (listener != null) {
-                listener.onSendMessageSuccess(message, Collections.<String, Object>emptyMap());
+    /**
+     * Mark a mail taken from the queue as failed to be sent, because the worker was stopped before sending it.
+     *
+     * @param item the queue item containing all the data for sending the mail
+     * @param cause the reason why the mail wasn't sent
+     */
+    private void abortMail(SendMailQueueItem item, Exception cause)
+    {
+        ExtendedMimeMessage message = loadMessage(item);
+        if (message != null) {
+            // The content of a message kept in memory is only persisted now, so that it can be resent
+            if (item.getMessage() != null) {
+                saveMailContent(item);
             }
-        } catch (Exception e) {
-            // An error occurred, notify the user if a listener has been provided.
-            if (listener != null) {
-                listener.onSendMessageError(message, e, Collections.<String, Object>emptyMap());
+
+            if (item.getListener() != null) {
+                item.getListener().onSendMessageError(message, cause, Collections.<String, Object>emptyMap());
             }
         }
     }
 
-    private void waitSendWaitTime() throws InterruptedException
+    private void saveMailContent(SendMailQueueItem item)
     {
-        long sendWaitTime = this.configuration.getSendWaitTime();
-        Thread.sleep(sendWaitTime);
+        try {
+            this.mailContentStore.save(item.getBatchId(), item.getMessage());
+        } catch (MailStoreException e) {
+            this.logger.warn("Failed to save the content of the message [{}] (batch id [{}]) which failed to be sent. "
+                + "It won't be possible to resend it. Reason [{}]", item.getUniqueMessageId(), item.getBatchId(),
+                ExceptionUtils.getRootCauseMessage(e));
+        }
     }
 
-    private void closeTransport()
+    private void closeTransport(Transport transport)
     {
-        if (this.currentTransport != null) {
+        if (transport != null) {
             try {
-                this.currentTransport.close();
+                transport.close();
             } catch (MessagingException e) {
                 this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
                     ExceptionUtils.getRootCauseMessage(e));
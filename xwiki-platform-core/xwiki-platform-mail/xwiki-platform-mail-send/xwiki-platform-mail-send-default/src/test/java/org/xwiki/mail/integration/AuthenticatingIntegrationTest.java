@@ -62,6 +62,7 @@
 import org.xwiki.mail.internal.thread.SendMailQueueManager;
 import org.xwiki.mail.internal.thread.SendMailRunnable;
 import org.xwiki.mail.internal.thread.context.Copier;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.ModelContext;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
@@ -159,6 +160,8 @@ public void registerConfiguration() throws Exception
         EnvironmentConfiguration environmentConfiguration =
             this.componentManager.registerMockComponent(EnvironmentConfiguration.class);
         when(environmentConfiguration.getPermanentDirectoryPath()).thenReturn(PERMDIR);
+
+        this.componentManager.registerMockComponent(MetricsManager.class);
     }
 
     @BeforeEach
@@ -63,6 +63,7 @@
 import org.xwiki.mail.script.ScriptMailResult;
 import org.xwiki.mail.script.ScriptMimeMessage;
 import org.xwiki.mail.script.ScriptServicePermissionChecker;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.ModelContext;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
@@ -155,6 +156,8 @@ public void registerConfiguration() throws Exception
             this.componentManager.registerMockComponent(EnvironmentConfiguration.class);
         when(environmentConfiguration.getPermanentDirectoryPath()).thenReturn(PERMDIR);
 
+        this.componentManager.registerMockComponent(MetricsManager.class);
+
         this.componentManager.registerMockComponent(ConverterManager.class);
     }
 
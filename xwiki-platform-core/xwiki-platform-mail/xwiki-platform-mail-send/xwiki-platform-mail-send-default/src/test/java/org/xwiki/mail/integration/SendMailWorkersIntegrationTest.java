@@ -0,0 +1,202 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.integration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.inject.Provider;
+import javax.mail.Message.RecipientType;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.mail.ExtendedMimeMessage;
+import org.xwiki.mail.MailContentStore;
+import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailSenderConfiguration;
+import org.xwiki.mail.internal.MemoryMailListener;
+import org.xwiki.mail.internal.UpdateableMailStatusResult;
+import org.xwiki.mail.internal.thread.MailQueueManager;
+import org.xwiki.mail.internal.thread.SendMailQueueItem;
+import org.xwiki.mail.internal.thread.SendMailQueueManager;
+import org.xwiki.mail.internal.thread.SendMailRunnable;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Send mails to an in-process SMTP server with several numbers of sender workers, log the throughput and verify that
+ * more workers don't make the sending slower.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({
+    MemoryMailListener.class,
+    SendMailQueueManager.class
+})
+public class SendMailWorkersIntegrationTest extends AbstractMailIntegrationTest
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SendMailWorkersIntegrationTest.class);
+
+    private static final int MAIL_COUNT = 300;
+
+    /**
+     * Margin for the noise of the test environment when comparing the durations.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    private GreenMail greenMail = new GreenMail(getCustomServerSetup(ServerSetupTest.SMTP));
+
+    @InjectMockComponents
+    private SendMailRunnable sendMailRunnable;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private MailSenderConfiguration configuration;
+
+    @BeforeComponent
+    public void registerComponents() throws Exception
+    {
+        this.greenMail.start();
+
+        this.configuration = this.componentManager.registerMockComponent(MailSenderConfiguration.class);
+        when(this.configuration.getSendQueueCapacity()).thenReturn(MAIL_COUNT);
+
+        Provider<XWikiContext> xwikiContextProvider =
+            this.componentManager.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        when(xwikiContextProvider.get()).thenReturn(mock(XWikiContext.class));
+    }
+
+    @AfterEach
+    public void cleanUp()
+    {
+        this.greenMail.stop();
+    }
+
+    @Test
+    public void moreWorkersAreNotSlower() throws Exception
+    {
+        // Without any delay between the mails the workers are only limited by the SMTP server.
+        when(this.configuration.getSendWaitTime()).thenReturn(0L);
+
+        // Warm up the SMTP server and JavaMail so that the first measure is not penalized.
+        send(1);
+
+        double oneWorker = send(1);
+        double fourWorkers = send(4);
+        double sixteenWorkers = send(16);
+
+        assertTrue(fourWorkers <= oneWorker * TOLERANCE,
+            String.format("4 workers took [%.2f] s while 1 worker took [%.2f] s", fourWorkers, oneWorker));
+        assertTrue(sixteenWorkers <= oneWorker * TOLERANCE,
+            String.format("16 workers took [%.2f] s while 1 worker took [%.2f] s", sixteenWorkers, oneWorker));
+    }
+
+    private double send(int workers) throws Exception
+    {
+        when(this.configuration.getSendWorkers()).thenReturn(workers);
+        this.greenMail.purgeEmailFromAllMailboxes();
+        // The runnable is reused for each measure
+        FieldUtils.writeField(this.sendMailRunnable, "shouldStop", false, true);
+
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "localhost");
+        properties.setProperty("mail.smtp.port", String.valueOf(this.greenMail.getSmtp().getPort()));
+        Session session = Session.getInstance(properties);
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(MAIL_COUNT);
+
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+        Map<String, ExtendedMimeMessage> messages = new HashMap<>();
+        when(contentStore.load(eq(session), eq(batchId), anyString()))
+            .thenAnswer(invocation -> messages.get(invocation.getArgument(2)));
+
+        MailQueueManager<SendMailQueueItem> mailQueueManager = this.componentManager
+            .getInstance(new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+
+        for (int i = 0; i < MAIL_COUNT; i++) {
+            MimeMessage mimeMessage = new MimeMessage(session);
+            mimeMessage.setFrom(new InternetAddress("john@doe.com"));
+            mimeMessage.setRecipient(RecipientType.TO, new InternetAddress("user" + i + "@doe.com"));
+            mimeMessage.setSubject("Digest " + i);
+            mimeMessage.setText("Content " + i);
+            ExtendedMimeMessage message = new ExtendedMimeMessage(mimeMessage);
+            messages.put(message.getUniqueMessageId(), message);
+            listener.onPrepareMessageSuccess(message, Collections.emptyMap());
+            mailQueueManager.addToQueue(
+                new SendMailQueueItem(message.getUniqueMessageId(), session, listener, batchId, "xwiki"));
+        }
+
+        long start = System.nanoTime();
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.setName("Mail Sender Thread");
+        thread.start();
+
+        try {
+            listener.getMailStatusResult().waitTillProcessed(60000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        LOGGER.info("Sent [{}] mails with [{}] workers in [{}] s: [{}] mails per second", MAIL_COUNT, workers,
+            String.format("%.2f", seconds), String.format("%.0f", MAIL_COUNT / seconds));
+
+        assertTrue(listener.getMailStatusResult().isProcessed());
+        assertFalse(listener.getMailStatusResult().getAllErrors().hasNext());
+        assertEquals(MAIL_COUNT, listener.getMailStatusResult().getProcessedMailCount());
+        assertEquals(MAIL_COUNT, this.greenMail.getReceivedMessages().length);
+
+        return seconds;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal.thread;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link MailSendRateLimiter}.
+ *
+ * @version $Id$
+ */
+public class MailSendRateLimiterTest
+{
+    private static final long WAIT = 100L;
+
+    private static final long HOST_WAIT = 1000L;
+
+    private final MailSendRateLimiter limiter = new MailSendRateLimiter();
+
+    @Test
+    public void globalSpacing()
+    {
+        // The first mail is sent immediately and the following ones are spaced whatever their host
+        assertEquals(0L, this.limiter.reserve("host1", WAIT, 0L, 0L));
+        assertEquals(WAIT, this.limiter.reserve("host2", WAIT, 0L, 0L));
+        assertEquals(2 * WAIT, this.limiter.reserve("host1", WAIT, 0L, 0L));
+
+        // The delay is counted from the last reserved slot
+        assertEquals(WAIT - 50L, this.limiter.reserve("host3", WAIT, 0L, 2 * WAIT + 50L));
+
+        // No wait once the delay has elapsed
+        assertEquals(0L, this.limiter.reserve("host1", WAIT, 0L, 10 * WAIT));
+    }
+
+    @Test
+    public void perHostSpacing()
+    {
+        assertEquals(0L, this.limiter.reserve("host1", 0L, HOST_WAIT, 0L));
+        // Another host is not delayed
+        assertEquals(0L, this.limiter.reserve("host2", 0L, HOST_WAIT, 0L));
+        // The same host is
+        assertEquals(HOST_WAIT, this.limiter.reserve("host1", 0L, HOST_WAIT, 0L));
+        assertEquals(2 * HOST_WAIT - 10L, this.limiter.reserve("host1", 0L, HOST_WAIT, 10L));
+        assertEquals(HOST_WAIT - 20L, this.limiter.reserve("host2", 0L, HOST_WAIT, 20L));
+    }
+
+    @Test
+    public void globalAndPerHostSpacing()
+    {
+        assertEquals(0L, this.limiter.reserve("host1", WAIT, HOST_WAIT, 0L));
+        assertEquals(WAIT, this.limiter.reserve("host2", WAIT, HOST_WAIT, 0L));
+        // The slot of the same host is later than the global one
+        assertEquals(HOST_WAIT, this.limiter.reserve("host1", WAIT, HOST_WAIT, 0L));
+        // The global delay is counted from the last reserved slot, even when it was delayed by its host
+        assertEquals(HOST_WAIT + WAIT, this.limiter.reserve("host3", WAIT, HOST_WAIT, 0L));
+    }
+
+    @Test
+    public void noSpacing()
+    {
+        assertEquals(0L, this.limiter.reserve("host1", 0L, 0L, 0L));
+        assertEquals(0L, this.limiter.reserve("host1", 0L, 0L, 0L));
+        assertEquals(0L, this.limiter.reserve("host2", 0L, 0L, 0L));
+    }
+
+    @Test
+    public void acquireWaits() throws Exception
+    {
+        long start = System.nanoTime();
+
+        this.limiter.acquire("host1", 0L, WAIT);
+        this.limiter.acquire("host1", 0L, WAIT);
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(WAIT));
+    }
+}
@@ -52,6 +52,9 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -220,4 +223,105 @@ public void sendMailWhenMailRetrievalFails() throws Exception
         }
         assertEquals(2, errorCount);
     }
+
+    @Test
+    public void sendMailKeptInMemoryWhenSendingFails() throws Exception
+    {
+        // Create a Session with an invalid host so that it generates an error
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "xwiki-unknown");
+        Session session = Session.getDefaultInstance(properties);
+
+        MimeMessage msg = new MimeMessage(session);
+        msg.setText("Content");
+        ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(1);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        mailQueueManager.addToQueue(new SendMailQueueItem(message, session, listener, batchId, "xwiki"));
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        // Wait for the mail to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        assertTrue(listener.getMailStatusResult().getByState(MailState.SEND_ERROR).hasNext());
+
+        // The message was never loaded but its content has been saved so that it can be resent
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+        verify(contentStore, never()).load(any(), any(), any());
+        verify(contentStore).save(batchId, message);
+    }
+
+    @Test
+    public void sendMailWhenInterruptedWhileWaiting() throws Exception
+    {
+        // Wait long enough between 2 mails for the second one to be taken from the queue before being sent
+        MailSenderConfiguration configuration = this.componentManager.getInstance(MailSenderConfiguration.class);
+        when(configuration.getSendWaitTime()).thenReturn(60000L);
+
+        // Create a Session with an invalid host so that it generates an error
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "xwiki-unknown");
+        Session session = Session.getDefaultInstance(properties);
+
+        MimeMessage msg1 = new MimeMessage(session);
+        msg1.setText("Content1");
+        ExtendedMimeMessage message1 = new ExtendedMimeMessage(msg1);
+        MimeMessage msg2 = new MimeMessage(session);
+        msg2.setText("Content2");
+        ExtendedMimeMessage message2 = new ExtendedMimeMessage(msg2);
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(2);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        mailQueueManager.addToQueue(new SendMailQueueItem(message1, session, listener, batchId, "xwiki"));
+        mailQueueManager.addToQueue(new SendMailQueueItem(message2, session, listener, batchId, "xwiki"));
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        try {
+            // Wait for the second mail to be taken from the queue and waiting for its turn to be sent
+            long timeout = System.currentTimeMillis() + 10000L;
+            while (listener.getMailStatusResult().getProcessedMailCount() < 1 || mailQueueManager.hasMessage()
+                || thread.getState() != Thread.State.TIMED_WAITING) {
+                assertTrue(System.currentTimeMillis() < timeout, "The second mail was never taken from the queue");
+                Thread.sleep(10L);
+            }
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        // The second mail is not lost: it's marked as failed and its content has been saved so that it can be resent
+        assertTrue(listener.getMailStatusResult().isProcessed());
+        Iterator<MailStatus> statuses = listener.getMailStatusResult().getByState(MailState.SEND_ERROR);
+        int errorCount = 0;
+        while (statuses.hasNext()) {
+            statuses.next();
+            errorCount++;
+        }
+        assertEquals(2, errorCount);
+
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+        verify(contentStore).save(batchId, message2);
+    }
 }
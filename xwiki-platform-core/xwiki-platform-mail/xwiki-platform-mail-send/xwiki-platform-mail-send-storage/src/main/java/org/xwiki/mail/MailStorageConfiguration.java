@@ -20,6 +20,7 @@
 package org.xwiki.mail;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration for the storage part of the Mail Sender.
@@ -35,4 +36,16 @@
      *         they should be kept (for tracability purpose for example)
      */
     boolean discardSuccessStatuses();
+
+    /**
+     * @return the maximum time, in milliseconds, a mail status change can wait before being written to the database.
+     *         The changes made during that time are written together, in a single transaction. 0 or less means that
+     *         each change is written immediately
+     * @since 12.6RC1
+     */
+    @Unstable
+    default long getStatusWriteWindow()
+    {
+        return 500L;
+    }
 }
@@ -64,6 +64,9 @@ public class DatabaseMailListener extends AbstractMailListener implements Initia
     @Named("database")
     private MailStatusStore mailStatusStore;
 
+    @Inject
+    private DatabaseMailStatusWriter mailStatusWriter;
+
     @Inject
     private MailStorageConfiguration configuration;
 
@@ -72,7 +75,7 @@ public class DatabaseMailListener extends AbstractMailListener implements Initia
     @Override
     public void initialize() throws InitializationException
     {
-        mailStatusResult = new DatabaseMailStatusResult(this.mailStatusStore);
+        mailStatusResult = new DatabaseMailStatusResult(this.mailStatusStore, this.mailStatusWriter);
     }
 
     @Override
@@ -190,7 +193,7 @@ private MailStatus retrieveExistingMailStatus(String uniqueMessageId, MailState
     {
         MailStatus status;
         try {
-            status = mailStatusStore.load(uniqueMessageId);
+            status = this.mailStatusWriter.load(uniqueMessageId);
             if (status == null) {
                 // It's not normal to have no status in the mail status store since onPrepare should have been called
                 // before.
@@ -216,7 +219,7 @@ public MailStatusResult getMailStatusResult()
     private void saveStatus(MailStatus status, Map<String, Object> parameters)
     {
         try {
-            mailStatusStore.save(status, parameters);
+            this.mailStatusWriter.save(status, parameters);
         } catch (MailStoreException e) {
             // Failed to save the status in the DB, we continue but log an error
             logger.error("Failed to save mail status [{}] to the database", status, e);
@@ -226,7 +229,7 @@ private void saveStatus(MailStatus status, Map<String, Object> parameters)
     private void deleteStatus(MailStatus status, Map<String, Object> parameters)
     {
         try {
-            mailStatusStore.delete(status.getMessageId(), parameters);
+            this.mailStatusWriter.delete(status.getMessageId(), parameters);
         } catch (MailStoreException e) {
             // Failed to delete the status in the DB, we continue but log an error
             logger.error("Failed to delete mail status [{}] from the database", status, e);
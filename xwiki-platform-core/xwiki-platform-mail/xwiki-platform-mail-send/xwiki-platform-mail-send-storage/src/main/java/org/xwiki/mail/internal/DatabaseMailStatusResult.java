@@ -19,10 +19,15 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,8 +51,12 @@ public class DatabaseMailStatusResult extends AbstractMailStatusResult
 
     private static final String DATE_FIELD = "date";
 
+    private static final String STATE_KEY = "state";
+
     private MailStatusStore mailStatusStore;
 
+    private DatabaseMailStatusWriter mailStatusWriter;
+
     private String batchId;
 
     /**
@@ -55,8 +64,22 @@ public class DatabaseMailStatusResult extends AbstractMailStatusResult
      * @param mailStatusStore the MailStatusStore
      */
     public DatabaseMailStatusResult(MailStatusStore mailStatusStore)
+    {
+        this(mailStatusStore, null);
+    }
+
+    /**
+     * Constructor initializing the DatabaseMailStatusResult with MailStatusStore and the writer holding the statuses
+     * not yet written to the store.
+     *
+     * @param mailStatusStore the MailStatusStore
+     * @param mailStatusWriter the writer whose pending statuses are merged with the ones loaded from the store
+     * @since 12.6RC1
+     */
+    public DatabaseMailStatusResult(MailStatusStore mailStatusStore, DatabaseMailStatusWriter mailStatusWriter)
     {
         this.mailStatusStore = mailStatusStore;
+        this.mailStatusWriter = mailStatusWriter;
     }
 
     /**
@@ -77,8 +100,7 @@ public Iterator<MailStatus> getAll()
         }
 
         try {
-            return this.mailStatusStore.load(Collections.<String, Object>singletonMap(BATCHID_KEY, this.batchId),
-                0, 0, DATE_FIELD, true).iterator();
+            return load(Collections.<String, Object>singletonMap(BATCHID_KEY, this.batchId), null);
         } catch (MailStoreException e) {
             LOGGER.error("Failed to get all results. Returning an empty result.", e);
             return Collections.emptyIterator();
@@ -106,11 +128,60 @@ private Iterator<MailStatus> getFilteredState(String state)
         try {
             Map<String, Object> filterMap = new HashMap<>();
             filterMap.put(BATCHID_KEY, this.batchId);
-            filterMap.put("state", state);
-            return this.mailStatusStore.load(filterMap, 0, 0, DATE_FIELD, true).iterator();
+            filterMap.put(STATE_KEY, state);
+            return load(filterMap, state);
         } catch (MailStoreException e) {
             LOGGER.error("Failed to get results by state. Returning an empty result.", e);
             return Collections.emptyIterator();
         }
     }
+
+    private Iterator<MailStatus> load(Map<String, Object> filterMap, String statePattern) throws MailStoreException
+    {
+        // Get the pending statuses before loading the stored ones so that a status written in between is not missed
+        Map<String, Optional<MailStatus>> pendingWrites =
+            this.mailStatusWriter != null ? this.mailStatusWriter.getPendingWrites() : Collections.emptyMap();
+
+        List<MailStatus> statuses = this.mailStatusStore.load(filterMap, 0, 0, DATE_FIELD, true);
+        if (pendingWrites.isEmpty()) {
+            return statuses.iterator();
+        }
+
+        // The pending statuses replace the stored ones
+        List<MailStatus> mergedStatuses = new ArrayList<>(statuses.size());
+        for (MailStatus status : statuses) {
+            if (!pendingWrites.containsKey(status.getMessageId())) {
+                mergedStatuses.add(status);
+            }
+        }
+        Pattern stateRegex = statePattern != null ? toPattern(statePattern) : null;
+        for (Optional<MailStatus> pendingWrite : pendingWrites.values()) {
+            pendingWrite.filter(status -> this.batchId.equals(status.getBatchId())
+                && (stateRegex == null || stateRegex.matcher(status.getState()).matches()))
+                .ifPresent(mergedStatuses::add);
+        }
+        mergedStatuses.sort(Comparator.comparing(MailStatus::getDate));
+
+        return mergedStatuses.iterator();
+    }
+
+    /**
+     * @param likePattern a pattern of the SQL like operator
+     * @return the equivalent regular expression
+     */
+    private Pattern toPattern(String likePattern)
+    {
+        StringBuilder regex = new StringBuilder();
+        for (char c : likePattern.toCharArray()) {
+            if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+
+        return Pattern.compile(regex.toString());
+    }
 }
@@ -0,0 +1,358 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.mail.MailStatus;
+import org.xwiki.mail.MailStatusStore;
+import org.xwiki.mail.MailStorageConfiguration;
+import org.xwiki.mail.MailStoreException;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+/**
+ * Write the mail statuses to the database in batches (write-behind): the status changes made during a time window
+ * (see {@link MailStorageConfiguration#getStatusWriteWindow()}) are accumulated in memory and then written together,
+ * in a single transaction. Only the last change of a given mail is written. The changes which fail to be written are
+ * kept and written again after a delay.
+ * <p>
+ * Until they are written the pending changes are returned by {@link #load(String)} and {@link #getPendingWrites()} so
+ * that the readers still get the current state of the mails.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = DatabaseMailStatusWriter.class)
+@Singleton
+public class DatabaseMailStatusWriter implements Initializable, Disposable
+{
+    /**
+     * The maximum number of pending changes, after which they are written without waiting for the end of the window.
+     */
+    private static final int MAX_PENDING = 1000;
+
+    /**
+     * The number of statements sent to the database at once. Also used to limit the size of the "in" clauses.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * The delay after which the changes which failed to be written are written again, in milliseconds.
+     */
+    private static final long RETRY_DELAY = 5000L;
+
+    private static final String IDS_PARAMETER_NAME = "ids";
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    @Named("database")
+    private MailStatusStore mailStatusStore;
+
+    @Inject
+    @Named("hibernate")
+    private XWikiStoreInterface hibernateStore;
+
+    @Inject
+    private Provider<XWikiContext> contextProvider;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private MailStorageConfiguration configuration;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * The changes waiting to be written, indexed by message id. An empty value means that the status is deleted.
+     */
+    private Map<String, Optional<MailStatus>> pending = new LinkedHashMap<>();
+
+    /**
+     * The changes being written.
+     */
+    private Map<String, Optional<MailStatus>> writing = Collections.emptyMap();
+
+    private ScheduledFuture<?> scheduledWrite;
+
+    /**
+     * Whether the last write failed, in which case the pending changes are only written again after a delay.
+     */
+    private boolean failing;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "XWiki mail status writer");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        flush();
+
+        this.executor.shutdownNow();
+
+        synchronized (this) {
+            if (!this.pending.isEmpty()) {
+                this.logger.error("Failed to write [{}] mail statuses to the database before stopping",
+                    this.pending.size());
+            }
+        }
+    }
+
+    /**
+     * Save the status of a mail, replacing its previous status.
+     *
+     * @param status the status to save
+     * @param parameters some parameters specifying addition context data (for example the current wiki is stored under
+     *            the {@code wikiId} key)
+     * @throws MailStoreException when the status is written immediately and it fails
+     */
+    public void save(MailStatus status, Map<String, Object> parameters) throws MailStoreException
+    {
+        long window = this.configuration.getStatusWriteWindow();
+        if (window > 0) {
+            addPending(status.getMessageId(), Optional.of(status), window);
+        } else {
+            this.mailStatusStore.save(status, parameters);
+        }
+    }
+
+    /**
+     * Delete the status of a mail.
+     *
+     * @param uniqueMessageId the unique id of the mail
+     * @param parameters some parameters specifying addition context data (for example the current wiki is stored under
+     *            the {@code wikiId} key)
+     * @throws MailStoreException when the status is deleted immediately and it fails
+     */
+    public void delete(String uniqueMessageId, Map<String, Object> parameters) throws MailStoreException
+    {
+        long window = this.configuration.getStatusWriteWindow();
+        if (window > 0) {
+            addPending(uniqueMessageId, Optional.empty(), window);
+        } else {
+            this.mailStatusStore.delete(uniqueMessageId, parameters);
+        }
+    }
+
+    /**
+     * @param uniqueMessageId the unique id of the mail
+     * @return the current status of the mail, including the changes not yet written, or {@code null} if there's none
+     * @throws MailStoreException when loading the status from the database fails
+     */
+    public MailStatus load(String uniqueMessageId) throws MailStoreException
+    {
+        Optional<MailStatus> status = getPendingWrite(uniqueMessageId);
+        if (status != null) {
+            return status.orElse(null);
+        }
+
+        return this.mailStatusStore.load(uniqueMessageId);
+    }
+
+    /**
+     * @return the changes not yet written to the database, indexed by message id, an empty value meaning that the
+     *         status is deleted
+     */
+    public synchronized Map<String, Optional<MailStatus>> getPendingWrites()
+    {
+        Map<String, Optional<MailStatus>> writes = new LinkedHashMap<>(this.writing);
+        writes.putAll(this.pending);
+
+        return writes;
+    }
+
+    /**
+     * Write the pending changes and wait until they are written.
+     */
+    public void flush()
+    {
+        if (this.executor.isShutdown()) {
+            // Disposed, the pending changes have already been written
+            return;
+        }
+
+        try {
+            this.executor.submit(this::writePending).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to write the pending mail statuses", e);
+        }
+    }
+
+    private synchronized Optional<MailStatus> getPendingWrite(String uniqueMessageId)
+    {
+        Optional<MailStatus> status = this.pending.get(uniqueMessageId);
+        if (status == null) {
+            status = this.writing.get(uniqueMessageId);
+        }
+
+        return status;
+    }
+
+    private synchronized void addPending(String uniqueMessageId, Optional<MailStatus> status, long window)
+    {
+        this.pending.put(uniqueMessageId, status);
+
+        if (this.pending.size() >= MAX_PENDING && !this.failing) {
+            // Don't wait for the end of the window
+            cancelScheduledWrite();
+            this.executor.execute(this::writePending);
+        } else if (this.scheduledWrite == null) {
+            this.scheduledWrite = this.executor.schedule(this::writePending, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelScheduledWrite()
+    {
+        if (this.scheduledWrite != null) {
+            this.scheduledWrite.cancel(false);
+            this.scheduledWrite = null;
+        }
+    }
+
+    private void writePending()
+    {
+        // Only called from the writing thread so there's a single batch being written at a time
+        Map<String, Optional<MailStatus>> writes;
+        synchronized (this) {
+            cancelScheduledWrite();
+            writes = this.pending;
+            this.writing = writes;
+            this.pending = new LinkedHashMap<>();
+        }
+
+        if (!writes.isEmpty()) {
+            boolean written = false;
+            try {
+                this.executionContextManager.initialize(new ExecutionContext());
+
+                write(writes);
+
+                written = true;
+            } catch (Exception e) {
+                this.logger.error("Failed to write [{}] mail statuses to the database, retrying in [{}] ms",
+                    writes.size(), RETRY_DELAY, e);
+            } finally {
+                this.execution.removeContext();
+
+                synchronized (this) {
+                    this.writing = Collections.emptyMap();
+                    this.failing = !written;
+                    if (!written) {
+                        requeue(writes);
+                    }
+                }
+            }
+        }
+    }
+
+    private void requeue(Map<String, Optional<MailStatus>> writes)
+    {
+        // Keep the changes made to the same mails since the write started, they are more recent
+        Map<String, Optional<MailStatus>> requeued = new LinkedHashMap<>(writes);
+        requeued.putAll(this.pending);
+        this.pending = requeued;
+
+        cancelScheduledWrite();
+        if (!this.executor.isShutdown()) {
+            this.scheduledWrite = this.executor.schedule(this::writePending, RETRY_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void write(Map<String, Optional<MailStatus>> writes) throws XWikiException
+    {
+        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
+
+        XWikiContext xwikiContext = this.contextProvider.get();
+        // Write in the main wiki
+        xwikiContext.setWikiId(xwikiContext.getMainXWiki());
+
+        store.executeWrite(xwikiContext, session -> {
+            session.setJdbcBatchSize(BATCH_SIZE);
+
+            // Delete any previous state of the messages
+            String deleteQuery = String.format("delete from %s where mail_id in (:%s)", MailStatus.class.getName(),
+                IDS_PARAMETER_NAME);
+            List<String> ids = new ArrayList<>(writes.keySet());
+            for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+                session.createQuery(deleteQuery)
+                    .setParameterList(IDS_PARAMETER_NAME, ids.subList(i, Math.min(i + BATCH_SIZE, ids.size())))
+                    .executeUpdate();
+            }
+
+            int count = 0;
+            for (Optional<MailStatus> status : writes.values()) {
+                if (status.isPresent()) {
+                    session.save(status.get());
+                    if (++count % BATCH_SIZE == 0) {
+                        session.flush();
+                        session.clear();
+                    }
+                }
+            }
+
+            return null;
+        });
+
+        this.logger.debug("Wrote [{}] mail statuses", writes.size());
+    }
+}
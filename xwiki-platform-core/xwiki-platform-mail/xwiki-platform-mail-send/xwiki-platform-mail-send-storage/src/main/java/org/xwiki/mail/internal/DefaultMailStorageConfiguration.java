@@ -44,6 +44,8 @@ public class DefaultMailStorageConfiguration implements MailStorageConfiguration
 
     private static final String DISCARD_SUCCESS_STATUSES = "discardSuccessStatuses";
 
+    private static final String STATUS_WRITE_WINDOW = "statusWriteWindow";
+
     @Inject
     @Named("mailsend")
     private ConfigurationSource mailConfigSource;
@@ -64,4 +66,10 @@ public boolean discardSuccessStatuses()
 
         return (discardSuccessStatuses == 1);
     }
+
+    @Override
+    public long getStatusWriteWindow()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + STATUS_WRITE_WINDOW, 500L);
+    }
 }
@@ -37,7 +37,6 @@
 import org.xwiki.mail.MailListener;
 import org.xwiki.mail.MailState;
 import org.xwiki.mail.MailStatus;
-import org.xwiki.mail.MailStatusStore;
 import org.xwiki.mail.MailStoreException;
 import org.xwiki.test.AllLogRule;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
@@ -95,39 +94,39 @@ public void setUp() throws Exception
     @Test
     public void onPrepareSuccess() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
 
         MailListener listener = this.mocker.getComponentUnderTest();
         listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
         listener.onPrepareMessageSuccess(this.message, Collections.<String, Object>emptyMap());
 
-        verify(mailStatusStore).save(argThat(new isSameMailStatus(MailState.PREPARE_SUCCESS, "mywiki")), anyMap());
+        verify(mailStatusWriter).save(argThat(new isSameMailStatus(MailState.PREPARE_SUCCESS, "mywiki")), anyMap());
     }
 
     @Test
     public void onPrepareError() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
 
         MailListener listener = this.mocker.getComponentUnderTest();
         listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
         listener.onPrepareMessageError(this.message, new Exception("Error"), Collections.<String, Object>emptyMap());
 
-        verify(mailStatusStore).save(argThat(new isSameMailStatus(MailState.PREPARE_ERROR, "mywiki")), anyMap());
+        verify(mailStatusWriter).save(argThat(new isSameMailStatus(MailState.PREPARE_ERROR, "mywiki")), anyMap());
     }
 
     @Test
     public void onPrepareWhenSaveFails() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
-        doThrow(new MailStoreException("error")).when(mailStatusStore).save(any(MailStatus.class), anyMap());
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
+        doThrow(new MailStoreException("error")).when(mailStatusWriter).save(any(MailStatus.class), anyMap());
 
         MailListener listener = this.mocker.getComponentUnderTest();
         listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
         listener.onPrepareMessageSuccess(this.message, Collections.<String, Object>emptyMap());
 
         ArgumentCaptor<MailStatus> statusCapture = ArgumentCaptor.forClass(MailStatus.class);
-        verify(mailStatusStore).save(statusCapture.capture(), anyMap());
+        verify(mailStatusWriter).save(statusCapture.capture(), anyMap());
 
         assertEquals("Failed to save mail status [messageId = [" + this.messageId + "], batchId = ["
             + this.batchId + "], state = [prepare_success], date = [" + statusCapture.getValue().getDate() + "], "
@@ -137,17 +136,17 @@ public void onPrepareWhenSaveFails() throws Exception
     @Test
     public void onSendMessageSuccess() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
         MailStatus status = new MailStatus(this.batchId, this.message, MailState.PREPARE_SUCCESS);
         status.setWiki("otherwiki");
-        when(mailStatusStore.load(this.messageId)).thenReturn(status);
+        when(mailStatusWriter.load(this.messageId)).thenReturn(status);
 
         MailListener listener = this.mocker.getComponentUnderTest();
         listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
         listener.onSendMessageSuccess(this.message, Collections.<String, Object>emptyMap());
 
-        verify(mailStatusStore).load(this.messageId);
-        verify(mailStatusStore).save(argThat(new isSameMailStatus(MailState.SEND_SUCCESS, "otherwiki")), anyMap());
+        verify(mailStatusWriter).load(this.messageId);
+        verify(mailStatusWriter).save(argThat(new isSameMailStatus(MailState.SEND_SUCCESS, "otherwiki")), anyMap());
 
         MailContentStore mailContentStore = this.mocker.getInstance(MailContentStore.class, "filesystem");
         verify(mailContentStore).delete(this.batchId, this.messageId);
@@ -156,8 +155,8 @@ public void onSendMessageSuccess() throws Exception
     @Test
     public void onSuccessWhenStatusLoadFails() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
-        when(mailStatusStore.load(this.messageId)).thenThrow(new MailStoreException("error"));
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
+        when(mailStatusWriter.load(this.messageId)).thenThrow(new MailStoreException("error"));
 
         MailListener listener = this.mocker.getComponentUnderTest();
         listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
@@ -169,7 +168,7 @@ public void onSuccessWhenStatusLoadFails() throws Exception
             + "] to send_success state.", this.logRule.getMessage(1));
 
         // Verify that save and delete happened
-        verify(mailStatusStore).save(any(MailStatus.class), anyMap());
+        verify(mailStatusWriter).save(any(MailStatus.class), anyMap());
         MailContentStore mailContentStore = this.mocker.getInstance(MailContentStore.class, "filesystem");
         verify(mailContentStore).delete(any(), any());
     }
@@ -177,10 +176,10 @@ public void onSuccessWhenStatusLoadFails() throws Exception
     @Test
     public void onSuccessWhenMailContentDeletionFails() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
         MailStatus status = new MailStatus(this.batchId, this.message, MailState.PREPARE_SUCCESS);
         status.setWiki("otherwiki");
-        when(mailStatusStore.load(this.messageId)).thenReturn(status);
+        when(mailStatusWriter.load(this.messageId)).thenReturn(status);
 
         MailContentStore mailContentStore = this.mocker.getInstance(MailContentStore.class, "filesystem");
         doThrow(new MailStoreException("error")).when(mailContentStore).delete(this.batchId, this.messageId);
@@ -197,33 +196,33 @@ public void onSuccessWhenMailContentDeletionFails() throws Exception
     @Test
     public void onSendMessageError() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
         MailStatus status = new MailStatus(this.batchId, this.message, MailState.PREPARE_SUCCESS);
         status.setWiki("otherwiki");
-        when(mailStatusStore.load(this.messageId)).thenReturn(status);
+        when(mailStatusWriter.load(this.messageId)).thenReturn(status);
 
         MailListener listener = this.mocker.getComponentUnderTest();
         listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
         listener.onSendMessageError(this.message, new Exception("Error"), Collections.<String, Object>emptyMap());
 
-        verify(mailStatusStore).load(this.messageId);
-        verify(mailStatusStore).save(argThat(new isSameMailStatus(MailState.SEND_ERROR, "otherwiki")), anyMap());
+        verify(mailStatusWriter).load(this.messageId);
+        verify(mailStatusWriter).save(argThat(new isSameMailStatus(MailState.SEND_ERROR, "otherwiki")), anyMap());
     }
 
     @Test
     public void onSendMessageFatalError() throws Exception
     {
-        MailStatusStore mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+        DatabaseMailStatusWriter mailStatusWriter = this.mocker.getInstance(DatabaseMailStatusWriter.class);
         MailStatus status = new MailStatus(this.batchId, this.message, MailState.PREPARE_SUCCESS);
         status.setWiki("otherwiki");
-        when(mailStatusStore.load(this.messageId)).thenReturn(status);
+        when(mailStatusWriter.load(this.messageId)).thenReturn(status);
 
         MailListener listener = this.mocker.getComponentUnderTest();
         listener.onPrepareBegin(batchId, Collections.<String, Object>emptyMap());
         listener.onSendMessageFatalError(this.messageId, new Exception("Error"), Collections.<String, Object>emptyMap());
 
-        verify(mailStatusStore).load(this.messageId);
-        verify(mailStatusStore).save(argThat(new isSameMailStatus(MailState.SEND_FATAL_ERROR, "otherwiki")), anyMap());
+        verify(mailStatusWriter).load(this.messageId);
+        verify(mailStatusWriter).save(argThat(new isSameMailStatus(MailState.SEND_FATAL_ERROR, "otherwiki")), anyMap());
     }
 
     /**
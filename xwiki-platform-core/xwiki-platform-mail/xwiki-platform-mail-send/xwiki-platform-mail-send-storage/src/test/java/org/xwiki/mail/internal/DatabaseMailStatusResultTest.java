@@ -21,7 +21,11 @@
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -59,4 +63,43 @@ public void getAll() throws Exception
         assertSame(status, resultStatus);
         assertFalse(resultStatuses.hasNext());
     }
+
+    @Test
+    public void getAllErrorsMergesPendingWrites() throws Exception
+    {
+        MailStatus storedError = createStatus("stored", "send_error", 1L);
+        MailStatus overriddenError = createStatus("overridden", "send_error", 2L);
+        MailStatus deletedError = createStatus("deleted", "prepare_error", 3L);
+        MailStatusStore store = mock(MailStatusStore.class);
+        when(store.load(anyMap(), eq(0), eq(0), eq("date"), eq(true)))
+            .thenReturn(Arrays.asList(storedError, overriddenError, deletedError));
+
+        MailStatus pendingError = createStatus("pending", "send_error", 0L);
+        Map<String, Optional<MailStatus>> pendingWrites = new LinkedHashMap<>();
+        pendingWrites.put("overridden", Optional.of(createStatus("overridden", "send_success", 4L)));
+        pendingWrites.put("deleted", Optional.empty());
+        pendingWrites.put("pending", Optional.of(pendingError));
+        pendingWrites.put("otherbatch", Optional.of(createStatus("otherbatch", "send_error", 5L)));
+        pendingWrites.get("otherbatch").get().setBatchId("otherbatchid");
+        DatabaseMailStatusWriter writer = mock(DatabaseMailStatusWriter.class);
+        when(writer.getPendingWrites()).thenReturn(pendingWrites);
+
+        DatabaseMailStatusResult result = new DatabaseMailStatusResult(store, writer);
+        result.setBatchId("batchid");
+
+        Iterator<MailStatus> resultStatuses = result.getAllErrors();
+        assertSame(pendingError, resultStatuses.next());
+        assertSame(storedError, resultStatuses.next());
+        assertFalse(resultStatuses.hasNext());
+    }
+
+    private MailStatus createStatus(String messageId, String state, long date)
+    {
+        MailStatus status = new MailStatus();
+        status.setMessageId(messageId);
+        status.setBatchId("batchid");
+        status.setState(state);
+        status.setDate(new Date(date));
+        return status;
+    }
 }
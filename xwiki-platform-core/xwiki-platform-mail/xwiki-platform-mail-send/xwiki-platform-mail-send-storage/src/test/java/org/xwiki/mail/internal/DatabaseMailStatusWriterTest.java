@@ -0,0 +1,268 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.mail.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.inject.Provider;
+
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.slf4j.Logger;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.mail.MailState;
+import org.xwiki.mail.MailStatus;
+import org.xwiki.mail.MailStatusStore;
+import org.xwiki.mail.MailStorageConfiguration;
+import org.xwiki.test.AllLogRule;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DatabaseMailStatusWriter}.
+ *
+ * @version $Id$
+ */
+public class DatabaseMailStatusWriterTest
+{
+    private static final long LONG_WINDOW = 60000L;
+
+    @Rule
+    public AllLogRule logRule = new AllLogRule();
+
+    @Rule
+    public MockitoComponentMockingRule<DatabaseMailStatusWriter> mocker =
+        new MockitoComponentMockingRule<>(DatabaseMailStatusWriter.class, Arrays.asList(Logger.class));
+
+    private MailStorageConfiguration configuration;
+
+    private MailStatusStore mailStatusStore;
+
+    private XWikiHibernateStore hibernateStore;
+
+    private XWikiContext xcontext;
+
+    private Session session;
+
+    private Query deleteQuery;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.configuration = this.mocker.getInstance(MailStorageConfiguration.class);
+        this.mailStatusStore = this.mocker.getInstance(MailStatusStore.class, "database");
+
+        Provider<XWikiContext> xcontextProvider = this.mocker.getInstance(XWikiContext.TYPE_PROVIDER);
+        this.xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        this.hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(this.mocker.getComponentUnderTest(), "hibernateStore", this.hibernateStore);
+
+        this.session = mock(Session.class);
+        this.deleteQuery = mock(Query.class);
+        when(this.session.createQuery(anyString())).thenReturn(this.deleteQuery);
+        when(this.deleteQuery.setParameterList(anyString(), anyCollection())).thenReturn(this.deleteQuery);
+        when(this.hibernateStore.executeWrite(eq(this.xcontext), any()))
+            .then(invocation -> invocation.<HibernateCallback<?>>getArgument(1).doInHibernate(this.session));
+    }
+
+    private MailStatus createStatus(String messageId, MailState state)
+    {
+        MailStatus status = new MailStatus();
+        status.setBatchId("batchid");
+        status.setMessageId(messageId);
+        status.setState(state);
+
+        return status;
+    }
+
+    @Test
+    public void writeImmediatelyWithoutWindow() throws Exception
+    {
+        when(this.configuration.getStatusWriteWindow()).thenReturn(0L);
+        MailStatus status = createStatus("message", MailState.PREPARE_SUCCESS);
+        Map<String, Object> parameters = Collections.singletonMap("wikiId", "wiki");
+
+        this.mocker.getComponentUnderTest().save(status, parameters);
+        this.mocker.getComponentUnderTest().delete("other", parameters);
+
+        verify(this.mailStatusStore).save(status, parameters);
+        verify(this.mailStatusStore).delete("other", parameters);
+        assertTrue(this.mocker.getComponentUnderTest().getPendingWrites().isEmpty());
+        verify(this.hibernateStore, never()).executeWrite(any(), any());
+    }
+
+    @Test
+    public void writeAtTheEndOfTheWindow() throws Exception
+    {
+        when(this.configuration.getStatusWriteWindow()).thenReturn(200L);
+        MailStatus status = createStatus("message", MailState.PREPARE_SUCCESS);
+
+        this.mocker.getComponentUnderTest().save(status, Collections.emptyMap());
+
+        // Not written yet
+        verify(this.mailStatusStore, never()).save(any(), any());
+        assertSame(status, this.mocker.getComponentUnderTest().load("message"));
+
+        // Written by the scheduled write, in the main wiki
+        verify(this.session, timeout(5000L)).save(status);
+        verify(this.xcontext).setWikiId("mainwiki");
+
+        // Wait for the end of the write
+        this.mocker.getComponentUnderTest().flush();
+        assertTrue(this.mocker.getComponentUnderTest().getPendingWrites().isEmpty());
+        verify(this.hibernateStore).executeWrite(eq(this.xcontext), any());
+    }
+
+    @Test
+    public void writeLastChangeOfEachMail() throws Exception
+    {
+        when(this.configuration.getStatusWriteWindow()).thenReturn(LONG_WINDOW);
+        MailStatus prepared = createStatus("message1", MailState.PREPARE_SUCCESS);
+        MailStatus sent = createStatus("message1", MailState.SEND_SUCCESS);
+        MailStatus other = createStatus("message2", MailState.SEND_ERROR);
+        MailStatus deleted = createStatus("message3", MailState.SEND_ERROR);
+        when(this.mailStatusStore.load("message4")).thenReturn(deleted);
+
+        DatabaseMailStatusWriter writer = this.mocker.getComponentUnderTest();
+        writer.save(prepared, Collections.emptyMap());
+        writer.save(other, Collections.emptyMap());
+        writer.save(sent, Collections.emptyMap());
+        writer.save(deleted, Collections.emptyMap());
+        writer.delete("message3", Collections.emptyMap());
+
+        // The pending changes are visible before being written
+        Map<String, Optional<MailStatus>> pendingWrites = writer.getPendingWrites();
+        assertEquals(Arrays.asList("message1", "message2", "message3"), Arrays.asList(pendingWrites.keySet().toArray()));
+        assertSame(sent, writer.load("message1"));
+        assertNull(writer.load("message3"));
+        assertSame(deleted, writer.load("message4"));
+
+        writer.flush();
+
+        // A single transaction deleting the previous statuses of all the mails and then inserting the new ones
+        verify(this.hibernateStore).executeWrite(eq(this.xcontext), any());
+        InOrder inOrder = inOrder(this.deleteQuery, this.session);
+        inOrder.verify(this.deleteQuery).setParameterList("ids", Arrays.asList("message1", "message2", "message3"));
+        inOrder.verify(this.deleteQuery).executeUpdate();
+        inOrder.verify(this.session).save(sent);
+        inOrder.verify(this.session).save(other);
+        verify(this.session, never()).save(prepared);
+        verify(this.session, never()).save(deleted);
+        verify(this.mailStatusStore, never()).save(any(), any());
+        verify(this.mailStatusStore, never()).delete(any(), any());
+
+        assertTrue(writer.getPendingWrites().isEmpty());
+    }
+
+    @Test
+    public void writeBeforeTheEndOfTheWindowWhenTooManyChanges() throws Exception
+    {
+        when(this.configuration.getStatusWriteWindow()).thenReturn(LONG_WINDOW);
+
+        for (int i = 0; i < 1000; i++) {
+            this.mocker.getComponentUnderTest().save(createStatus("message" + i, MailState.PREPARE_SUCCESS),
+                Collections.emptyMap());
+        }
+
+        verify(this.hibernateStore, timeout(5000L)).executeWrite(eq(this.xcontext), any());
+        // 10 bulk deletes of 100 ids
+        verify(this.deleteQuery, timeout(5000L).times(10)).executeUpdate();
+        verify(this.session, timeout(5000L).times(1000)).save(any(MailStatus.class));
+    }
+
+    @Test
+    public void writePendingChangesOnDispose() throws Exception
+    {
+        when(this.configuration.getStatusWriteWindow()).thenReturn(LONG_WINDOW);
+        MailStatus status = createStatus("message", MailState.SEND_SUCCESS);
+
+        this.mocker.getComponentUnderTest().save(status, Collections.emptyMap());
+        this.mocker.getComponentUnderTest().dispose();
+
+        verify(this.session).save(status);
+        assertTrue(this.mocker.getComponentUnderTest().getPendingWrites().isEmpty());
+    }
+
+    @Test
+    public void keepChangesWhenWriteFails() throws Exception
+    {
+        when(this.configuration.getStatusWriteWindow()).thenReturn(LONG_WINDOW);
+        doThrow(new XWikiException())
+            .doAnswer(invocation -> invocation.<HibernateCallback<?>>getArgument(1).doInHibernate(this.session))
+            .when(this.hibernateStore).executeWrite(eq(this.xcontext), any());
+        MailStatus error = createStatus("message1", MailState.SEND_ERROR);
+        MailStatus prepared = createStatus("message2", MailState.PREPARE_SUCCESS);
+
+        DatabaseMailStatusWriter writer = this.mocker.getComponentUnderTest();
+        writer.save(error, Collections.emptyMap());
+        writer.save(prepared, Collections.emptyMap());
+        writer.flush();
+
+        assertEquals("Failed to write [2] mail statuses to the database, retrying in [5000] ms",
+            this.logRule.getMessage(0));
+
+        // The failed changes are still pending and visible
+        assertSame(error, writer.load("message1"));
+        assertEquals(2, writer.getPendingWrites().size());
+
+        // A change made after the failure wins over the failed one
+        MailStatus sent = createStatus("message2", MailState.SEND_SUCCESS);
+        writer.save(sent, Collections.emptyMap());
+
+        writer.flush();
+
+        verify(this.hibernateStore, times(2)).executeWrite(eq(this.xcontext), any());
+        verify(this.session).save(error);
+        verify(this.session).save(sent);
+        verify(this.session, never()).save(prepared);
+        assertTrue(writer.getPendingWrites().isEmpty());
+    }
+}
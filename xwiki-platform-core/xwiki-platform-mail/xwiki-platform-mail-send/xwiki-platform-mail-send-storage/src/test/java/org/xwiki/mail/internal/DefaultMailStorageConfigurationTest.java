@@ -57,4 +57,14 @@ public void discardSuccessStatusesFalseWhenDefinedInMailConfig() throws Exceptio
 
         assertEquals(false, this.mocker.getComponentUnderTest().discardSuccessStatuses());
     }
+
+    @Test
+    public void getStatusWriteWindow() throws Exception
+    {
+        ConfigurationSource xwikiPropertiesSource =
+            this.mocker.getInstance(ConfigurationSource.class, "xwikiproperties");
+        when(xwikiPropertiesSource.getProperty("mail.sender.database.statusWriteWindow", 500L)).thenReturn(0L);
+
+        assertEquals(0L, this.mocker.getComponentUnderTest().getStatusWriteWindow());
+    }
 }
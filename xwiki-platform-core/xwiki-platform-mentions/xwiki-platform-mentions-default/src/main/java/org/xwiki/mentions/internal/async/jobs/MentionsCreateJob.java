@@ -73,7 +73,7 @@ protected void runInternal()
         DocumentReference authorReference = doc.getAuthorReference();
         DocumentReference documentReference = doc.getDocumentReference();
 
-        handleMentions(doc.getXDOM(), authorReference, documentReference, MentionLocation.DOCUMENT);
+        handleMentions(doc.getReadOnlyXDOM(), authorReference, documentReference, MentionLocation.DOCUMENT);
 
         traverseXObjects(doc.getXObjects(), authorReference, documentReference);
     }
@@ -76,8 +76,8 @@ protected void runInternal()
         MentionsUpdatedRequest request = this.getRequest();
         XWikiDocument oldDoc = request.getOldDoc();
         XWikiDocument newDoc = request.getNewDoc();
-        XDOM oldXdom = oldDoc.getXDOM();
-        XDOM newXdom = newDoc.getXDOM();
+        XDOM oldXdom = oldDoc.getReadOnlyXDOM();
+        XDOM newXdom = newDoc.getReadOnlyXDOM();
         DocumentReference authorReference = request.getAuthorReference();
         DocumentReference documentReference = newDoc.getDocumentReference();
 
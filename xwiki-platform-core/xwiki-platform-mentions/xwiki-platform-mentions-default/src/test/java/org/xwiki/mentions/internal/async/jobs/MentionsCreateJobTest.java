@@ -110,7 +110,7 @@ void runInternal()
 
         when(this.document.getAuthorReference()).thenReturn(authorReference);
         when(this.document.getDocumentReference()).thenReturn(documentReference);
-        when(this.document.getXDOM()).thenReturn(xdom);
+        when(this.document.getReadOnlyXDOM()).thenReturn(xdom);
         List<MacroBlock> mentions = Arrays.asList(mention1, mention2, mention3);
         when(this.xdomService.listMentionMacros(xdom)).thenReturn(mentions);
 
@@ -144,7 +144,7 @@ void runInternalNoMention()
 
         when(this.document.getAuthorReference()).thenReturn(authorReference);
         when(this.document.getDocumentReference()).thenReturn(documentReference);
-        when(this.document.getXDOM()).thenReturn(xdom);
+        when(this.document.getReadOnlyXDOM()).thenReturn(xdom);
 
         this.job.initialize(new MentionsCreatedRequest(this.document));
         this.job.runInternal();
@@ -168,7 +168,7 @@ void runInternalAWMFields()
 
         when(this.document.getAuthorReference()).thenReturn(authorReference);
         when(this.document.getDocumentReference()).thenReturn(documentReference);
-        when(this.document.getXDOM()).thenReturn(xdom);
+        when(this.document.getReadOnlyXDOM()).thenReturn(xdom);
         Map<DocumentReference, List<BaseObject>> xObjects = new HashMap<>();
         BaseObject baseObject = new BaseObject();
         baseObject.addField("f1", new DateProperty());
@@ -95,8 +95,8 @@ void runInternalNewMention()
         DocumentReference u2 = new DocumentReference("xwiki", "XWiki", "u2");
 
         when(this.context.getDoc()).thenReturn(this.oldDocument);
-        when(this.oldDocument.getXDOM()).thenReturn(dom1Mention);
-        when(this.newDocument.getXDOM()).thenReturn(dom2Mentions);
+        when(this.oldDocument.getReadOnlyXDOM()).thenReturn(dom1Mention);
+        when(this.newDocument.getReadOnlyXDOM()).thenReturn(dom2Mentions);
 
         when(this.newDocument.getAuthorReference()).thenReturn(authorReference);
         when(this.newDocument.getDocumentReference()).thenReturn(documentReference);
@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.xwiki.stability.Unstable;
+
+/**
+ * The state of a metric at a given time.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Unstable
+public class MetricSnapshot
+{
+    private final MetricType type;
+
+    private final long count;
+
+    private final long sum;
+
+    private final long min;
+
+    private final long max;
+
+    private final long p50;
+
+    private final long p95;
+
+    private final long p99;
+
+    /**
+     * @param type the type of the metric
+     * @param count the number of recorded values
+     * @param sum the sum of the recorded values
+     * @param min the smallest recorded value
+     * @param max the biggest recorded value
+     */
+    public MetricSnapshot(MetricType type, long count, long sum, long min, long max)
+    {
+        this(type, count, sum, min, max, 0, 0, 0);
+    }
+
+    /**
+     * @param type the type of the metric
+     * @param count the number of recorded values
+     * @param sum the sum of the recorded values
+     * @param min the smallest recorded value
+     * @param max the biggest recorded value
+     * @param p50 the estimated median of the recorded values
+     * @param p95 the estimated 95th percentile of the recorded values
+     * @param p99 the estimated 99th percentile of the recorded values
+     */
+    public MetricSnapshot(MetricType type, long count, long sum, long min, long max, long p50, long p95, long p99)
+    {
+        this.type = type;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
+
+    /**
+     * @return the type of the metric
+     */
+    public MetricType getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return the sum of the recorded values (in nanoseconds for a timer)
+     */
+    public long getSum()
+    {
+        return this.sum;
+    }
+
+    /**
+     * @return the smallest recorded value, 0 if no value was recorded
+     */
+    public long getMin()
+    {
+        return this.count > 0 ? this.min : 0;
+    }
+
+    /**
+     * @return the biggest recorded value, 0 if no value was recorded
+     */
+    public long getMax()
+    {
+        return this.count > 0 ? this.max : 0;
+    }
+
+    /**
+     * @return the average of the recorded values, 0 if no value was recorded
+     */
+    public double getMean()
+    {
+        return this.count > 0 ? (double) this.sum / this.count : 0;
+    }
+
+    /**
+     * @return the estimated median of the recorded values, 0 if no value was recorded or if the metric does not keep
+     *         the distribution of its values (counters)
+     */
+    public long getP50()
+    {
+        return this.p50;
+    }
+
+    /**
+     * @return the estimated 95th percentile of the recorded values, 0 if no value was recorded or if the metric does
+     *         not keep the distribution of its values (counters)
+     */
+    public long getP95()
+    {
+        return this.p95;
+    }
+
+    /**
+     * @return the estimated 99th percentile of the recorded values, 0 if no value was recorded or if the metric does
+     *         not keep the distribution of its values (counters)
+     */
+    public long getP99()
+    {
+        return this.p99;
+    }
+
+    @Override
+    public String toString()
+    {
+        ToStringBuilder builder = new ToStringBuilder(this);
+        builder.append("type", getType());
+        builder.append("count", getCount());
+        builder.append("sum", getSum());
+        builder.append("min", getMin());
+        builder.append("max", getMax());
+        builder.append("p50", getP50());
+        builder.append("p95", getP95());
+        builder.append("p99", getP99());
+
+        return builder.toString();
+    }
+}
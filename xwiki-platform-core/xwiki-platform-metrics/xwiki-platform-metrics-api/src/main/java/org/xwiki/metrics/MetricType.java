@@ -0,0 +1,47 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * The kinds of metrics handled by {@link MetricsManager}.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Unstable
+public enum MetricType
+{
+    /**
+     * Count occurrences of something (for example cache hits). The count and the sum are the same for increments of 1.
+     */
+    COUNTER,
+
+    /**
+     * Measure durations, in nanoseconds, and keep their distribution.
+     */
+    TIMER,
+
+    /**
+     * Measure the distribution of values (for example a queue size), estimated with fixed log-scale buckets.
+     */
+    HISTOGRAM
+}
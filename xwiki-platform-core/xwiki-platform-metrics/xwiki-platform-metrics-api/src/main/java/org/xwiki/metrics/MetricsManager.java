@@ -0,0 +1,104 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics;
+
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Record counters, timers and histograms on the platform hot paths.
+ * <p>
+ * The metrics are identified by a dot separated name (for example {@code store.cache.hit}) and are created the first
+ * time they are updated. When the metrics are disabled (the default) all the methods do nothing so it's safe to call
+ * them in performance critical code. A typical timer usage is:
+ *
+ * <pre>
+ * long start = this.metrics.startTimer();
+ * try {
+ *     ...
+ * } finally {
+ *     this.metrics.stopTimer("store.hibernate.loadDocument", start);
+ * }
+ * </pre>
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Role
+@Unstable
+public interface MetricsManager
+{
+    /**
+     * @return true if the metrics are collected
+     */
+    boolean isEnabled();
+
+    /**
+     * Increment a counter by one.
+     *
+     * @param counter the name of the counter
+     */
+    default void increment(String counter)
+    {
+        increment(counter, 1);
+    }
+
+    /**
+     * @param counter the name of the counter
+     * @param delta the value to add to the counter
+     */
+    void increment(String counter, long delta);
+
+    /**
+     * @return the value to pass to {@link #stopTimer(String, long)}: the current {@link System#nanoTime()} when the
+     *         metrics are enabled, 0 otherwise
+     */
+    long startTimer();
+
+    /**
+     * @param timer the name of the timer
+     * @param start the value returned by {@link #startTimer()}
+     */
+    void stopTimer(String timer, long start);
+
+    /**
+     * @param histogram the name of the histogram
+     * @param value the value to record
+     */
+    void update(String histogram, long value);
+
+    /**
+     * @return the current state of all the metrics, by name
+     */
+    Map<String, MetricSnapshot> getSnapshots();
+
+    /**
+     * Start recording, in addition to the global metrics, the metrics updated by the current thread. Used to get the
+     * breakdown of a single request.
+     */
+    void startRecording();
+
+    /**
+     * @return the metrics updated by the current thread since {@link #startRecording()}, by name
+     */
+    Map<String, MetricSnapshot> stopRecording();
+}
@@ -0,0 +1,203 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricType;
+import org.xwiki.metrics.MetricsManager;
+
+/**
+ * Default implementation of {@link MetricsManager}. Does nothing unless {@code metrics.enabled} is set to true in
+ * xwiki.properties, in which case the metrics are kept in memory and registered as JMX MBeans.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Singleton
+public class DefaultMetricsManager implements MetricsManager, Initializable, Disposable
+{
+    private static final String PREFIX = "metrics.";
+
+    private static final String JMX_NAME = "org.xwiki:type=Metrics,name=";
+
+    @Inject
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private boolean enabled;
+
+    private boolean jmx;
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Map<String, RecordedMetric>> recording = new ThreadLocal<>();
+
+    @Override
+    public void initialize()
+    {
+        this.enabled = this.configuration.getProperty(PREFIX + "enabled", false);
+        this.jmx = this.configuration.getProperty(PREFIX + "jmx", true);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    @Override
+    public void increment(String counter, long delta)
+    {
+        if (this.enabled) {
+            update(counter, MetricType.COUNTER, delta);
+        }
+    }
+
+    @Override
+    public long startTimer()
+    {
+        return this.enabled ? System.nanoTime() : 0;
+    }
+
+    @Override
+    public void stopTimer(String timer, long start)
+    {
+        if (this.enabled) {
+            update(timer, MetricType.TIMER, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void update(String histogram, long value)
+    {
+        if (this.enabled) {
+            update(histogram, MetricType.HISTOGRAM, value);
+        }
+    }
+
+    private void update(String name, MetricType type, long value)
+    {
+        Metric metric = this.metrics.get(name);
+        if (metric == null) {
+            metric = this.metrics.computeIfAbsent(name, key -> createMetric(key, type));
+        }
+        metric.update(value);
+
+        Map<String, RecordedMetric> recorded = this.recording.get();
+        if (recorded != null) {
+            recorded.computeIfAbsent(name, key -> new RecordedMetric(type)).update(value);
+        }
+    }
+
+    private Metric createMetric(String name, MetricType type)
+    {
+        Metric metric = new Metric(type);
+
+        if (this.jmx) {
+            try {
+                MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+                mbs.registerMBean(metric, getObjectName(name));
+            } catch (JMException e) {
+                this.logger.warn("Failed to register metric [{}] against the JMX Server", name, e);
+            }
+        }
+
+        return metric;
+    }
+
+    private ObjectName getObjectName(String name) throws JMException
+    {
+        return new ObjectName(JMX_NAME + ObjectName.quote(name));
+    }
+
+    @Override
+    public Map<String, MetricSnapshot> getSnapshots()
+    {
+        SortedMap<String, MetricSnapshot> snapshots = new TreeMap<>();
+        this.metrics.forEach((name, metric) -> snapshots.put(name, metric.getSnapshot()));
+
+        return snapshots;
+    }
+
+    @Override
+    public void startRecording()
+    {
+        if (this.enabled) {
+            this.recording.set(new HashMap<>());
+        }
+    }
+
+    @Override
+    public Map<String, MetricSnapshot> stopRecording()
+    {
+        Map<String, RecordedMetric> recorded = this.recording.get();
+
+        if (recorded == null) {
+            return Collections.emptyMap();
+        }
+
+        this.recording.remove();
+
+        SortedMap<String, MetricSnapshot> snapshots = new TreeMap<>();
+        recorded.forEach((name, metric) -> snapshots.put(name, metric.getSnapshot()));
+
+        return snapshots;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.jmx) {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+
+            for (String name : this.metrics.keySet()) {
+                try {
+                    mbs.unregisterMBean(getObjectName(name));
+                } catch (JMException e) {
+                    this.logger.warn("Failed to unregister metric [{}] from the JMX Server", name, e);
+                }
+            }
+        }
+    }
+}
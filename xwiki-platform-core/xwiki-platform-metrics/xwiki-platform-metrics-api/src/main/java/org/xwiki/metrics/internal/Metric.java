@@ -0,0 +1,157 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricType;
+
+/**
+ * A metric shared by all the threads. Updating it does not involve any lock and very little contention.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class Metric implements MetricMXBean
+{
+    private final MetricType type;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private final LongAdder[] buckets;
+
+    /**
+     * @param type the type of the metric
+     */
+    public Metric(MetricType type)
+    {
+        this.type = type;
+
+        if (MetricBuckets.isDistribution(type)) {
+            this.buckets = new LongAdder[MetricBuckets.SIZE];
+            for (int i = 0; i < this.buckets.length; ++i) {
+                this.buckets[i] = new LongAdder();
+            }
+        } else {
+            this.buckets = null;
+        }
+    }
+
+    /**
+     * @param value the value to record
+     */
+    public void update(long value)
+    {
+        this.count.increment();
+        this.sum.add(value);
+        this.min.accumulate(value);
+        this.max.accumulate(value);
+
+        if (this.buckets != null) {
+            this.buckets[MetricBuckets.getIndex(value)].increment();
+        }
+    }
+
+    /**
+     * @return the current state of the metric
+     */
+    public MetricSnapshot getSnapshot()
+    {
+        long currentMin = this.min.get();
+        long currentMax = this.max.get();
+
+        if (this.buckets == null) {
+            return new MetricSnapshot(this.type, this.count.sum(), this.sum.sum(), currentMin, currentMax);
+        }
+
+        // Count the values from the buckets so that the percentiles are consistent even with concurrent updates
+        long[] counts = new long[this.buckets.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = this.buckets[i].sum();
+            total += counts[i];
+        }
+
+        return MetricBuckets.createSnapshot(this.type, this.count.sum(), this.sum.sum(), currentMin, currentMax, counts,
+            total);
+    }
+
+    @Override
+    public String getType()
+    {
+        return this.type.name();
+    }
+
+    @Override
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    @Override
+    public long getSum()
+    {
+        return this.sum.sum();
+    }
+
+    @Override
+    public long getMin()
+    {
+        return getSnapshot().getMin();
+    }
+
+    @Override
+    public long getMax()
+    {
+        return getSnapshot().getMax();
+    }
+
+    @Override
+    public double getMean()
+    {
+        return getSnapshot().getMean();
+    }
+
+    @Override
+    public long getP50()
+    {
+        return getSnapshot().getP50();
+    }
+
+    @Override
+    public long getP95()
+    {
+        return getSnapshot().getP95();
+    }
+
+    @Override
+    public long getP99()
+    {
+        return getSnapshot().getP99();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricType;
+
+/**
+ * Fixed log-scale buckets used to estimate the percentiles of the values recorded by a metric. Each power of two is
+ * split in 4 buckets, so an estimated percentile is never more than 25% above the real one.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public final class MetricBuckets
+{
+    /**
+     * The number of buckets needed to cover all the positive long values.
+     */
+    public static final int SIZE = 248;
+
+    private static final int SUB_BITS = 2;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private static final double P50 = 0.5;
+
+    private static final double P95 = 0.95;
+
+    private static final double P99 = 0.99;
+
+    private MetricBuckets()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param type the type of the metric
+     * @return true if the metric keeps the distribution of its values
+     */
+    public static boolean isDistribution(MetricType type)
+    {
+        return type == MetricType.HISTOGRAM || type == MetricType.TIMER;
+    }
+
+    /**
+     * @param value the recorded value
+     * @return the index of the bucket containing the value (negative values go to the first bucket)
+     */
+    public static int getIndex(long value)
+    {
+        if (value < SUB_COUNT) {
+            return (int) Math.max(value, 0);
+        }
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+
+        return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @param index the index of a bucket
+     * @return the biggest value contained in the bucket
+     */
+    public static long getUpperBound(int index)
+    {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+
+        int shift = (index - SUB_COUNT) / SUB_COUNT;
+        long lower = (long) (SUB_COUNT + (index - SUB_COUNT) % SUB_COUNT) << shift;
+
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * @param type the type of the metric
+     * @param count the number of recorded values
+     * @param sum the sum of the recorded values
+     * @param min the smallest recorded value
+     * @param max the biggest recorded value
+     * @param buckets the number of values in each bucket
+     * @param total the number of values in the buckets
+     * @return the snapshot of the metric, with its estimated percentiles
+     */
+    public static MetricSnapshot createSnapshot(MetricType type, long count, long sum, long min, long max,
+        long[] buckets, long total)
+    {
+        return new MetricSnapshot(type, count, sum, min, max, getPercentile(buckets, total, min, max, P50),
+            getPercentile(buckets, total, min, max, P95), getPercentile(buckets, total, min, max, P99));
+    }
+
+    /**
+     * @param buckets the number of values in each bucket
+     * @param count the total number of values
+     * @param min the smallest recorded value
+     * @param max the biggest recorded value
+     * @param percentile the percentile to estimate, between 0 and 1
+     * @return the estimated percentile, 0 if no value was recorded
+     */
+    public static long getPercentile(long[] buckets, long count, long min, long max, double percentile)
+    {
+        if (count <= 0) {
+            return 0;
+        }
+
+        long rank = Math.max((long) Math.ceil(percentile * count), 1);
+        long cumulated = 0;
+        for (int i = 0; i < buckets.length; ++i) {
+            cumulated += buckets[i];
+            if (cumulated >= rank) {
+                // The bucket bounds are only an estimation, the real values are always between min and max
+                return Math.min(Math.max(getUpperBound(i), min), max);
+            }
+        }
+
+        return max;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+/**
+ * The JMX view of a metric.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public interface MetricMXBean
+{
+    /**
+     * @return the type of the metric
+     */
+    String getType();
+
+    /**
+     * @return the number of recorded values
+     */
+    long getCount();
+
+    /**
+     * @return the sum of the recorded values (in nanoseconds for a timer)
+     */
+    long getSum();
+
+    /**
+     * @return the smallest recorded value
+     */
+    long getMin();
+
+    /**
+     * @return the biggest recorded value
+     */
+    long getMax();
+
+    /**
+     * @return the average of the recorded values
+     */
+    double getMean();
+
+    /**
+     * @return the estimated median of the recorded values, 0 for a counter
+     */
+    long getP50();
+
+    /**
+     * @return the estimated 95th percentile of the recorded values, 0 for a counter
+     */
+    long getP95();
+
+    /**
+     * @return the estimated 99th percentile of the recorded values, 0 for a counter
+     */
+    long getP99();
+}
@@ -0,0 +1,81 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricType;
+
+/**
+ * A metric updated by a single thread, used to get the breakdown of a request.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class RecordedMetric
+{
+    private final MetricType type;
+
+    private long count;
+
+    private long sum;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    private final long[] buckets;
+
+    /**
+     * @param type the type of the metric
+     */
+    public RecordedMetric(MetricType type)
+    {
+        this.type = type;
+        this.buckets = MetricBuckets.isDistribution(type) ? new long[MetricBuckets.SIZE] : null;
+    }
+
+    /**
+     * @param value the value to record
+     */
+    public void update(long value)
+    {
+        this.count++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+
+        if (this.buckets != null) {
+            this.buckets[MetricBuckets.getIndex(value)]++;
+        }
+    }
+
+    /**
+     * @return the current state of the metric
+     */
+    public MetricSnapshot getSnapshot()
+    {
+        if (this.buckets == null) {
+            return new MetricSnapshot(this.type, this.count, this.sum, this.min, this.max);
+        }
+
+        return MetricBuckets.createSnapshot(this.type, this.count, this.sum, this.min, this.max, this.buckets,
+            this.count);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.internal;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricType;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultMetricsManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultMetricsManagerTest
+{
+    @MockComponent
+    private ConfigurationSource configuration;
+
+    @InjectMockComponents
+    private DefaultMetricsManager metrics;
+
+    @BeforeComponent
+    public void beforeComponent()
+    {
+        when(this.configuration.getProperty("metrics.enabled", false)).thenReturn(true);
+        when(this.configuration.getProperty("metrics.jmx", true)).thenReturn(false);
+    }
+
+    @Test
+    public void updateMetrics()
+    {
+        this.metrics.increment("counter");
+        this.metrics.increment("counter", 2);
+        this.metrics.update("histogram", 10);
+        this.metrics.update("histogram", 30);
+        this.metrics.stopTimer("timer", this.metrics.startTimer());
+
+        Map<String, MetricSnapshot> snapshots = this.metrics.getSnapshots();
+
+        assertEquals(3, snapshots.size());
+
+        MetricSnapshot counter = snapshots.get("counter");
+        assertEquals(MetricType.COUNTER, counter.getType());
+        assertEquals(2, counter.getCount());
+        assertEquals(3, counter.getSum());
+
+        MetricSnapshot histogram = snapshots.get("histogram");
+        assertEquals(MetricType.HISTOGRAM, histogram.getType());
+        assertEquals(2, histogram.getCount());
+        assertEquals(10, histogram.getMin());
+        assertEquals(30, histogram.getMax());
+        assertEquals(20, histogram.getMean(), 0);
+
+        MetricSnapshot timer = snapshots.get("timer");
+        assertEquals(MetricType.TIMER, timer.getType());
+        assertEquals(1, timer.getCount());
+        assertTrue(timer.getSum() >= 0);
+    }
+
+    @Test
+    public void histogramPercentiles()
+    {
+        this.metrics.increment("counter");
+
+        this.metrics.startRecording();
+        for (int i = 100; i > 0; --i) {
+            this.metrics.update("histogram", i);
+        }
+        Map<String, MetricSnapshot> recorded = this.metrics.stopRecording();
+
+        MetricSnapshot histogram = this.metrics.getSnapshots().get("histogram");
+        assertEquals(100, histogram.getCount());
+        // The estimations are the upper bounds of the buckets containing the percentiles
+        assertEquals(55, histogram.getP50());
+        assertEquals(95, histogram.getP95());
+        assertEquals(100, histogram.getP99());
+
+        assertEquals(histogram.toString(), recorded.get("histogram").toString());
+
+        MetricSnapshot counter = this.metrics.getSnapshots().get("counter");
+        assertEquals(0, counter.getP50());
+        assertEquals(0, counter.getP99());
+    }
+
+    @Test
+    public void buckets()
+    {
+        for (long value : new long[] { -1, 0, 3, 4, 10, 1000, Long.MAX_VALUE }) {
+            int index = MetricBuckets.getIndex(value);
+
+            assertTrue(index >= 0 && index < MetricBuckets.SIZE);
+            assertTrue(value <= MetricBuckets.getUpperBound(index));
+            // The bucket is never more than 25% bigger than the values it contains
+            assertTrue(MetricBuckets.getUpperBound(index) <= Math.max(value, 0) * 1.25 + 1);
+            assertTrue(index == 0 || MetricBuckets.getUpperBound(index - 1) < value);
+        }
+
+        assertEquals(Long.MAX_VALUE, MetricBuckets.getUpperBound(MetricBuckets.SIZE - 1));
+    }
+
+    @Test
+    public void recording()
+    {
+        this.metrics.increment("counter");
+
+        this.metrics.startRecording();
+        this.metrics.increment("counter");
+        this.metrics.update("histogram", 5);
+        Map<String, MetricSnapshot> recorded = this.metrics.stopRecording();
+
+        this.metrics.increment("counter");
+
+        assertEquals(2, recorded.size());
+        assertEquals(1, recorded.get("counter").getCount());
+        assertEquals(5, recorded.get("histogram").getSum());
+        assertEquals(3, this.metrics.getSnapshots().get("counter").getCount());
+
+        assertTrue(this.metrics.stopRecording().isEmpty());
+    }
+
+    @Test
+    public void disabled()
+    {
+        when(this.configuration.getProperty("metrics.enabled", false)).thenReturn(false);
+        this.metrics.initialize();
+
+        assertFalse(this.metrics.isEnabled());
+
+        this.metrics.startRecording();
+        this.metrics.increment("counter");
+        this.metrics.update("histogram", 5);
+        this.metrics.stopTimer("timer", this.metrics.startTimer());
+
+        assertTrue(this.metrics.getSnapshots().isEmpty());
+        assertTrue(this.metrics.stopRecording().isEmpty());
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.rest;
+
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.rest.XWikiRestException;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Expose the current state of the metrics to the administrators of the main wiki.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Path("/metrics")
+@Unstable
+public interface MetricsResource
+{
+    /**
+     * @param prefix only return the metrics with a name starting with this prefix (all the metrics when empty)
+     * @return the metrics, by name
+     * @throws XWikiRestException if the current user is not allowed to see the metrics
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    Map<String, MetricSnapshot> getMetrics(@QueryParam("prefix") String prefix) throws XWikiRestException;
+}
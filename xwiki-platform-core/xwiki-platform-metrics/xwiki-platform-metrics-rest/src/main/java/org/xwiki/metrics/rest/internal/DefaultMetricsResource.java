@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.metrics.rest.internal;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricsManager;
+import org.xwiki.metrics.rest.MetricsResource;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.rest.XWikiResource;
+import org.xwiki.rest.XWikiRestException;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+/**
+ * Default implementation of {@link MetricsResource}.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named("org.xwiki.metrics.rest.internal.DefaultMetricsResource")
+public class DefaultMetricsResource extends XWikiResource implements MetricsResource
+{
+    @Inject
+    private MetricsManager metrics;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Override
+    public Map<String, MetricSnapshot> getMetrics(String prefix) throws XWikiRestException
+    {
+        // The metrics are shared by all the wikis
+        if (!this.authorization.hasAccess(Right.ADMIN, new WikiReference(getXWikiContext().getMainXWiki()))) {
+            throw new WebApplicationException(Status.UNAUTHORIZED);
+        }
+
+        Map<String, MetricSnapshot> snapshots = new TreeMap<>(this.metrics.getSnapshots());
+
+        if (StringUtils.isNotEmpty(prefix)) {
+            snapshots.keySet().removeIf(name -> !name.startsWith(prefix));
+        }
+
+        return snapshots;
+    }
+}
@@ -20,8 +20,11 @@
 package org.xwiki.notifications.notifiers.internal;
 
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -37,10 +40,13 @@
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventSearchResult;
 import org.xwiki.eventstream.EventStore;
 import org.xwiki.eventstream.internal.DefaultEntityEvent;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.eventstream.query.SimpleEventQuery;
+import org.xwiki.eventstream.query.SortableEventQuery.SortClause.Order;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
@@ -61,6 +67,11 @@ public class UserEventDispatcher implements Runnable, Disposable, Initializable
 {
     private static final Event STOP_EVENT = new DefaultEvent();
 
+    /**
+     * The maximum number of recent events evaluated again when the preferences of a user change.
+     */
+    private static final int INVALIDATION_EVENT_LIMIT = 1000;
+
     @Inject
     private UsersCache userCache;
 
@@ -87,6 +98,21 @@ public class UserEventDispatcher implements Runnable, Disposable, Initializable
 
     private BlockingQueue<Event> queue;
 
+    private final Set<DocumentReference> invalidatedUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Marker asking to evaluate again the most recent events for a user.
+     */
+    private static final class UserInvalidationEvent extends DefaultEvent
+    {
+        private final DocumentReference user;
+
+        UserInvalidationEvent(DocumentReference user)
+        {
+            this.user = user;
+        }
+    }
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -123,6 +149,22 @@ public void addEvent(Event event) throws InterruptedException
         }
     }
 
+    /**
+     * Evaluate again the most recent events already dispatched for the passed user, typically because its
+     * notification preferences or filters changed.
+     *
+     * @param user the reference of the user
+     * @throws InterruptedException if interrupted while waiting
+     * @since 12.6RC1
+     */
+    public void invalidateUser(DocumentReference user) throws InterruptedException
+    {
+        // Preferences are often saved several at a time, no need to evaluate the same user more than once
+        if (this.invalidatedUsers.add(user)) {
+            addEvent(new UserInvalidationEvent(user));
+        }
+    }
+
     @Override
     public void run()
     {
@@ -146,7 +188,11 @@ public void run()
                             return;
                         }
 
-                        dispatch(event);
+                        if (event instanceof UserInvalidationEvent) {
+                            redispatch(((UserInvalidationEvent) event).user);
+                        } else {
+                            dispatch(event);
+                        }
                     } finally {
                         // Get rid of current context
                         this.ecm.popContext();
@@ -198,4 +244,43 @@ private void dispatch(Event event, List<DocumentReference> users)
         // Remember we are done pre filtering this event
         this.events.prefilterEvent(event);
     }
+
+    private void redispatch(DocumentReference user)
+    {
+        // A change made from now on will need a new evaluation
+        this.invalidatedUsers.remove(user);
+
+        String userId = this.entityReferenceSerializer.serialize(user);
+
+        // The events already associated with the user
+        SimpleEventQuery statusQuery = new SimpleEventQuery(0, INVALIDATION_EVENT_LIMIT);
+        statusQuery.withStatus(userId);
+        statusQuery.addSort(Event.FIELD_DATE, Order.DESC);
+
+        // The most recent events already dispatched which might concern the user
+        SimpleEventQuery eventQuery = new SimpleEventQuery(0, INVALIDATION_EVENT_LIMIT);
+        eventQuery.eq(Event.FIELD_PREFILTERED, true);
+        if (!this.wikiManager.isMainWiki(user.getWikiReference().getName())) {
+            eventQuery.eq(Event.FIELD_WIKI, user.getWikiReference().getName());
+        }
+        eventQuery.addSort(Event.FIELD_DATE, Order.DESC);
+
+        try (EventSearchResult statuses = this.events.search(statusQuery);
+            EventSearchResult result = this.events.search(eventQuery)) {
+            Set<String> dispatchedEvents = statuses.stream().map(Event::getId).collect(Collectors.toSet());
+
+            result.stream().forEach(event -> {
+                boolean listening = this.userEventManager.isListening(event, user, NotificationFormat.ALERT);
+                boolean dispatched = dispatchedEvents.contains(event.getId());
+
+                if (listening && !dispatched) {
+                    this.events.saveEventStatus(new DefaultEventStatus(event, userId, false));
+                } else if (!listening && dispatched) {
+                    this.events.deleteEventStatus(new DefaultEventStatus(event, userId, false));
+                }
+            });
+        } catch (Exception e) {
+            this.logger.error("Failed to update the notifications of user [{}]", user, e);
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceUpdatedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+
+/**
+ * Ask the {@link UserEventDispatcher} to evaluate again the events of a user when its notification preferences or
+ * filters change.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named(UserEventInvalidationListener.NAME)
+@Singleton
+public class UserEventInvalidationListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.notifications.notifiers.internal.UserEventInvalidationListener";
+
+    @Inject
+    private UserEventDispatcher dispatcher;
+
+    @Inject
+    private NotificationConfiguration notificationConfiguration;
+
+    @Inject
+    private RemoteObservationManagerContext remoteState;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Configure the listener.
+     */
+    public UserEventInvalidationListener()
+    {
+        super(NAME, new NotificationFilterPreferenceAddOrUpdatedEvent(), new NotificationFilterPreferenceDeletedEvent(),
+            new NotificationPreferenceAddedEvent(), new NotificationPreferenceUpdatedEvent(),
+            new NotificationPreferenceDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        // The source is the reference of the user (or wiki preferences) document when known
+        if (source instanceof DocumentReference && !this.remoteState.isRemoteState()
+            && this.notificationConfiguration.isEnabled()
+            && this.notificationConfiguration.isEventPrefilteringEnabled()) {
+            try {
+                this.dispatcher.invalidateUser((DocumentReference) source);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                this.logger.warn("Failed to invalidate the events of user [{}]", source, e);
+            }
+        }
+    }
+}
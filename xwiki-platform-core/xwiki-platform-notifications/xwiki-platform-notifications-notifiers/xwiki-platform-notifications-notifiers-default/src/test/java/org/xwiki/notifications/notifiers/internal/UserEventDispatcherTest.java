@@ -0,0 +1,187 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventSearchResult;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStore;
+import org.xwiki.eventstream.internal.DefaultEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UserEventDispatcher}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class UserEventDispatcherTest
+{
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "User");
+
+    private static final String USER_ID = "xwiki:XWiki.User";
+
+    @InjectMockComponents
+    private UserEventDispatcher dispatcher;
+
+    @MockComponent
+    private UserEventManager userEventManager;
+
+    @MockComponent
+    private WikiDescriptorManager wikiManager;
+
+    @MockComponent
+    private ExecutionContextManager ecm;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @MockComponent
+    private EventStore events;
+
+    private final Event listenedDispatched = createEvent("listenedDispatched");
+
+    private final Event listenedNotDispatched = createEvent("listenedNotDispatched");
+
+    private final Event notListenedDispatched = createEvent("notListenedDispatched");
+
+    private final Event notListenedNotDispatched = createEvent("notListenedNotDispatched");
+
+    private EventSearchResult eventsResult;
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.serializer.serialize(USER)).thenReturn(USER_ID);
+        when(this.wikiManager.isMainWiki("xwiki")).thenReturn(true);
+
+        when(this.userEventManager.isListening(this.listenedDispatched, USER, NotificationFormat.ALERT))
+            .thenReturn(true);
+        when(this.userEventManager.isListening(this.listenedNotDispatched, USER, NotificationFormat.ALERT))
+            .thenReturn(true);
+
+        // The statuses of the user are searched first, then the recent prefiltered events
+        EventSearchResult statuses = mock(EventSearchResult.class);
+        when(statuses.stream()).then(stream -> Stream.of(this.listenedDispatched, this.notListenedDispatched));
+        this.eventsResult = mock(EventSearchResult.class);
+        when(this.eventsResult.stream()).then(stream -> Stream.of(this.listenedDispatched, this.listenedNotDispatched,
+            this.notListenedDispatched, this.notListenedNotDispatched));
+        AtomicInteger searches = new AtomicInteger();
+        when(this.events.search(any()))
+            .then(invocation -> searches.getAndIncrement() % 2 == 0 ? statuses : this.eventsResult);
+    }
+
+    @AfterEach
+    void afterEach() throws ComponentLifecycleException
+    {
+        this.dispatcher.dispose();
+    }
+
+    private static Event createEvent(String id)
+    {
+        DefaultEvent event = new DefaultEvent();
+        event.setId(id);
+
+        return event;
+    }
+
+    private static EventStatus status(Event event)
+    {
+        return argThat(status -> status.getEvent() == event && USER_ID.equals(status.getEntityId()));
+    }
+
+    @Test
+    void invalidateUser() throws Exception
+    {
+        this.dispatcher.invalidateUser(USER);
+
+        // Wait for the end of the evaluation
+        verify(this.eventsResult, timeout(10000)).close();
+
+        verify(this.events).saveEventStatus(status(this.listenedNotDispatched));
+        verify(this.events).deleteEventStatus(status(this.notListenedDispatched));
+
+        verify(this.events, times(1)).saveEventStatus(any());
+        verify(this.events, times(1)).deleteEventStatus(any());
+    }
+
+    @Test
+    void invalidateUserSeveralTimes() throws Exception
+    {
+        // Block the dispatcher thread
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            blocked.await(10, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(this.ecm).pushContext(any(ExecutionContext.class), eq(false));
+
+        DefaultEvent event = new DefaultEvent();
+        event.setWiki(new WikiReference("xwiki"));
+        this.dispatcher.addEvent(event);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // Several modifications of the same user before the dispatcher gets to it
+        this.dispatcher.invalidateUser(USER);
+        this.dispatcher.invalidateUser(USER);
+        this.dispatcher.invalidateUser(USER);
+
+        blocked.countDown();
+
+        verify(this.eventsResult, timeout(10000)).close();
+        verify(this.events, times(2)).search(any());
+
+        // A modification made after the evaluation is taken into account
+        this.dispatcher.invalidateUser(USER);
+
+        verify(this.eventsResult, timeout(10000).times(2)).close();
+        verify(this.events, times(4)).search(any());
+    }
+}
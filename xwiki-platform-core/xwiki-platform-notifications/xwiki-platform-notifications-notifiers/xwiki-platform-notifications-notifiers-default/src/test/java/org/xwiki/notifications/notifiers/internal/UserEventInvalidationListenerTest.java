@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceUpdatedEvent;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link UserEventInvalidationListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class UserEventInvalidationListenerTest
+{
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "User");
+
+    @InjectMockComponents
+    private UserEventInvalidationListener listener;
+
+    @MockComponent
+    private UserEventDispatcher dispatcher;
+
+    @MockComponent
+    private NotificationConfiguration configuration;
+
+    @MockComponent
+    private RemoteObservationManagerContext remoteState;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.configuration.isEnabled()).thenReturn(true);
+        when(this.configuration.isEventPrefilteringEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void onPreferenceEvent() throws Exception
+    {
+        this.listener.onEvent(new NotificationPreferenceUpdatedEvent(), USER, null);
+
+        verify(this.dispatcher).invalidateUser(USER);
+    }
+
+    @Test
+    void onFilterPreferenceEvent() throws Exception
+    {
+        this.listener.onEvent(new NotificationFilterPreferenceDeletedEvent(), USER, null);
+
+        verify(this.dispatcher).invalidateUser(USER);
+    }
+
+    @Test
+    void onEventWithoutUser() throws Exception
+    {
+        // Wiki preferences
+        this.listener.onEvent(new NotificationPreferenceUpdatedEvent(), null, null);
+
+        verify(this.dispatcher, never()).invalidateUser(any());
+    }
+
+    @Test
+    void onRemoteEvent() throws Exception
+    {
+        // The event is handled by the cluster member where the preferences were modified
+        when(this.remoteState.isRemoteState()).thenReturn(true);
+
+        this.listener.onEvent(new NotificationPreferenceUpdatedEvent(), USER, null);
+
+        verify(this.dispatcher, never()).invalidateUser(any());
+    }
+
+    @Test
+    void onEventWhenPrefilteringDisabled() throws Exception
+    {
+        when(this.configuration.isEventPrefilteringEnabled()).thenReturn(false);
+
+        this.listener.onEvent(new NotificationPreferenceUpdatedEvent(), USER, null);
+
+        verify(this.dispatcher, never()).invalidateUser(any());
+    }
+}
@@ -24,6 +24,8 @@
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.RegexEntityReference;
 import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
 import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
@@ -32,6 +34,7 @@
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.Event;
 
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.event.XObjectAddedEvent;
 import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
 import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
@@ -57,6 +60,8 @@ public class NotificationPreferenceEventGeneratorListener extends AbstractEventL
     private static final RegexEntityReference REFERENCE =
         BaseObjectReference.any(DefaultModelBridge.NOTIFICATION_PREFERENCE_CLASS_STRING);
 
+    private static final LocalDocumentReference USER_CLASS = new LocalDocumentReference("XWiki", "XWikiUsers");
+
     @Inject
     private ObservationManager observation;
 
@@ -72,12 +77,17 @@ public NotificationPreferenceEventGeneratorListener()
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        // Indicate which user the modified preference belongs to (preferences are also stored in wiki preferences)
+        XWikiDocument document = (XWikiDocument) source;
+        DocumentReference documentReference =
+            document.getXObject(USER_CLASS) != null ? document.getDocumentReference() : null;
+
         if (event instanceof XObjectAddedEvent) {
-            this.observation.notify(new NotificationPreferenceAddedEvent(), null);
+            this.observation.notify(new NotificationPreferenceAddedEvent(), documentReference);
         } else if (event instanceof XObjectUpdatedEvent) {
-            this.observation.notify(new NotificationPreferenceUpdatedEvent(), null);
+            this.observation.notify(new NotificationPreferenceUpdatedEvent(), documentReference);
         } else if (event instanceof XObjectDeletedEvent) {
-            this.observation.notify(new NotificationPreferenceDeletedEvent(), null);
+            this.observation.notify(new NotificationPreferenceDeletedEvent(), documentReference);
         }
     }
 }
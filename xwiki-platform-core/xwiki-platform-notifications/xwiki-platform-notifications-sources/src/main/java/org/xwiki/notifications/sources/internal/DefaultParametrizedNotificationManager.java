@@ -22,7 +22,10 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -150,13 +153,12 @@ private boolean addMatchingEventsToResults(List<Event> batch, NotificationParame
         List<CompositeEvent> results) throws EventStreamException, NotificationException
     {
         boolean done = false;
+        // Check the rights on all the documents of the batch at once
+        Map<DocumentReference, Boolean> allowedDocuments = getAllowedDocuments(parameters.user, batch);
         // Add to the results the events the user has the right to see
         for (Event event : batch) {
             DocumentReference document = event.getDocument();
-            // 1) Don't include events concerning a doc the passed user cannot see
-            // 2) If the current user is not the passed user, also make sure that the current user has view permissions
-            // on the document as otherwise any user could forget a REST request and see other user's notifications
-            if (document != null && !isAllowed(parameters.user, document)) {
+            if (document != null && !allowedDocuments.get(document)) {
                 continue;
             }
 
@@ -175,13 +177,28 @@ private boolean addMatchingEventsToResults(List<Event> batch, NotificationParame
         return done;
     }
 
-    private boolean isAllowed(DocumentReference passedUser, DocumentReference document)
+    private Map<DocumentReference, Boolean> getAllowedDocuments(DocumentReference passedUser, List<Event> batch)
     {
-        boolean allowed = this.authorizationManager.hasAccess(Right.VIEW, passedUser, document);
-        if (allowed) {
-            allowed = this.contextualAuthorizationManager.hasAccess(Right.VIEW, document);
+        Set<DocumentReference> documents = new LinkedHashSet<>();
+        for (Event event : batch) {
+            if (event.getDocument() != null) {
+                documents.add(event.getDocument());
+            }
         }
-        return allowed;
+
+        // 1) Don't include events concerning a doc the passed user cannot see
+        Map<DocumentReference, Boolean> allowedDocuments =
+            this.authorizationManager.hasAccesses(Right.VIEW, passedUser, documents);
+
+        // 2) If the current user is not the passed user, also make sure that the current user has view permissions
+        // on the document as otherwise any user could forget a REST request and see other user's notifications
+        for (Map.Entry<DocumentReference, Boolean> entry : allowedDocuments.entrySet()) {
+            if (entry.getValue()) {
+                entry.setValue(this.contextualAuthorizationManager.hasAccess(Right.VIEW, entry.getKey()));
+            }
+        }
+
+        return allowedDocuments;
     }
 
     /**
@@ -62,9 +62,9 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -126,6 +126,8 @@ public void setUp() throws Exception
         when(pref1.isNotificationEnabled()).thenReturn(true);
 
         when(recordableEventDescriptorHelper.hasDescriptor(anyString(), any(DocumentReference.class))).thenReturn(true);
+
+        when(authorizationManager.hasAccesses(any(), any(), anyCollection())).thenCallRealMethod();
     }
 
     @Test
@@ -244,7 +246,8 @@ public void getEventsCount() throws Exception
 
         // Verify
         assertEquals(5, result);
-        verifyZeroInteractions(event3);
+        // The rights of the whole batch are checked at once but the event is never filtered nor recorded
+        verify(event3, never()).getTarget();
     }
 
     @Test
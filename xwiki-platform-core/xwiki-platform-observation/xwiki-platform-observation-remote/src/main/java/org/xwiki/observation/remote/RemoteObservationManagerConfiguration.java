@@ -46,4 +46,23 @@
      * @return the identifier of the network adapter implementation to use to actually send and receive network messages
      */
     String getNetworkAdapter();
+
+    /**
+     * @return the maximum time in milliseconds a remote event can wait to be sent in the same network message as the
+     *         following events, 0 to send each event in its own message
+     * @since 12.6RC1
+     */
+    default long getBatchWindow()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum number of events to send in the same network message
+     * @since 12.6RC1
+     */
+    default int getBatchMaxSize()
+    {
+        return 1000;
+    }
 }
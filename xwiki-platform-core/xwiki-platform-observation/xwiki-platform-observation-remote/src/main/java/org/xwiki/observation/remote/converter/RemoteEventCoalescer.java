@@ -0,0 +1,41 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.converter;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Merge remote events waiting to be sent in the same network message when receiving only the last one would have the
+ * same effect for the other members of the cluster (for example several updates of the same document).
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Role
+public interface RemoteEventCoalescer
+{
+    /**
+     * @param previous an event waiting to be sent
+     * @param next an event produced after {@code previous}
+     * @return the event to send instead of both events, or {@code null} if they can't be merged
+     */
+    RemoteEventData coalesce(RemoteEventData previous, RemoteEventData next);
+}
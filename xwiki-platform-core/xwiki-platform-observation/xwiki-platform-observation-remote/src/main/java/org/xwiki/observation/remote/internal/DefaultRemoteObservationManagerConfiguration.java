@@ -69,4 +69,16 @@ public String getNetworkAdapter()
     {
         return this.configurationSource.getProperty("observation.remote.networkadapter", "jgroups");
     }
+
+    @Override
+    public long getBatchWindow()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.window", 10L);
+    }
+
+    @Override
+    public int getBatchMaxSize()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.maxSize", 1000);
+    }
 }
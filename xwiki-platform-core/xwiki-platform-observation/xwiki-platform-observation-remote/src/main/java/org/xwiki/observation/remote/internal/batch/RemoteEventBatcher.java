@@ -0,0 +1,210 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.batch;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventCoalescer;
+
+/**
+ * Accumulate the remote events produced during a short time window and send them all at once.
+ * <p>
+ * All the batches are sent by the same thread, in the order the events were produced. Before being sent, the events of
+ * a batch are coalesced: an event identical to the event right before it, or which can be merged with it by a
+ * {@link RemoteEventCoalescer}, replaces it. Events are never moved so the receivers get them in the same order.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class RemoteEventBatcher
+{
+    private final long window;
+
+    private final int maxSize;
+
+    private final Consumer<List<RemoteEventData>> sender;
+
+    private final Supplier<List<RemoteEventCoalescer>> coalescers;
+
+    private final ScheduledExecutorService executor;
+
+    private List<RemoteEventData> pending = new ArrayList<>();
+
+    private final Queue<List<RemoteEventData>> batches = new LinkedList<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * @param window the maximum time in milliseconds an event can wait before being sent
+     * @param maxSize the maximum number of events in a batch
+     * @param sender called to actually send a batch
+     * @param coalescers provide the components used to merge the events of a batch
+     */
+    public RemoteEventBatcher(long window, int maxSize, Consumer<List<RemoteEventData>> sender,
+        Supplier<List<RemoteEventCoalescer>> coalescers)
+    {
+        this.window = window;
+        this.maxSize = maxSize;
+        this.sender = sender;
+        this.coalescers = coalescers;
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "XWiki remote events sender");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * @param event the event to send
+     */
+    public synchronized void add(RemoteEventData event)
+    {
+        this.pending.add(event);
+
+        if (this.pending.size() >= this.maxSize) {
+            // Don't wait for the end of the window
+            takePending();
+            this.executor.execute(this::sendBatches);
+        } else if (this.scheduledFlush == null) {
+            this.scheduledFlush = this.executor.schedule(this::flushPending, this.window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Send the waiting events and wait until they are sent.
+     */
+    public void flush()
+    {
+        synchronized (this) {
+            takePending();
+        }
+
+        try {
+            this.executor.submit(this::sendBatches).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The sender is not supposed to fail
+        }
+    }
+
+    /**
+     * Send the waiting events and stop the sending thread.
+     */
+    public void dispose()
+    {
+        flush();
+
+        this.executor.shutdown();
+    }
+
+    private void flushPending()
+    {
+        synchronized (this) {
+            takePending();
+        }
+
+        sendBatches();
+    }
+
+    private void takePending()
+    {
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+
+        if (!this.pending.isEmpty()) {
+            this.batches.add(this.pending);
+            this.pending = new ArrayList<>();
+        }
+    }
+
+    private void sendBatches()
+    {
+        // Only called from the sending thread so the batches are sent in the order they were closed
+        for (List<RemoteEventData> batch = pollBatch(); batch != null; batch = pollBatch()) {
+            this.sender.accept(coalesce(batch, this.coalescers.get()));
+        }
+    }
+
+    private synchronized List<RemoteEventData> pollBatch()
+    {
+        return this.batches.poll();
+    }
+
+    /**
+     * @param events the events to send
+     * @param coalescers the components used to merge events
+     * @return the events to actually send
+     */
+    public static List<RemoteEventData> coalesce(List<RemoteEventData> events, List<RemoteEventCoalescer> coalescers)
+    {
+        List<RemoteEventData> result = new ArrayList<>(events.size());
+
+        for (RemoteEventData event : events) {
+            // Only merge with the previous event: merging with an older one would change the order of the events
+            // the listeners receive (for example a document update coming before the creation of its space)
+            int last = result.size() - 1;
+            RemoteEventData merged = last >= 0 ? coalesce(result.get(last), event, coalescers) : null;
+
+            if (merged != null) {
+                result.set(last, merged);
+            } else {
+                result.add(event);
+            }
+        }
+
+        return result;
+    }
+
+    private static RemoteEventData coalesce(RemoteEventData previous, RemoteEventData next,
+        List<RemoteEventCoalescer> coalescers)
+    {
+        if (Objects.equals(previous.getEvent(), next.getEvent())
+            && Objects.equals(previous.getSource(), next.getSource())
+            && Objects.equals(previous.getData(), next.getData())) {
+            return next;
+        }
+
+        for (RemoteEventCoalescer coalescer : coalescers) {
+            RemoteEventData merged = coalescer.coalesce(previous, next);
+            if (merged != null) {
+                return merged;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.batch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Encode a list of {@link RemoteEventData} in a compact and versioned binary format so that they can be sent in a
+ * single network message.
+ * <p>
+ * Compared to serializing each {@link RemoteEventData} separately the main gains are:
+ * <ul>
+ * <li>the strings (class names, document references, versions, wiki identifiers, etc.) are written only once per
+ * batch</li>
+ * <li>events which don't customize their serialization are written field by field (the fields names being written only
+ * once per batch) instead of using a full Java serialization class descriptor</li>
+ * <li>the maps of strings produced by the standard document, attachment and object event converters are written
+ * without any Java serialization overhead</li>
+ * </ul>
+ * Any other value is still written with Java serialization, but in a stream shared by the whole batch.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = RemoteEventDataCodec.class)
+@Singleton
+public class RemoteEventDataCodec
+{
+    /**
+     * The current version of the format.
+     */
+    public static final byte VERSION = 1;
+
+    private static final byte[] MAGIC = new byte[] { 'X', 'R', 'E', 'B' };
+
+    private static final byte ENTRY_OBJECT = 0;
+
+    private static final byte ENTRY_COMPACT = 1;
+
+    private static final byte VALUE_NULL = 0;
+
+    private static final byte VALUE_STRING = 1;
+
+    private static final byte VALUE_MAP = 2;
+
+    private static final byte VALUE_BEAN = 3;
+
+    private static final byte VALUE_OBJECT = 4;
+
+    private static final byte VALUE_TRUE = 5;
+
+    private static final byte VALUE_FALSE = 6;
+
+    private static final String[] CUSTOM_SERIALIZATION_METHODS =
+        new String[] { "writeObject", "readObject", "writeReplace", "readResolve", "readObjectNoData" };
+
+    /**
+     * The fields to write for each class supporting the compact format, an empty array for classes which must be
+     * serialized with Java serialization.
+     */
+    private final Map<Class<?>, Field[]> fieldsCache = new ConcurrentHashMap<>();
+
+    private static final class Encoder
+    {
+        private final ObjectOutputStream stream;
+
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+        Encoder(ObjectOutputStream stream)
+        {
+            this.stream = stream;
+        }
+    }
+
+    private static final class Decoder
+    {
+        private final ObjectInputStream stream;
+
+        private final List<String> strings = new ArrayList<>();
+
+        private final List<Class<?>> classes = new ArrayList<>();
+
+        private final List<Field[]> classesFields = new ArrayList<>();
+
+        Decoder(ObjectInputStream stream)
+        {
+            this.stream = stream;
+        }
+    }
+
+    private static final class ContextObjectInputStream extends ObjectInputStream
+    {
+        ContextObjectInputStream(InputStream in) throws IOException
+        {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+        {
+            try {
+                return loadClass(desc.getName());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+
+    /**
+     * @param buffer the received message
+     * @return true if the message was produced by {@link #encode(List)}
+     */
+    public boolean isBatch(byte[] buffer)
+    {
+        if (buffer == null || buffer.length <= MAGIC.length) {
+            return false;
+        }
+
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (buffer[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param events the events to encode
+     * @return the encoded events
+     * @throws IOException when failing to encode the events
+     */
+    public byte[] encode(List<RemoteEventData> events) throws IOException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        encode(events, stream);
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @param events the events to encode
+     * @param stream the stream where to write the encoded events
+     * @throws IOException when failing to encode the events
+     */
+    public void encode(List<RemoteEventData> events, OutputStream stream) throws IOException
+    {
+        stream.write(MAGIC);
+        stream.write(VERSION);
+
+        ObjectOutputStream objectStream = new ObjectOutputStream(stream);
+        Encoder encoder = new Encoder(objectStream);
+
+        writeInt(encoder, events.size());
+        for (RemoteEventData event : events) {
+            if (event.getClass() == RemoteEventData.class) {
+                objectStream.writeByte(ENTRY_COMPACT);
+                writeValue(encoder, event.getEvent());
+                writeValue(encoder, event.getSource());
+                writeValue(encoder, event.getData());
+            } else {
+                objectStream.writeByte(ENTRY_OBJECT);
+                objectStream.writeObject(event);
+            }
+        }
+
+        objectStream.flush();
+    }
+
+    /**
+     * @param buffer the encoded events
+     * @return the decoded events
+     * @throws IOException when failing to decode the events
+     */
+    public List<RemoteEventData> decode(byte[] buffer) throws IOException
+    {
+        if (!isBatch(buffer)) {
+            throw new IOException("The buffer does not contain a remote events batch");
+        }
+
+        ByteArrayInputStream stream = new ByteArrayInputStream(buffer);
+        stream.skip(MAGIC.length);
+
+        int version = stream.read();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported remote events batch version [%d]", version));
+        }
+
+        ObjectInputStream objectStream = new ContextObjectInputStream(stream);
+        Decoder decoder = new Decoder(objectStream);
+
+        try {
+            int size = readInt(decoder);
+            List<RemoteEventData> events = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                byte entryType = objectStream.readByte();
+                if (entryType == ENTRY_COMPACT) {
+                    Serializable event = readValue(decoder);
+                    Serializable source = readValue(decoder);
+                    Serializable data = readValue(decoder);
+                    events.add(new RemoteEventData(event, source, data));
+                } else if (entryType == ENTRY_OBJECT) {
+                    events.add((RemoteEventData) objectStream.readObject());
+                } else {
+                    throw new IOException(String.format("Unknown entry type [%d]", entryType));
+                }
+            }
+
+            return events;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IOException("Failed to decode the remote events batch", e);
+        }
+    }
+
+    private static Class<?> loadClass(String className) throws ClassNotFoundException
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = RemoteEventDataCodec.class.getClassLoader();
+        }
+
+        return Class.forName(className, false, classLoader);
+    }
+
+    // Encode
+
+    private void writeInt(Encoder encoder, int value) throws IOException
+    {
+        // Variable length encoding: most of the integers we write are small
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            encoder.stream.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        encoder.stream.writeByte(remaining);
+    }
+
+    private void writeString(Encoder encoder, String value) throws IOException
+    {
+        Integer index = encoder.strings.get(value);
+
+        if (index != null) {
+            writeInt(encoder, index + 1);
+        } else {
+            writeInt(encoder, 0);
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(encoder, bytes.length);
+            encoder.stream.write(bytes);
+
+            encoder.strings.put(value, encoder.strings.size());
+        }
+    }
+
+    private void writeValue(Encoder encoder, Object value) throws IOException
+    {
+        if (value == null) {
+            encoder.stream.writeByte(VALUE_NULL);
+        } else if (value instanceof Boolean) {
+            encoder.stream.writeByte((Boolean) value ? VALUE_TRUE : VALUE_FALSE);
+        } else if (value instanceof String) {
+            encoder.stream.writeByte(VALUE_STRING);
+            writeString(encoder, (String) value);
+        } else if (value.getClass() == HashMap.class && hasStringKeys((Map<?, ?>) value)) {
+            encoder.stream.writeByte(VALUE_MAP);
+            writeMap(encoder, (Map<?, ?>) value);
+        } else if (getFields(value.getClass()).length > 0) {
+            encoder.stream.writeByte(VALUE_BEAN);
+            writeBean(encoder, value);
+        } else {
+            encoder.stream.writeByte(VALUE_OBJECT);
+            encoder.stream.writeObject(value);
+        }
+    }
+
+    private boolean hasStringKeys(Map<?, ?> map)
+    {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void writeMap(Encoder encoder, Map<?, ?> map) throws IOException
+    {
+        writeInt(encoder, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(encoder, (String) entry.getKey());
+            writeValue(encoder, entry.getValue());
+        }
+    }
+
+    private void writeBean(Encoder encoder, Object bean) throws IOException
+    {
+        Class<?> beanClass = bean.getClass();
+        Field[] fields = getFields(beanClass);
+
+        Integer index = encoder.classes.get(beanClass);
+        if (index != null) {
+            writeInt(encoder, index + 1);
+        } else {
+            // First time this class is written in this batch: write its layout
+            writeInt(encoder, 0);
+            writeString(encoder, beanClass.getName());
+            writeInt(encoder, fields.length);
+            for (Field field : fields) {
+                writeString(encoder, getFieldId(field));
+            }
+
+            encoder.classes.put(beanClass, encoder.classes.size());
+        }
+
+        for (Field field : fields) {
+            try {
+                writeValue(encoder, field.get(bean));
+            } catch (IllegalAccessException e) {
+                throw new IOException(String.format("Failed to access field [%s]", field), e);
+            }
+        }
+    }
+
+    private String getFieldId(Field field)
+    {
+        return field.getDeclaringClass().getName() + '#' + field.getName();
+    }
+
+    /**
+     * @param beanClass the class of the object to write
+     * @return the fields to write, or an empty array if the class does not support the compact format
+     */
+    private Field[] getFields(Class<?> beanClass)
+    {
+        return this.fieldsCache.computeIfAbsent(beanClass, this::computeFields);
+    }
+
+    private Field[] computeFields(Class<?> beanClass)
+    {
+        if (!Serializable.class.isAssignableFrom(beanClass) || beanClass.isArray() || beanClass.isEnum()
+            || !hasDefaultConstructor(beanClass)) {
+            return new Field[0];
+        }
+
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> currentClass = beanClass; currentClass != Object.class;
+            currentClass = currentClass.getSuperclass()) {
+            if (hasCustomSerialization(currentClass) || (!currentClass.getName().startsWith("org.xwiki.")
+                && !currentClass.getName().startsWith("com.xpn.xwiki."))) {
+                // Only handle simple XWiki classes, the rest is left to Java serialization
+                return new Field[0];
+            }
+
+            for (Field field : currentClass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+
+        if (fields.isEmpty()) {
+            // Nothing to gain compared to Java serialization
+            return new Field[0];
+        }
+
+        // Make sure the order does not depend on the JVM
+        fields.sort(Comparator.comparing(this::getFieldId));
+
+        return fields.toArray(new Field[0]);
+    }
+
+    private boolean hasDefaultConstructor(Class<?> beanClass)
+    {
+        try {
+            beanClass.getDeclaredConstructor();
+
+            return !Modifier.isAbstract(beanClass.getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private boolean hasCustomSerialization(Class<?> currentClass)
+    {
+        return Arrays.stream(currentClass.getDeclaredMethods())
+            .anyMatch(method -> Arrays.asList(CUSTOM_SERIALIZATION_METHODS).contains(method.getName()));
+    }
+
+    // Decode
+
+    private int readInt(Decoder decoder) throws IOException
+    {
+        int value = 0;
+        int shift = 0;
+        int currentByte;
+        do {
+            currentByte = decoder.stream.readUnsignedByte();
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while ((currentByte & 0x80) != 0);
+
+        return value;
+    }
+
+    private String readString(Decoder decoder) throws IOException
+    {
+        int index = readInt(decoder);
+
+        if (index > 0) {
+            return decoder.strings.get(index - 1);
+        }
+
+        byte[] bytes = new byte[readInt(decoder)];
+        decoder.stream.readFully(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+
+        decoder.strings.add(value);
+
+        return value;
+    }
+
+    private Serializable readValue(Decoder decoder) throws IOException, ReflectiveOperationException
+    {
+        byte type = decoder.stream.readByte();
+
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_STRING:
+                return readString(decoder);
+            case VALUE_MAP:
+                return readMap(decoder);
+            case VALUE_BEAN:
+                return readBean(decoder);
+            case VALUE_OBJECT:
+                return (Serializable) decoder.stream.readObject();
+            default:
+                throw new IOException(String.format("Unknown value type [%d]", type));
+        }
+    }
+
+    private HashMap<String, Serializable> readMap(Decoder decoder) throws IOException, ReflectiveOperationException
+    {
+        int size = readInt(decoder);
+
+        HashMap<String, Serializable> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; ++i) {
+            String key = readString(decoder);
+            map.put(key, readValue(decoder));
+        }
+
+        return map;
+    }
+
+    private Serializable readBean(Decoder decoder) throws IOException, ReflectiveOperationException
+    {
+        int index = readInt(decoder);
+
+        Class<?> beanClass;
+        Field[] fields;
+        if (index > 0) {
+            beanClass = decoder.classes.get(index - 1);
+            fields = decoder.classesFields.get(index - 1);
+        } else {
+            String className = readString(decoder);
+            beanClass = loadClass(className);
+
+            // Never instantiate a class which would not have been written with the compact format
+            Field[] beanFields = getFields(beanClass);
+            if (beanFields.length == 0) {
+                throw new IOException(
+                    String.format("Class [%s] is not supported by the compact format", className));
+            }
+
+            // Match the received fields with the local ones, in case the sender is running a different version
+            Map<String, Field> localFields = new HashMap<>();
+            for (Field field : beanFields) {
+                localFields.put(getFieldId(field), field);
+            }
+            fields = new Field[readInt(decoder)];
+            for (int i = 0; i < fields.length; ++i) {
+                fields[i] = localFields.get(readString(decoder));
+            }
+
+            decoder.classes.add(beanClass);
+            decoder.classesFields.add(fields);
+        }
+
+        Constructor<?> constructor = beanClass.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object bean = constructor.newInstance();
+
+        for (Field field : fields) {
+            Object value = readValue(decoder);
+
+            // Skip the fields which don't exist locally
+            if (field != null) {
+                field.set(bean, value);
+            }
+        }
+
+        return (Serializable) bean;
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.io.IOException;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -30,6 +32,7 @@
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.observation.remote.internal.batch.RemoteEventDataCodec;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
@@ -60,6 +63,12 @@ public class DefaultJGroupsReceiver extends ReceiverAdapter implements JGroupsRe
     @Inject
     private Logger logger;
 
+    /**
+     * Used to decode batches of events.
+     */
+    @Inject
+    private RemoteEventDataCodec codec;
+
     /**
      * @return the RemoteObservationManager
      */
@@ -79,10 +88,24 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
+        byte[] buffer = msg.getBuffer();
 
-        this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+        if (this.codec.isBatch(buffer)) {
+            try {
+                for (RemoteEventData remoteEvent : this.codec.decode(buffer)) {
+                    this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+
+                    getRemoteObservationManager().notify(remoteEvent);
+                }
+            } catch (IOException e) {
+                this.logger.error("Failed to decode a batch of remote events", e);
+            }
+        } else {
+            RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
 
-        getRemoteObservationManager().notify(remoteEvent);
+            this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+
+            getRemoteObservationManager().notify(remoteEvent);
+        }
     }
 }
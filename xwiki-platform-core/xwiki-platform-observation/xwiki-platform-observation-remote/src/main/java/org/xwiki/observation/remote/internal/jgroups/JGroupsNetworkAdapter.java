@@ -23,6 +23,8 @@
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -42,10 +44,15 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.environment.Environment;
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
+import org.xwiki.observation.remote.converter.RemoteEventCoalescer;
+import org.xwiki.observation.remote.internal.batch.RemoteEventBatcher;
+import org.xwiki.observation.remote.internal.batch.RemoteEventDataCodec;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
@@ -57,7 +64,7 @@
 @Component
 @Named("jgroups")
 @Singleton
-public class JGroupsNetworkAdapter implements NetworkAdapter
+public class JGroupsNetworkAdapter implements NetworkAdapter, Disposable
 {
     /**
      * Relative path where to find jgroups channels configurations.
@@ -76,30 +83,122 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
     @Inject
     private Logger logger;
 
+    /**
+     * Used to know if the events should be batched.
+     */
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
+    /**
+     * Used to encode batches of events.
+     */
+    @Inject
+    private RemoteEventDataCodec codec;
+
     /**
      * The network channels.
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<String, JChannel>();
 
+    /**
+     * Accumulate the events to send them in the same message, null when batching is disabled.
+     */
+    private RemoteEventBatcher batcher;
+
+    private boolean batcherInitialized;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [" + remoteEvent + "]");
 
-        // Send the message to the whole group
-        Message message = new Message(null, remoteEvent);
+        RemoteEventBatcher currentBatcher = getBatcher();
+
+        if (currentBatcher != null) {
+            currentBatcher.add(remoteEvent);
+        } else {
+            // Send the message to the whole group
+            send(new Message(null, remoteEvent), remoteEvent);
+        }
+    }
+
+    private synchronized RemoteEventBatcher getBatcher()
+    {
+        if (!this.batcherInitialized) {
+            long window = this.configuration.getBatchWindow();
+            if (window > 0) {
+                this.batcher = new RemoteEventBatcher(window, this.configuration.getBatchMaxSize(), this::sendBatch,
+                    this::getCoalescers);
+            }
+
+            this.batcherInitialized = true;
+        }
+
+        return this.batcher;
+    }
+
+    private List<RemoteEventCoalescer> getCoalescers()
+    {
+        try {
+            return this.componentManager.getInstanceList(RemoteEventCoalescer.class);
+        } catch (ComponentLookupException e) {
+            this.logger.warn("Failed to lookup remote event coalescers: {}", e.getMessage());
 
+            return Collections.emptyList();
+        }
+    }
+
+    private void sendBatch(List<RemoteEventData> remoteEvents)
+    {
+        if (remoteEvents.size() == 1) {
+            // Not worth a batch
+            send(new Message(null, remoteEvents.get(0)), remoteEvents.get(0));
+        } else {
+            this.logger.debug("Send a batch of [{}] JGroups remote events", remoteEvents.size());
+
+            try {
+                send(new Message(null, this.codec.encode(remoteEvents)), remoteEvents);
+            } catch (IOException e) {
+                this.logger.error("Failed to encode a batch of remote events, sending them one by one", e);
+
+                for (RemoteEventData remoteEvent : remoteEvents) {
+                    send(new Message(null, remoteEvent), remoteEvent);
+                }
+            }
+        }
+    }
+
+    private void send(Message message, Object content)
+    {
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
                 entry.getValue().send(message);
             } catch (Exception e) {
                 this.logger
-                    .error("Failed to send message [" + remoteEvent + "] to the channel [" + entry.getKey() + "]", e);
+                    .error("Failed to send message [" + content + "] to the channel [" + entry.getKey() + "]", e);
             }
         }
     }
 
+    /**
+     * Make sure the events waiting in the current batch are sent.
+     */
+    private synchronized void flush()
+    {
+        if (this.batcher != null) {
+            this.batcher.flush();
+        }
+    }
+
+    @Override
+    public synchronized void dispose()
+    {
+        if (this.batcher != null) {
+            this.batcher.dispose();
+        }
+    }
+
     @Override
     public void startChannel(String channelId) throws RemoteEventException
     {
@@ -137,6 +236,9 @@ public void stopChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException(MessageFormat.format("Channel [{0}] is not started", channelId));
         }
 
+        // Don't lose the waiting events
+        flush();
+
         channel.close();
 
         this.channels.remove(channelId);
@@ -218,6 +320,9 @@ private ProtocolStackConfigurator loadChannelConfiguration(String channelId) thr
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        // Don't lose the waiting events
+        flush();
+
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
         }
@@ -0,0 +1,147 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jgroups.Message;
+import org.jgroups.ReceiverAdapter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
+import org.xwiki.observation.remote.test.AbstractROMTestCase;
+import org.xwiki.observation.remote.test.TestEvent;
+import org.xwiki.test.annotation.AllComponents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Send a lot of events from one cluster member to another over a loopback TCP JGroups stack and check the number of
+ * network messages it takes.
+ *
+ * @version $Id$
+ */
+@AllComponents
+public class BatchingROMTest extends AbstractROMTestCase
+{
+    private static final String BIND_ADDR = "jgroups.bind_addr";
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int EVENTS = 50 * BATCH_SIZE;
+
+    private final AtomicInteger messages = new AtomicInteger();
+
+    private final AtomicInteger received = new AtomicInteger();
+
+    private String previousBindAddr;
+
+    private class CountingReceiver extends ReceiverAdapter implements JGroupsReceiver
+    {
+        private final JGroupsReceiver receiver;
+
+        CountingReceiver(JGroupsReceiver receiver)
+        {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void receive(Message msg)
+        {
+            messages.incrementAndGet();
+
+            this.receiver.receive(msg);
+        }
+    }
+
+    @Override
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        super.beforeEach();
+
+        this.previousBindAddr = System.setProperty(BIND_ADDR, "localhost");
+
+        getConfigurationSource1().setProperty("observation.remote.channels", Arrays.asList("tcp"));
+        // Make sure the batches are only sent when they are full so that the number of messages does not depend on
+        // the speed of the machine
+        getConfigurationSource1().setProperty("observation.remote.batch.window", 600000L);
+        getConfigurationSource1().setProperty("observation.remote.batch.maxSize", BATCH_SIZE);
+
+        getComponentManager2().registerComponent(JGroupsReceiver.class, "tcp",
+            new CountingReceiver(getComponentManager2().getInstance(JGroupsReceiver.class)));
+
+        RemoteObservationManager rom = getComponentManager2().getInstance(RemoteObservationManager.class);
+        rom.startChannel("tcp");
+    }
+
+    @AfterEach
+    public void restoreBindAddr()
+    {
+        if (this.previousBindAddr != null) {
+            System.setProperty(BIND_ADDR, this.previousBindAddr);
+        } else {
+            System.clearProperty(BIND_ADDR);
+        }
+    }
+
+    @Test
+    public void sendManyEvents() throws Exception
+    {
+        TestEvent event = new TestEvent();
+
+        EventListener remoteListener = mock(EventListener.class, "remote");
+        when(remoteListener.getName()).thenReturn("mylistener");
+        when(remoteListener.getEvents()).thenReturn(Arrays.asList(event));
+        doAnswer(invocation -> this.received.incrementAndGet()).when(remoteListener).onEvent(any(), any(), any());
+        getObservationManager2().addListener(remoteListener);
+
+        // Make sure the channel of the first member is started before counting
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            getObservationManager1().notify(event, "warmup" + i, null);
+        }
+        waitForEvents(BATCH_SIZE);
+        this.messages.set(0);
+        this.received.set(0);
+
+        for (int i = 0; i < EVENTS; ++i) {
+            getObservationManager1().notify(event, "source" + i, null);
+        }
+
+        waitForEvents(EVENTS);
+
+        assertEquals(EVENTS, this.received.get());
+        assertEquals(EVENTS / BATCH_SIZE, this.messages.get());
+    }
+
+    private void waitForEvents(int count) throws InterruptedException
+    {
+        for (int i = 0; i < 300 && this.received.get() < count; ++i) {
+            Thread.sleep(100);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventCoalescer;
+import org.xwiki.observation.remote.test.TestEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Validate {@link RemoteEventBatcher}.
+ *
+ * @version $Id$
+ */
+public class RemoteEventBatcherTest
+{
+    @Test
+    public void coalesceDuplicates()
+    {
+        RemoteEventData event1 = new RemoteEventData(new TestEvent(), "source1", "data");
+        RemoteEventData event2 = new RemoteEventData(new TestEvent(), "source1", "data");
+        RemoteEventData event3 = new RemoteEventData(new TestEvent(), "source2", "data");
+
+        List<RemoteEventData> events =
+            RemoteEventBatcher.coalesce(Arrays.asList(event1, event2, event3), Collections.emptyList());
+
+        assertEquals(2, events.size());
+        assertSame(event2, events.get(0));
+        assertSame(event3, events.get(1));
+    }
+
+    @Test
+    public void coalesceOnlyAdjacentDuplicates()
+    {
+        RemoteEventData event1 = new RemoteEventData(new TestEvent(), "source1", "data");
+        RemoteEventData event2 = new RemoteEventData(new TestEvent(), "source2", "data");
+        RemoteEventData event3 = new RemoteEventData(new TestEvent(), "source1", "data");
+
+        List<RemoteEventData> events =
+            RemoteEventBatcher.coalesce(Arrays.asList(event1, event2, event3), Collections.emptyList());
+
+        assertEquals(3, events.size());
+        assertSame(event1, events.get(0));
+        assertSame(event2, events.get(1));
+        assertSame(event3, events.get(2));
+    }
+
+    @Test
+    public void coalesceWithCoalescer()
+    {
+        RemoteEventData event1 = new RemoteEventData(new TestEvent(), "source1", "data");
+        RemoteEventData event2 = new RemoteEventData(new TestEvent(), "source2", "data");
+        RemoteEventData merged = new RemoteEventData(new TestEvent(), "merged", "data");
+
+        RemoteEventCoalescer coalescer = (previous, next) -> merged;
+
+        List<RemoteEventData> events =
+            RemoteEventBatcher.coalesce(Arrays.asList(event1, event2), Arrays.asList(coalescer));
+
+        assertEquals(1, events.size());
+        assertSame(merged, events.get(0));
+    }
+
+    @Test
+    public void coalesceWithCoalescerOnlyAdjacentEvents()
+    {
+        RemoteEventData event1 = new RemoteEventData(new TestEvent(), "source1", "data");
+        RemoteEventData event2 = new RemoteEventData(new TestEvent(), "other", "data");
+        RemoteEventData event3 = new RemoteEventData(new TestEvent(), "source2", "data");
+        RemoteEventData merged = new RemoteEventData(new TestEvent(), "merged", "data");
+
+        // Only merge the events with a source starting with "source"
+        RemoteEventCoalescer coalescer = (previous, next) -> previous.getSource().toString().startsWith("source")
+            && next.getSource().toString().startsWith("source") ? merged : null;
+
+        List<RemoteEventData> events =
+            RemoteEventBatcher.coalesce(Arrays.asList(event1, event2, event3), Arrays.asList(coalescer));
+
+        assertEquals(3, events.size());
+        assertSame(event1, events.get(0));
+        assertSame(event2, events.get(1));
+        assertSame(event3, events.get(2));
+    }
+
+    @Test
+    public void addAndFlush()
+    {
+        List<List<RemoteEventData>> batches = new ArrayList<>();
+
+        RemoteEventBatcher batcher = new RemoteEventBatcher(60000, 2, batches::add, Collections::emptyList);
+
+        RemoteEventData event1 = new RemoteEventData(new TestEvent(), "source1", null);
+        RemoteEventData event2 = new RemoteEventData(new TestEvent(), "source2", null);
+        RemoteEventData event3 = new RemoteEventData(new TestEvent(), "source3", null);
+
+        batcher.add(event1);
+        batcher.add(event2);
+        batcher.add(event3);
+
+        batcher.dispose();
+
+        assertEquals(Arrays.asList(Arrays.asList(event1, event2), Arrays.asList(event3)), batches);
+    }
+}
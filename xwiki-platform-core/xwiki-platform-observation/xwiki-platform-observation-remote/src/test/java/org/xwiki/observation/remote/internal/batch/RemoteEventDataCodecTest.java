@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.test.TestEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link RemoteEventDataCodec}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class RemoteEventDataCodecTest
+{
+    @InjectMockComponents
+    private RemoteEventDataCodec codec;
+
+    /**
+     * A class which is not supported by the compact format.
+     */
+    public static class ForgedBean
+    {
+        private static int instances;
+
+        private String value;
+
+        public ForgedBean()
+        {
+            ++instances;
+        }
+    }
+
+    @Test
+    public void encodeDecode() throws IOException
+    {
+        HashMap<String, Serializable> source = new HashMap<>();
+        source.put("name", "wiki:space.page");
+        source.put("version", "1.1");
+        source.put("empty", null);
+
+        HashMap<String, Serializable> data = new HashMap<>();
+        data.put("wiki", "wiki");
+
+        RemoteEventData event1 = new RemoteEventData(new TestEvent(), source, data);
+        RemoteEventData event2 = new RemoteEventData(new TestEvent(), "source", null);
+        RemoteEventData event3 = new RemoteEventData(new TestEvent(), source, Boolean.TRUE);
+
+        byte[] buffer = this.codec.encode(Arrays.asList(event1, event2, event3));
+
+        assertTrue(this.codec.isBatch(buffer));
+
+        List<RemoteEventData> events = this.codec.decode(buffer);
+
+        assertEquals(3, events.size());
+        assertEquals(event1.getEvent(), events.get(0).getEvent());
+        assertEquals(source, events.get(0).getSource());
+        assertEquals(data, events.get(0).getData());
+        assertEquals("source", events.get(1).getSource());
+        assertNull(events.get(1).getData());
+        assertEquals(source, events.get(2).getSource());
+        assertEquals(Boolean.TRUE, events.get(2).getData());
+    }
+
+    @Test
+    public void isBatch()
+    {
+        assertFalse(this.codec.isBatch(null));
+        assertFalse(this.codec.isBatch(new byte[0]));
+        assertFalse(this.codec.isBatch(new byte[] { 1, 2, 3, 4, 5, 6 }));
+    }
+
+    @Test
+    public void decodeUnsupportedVersion() throws IOException
+    {
+        byte[] buffer = this.codec.encode(Arrays.asList(new RemoteEventData(new TestEvent(), null, null)));
+
+        // The version is written right after the magic
+        buffer[4] = RemoteEventDataCodec.VERSION + 1;
+
+        assertThrows(IOException.class, () -> this.codec.decode(buffer));
+    }
+
+    @Test
+    public void decodeForgedClass() throws IOException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(new byte[] { 'X', 'R', 'E', 'B' });
+        stream.write(RemoteEventDataCodec.VERSION);
+
+        byte[] className = ForgedBean.class.getName().getBytes(StandardCharsets.UTF_8);
+
+        ObjectOutputStream objectStream = new ObjectOutputStream(stream);
+        // One compact entry
+        objectStream.writeByte(1);
+        objectStream.writeByte(1);
+        // The event is a bean of a new class with a new class name
+        objectStream.writeByte(3);
+        objectStream.writeByte(0);
+        objectStream.writeByte(0);
+        objectStream.writeByte(className.length);
+        objectStream.write(className);
+        objectStream.writeByte(0);
+        objectStream.flush();
+
+        byte[] buffer = stream.toByteArray();
+
+        IOException exception = assertThrows(IOException.class, () -> this.codec.decode(buffer));
+        assertEquals(String.format("Class [%s] is not supported by the compact format", ForgedBean.class.getName()),
+            exception.getMessage());
+        assertEquals(0, ForgedBean.instances);
+    }
+}
@@ -41,6 +41,7 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -2195,6 +2196,36 @@ public XWikiDocument getDocument(DocumentReference reference, XWikiContext conte
         return getDocument(doc, context);
     }
 
+    /**
+     * Load several documents at once. This is much faster than calling
+     * {@link #getDocument(DocumentReference, XWikiContext)} for each document when most of them are not in the cache
+     * since the missing documents are loaded with a constant number of database requests.
+     *
+     * @param references the references of the documents, with the locale of the translation to load if any
+     * @param context see {@link XWikiContext}
+     * @return the documents, in the same order as the passed references (a new document for each reference that does
+     *         not exist)
+     * @throws XWikiException when failing to load the documents
+     * @since 12.6RC1
+     */
+    @Unstable
+    public List<XWikiDocument> getDocuments(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        for (DocumentReference reference : references) {
+            try {
+                // Indicate the the async context manipulated documents
+                getAsyncContext().useEntity(reference.getLocale() != null ? reference
+                    : new DocumentReference(reference, Locale.ROOT));
+            } catch (Exception e) {
+                // If the AsyncContext component does not work then we are not in an asynchronous context anyway
+                LOGGER.debug("Failed to register the document in the asynchronous context", e);
+            }
+        }
+
+        return getStore().loadXWikiDocs(references, context);
+    }
+
     /**
      * @param reference the reference of the page
      * @param context see {@link XWikiContext}
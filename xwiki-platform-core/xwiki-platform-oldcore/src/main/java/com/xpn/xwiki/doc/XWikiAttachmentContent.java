@@ -32,6 +32,7 @@
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.io.output.ProxyOutputStream;
 import org.xwiki.environment.Environment;
+import org.xwiki.stability.Unstable;
 import org.xwiki.store.UnexpectedException;
 
 import com.xpn.xwiki.web.Utils;
@@ -250,6 +251,20 @@ public InputStream getContentInputStream()
         }
     }
 
+    /**
+     * Give access to the file holding the content of the attachment, so that it can be read directly (with positioned
+     * reads, or transferred to another channel without going through a stream).
+     *
+     * @return the file containing exactly the binary content of this attachment, or {@code null} if the content is not
+     *         stored in such a file
+     * @since 12.6RC1
+     */
+    @Unstable
+    public File getContentFile()
+    {
+        return null;
+    }
+
     /**
      * Set the content of the attachment by writing to a provided OutputStream. Content is *not* appended, this method
      * clears the content and creates new content. If you want to append content, you can call
@@ -5264,7 +5264,7 @@ private Set<EntityReference> getUniqueLinkedEntityReferences(XWikiContext contex
                 references = new LinkedHashSet<>();
 
                 // Document content
-                XDOM dom = getXDOM();
+                XDOM dom = getReadOnlyXDOM();
                 getUniqueLinkedEntityReferences(dom, entityType, references);
 
                 // XObjects
@@ -5639,7 +5639,7 @@ private List<String> getIncludedPagesInternal(XWikiContext context)
             return getIncludedPagesForXWiki10Syntax(getContent(), context);
         } else {
             // Find all include macros listed on the page
-            XDOM dom = getXDOM();
+            XDOM dom = getReadOnlyXDOM();
 
             List<String> result = new ArrayList<String>();
             List<MacroBlock> macroBlocks =
@@ -7077,7 +7077,7 @@ private String getDefaultEditModeInternal(XWikiContext context) throws XWikiExce
             // Find all include macros and extract the document names
             // TODO: Is there a good way not to hardcode the macro name? The macro itself shouldn't know
             // its own name since it's a deployment time concern.
-            for (Block macroBlock : getXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
+            for (Block macroBlock : getReadOnlyXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
                 // Find the document reference to include by checking the macro's "reference" parameter.
                 // For backward-compatibility we also check for a "document" parameter since this is the parameter name
                 // that was used prior to XWiki 3.4M1 when the "reference" one was introduced and thus when the
@@ -7807,7 +7807,7 @@ public List<DocumentSection> getSections() throws XWikiException
             return getSections10();
         } else {
             List<DocumentSection> splitSections = new ArrayList<DocumentSection>();
-            List<HeaderBlock> headers = getFilteredHeaders();
+            List<HeaderBlock> headers = getFilteredHeaders(getReadOnlyXDOM());
 
             int sectionNumber = 1;
             for (HeaderBlock header : headers) {
@@ -7817,8 +7817,9 @@ public List<DocumentSection> getSections() throws XWikiException
                 // Need to do the same thing than 1.0 content here
                 String documentSectionLevel = StringUtils.repeat("1.", header.getLevel().getAsInt() - 1) + "1";
 
+                // Work on a copy of the header since creating a new XDOM modifies the parent of its children
                 DocumentSection docSection = new DocumentSection(sectionNumber++, documentSectionIndex,
-                    documentSectionLevel, renderXDOM(new XDOM(header.getChildren()), getSyntax()));
+                    documentSectionLevel, renderXDOM(new XDOM(header.clone().getChildren()), getSyntax()));
                 splitSections.add(docSection);
             }
 
@@ -7845,9 +7846,10 @@ private XWikiContext getXWikiContext()
     /**
      * Filter the headers from a document XDOM based on xwiki.section.depth property from xwiki.cfg file.
      *
+     * @param xdom the XDOM of the document, use {@link #getXDOM()} when the returned headers are going to be modified
      * @return the filtered headers
      */
-    private List<HeaderBlock> getFilteredHeaders()
+    private List<HeaderBlock> getFilteredHeaders(XDOM xdom)
     {
         List<HeaderBlock> filteredHeaders = new ArrayList<HeaderBlock>();
 
@@ -7885,7 +7887,6 @@ private List<HeaderBlock> getFilteredHeaders()
         //
         // Which obviously is not correct...
 
-        final XDOM xdom = getXDOM();
         if (!xdom.getChildren().isEmpty()) {
             Block currentBlock = xdom.getChildren().get(0);
             while (currentBlock != null) {
@@ -7972,10 +7973,11 @@ public String getContentOfSection(int sectionNumber) throws XWikiException
         if (is10Syntax()) {
             content = getContentOfSection10(sectionNumber);
         } else {
-            List<HeaderBlock> headers = getFilteredHeaders();
+            List<HeaderBlock> headers = getFilteredHeaders(getReadOnlyXDOM());
 
             if (headers.size() >= sectionNumber) {
-                SectionBlock section = headers.get(sectionNumber - 1).getSection();
+                // Work on a copy of the section since creating a new XDOM modifies the parent of its children
+                Block section = headers.get(sectionNumber - 1).getSection().clone();
                 content = renderXDOM(new XDOM(Collections.<Block>singletonList(section)), getSyntax());
             }
         }
@@ -8036,8 +8038,8 @@ public String updateDocumentSection(int sectionNumber, String newSectionContent)
         if (is10Syntax()) {
             content = updateDocumentSection10(sectionNumber, newSectionContent);
         } else {
-            // Get the current section block
-            HeaderBlock header = getFilteredHeaders().get(sectionNumber - 1);
+            // Get the current section block from a copy of the XDOM since it's modified below
+            HeaderBlock header = getFilteredHeaders(getXDOM()).get(sectionNumber - 1);
 
             XDOM xdom = (XDOM) header.getRoot();
 
@@ -8536,16 +8538,49 @@ public void convertSyntax(Syntax targetSyntax, XWikiContext context) throws XWik
     @Override
     public XDOM getXDOM()
     {
-        if (this.xdomCache == null) {
-            try {
-                this.xdomCache = parseContent(getContent());
-            } catch (XWikiException e) {
-                ErrorBlockGenerator errorBlockGenerator = Utils.getComponent(ErrorBlockGenerator.class);
-                return new XDOM(errorBlockGenerator.generateErrorBlocks("Failed to render content", e, false));
-            }
+        try {
+            return getCachedXDOM().clone();
+        } catch (XWikiException e) {
+            return getErrorXDOM(e);
         }
+    }
+
+    /**
+     * Same as {@link #getXDOM()} but return the cached XDOM itself instead of a clone, which is a lot cheaper for big
+     * contents.
+     * <p>
+     * The returned XDOM is shared by all the callers of this document instance so it must never be modified in any way
+     * (including executing transformations on it). Use {@link #getXDOM()} to get a copy which can be safely modified.
+     *
+     * @return the XDOM corresponding to the document's string content
+     * @since 12.6RC1
+     */
+    public XDOM getReadOnlyXDOM()
+    {
+        try {
+            return getCachedXDOM();
+        } catch (XWikiException e) {
+            return getErrorXDOM(e);
+        }
+    }
+
+    private XDOM getCachedXDOM() throws XWikiException
+    {
+        XDOM xdom = this.xdomCache;
+
+        if (xdom == null) {
+            xdom = parseContent(getContent());
+            this.xdomCache = xdom;
+        }
+
+        return xdom;
+    }
+
+    private XDOM getErrorXDOM(XWikiException e)
+    {
+        ErrorBlockGenerator errorBlockGenerator = Utils.getComponent(ErrorBlockGenerator.class);
 
-        return this.xdomCache.clone();
+        return new XDOM(errorBlockGenerator.generateErrorBlocks("Failed to render content", e, false));
     }
 
     /**
@@ -0,0 +1,678 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Singleton;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.LocaleUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.syntax.Syntax;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseCollection;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.DBStringListProperty;
+import com.xpn.xwiki.objects.DateProperty;
+import com.xpn.xwiki.objects.DoubleProperty;
+import com.xpn.xwiki.objects.FloatProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
+import com.xpn.xwiki.objects.LargeStringProperty;
+import com.xpn.xwiki.objects.LongProperty;
+import com.xpn.xwiki.objects.StringListProperty;
+import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+/**
+ * Compact binary representation of a {@link XWikiDocument} (including its class, objects and attachments metadata).
+ * <p>
+ * It's a lot cheaper to produce and to parse than the XML representation and is meant to be used to deep copy
+ * documents, store them outside of the heap or send them to other cluster members. The format starts with a version
+ * number so that a document encoded by a different version of the codec is rejected instead of being misread. The
+ * document archive is not part of the format, and the content of an attachment is included only when it's already
+ * loaded.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = XWikiDocumentBinaryCodec.class)
+@Singleton
+public class XWikiDocumentBinaryCodec
+{
+    /**
+     * The version of the format produced by this codec. Must be incremented each time the format changes.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x58574443;
+
+    private static final byte VALUE_NULL = 0;
+
+    private static final byte VALUE_STRING = 1;
+
+    private static final byte VALUE_INTEGER = 2;
+
+    private static final byte VALUE_LONG = 3;
+
+    private static final byte VALUE_FLOAT = 4;
+
+    private static final byte VALUE_DOUBLE = 5;
+
+    private static final byte VALUE_DATE = 6;
+
+    private static final byte VALUE_LIST = 7;
+
+    private static final String[] PROPERTY_TYPES = { StringProperty.class.getName(),
+        LargeStringProperty.class.getName(), IntegerProperty.class.getName(), LongProperty.class.getName(),
+        FloatProperty.class.getName(), DoubleProperty.class.getName(), DateProperty.class.getName(),
+        StringListProperty.class.getName(), DBStringListProperty.class.getName() };
+
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+
+    /**
+     * @param document the document to encode
+     * @return the binary representation of the document
+     * @throws IOException when failing to encode the document
+     */
+    public byte[] encode(XWikiDocument document) throws IOException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        encode(document, stream);
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @param document the document to encode
+     * @param stream the stream where to write the binary representation of the document
+     * @throws IOException when failing to encode the document
+     */
+    public void encode(XWikiDocument document, OutputStream stream) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+
+        writeDocument(document, output);
+
+        output.flush();
+    }
+
+    /**
+     * @param bytes the binary representation of the document
+     * @return the decoded document
+     * @throws IOException when failing to decode the document
+     */
+    public XWikiDocument decode(byte[] bytes) throws IOException
+    {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * @param stream the stream to read the binary representation of the document from
+     * @return the decoded document
+     * @throws IOException when failing to decode the document
+     */
+    public XWikiDocument decode(InputStream stream) throws IOException
+    {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(stream));
+
+        if (input.readInt() != MAGIC) {
+            throw new IOException("The stream does not contain a binary encoded document");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported binary document format version [%s]", version));
+        }
+
+        return readDocument(input);
+    }
+
+    /**
+     * Create a deep copy of the passed document (with the same identity).
+     *
+     * @param document the document to copy
+     * @return a copy of the document
+     * @throws IOException when failing to copy the document
+     */
+    public XWikiDocument copy(XWikiDocument document) throws IOException
+    {
+        return decode(encode(document));
+    }
+
+    // Document
+
+    private void writeDocument(XWikiDocument document, DataOutputStream output) throws IOException
+    {
+        writeReference(document.getDocumentReference(), output);
+        writeLocale(document.getLocale(), output);
+        writeLocale(document.getDefaultLocale(), output);
+
+        output.writeLong(document.getId());
+        writeString(document.getVersion(), output);
+        writeReference(document.getRelativeParentReference(), output);
+        writeString(document.getTitle(), output);
+        writeString(document.getContent(), output);
+        writeString(document.getSyntax() != null ? document.getSyntax().toIdString() : null, output);
+        writeReference(document.getCreatorReference(), output);
+        writeReference(document.getAuthorReference(), output);
+        writeReference(document.getContentAuthorReference(), output);
+        writeDate(document.getCreationDate(), output);
+        writeDate(document.getDate(), output);
+        writeDate(document.getContentUpdateDate(), output);
+        writeString(document.getComment(), output);
+        output.writeBoolean(document.isMinorEdit());
+        writeString(document.getFormat(), output);
+        writeString(document.getMeta(), output);
+        writeString(document.getCustomClass(), output);
+        writeString(document.getDefaultTemplate(), output);
+        writeString(document.getValidationScript(), output);
+        writeReference(document.getTemplateDocumentReference(), output);
+        writeString(document.getXClassXML(), output);
+        output.writeInt(document.getElements());
+        output.writeBoolean(Boolean.TRUE.equals(document.isHidden()));
+        output.writeBoolean(document.isNew());
+        output.writeBoolean(document.isMostRecent());
+
+        writeClass(document.getXClass(), output);
+
+        Map<DocumentReference, List<BaseObject>> xobjects = document.getXObjects();
+        output.writeInt(xobjects.size());
+        for (Map.Entry<DocumentReference, List<BaseObject>> entry : xobjects.entrySet()) {
+            writeReference(entry.getKey(), output);
+            output.writeInt(entry.getValue().size());
+            for (BaseObject xobject : entry.getValue()) {
+                writeObject(xobject, output);
+            }
+        }
+
+        List<XWikiAttachment> attachments = document.getAttachmentList();
+        output.writeInt(attachments.size());
+        for (XWikiAttachment attachment : attachments) {
+            writeAttachment(attachment, output);
+        }
+
+        output.writeBoolean(document.isContentDirty());
+        output.writeBoolean(document.isMetaDataDirty());
+    }
+
+    private XWikiDocument readDocument(DataInputStream input) throws IOException
+    {
+        DocumentReference documentReference = new DocumentReference(readReference(input));
+        XWikiDocument document = new XWikiDocument(documentReference, readLocale(input));
+        document.setDefaultLocale(readLocale(input));
+
+        document.setId(input.readLong());
+        document.setVersion(readString(input));
+        document.setParentReference(readReference(input));
+        document.setTitle(readString(input));
+        document.setContent(readString(input));
+        document.setSyntax(readSyntax(input));
+        document.setCreatorReference(readDocumentReference(input));
+        document.setAuthorReference(readDocumentReference(input));
+        document.setContentAuthorReference(readDocumentReference(input));
+        document.setCreationDate(readDate(input));
+        document.setDate(readDate(input));
+        document.setContentUpdateDate(readDate(input));
+        document.setComment(readString(input));
+        document.setMinorEdit(input.readBoolean());
+        document.setFormat(readString(input));
+        document.setMeta(readString(input));
+        document.setCustomClass(readString(input));
+        document.setDefaultTemplate(readString(input));
+        document.setValidationScript(readString(input));
+        document.setTemplateDocumentReference(readDocumentReference(input));
+        document.setXClassXML(readString(input));
+        document.setElements(input.readInt());
+        document.setHidden(input.readBoolean());
+        document.setNew(input.readBoolean());
+        document.setMostRecent(input.readBoolean());
+
+        document.setXClass(readClass(input));
+
+        int classCount = input.readInt();
+        for (int i = 0; i < classCount; ++i) {
+            DocumentReference classReference = readDocumentReference(input);
+            int objectCount = input.readInt();
+            for (int j = 0; j < objectCount; ++j) {
+                document.addXObject(classReference, readObject(input));
+            }
+        }
+
+        int attachmentCount = input.readInt();
+        for (int i = 0; i < attachmentCount; ++i) {
+            readAttachment(document, input);
+        }
+
+        document.setContentDirty(input.readBoolean());
+        document.setMetaDataDirty(input.readBoolean());
+
+        return document;
+    }
+
+    // Class
+
+    private void writeClass(BaseClass xclass, DataOutputStream output) throws IOException
+    {
+        writeString(xclass.getCustomMapping(), output);
+        writeString(xclass.getCustomClass(), output);
+        writeString(xclass.getDefaultWeb(), output);
+        writeString(xclass.getDefaultViewSheet(), output);
+        writeString(xclass.getDefaultEditSheet(), output);
+        writeString(xclass.getValidationScript(), output);
+        writeString(xclass.getNameField(), output);
+
+        Collection<Object> properties = xclass.getFieldList();
+        output.writeInt(properties.size());
+        for (Object property : properties) {
+            PropertyClass propertyClass = (PropertyClass) property;
+
+            writeString(propertyClass.getClass().getName(), output);
+            writeString(propertyClass.getName(), output);
+            writeProperties(propertyClass, output);
+        }
+    }
+
+    private BaseClass readClass(DataInputStream input) throws IOException
+    {
+        BaseClass xclass = new BaseClass();
+
+        xclass.setCustomMapping(readString(input));
+        xclass.setCustomClass(readString(input));
+        xclass.setDefaultWeb(readString(input));
+        xclass.setDefaultViewSheet(readString(input));
+        xclass.setDefaultEditSheet(readString(input));
+        xclass.setValidationScript(readString(input));
+        xclass.setNameField(readString(input));
+
+        int propertyCount = input.readInt();
+        for (int i = 0; i < propertyCount; ++i) {
+            PropertyClass propertyClass = newInstance(readString(input), PropertyClass.class);
+
+            propertyClass.setName(readString(input));
+            propertyClass.setObject(xclass);
+            readProperties(propertyClass, input);
+
+            xclass.safeput(propertyClass.getName(), propertyClass);
+        }
+
+        return xclass;
+    }
+
+    // Object
+
+    private void writeObject(BaseObject xobject, DataOutputStream output) throws IOException
+    {
+        if (xobject == null) {
+            output.writeBoolean(false);
+        } else {
+            output.writeBoolean(true);
+
+            writeString(xobject.getClass() != BaseObject.class ? xobject.getClass().getName() : null, output);
+            writeReference(xobject.getRelativeXClassReference(), output);
+            writeString(xobject.getGuid(), output);
+            writeProperties(xobject, output);
+        }
+    }
+
+    private BaseObject readObject(DataInputStream input) throws IOException
+    {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        String objectClass = readString(input);
+        BaseObject xobject = objectClass != null ? newInstance(objectClass, BaseObject.class) : new BaseObject();
+
+        xobject.setXClassReference(readReference(input));
+        xobject.setGuid(readString(input));
+        readProperties(xobject, input);
+
+        return xobject;
+    }
+
+    // Properties
+
+    private void writeProperties(BaseCollection<?> collection, DataOutputStream output) throws IOException
+    {
+        Collection<Object> properties = collection.getFieldList();
+        output.writeInt(properties.size());
+        for (Object property : properties) {
+            BaseProperty<?> baseProperty = (BaseProperty<?>) property;
+
+            String type = baseProperty.getClass().getName();
+            int typeIndex = indexOfType(type);
+            output.writeByte(typeIndex);
+            if (typeIndex == PROPERTY_TYPES.length) {
+                writeString(type, output);
+            }
+            writeString(baseProperty.getName(), output);
+            writeValue(baseProperty.getValue(), output);
+        }
+    }
+
+    private void readProperties(BaseCollection<?> collection, DataInputStream input) throws IOException
+    {
+        int propertyCount = input.readInt();
+        for (int i = 0; i < propertyCount; ++i) {
+            int typeIndex = input.readUnsignedByte();
+            String type = typeIndex < PROPERTY_TYPES.length ? PROPERTY_TYPES[typeIndex] : readString(input);
+
+            BaseProperty<?> property = newInstance(type, BaseProperty.class);
+            property.setName(readString(input));
+            property.setValue(readValue(input));
+
+            collection.safeput(property.getName(), property);
+        }
+    }
+
+    private int indexOfType(String type)
+    {
+        for (int i = 0; i < PROPERTY_TYPES.length; ++i) {
+            if (PROPERTY_TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+
+        return PROPERTY_TYPES.length;
+    }
+
+    private void writeValue(Object value, DataOutputStream output) throws IOException
+    {
+        if (value == null) {
+            output.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            output.writeByte(VALUE_STRING);
+            writeString((String) value, output);
+        } else if (value instanceof Integer) {
+            output.writeByte(VALUE_INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(VALUE_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            output.writeByte(VALUE_FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            output.writeByte(VALUE_DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Date) {
+            output.writeByte(VALUE_DATE);
+            output.writeLong(((Date) value).getTime());
+        } else if (value instanceof List) {
+            output.writeByte(VALUE_LIST);
+            List<?> list = (List<?>) value;
+            output.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(element, output);
+            }
+        } else {
+            throw new IOException(String.format("Unsupported property value type [%s]", value.getClass()));
+        }
+    }
+
+    private Object readValue(DataInputStream input) throws IOException
+    {
+        byte type = input.readByte();
+
+        switch (type) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_STRING:
+                return readString(input);
+            case VALUE_INTEGER:
+                return input.readInt();
+            case VALUE_LONG:
+                return input.readLong();
+            case VALUE_FLOAT:
+                return input.readFloat();
+            case VALUE_DOUBLE:
+                return input.readDouble();
+            case VALUE_DATE:
+                return new Date(input.readLong());
+            case VALUE_LIST:
+                int size = input.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; ++i) {
+                    list.add(readValue(input));
+                }
+                return list;
+            default:
+                throw new IOException(String.format("Unknown property value type [%s]", type));
+        }
+    }
+
+    // Attachment
+
+    private void writeAttachment(XWikiAttachment attachment, DataOutputStream output) throws IOException
+    {
+        writeString(attachment.getFilename(), output);
+        output.writeLong(attachment.getId());
+        writeString(attachment.getVersion(), output);
+        writeReference(attachment.getAuthorReference(), output);
+        writeDate(attachment.getDate(), output);
+        writeString(attachment.getComment(), output);
+        writeString(attachment.getMimeType(), output);
+        writeString(attachment.getCharset(), output);
+        writeString(attachment.isContentStoreSet() ? attachment.getContentStore() : null, output);
+        writeString(attachment.isArchiveStoreSet() ? attachment.getArchiveStore() : null, output);
+        output.writeLong(attachment.getLongSize());
+
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+        if (content != null) {
+            output.writeBoolean(true);
+            output.writeBoolean(content.isContentDirty());
+            byte[] bytes;
+            try (InputStream stream = content.getContentInputStream()) {
+                bytes = IOUtils.toByteArray(stream);
+            }
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        } else {
+            output.writeBoolean(false);
+        }
+
+        output.writeBoolean(attachment.isMetaDataDirty());
+    }
+
+    private void readAttachment(XWikiDocument document, DataInputStream input) throws IOException
+    {
+        XWikiAttachment attachment = new XWikiAttachment(document, readString(input));
+
+        attachment.setId(input.readLong());
+        attachment.setVersion(readString(input));
+        attachment.setAuthorReference(readDocumentReference(input));
+        attachment.setDate(readDate(input));
+        attachment.setComment(readString(input));
+        attachment.setMimeType(readString(input));
+        attachment.setCharset(readString(input));
+        String contentStore = readString(input);
+        if (contentStore != null) {
+            attachment.setContentStore(contentStore);
+        }
+        String archiveStore = readString(input);
+        if (archiveStore != null) {
+            attachment.setArchiveStore(archiveStore);
+        }
+        long size = input.readLong();
+        if (size >= 0) {
+            attachment.setLongSize(size);
+        }
+
+        document.setAttachment(attachment);
+
+        if (input.readBoolean()) {
+            boolean contentDirty = input.readBoolean();
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+
+            XWikiAttachmentContent content = new XWikiAttachmentContent(attachment);
+            content.setContent(new ByteArrayInputStream(bytes));
+            content.setContentDirty(contentDirty);
+            attachment.setAttachment_content(content);
+        }
+
+        attachment.setMetaDataDirty(input.readBoolean());
+    }
+
+    // Tools
+
+    private <T> T newInstance(String className, Class<T> type) throws IOException
+    {
+        Class<?> clazz;
+        try {
+            // Don't initialize the class before making sure it's of the expected type
+            clazz = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+        } catch (Exception e) {
+            throw new IOException(String.format("Failed to load class [%s]", className), e);
+        }
+
+        if (!type.isAssignableFrom(clazz)) {
+            throw new IOException(String.format("Class [%s] is not a [%s]", className, type.getName()));
+        }
+
+        try {
+            return type.cast(clazz.getConstructor().newInstance());
+        } catch (Exception e) {
+            throw new IOException(String.format("Failed to create an instance of [%s]", className), e);
+        }
+    }
+
+    private void writeString(String value, DataOutputStream output) throws IOException
+    {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private String readString(DataInputStream input) throws IOException
+    {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeDate(Date date, DataOutputStream output) throws IOException
+    {
+        output.writeBoolean(date != null);
+        if (date != null) {
+            output.writeLong(date.getTime());
+        }
+    }
+
+    private Date readDate(DataInputStream input) throws IOException
+    {
+        return input.readBoolean() ? new Date(input.readLong()) : null;
+    }
+
+    private void writeLocale(Locale locale, DataOutputStream output) throws IOException
+    {
+        writeString(locale != null ? locale.toString() : null, output);
+    }
+
+    private Locale readLocale(DataInputStream input) throws IOException
+    {
+        String locale = readString(input);
+
+        return locale != null ? LocaleUtils.toLocale(locale) : null;
+    }
+
+    private Syntax readSyntax(DataInputStream input) throws IOException
+    {
+        String syntax = readString(input);
+
+        try {
+            return syntax != null ? Syntax.valueOf(syntax) : null;
+        } catch (ParseException e) {
+            throw new IOException(String.format("Failed to parse syntax [%s]", syntax), e);
+        }
+    }
+
+    private void writeReference(EntityReference reference, DataOutputStream output) throws IOException
+    {
+        if (reference == null) {
+            output.writeByte(0);
+        } else {
+            List<EntityReference> elements = reference.getReversedReferenceChain();
+            output.writeByte(elements.size());
+            for (EntityReference element : elements) {
+                output.writeByte(element.getType().ordinal());
+                writeString(element.getName(), output);
+            }
+        }
+    }
+
+    private EntityReference readReference(DataInputStream input) throws IOException
+    {
+        int size = input.readUnsignedByte();
+
+        EntityReference reference = null;
+        for (int i = 0; i < size; ++i) {
+            EntityType type = ENTITY_TYPES[input.readUnsignedByte()];
+            reference = new EntityReference(readString(input), type, reference);
+        }
+
+        return reference;
+    }
+
+    private DocumentReference readDocumentReference(DataInputStream input) throws IOException
+    {
+        EntityReference reference = readReference(input);
+
+        return reference != null ? new DocumentReference(reference) : null;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.event;
+
+import org.xwiki.observation.event.Event;
+
+/**
+ * Event sent after all the documents saved in parallel by an import are saved.
+ * <p>
+ * The event also send the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: null</li>
+ * <li>data: the {@link java.util.Collection} of {@link org.xwiki.model.reference.DocumentReference} of the imported
+ * documents (with their locale)</li>
+ * </ul>
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ * @see DocumentsImportingEvent
+ */
+public class DocumentsImportedEvent implements Event
+{
+    /**
+     * Unique instance of {@link DocumentsImportedEvent}.
+     */
+    public static final DocumentsImportedEvent EVENT = new DocumentsImportedEvent();
+
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return otherEvent instanceof DocumentsImportedEvent;
+    }
+}
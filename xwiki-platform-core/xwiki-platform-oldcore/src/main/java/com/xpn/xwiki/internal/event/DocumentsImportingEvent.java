@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.event;
+
+import org.xwiki.observation.event.BeginEvent;
+
+/**
+ * Event sent by the threads saving imported documents in parallel before saving a document. The events triggered by
+ * the save are not folded (the event stream records them as usual) but the listeners which are able to do it (Solr
+ * indexing, etc.) can skip them and wait for {@link DocumentsImportedEvent} to process the imported documents in
+ * batch.
+ * <p>
+ * The event also send the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: null</li>
+ * <li>data: the current {@link com.xpn.xwiki.XWikiContext} instance</li>
+ * </ul>
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class DocumentsImportingEvent implements BeginEvent
+{
+    /**
+     * Unique instance of {@link DocumentsImportingEvent}.
+     */
+    public static final DocumentsImportingEvent EVENT = new DocumentsImportingEvent();
+
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return otherEvent instanceof DocumentsImportingEvent;
+    }
+}
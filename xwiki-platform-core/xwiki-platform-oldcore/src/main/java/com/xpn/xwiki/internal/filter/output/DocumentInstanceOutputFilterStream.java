@@ -20,17 +20,35 @@
 package com.xpn.xwiki.internal.filter.output;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
 import org.xwiki.filter.FilterDescriptorManager;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
@@ -42,11 +60,16 @@
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.observation.ObservationContext;
+import org.xwiki.observation.ObservationManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.internal.event.DocumentsImportedEvent;
+import com.xpn.xwiki.internal.event.DocumentsImportingEvent;
+import com.xpn.xwiki.internal.event.XARImportingEvent;
 import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
 
 /**
@@ -68,6 +91,13 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
     private static final TranslationMarker LOG_DOCUMENT_FAILSAVE =
         new TranslationMarker("filter.instance.log.document.failsave", WikiDocumentFilter.LOG_DOCUMENT_ERROR);
 
+    /**
+     * The context entries of the import copied in the context of the threads saving the documents.
+     */
+    private static final List<String> CONTEXT_ENTRIES = Arrays.asList("wiki", "user", "author", "locale");
+
+    private static final XARImportingEvent XAR_IMPORTING = new XARImportingEvent();
+
     @Inject
     private FilterDescriptorManager filterManager;
 
@@ -89,6 +119,21 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
     @Inject
     private EntityOutputFilterStream<XWikiDocument> documentListener;
 
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private ObservationManager observation;
+
+    @Inject
+    private ObservationContext observationContext;
+
+    @Inject
+    private ContextStoreManager contextStore;
+
     @Inject
     private Logger logger;
 
@@ -98,6 +143,28 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
 
     private FilterEventParameters currentRevisionParameters;
 
+    /**
+     * The threads saving the documents when {@link DocumentInstanceOutputProperties#getSaveThreads()} is greater than
+     * 1.
+     */
+    private ExecutorService saveExecutor;
+
+    /**
+     * Limit the number of documents waiting to be saved to keep the memory used by the import bounded.
+     */
+    private Semaphore saveSlots;
+
+    /**
+     * The saves in progress indexed by document reference (without locale). Used to save the various locales and
+     * revisions of a document in order and the class documents before the documents containing objects of those
+     * classes.
+     */
+    private final Map<DocumentReference, CompletableFuture<Void>> pendingSaves = new ConcurrentHashMap<>();
+
+    private final List<DocumentReference> savedDocuments = new ArrayList<>();
+
+    private volatile FilterException saveError;
+
     private XWikiDocumentOutputFilterStream getXWikiDocumentOutputFilterStream()
     {
         return (XWikiDocumentOutputFilterStream) this.documentListener;
@@ -112,7 +179,32 @@ protected Object createFilter() throws FilterException
     @Override
     public void close() throws IOException
     {
-        // Nothing to close
+        if (this.saveExecutor != null) {
+            try {
+                // Wait for all the documents to be saved
+                CompletableFuture.allOf(this.pendingSaves.values().toArray(new CompletableFuture[0])).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new IOException("Interrupted while waiting for the documents to be saved", e);
+            } catch (ExecutionException e) {
+                // Already logged by the save thread
+            } finally {
+                this.saveExecutor.shutdown();
+                this.saveExecutor = null;
+            }
+
+            // Let the listeners process all the imported documents in one go
+            Collection<DocumentReference> documents;
+            synchronized (this.savedDocuments) {
+                documents = new ArrayList<>(this.savedDocuments);
+            }
+            this.observation.notify(DocumentsImportedEvent.EVENT, null, documents);
+
+            if (this.saveError != null) {
+                throw new IOException("Failed to save documents", this.saveError);
+            }
+        }
     }
 
     @Override
@@ -121,6 +213,13 @@ public void setProperties(DocumentInstanceOutputProperties properties) throws Fi
         super.setProperties(properties);
 
         this.documentListener.setProperties(properties);
+
+        if (properties.getSaveThreads() > 1) {
+            this.saveExecutor = Executors.newFixedThreadPool(properties.getSaveThreads(),
+                new BasicThreadFactory.Builder().namingPattern("XWiki document import thread %d").daemon(true)
+                    .build());
+            this.saveSlots = new Semaphore(properties.getSaveThreads() * 2);
+        }
     }
 
     // Events
@@ -192,111 +291,210 @@ private void maybeSaveDocument() throws FilterException
             return;
         }
 
-        boolean hasJRCSHistory = inputDocument.getDocumentArchive() != null;
+        if (this.saveExecutor != null) {
+            submitSaveDocument(inputDocument);
+        } else {
+            try {
+                saveDocument(inputDocument, this.firstVersion, this.xcontextProvider.get());
+            } catch (Exception e) {
+                this.logger.error(LOG_DOCUMENT_FAILSAVE, "Failed to save document [{}]",
+                    inputDocument.getDocumentReferenceWithLocale(), e);
+
+                if (this.properties.isStoppedWhenSaveFail()) {
+                    throw new FilterException("Failed to save document", e);
+                }
+            }
+        }
+    }
 
-        XWikiContext xcontext = this.xcontextProvider.get();
+    private void submitSaveDocument(XWikiDocument inputDocument) throws FilterException
+    {
+        if (this.saveError != null) {
+            throw this.saveError;
+        }
 
+        // Wait for a slot to keep the number of documents in memory bounded
         try {
-            XWikiDocument databaseDocument =
-                xcontext.getWiki().getDocument(inputDocument.getDocumentReferenceWithLocale(), xcontext);
+            this.saveSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
 
-            // Remember if it's a creation or an update
-            boolean isnew = databaseDocument.isNew();
+            throw new FilterException("Interrupted while waiting to save document", e);
+        }
 
-            // Make sure document's attachments content are loaded from the store
-            databaseDocument.loadAttachmentsContentSafe(xcontext);
+        DocumentReference documentReference = inputDocument.getDocumentReference();
 
-            XWikiDocument document;
-            if (this.firstVersion && this.properties.isPreviousDeleted()) {
-                // We want to replace the existing document
-                document = inputDocument;
+        // Make sure previous locales/revisions of the document and the classes it's using are saved first
+        List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+        addDependency(documentReference, dependencies);
+        for (DocumentReference classReference : inputDocument.getXObjects().keySet()) {
+            addDependency(classReference, dependencies);
+        }
 
-                // But it's still an update from outside world point of view
-                document.setOriginalDocument(databaseDocument);
-            } else {
-                // Safer to clone for thread safety and in case the save fail
-                document = databaseDocument.clone();
+        boolean documentFirstVersion = this.firstVersion;
+        Map<String, Serializable> contextEntries;
+        try {
+            contextEntries = this.contextStore.save(CONTEXT_ENTRIES);
+        } catch (ComponentLookupException e) {
+            this.saveSlots.release();
+
+            throw new FilterException("Failed to save the context of the import", e);
+        }
+        // Make the saves listeners behave like when the documents are saved by the import thread
+        boolean xarImport = this.observationContext.isIn(XAR_IMPORTING);
 
-                // We want to update the existing document
-                document.apply(inputDocument);
+        CompletableFuture<Void> future =
+            CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0])).handleAsync((result, error) -> {
+                saveDocumentInThread(inputDocument, documentFirstVersion, contextEntries, xarImport);
 
-                // Get the version from the input document
-                document.setMinorEdit(inputDocument.isMinorEdit());
+                return null;
+            }, this.saveExecutor);
 
-                // Copy input document authors if they should be preserved
-                if (this.properties.isAuthorPreserved()) {
-                    setAuthors(document, inputDocument);
-                }
+        this.pendingSaves.put(documentReference, future);
+
+        future.whenComplete((result, error) -> {
+            this.pendingSaves.remove(documentReference, future);
+            this.saveSlots.release();
+        });
+    }
+
+    private void addDependency(DocumentReference reference, List<CompletableFuture<Void>> dependencies)
+    {
+        CompletableFuture<Void> future = this.pendingSaves.get(reference);
+        if (future != null) {
+            dependencies.add(future);
+        }
+    }
+
+    private void saveDocumentInThread(XWikiDocument inputDocument, boolean documentFirstVersion,
+        Map<String, Serializable> contextEntries, boolean xarImport)
+    {
+        try {
+            // Each save gets its own XWiki context, initialized with the main information of the import context
+            this.executionContextManager.initialize(new ExecutionContext());
+            this.contextStore.restore(contextEntries);
+            XWikiContext xcontext = this.xcontextProvider.get();
+
+            // The context is removed right after the save so there is no need to send the corresponding end events
+            if (xarImport) {
+                this.observation.notify(new XARImportingEvent(), null, xcontext);
             }
+            this.observation.notify(DocumentsImportingEvent.EVENT, null, xcontext);
 
-            // Authors
+            saveDocument(inputDocument, documentFirstVersion, xcontext);
 
-            if (!this.properties.isAuthorPreserved()) {
-                if (this.properties.isAuthorSet()) {
-                    setAuthorReference(document, this.properties.getAuthor());
-                } else {
-                    setAuthorReference(document, xcontext.getUserReference());
-                }
-                document.setContentAuthorReference(document.getAuthorReference());
-                if (document.isNew()) {
-                    document.setCreatorReference(document.getAuthorReference());
-                }
+            synchronized (this.savedDocuments) {
+                this.savedDocuments.add(inputDocument.getDocumentReferenceWithLocale());
             }
+        } catch (Exception e) {
+            this.logger.error(LOG_DOCUMENT_FAILSAVE, "Failed to save document [{}]",
+                inputDocument.getDocumentReferenceWithLocale(), e);
 
-            // Version related information and save
+            if (this.properties.isStoppedWhenSaveFail() && this.saveError == null) {
+                this.saveError = new FilterException("Failed to save document", e);
+            }
+        } finally {
+            this.execution.removeContext();
+        }
+    }
 
-            if (this.properties.isVersionPreserved()) {
-                // Make sure to use metadata coming from the input document
-                document.setVersion(inputDocument.getVersion());
-                document.setDate(inputDocument.getDate());
-                document.setContentUpdateDate(inputDocument.getContentUpdateDate());
-                for (XWikiAttachment attachment : document.getAttachmentList()) {
-                    attachment.setVersion(inputDocument.getAttachment(attachment.getFilename()).getVersion());
-                }
-                if (document.isNew()) {
-                    document.setCreationDate(inputDocument.getCreationDate());
-                    document.setDocumentArchive(inputDocument.getDocumentArchive());
-                }
+    private void saveDocument(XWikiDocument inputDocument, boolean documentFirstVersion, XWikiContext xcontext)
+        throws Exception
+    {
+        boolean hasJRCSHistory = inputDocument.getDocumentArchive() != null;
 
-                // Make sure the document is stored exactly as is (don't increment version, etc.)
-                document.setMetaDataDirty(false);
-                document.setContentDirty(false);
-                document.getAttachmentList().forEach(a -> a.setMetaDataDirty(false));
-
-                xcontext.getWiki().saveDocument(document, inputDocument.getComment(), inputDocument.isMinorEdit(),
-                    xcontext);
-
-                if (!hasJRCSHistory) {
-                    // Not a JRCS based history document
-                    // Explicitly update the history because the store won't do it automatically (because
-                    // metadata/content dirty is false)
-                    XWikiVersioningStoreInterface versioningStore = document.getVersioningStore(xcontext);
-                    if (versioningStore != null) {
-                        versioningStore.updateXWikiDocArchive(document, true, xcontext);
-                    }
-                }
+        XWikiDocument databaseDocument =
+            xcontext.getWiki().getDocument(inputDocument.getDocumentReferenceWithLocale(), xcontext);
+
+        // Remember if it's a creation or an update
+        boolean isnew = databaseDocument.isNew();
+
+        // Make sure document's attachments content are loaded from the store
+        databaseDocument.loadAttachmentsContentSafe(xcontext);
+
+        XWikiDocument document;
+        if (documentFirstVersion && this.properties.isPreviousDeleted()) {
+            // We want to replace the existing document
+            document = inputDocument;
+
+            // But it's still an update from outside world point of view
+            document.setOriginalDocument(databaseDocument);
+        } else {
+            // Safer to clone for thread safety and in case the save fail
+            document = databaseDocument.clone();
+
+            // We want to update the existing document
+            document.apply(inputDocument);
+
+            // Get the version from the input document
+            document.setMinorEdit(inputDocument.isMinorEdit());
+
+            // Copy input document authors if they should be preserved
+            if (this.properties.isAuthorPreserved()) {
+                setAuthors(document, inputDocument);
+            }
+        }
+
+        // Authors
+
+        if (!this.properties.isAuthorPreserved()) {
+            if (this.properties.isAuthorSet()) {
+                setAuthorReference(document, this.properties.getAuthor());
             } else {
-                // Forget the input history to let the store do its standard job
-                document.setDocumentArchive((XWikiDocumentArchive) null);
+                setAuthorReference(document, xcontext.getUserReference());
+            }
+            document.setContentAuthorReference(document.getAuthorReference());
+            if (document.isNew()) {
+                document.setCreatorReference(document.getAuthorReference());
+            }
+        }
+
+        // Version related information and save
 
-                xcontext.getWiki().saveDocument(document, this.properties.getSaveComment(), xcontext);
+        if (this.properties.isVersionPreserved()) {
+            // Make sure to use metadata coming from the input document
+            document.setVersion(inputDocument.getVersion());
+            document.setDate(inputDocument.getDate());
+            document.setContentUpdateDate(inputDocument.getContentUpdateDate());
+            for (XWikiAttachment attachment : document.getAttachmentList()) {
+                attachment.setVersion(inputDocument.getAttachment(attachment.getFilename()).getVersion());
+            }
+            if (document.isNew()) {
+                document.setCreationDate(inputDocument.getCreationDate());
+                document.setDocumentArchive(inputDocument.getDocumentArchive());
             }
 
-            if (this.properties.isVerbose()) {
-                if (isnew) {
-                    this.logger.info(LOG_DOCUMENT_CREATED, "Created document [{}]",
-                        document.getDocumentReferenceWithLocale());
-                } else {
-                    this.logger.info(LOG_DOCUMENT_UPDATED, "Updated document [{}]",
-                        document.getDocumentReferenceWithLocale());
+            // Make sure the document is stored exactly as is (don't increment version, etc.)
+            document.setMetaDataDirty(false);
+            document.setContentDirty(false);
+            document.getAttachmentList().forEach(a -> a.setMetaDataDirty(false));
+
+            xcontext.getWiki().saveDocument(document, inputDocument.getComment(), inputDocument.isMinorEdit(),
+                xcontext);
+
+            if (!hasJRCSHistory) {
+                // Not a JRCS based history document
+                // Explicitly update the history because the store won't do it automatically (because
+                // metadata/content dirty is false)
+                XWikiVersioningStoreInterface versioningStore = document.getVersioningStore(xcontext);
+                if (versioningStore != null) {
+                    versioningStore.updateXWikiDocArchive(document, true, xcontext);
                 }
             }
-        } catch (Exception e) {
-            this.logger.error(LOG_DOCUMENT_FAILSAVE, "Failed to save document [{}]",
-                inputDocument.getDocumentReferenceWithLocale(), e);
+        } else {
+            // Forget the input history to let the store do its standard job
+            document.setDocumentArchive((XWikiDocumentArchive) null);
 
-            if (this.properties.isStoppedWhenSaveFail()) {
-                throw new FilterException("Failed to save document", e);
+            xcontext.getWiki().saveDocument(document, this.properties.getSaveComment(), xcontext);
+        }
+
+        if (this.properties.isVerbose()) {
+            if (isnew) {
+                this.logger.info(LOG_DOCUMENT_CREATED, "Created document [{}]",
+                    document.getDocumentReferenceWithLocale());
+            } else {
+                this.logger.info(LOG_DOCUMENT_UPDATED, "Updated document [{}]",
+                    document.getDocumentReferenceWithLocale());
             }
         }
     }
@@ -0,0 +1,156 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.AbstractActionExecutionEvent;
+import org.xwiki.bridge.event.ActionExecutedEvent;
+import org.xwiki.bridge.event.ActionExecutingEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricsManager;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Measure the duration of each action request and, when {@code metrics.slowRequestThreshold} is set, log the metrics
+ * updated by the requests slower than this threshold.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named(RequestMetricsListener.NAME)
+@Singleton
+public class RequestMetricsListener extends AbstractEventListener implements Initializable
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "com.xpn.xwiki.internal.metrics.RequestMetricsListener";
+
+    private static final String START_KEY = "metrics.request.start";
+
+    @Inject
+    private MetricsManager metrics;
+
+    @Inject
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private long slowRequestThreshold;
+
+    /**
+     * The default constructor.
+     */
+    public RequestMetricsListener()
+    {
+        super(NAME, new ActionExecutingEvent(), new ActionExecutedEvent());
+    }
+
+    @Override
+    public void initialize()
+    {
+        this.slowRequestThreshold = this.configuration.getProperty("metrics.slowRequestThreshold", -1L);
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (!this.metrics.isEnabled()) {
+            return;
+        }
+
+        XWikiContext xcontext = (XWikiContext) data;
+
+        if (event instanceof ActionExecutingEvent) {
+            if (this.slowRequestThreshold >= 0) {
+                this.metrics.startRecording();
+            }
+
+            xcontext.put(START_KEY, this.metrics.startTimer());
+        } else {
+            Long start = (Long) xcontext.remove(START_KEY);
+
+            if (start != null) {
+                long duration = System.nanoTime() - start;
+                Map<String, MetricSnapshot> breakdown = this.metrics.stopRecording();
+
+                String action = ((AbstractActionExecutionEvent) event).getActionName();
+                this.metrics.stopTimer("request." + action, start);
+
+                if (this.slowRequestThreshold >= 0
+                    && TimeUnit.NANOSECONDS.toMillis(duration) >= this.slowRequestThreshold) {
+                    this.logger.warn("Slow request [{}] took [{}] ms:{}", xcontext.getURL(),
+                        TimeUnit.NANOSECONDS.toMillis(duration), format(breakdown));
+                }
+            }
+        }
+    }
+
+    private String format(Map<String, MetricSnapshot> breakdown)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (Map.Entry<String, MetricSnapshot> entry : breakdown.entrySet()) {
+            MetricSnapshot snapshot = entry.getValue();
+
+            builder.append("\n  ");
+            builder.append(entry.getKey());
+            builder.append(": ");
+
+            switch (snapshot.getType()) {
+                case TIMER:
+                    builder.append(snapshot.getCount());
+                    builder.append(" calls in ");
+                    builder.append(TimeUnit.NANOSECONDS.toMillis(snapshot.getSum()));
+                    builder.append(" ms");
+                    break;
+
+                case HISTOGRAM:
+                    builder.append(snapshot.getCount());
+                    builder.append(" values between ");
+                    builder.append(snapshot.getMin());
+                    builder.append(" and ");
+                    builder.append(snapshot.getMax());
+                    break;
+
+                default:
+                    builder.append(snapshot.getSum());
+                    break;
+            }
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventCoalescer;
+
+/**
+ * Merge several updates of the same document, made by the same user, into a single update going from the first
+ * original version to the last version.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Singleton
+@Named("document")
+public class DocumentRemoteEventCoalescer implements RemoteEventCoalescer
+{
+    @Override
+    @SuppressWarnings("unchecked")
+    public RemoteEventData coalesce(RemoteEventData previous, RemoteEventData next)
+    {
+        if (previous.getEvent() instanceof DocumentUpdatedEvent && previous.getEvent().equals(next.getEvent())
+            && previous.getSource() instanceof Map && next.getSource() instanceof Map
+            && Objects.equals(previous.getData(), next.getData())) {
+            Map<String, Serializable> previousSource = (Map<String, Serializable>) previous.getSource();
+            Map<String, Serializable> nextSource = (Map<String, Serializable>) next.getSource();
+
+            if (isSameDocument(previousSource, nextSource)) {
+                HashMap<String, Serializable> source = new HashMap<>(nextSource);
+                setOrRemove(source, AbstractXWikiEventConverter.ORIGDOC_VERSION, previousSource);
+                setOrRemove(source, AbstractXWikiEventConverter.ORIGDOC_LANGUAGE, previousSource);
+
+                return new RemoteEventData(next.getEvent(), source, next.getData());
+            }
+        }
+
+        return null;
+    }
+
+    private boolean isSameDocument(Map<String, Serializable> previousSource, Map<String, Serializable> nextSource)
+    {
+        return previousSource.get(AbstractXWikiEventConverter.DOC_NAME) != null
+            && Objects.equals(previousSource.get(AbstractXWikiEventConverter.DOC_NAME),
+                nextSource.get(AbstractXWikiEventConverter.DOC_NAME))
+            && Objects.equals(previousSource.get(AbstractXWikiEventConverter.DOC_LANGUAGE),
+                nextSource.get(AbstractXWikiEventConverter.DOC_LANGUAGE))
+            // The updated document must be the following version of the previous one
+            && Objects.equals(previousSource.get(AbstractXWikiEventConverter.DOC_VERSION),
+                nextSource.get(AbstractXWikiEventConverter.ORIGDOC_VERSION));
+    }
+
+    private void setOrRemove(Map<String, Serializable> source, String key, Map<String, Serializable> previousSource)
+    {
+        Serializable value = previousSource.get(key);
+
+        if (value != null) {
+            source.put(key, value);
+        } else {
+            source.remove(key);
+        }
+    }
+}
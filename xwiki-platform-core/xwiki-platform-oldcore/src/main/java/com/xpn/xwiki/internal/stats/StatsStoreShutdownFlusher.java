@@ -0,0 +1,62 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.stats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+
+import com.xpn.xwiki.stats.impl.xwiki.XWikiStatsStoreService;
+
+/**
+ * Store the statistics still waiting in memory when XWiki is stopped. Disposed before the Hibernate store so that the
+ * database is still available.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = StatsStoreShutdownFlusher.class)
+@Singleton
+public class StatsStoreShutdownFlusher implements Disposable
+{
+    private final List<XWikiStatsStoreService> services = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param service the statistics storing service to stop when XWiki is stopped
+     */
+    public void register(XWikiStatsStoreService service)
+    {
+        this.services.add(service);
+    }
+
+    @Override
+    public void dispose()
+    {
+        for (XWikiStatsStoreService service : this.services) {
+            service.stop();
+        }
+
+        this.services.clear();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.xpn.xwiki.XWikiException;
+
+/**
+ * Make sure that only one thread at a time is loading a given key: the other threads asking for the same key while the
+ * load is in progress wait for it and get the same result.
+ *
+ * @param <T> the type of the loaded value
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class InFlightLoadRegistry<T>
+{
+    /**
+     * The actual load to execute when no other thread is already loading the same key.
+     *
+     * @param <T> the type of the loaded value
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface Loader<T>
+    {
+        /**
+         * @return the loaded value
+         * @throws XWikiException when failing to load the value
+         */
+        T load() throws XWikiException;
+    }
+
+    /**
+     * The actual load of several keys at once, executed for the keys no other thread is already loading.
+     *
+     * @param <T> the type of the loaded values
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface BulkLoader<T>
+    {
+        /**
+         * @param indexes the indexes (in the list of keys passed to {@link InFlightLoadRegistry#loadAll}) of the
+         *            values to load
+         * @return the loaded values, in the same order as the passed indexes
+         * @throws XWikiException when failing to load the values
+         */
+        List<T> load(List<Integer> indexes) throws XWikiException;
+    }
+
+    private static final class InFlightLoad<T>
+    {
+        private final Thread owner = Thread.currentThread();
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+    }
+
+    private final ConcurrentMap<String, InFlightLoad<T>> loads = new ConcurrentHashMap<>();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Execute the passed loader unless another thread is already loading the same key, in which case wait for that
+     * other thread and return its result.
+     *
+     * @param key the key of the value to load
+     * @param loader the load to execute
+     * @return the loaded value
+     * @throws XWikiException when failing to load the value
+     */
+    public T load(String key, Loader<T> loader) throws XWikiException
+    {
+        InFlightLoad<T> load = new InFlightLoad<>();
+        InFlightLoad<T> currentLoad = this.loads.putIfAbsent(key, load);
+
+        if (currentLoad == null) {
+            this.loadCount.incrementAndGet();
+
+            try {
+                T result = loader.load();
+
+                load.future.complete(result);
+
+                return result;
+            } catch (XWikiException | RuntimeException | Error e) {
+                load.future.completeExceptionally(e);
+
+                throw e;
+            } finally {
+                this.loads.remove(key, load);
+            }
+        } else if (currentLoad.owner == Thread.currentThread()) {
+            // The thread already loading this key is asking for it again: waiting would mean waiting for ourself
+            return loader.load();
+        }
+
+        this.coalescedCount.incrementAndGet();
+
+        return join(currentLoad, loader);
+    }
+
+    /**
+     * Execute the passed loader for all the keys which are not already being loaded by another thread, with a single
+     * call, and wait for the other threads to get the values of the remaining keys.
+     *
+     * @param keys the keys of the values to load
+     * @param loader the load to execute
+     * @return the loaded values, in the same order as the passed keys
+     * @throws XWikiException when failing to load the values
+     * @since 12.6RC1
+     */
+    public List<T> loadAll(List<String> keys, BulkLoader<T> loader) throws XWikiException
+    {
+        List<T> results = new ArrayList<>(Collections.nCopies(keys.size(), null));
+
+        List<Integer> ownedIndexes = new ArrayList<>();
+        List<InFlightLoad<T>> ownedLoads = new ArrayList<>();
+        Map<Integer, InFlightLoad<T>> joinedLoads = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); ++i) {
+            InFlightLoad<T> load = new InFlightLoad<>();
+            InFlightLoad<T> currentLoad = this.loads.putIfAbsent(keys.get(i), load);
+
+            if (currentLoad == null) {
+                ownedIndexes.add(i);
+                ownedLoads.add(load);
+            } else if (currentLoad.owner == Thread.currentThread()) {
+                // Already being loaded by this thread: waiting would mean waiting for ourself
+                ownedIndexes.add(i);
+                ownedLoads.add(null);
+            } else {
+                joinedLoads.put(i, currentLoad);
+            }
+        }
+
+        // Execute our own loads before waiting for the other threads so that they never wait for each other
+        if (!ownedIndexes.isEmpty()) {
+            loadOwned(keys, ownedIndexes, ownedLoads, loader, results);
+        }
+
+        for (Map.Entry<Integer, InFlightLoad<T>> entry : joinedLoads.entrySet()) {
+            this.coalescedCount.incrementAndGet();
+
+            int index = entry.getKey();
+            results.set(index, join(entry.getValue(), () -> loader.load(Collections.singletonList(index)).get(0)));
+        }
+
+        return results;
+    }
+
+    private void loadOwned(List<String> keys, List<Integer> indexes, List<InFlightLoad<T>> ownedLoads,
+        BulkLoader<T> loader, List<T> results) throws XWikiException
+    {
+        this.loadCount.addAndGet(ownedLoads.stream().filter(Objects::nonNull).count());
+
+        try {
+            List<T> values = loader.load(indexes);
+            if (values.size() != indexes.size()) {
+                throw new IllegalStateException(
+                    String.format("Expected [%d] loaded values but got [%d]", indexes.size(), values.size()));
+            }
+
+            for (int i = 0; i < indexes.size(); ++i) {
+                T value = values.get(i);
+
+                results.set(indexes.get(i), value);
+                if (ownedLoads.get(i) != null) {
+                    ownedLoads.get(i).future.complete(value);
+                }
+            }
+        } catch (XWikiException | RuntimeException | Error e) {
+            for (InFlightLoad<T> load : ownedLoads) {
+                if (load != null) {
+                    load.future.completeExceptionally(e);
+                }
+            }
+
+            throw e;
+        } finally {
+            for (int i = 0; i < indexes.size(); ++i) {
+                if (ownedLoads.get(i) != null) {
+                    this.loads.remove(keys.get(indexes.get(i)), ownedLoads.get(i));
+                }
+            }
+        }
+    }
+
+    private T join(InFlightLoad<T> load, Loader<T> loader) throws XWikiException
+    {
+        try {
+            return load.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            // Don't leave the caller empty handed
+            return loader.load();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof XWikiException) {
+                throw (XWikiException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException("Unexpected failure when loading value", cause);
+        }
+    }
+
+    /**
+     * Forget about the load in progress for the passed key (if any) so that the next caller start a new one instead of
+     * waiting for a value which might be outdated.
+     *
+     * @param key the key of the value
+     */
+    public void invalidate(String key)
+    {
+        this.loads.remove(key);
+    }
+
+    /**
+     * Forget about all the loads in progress.
+     */
+    public void invalidateAll()
+    {
+        this.loads.clear();
+    }
+
+    /**
+     * @return the number of loads actually executed
+     */
+    public long getLoadCount()
+    {
+        return this.loadCount.get();
+    }
+
+    /**
+     * @return the number of calls which waited for a load executed by another thread instead of executing their own
+     */
+    public long getCoalescedCount()
+    {
+        return this.coalescedCount.get();
+    }
+}
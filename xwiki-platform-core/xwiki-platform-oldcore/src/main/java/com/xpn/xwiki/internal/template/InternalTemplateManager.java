@@ -56,6 +56,7 @@
 import org.xwiki.filter.input.ReaderInputSource;
 import org.xwiki.filter.input.StringInputSource;
 import org.xwiki.job.event.status.JobProgressManager;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.properties.BeanManager;
@@ -163,6 +164,9 @@ public class InternalTemplateManager implements Initializable
     @Inject
     private VelocityTemplateEvaluator evaluator;
 
+    @Inject
+    private MetricsManager metrics;
+
     @Inject
     private Logger logger;
 
@@ -769,9 +773,14 @@ public void render(Template template, Writer writer) throws Exception
                 templateContent.getAuthorReference());
         }
 
-        String result = this.asyncExecutor.render(renderer, configuration);
+        long start = this.metrics.startTimer();
+        try {
+            String result = this.asyncExecutor.render(renderer, configuration);
 
-        writer.append(result);
+            writer.append(result);
+        } finally {
+            this.metrics.stopTimer("template.render", start);
+        }
     }
 
     private boolean shouldExecute(Template template) throws Exception
@@ -854,7 +863,13 @@ public XDOM execute(Template template) throws Exception
                 template.getContent().getAuthorReference());
         }
 
-        Block block = this.asyncExecutor.execute(renderer, configuration);
+        long start = this.metrics.startTimer();
+        Block block;
+        try {
+            block = this.asyncExecutor.execute(renderer, configuration);
+        } finally {
+            this.metrics.stopTimer("template.execute", start);
+        }
 
         if (block instanceof XDOM) {
             return (XDOM) block;
@@ -867,7 +882,12 @@ private String evaluateContent(Template template, TemplateContent content) throw
     {
         Writer writer = new StringWriter();
 
-        this.evaluator.evaluateContent(template, content, writer);
+        long start = this.metrics.startTimer();
+        try {
+            this.evaluator.evaluateContent(template, content, writer);
+        } finally {
+            this.metrics.stopTimer("template.velocity", start);
+        }
 
         return writer.toString();
     }
@@ -33,7 +33,11 @@
 import org.xwiki.security.authorization.Right;
 import org.xwiki.template.Template;
 import org.xwiki.template.TemplateContent;
+import org.xwiki.velocity.VelocityEngine;
 import org.xwiki.velocity.VelocityManager;
+import org.xwiki.velocity.VelocityTemplate;
+
+import com.xpn.xwiki.internal.velocity.VelocityTemplateCache;
 
 /**
  * Execute Velocity template content.
@@ -57,6 +61,9 @@
     @Inject
     private VelocityManager velocityManager;
 
+    @Inject
+    private VelocityTemplateCache templateCache;
+
     /**
      * @param template the template to execute
      * @param content the template content to execute
@@ -92,7 +99,16 @@ public void evaluateContent(Template template, TemplateContent content, Writer w
             "Evaluate content of template with id [{}]", template.getId());
 
         try {
-            this.velocityManager.evaluate(writer, namespace, new StringReader(content.getContent()));
+            if (template.getId() != null) {
+                // Avoid parsing again the same template
+                VelocityEngine engine = this.velocityManager.getVelocityEngine();
+                VelocityTemplate velocityTemplate =
+                    this.templateCache.getTemplate(engine, template.getId(), template.getId(), content.getContent());
+
+                engine.evaluate(this.velocityManager.getVelocityContext(), writer, namespace, velocityTemplate);
+            } else {
+                this.velocityManager.evaluate(writer, namespace, new StringReader(content.getContent()));
+            }
         } finally {
             // Get rid of temporary rendering context
             if (renderingContextPushed) {
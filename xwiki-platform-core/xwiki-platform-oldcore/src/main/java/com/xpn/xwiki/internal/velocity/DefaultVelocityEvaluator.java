@@ -27,6 +27,7 @@
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.rendering.transformation.RenderingContext;
 import org.apache.velocity.VelocityContext;
+import org.xwiki.velocity.VelocityEngine;
 import org.xwiki.velocity.VelocityManager;
 import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
 import org.xwiki.component.annotation.Component;
@@ -48,7 +49,10 @@ public class DefaultVelocityEvaluator implements VelocityEvaluator
 
     @Inject
     private VelocityManager velocityManager;
-    
+
+    @Inject
+    private VelocityTemplateCache templateCache;
+
     @Override
     public String evaluateVelocity(String content, String namespace, VelocityContext vcontext) throws XWikiException
     {
@@ -69,7 +73,14 @@ public String evaluateVelocity(String content, String namespace, VelocityContext
                 }
             }
 
-            velocityManager.getVelocityEngine().evaluate(vcontext, writer, namespace, content);
+            VelocityEngine velocityEngine = velocityManager.getVelocityEngine();
+            if (namespace != null) {
+                // Avoid parsing again the same content
+                velocityEngine.evaluate(vcontext, writer, namespace,
+                    templateCache.getTemplate(velocityEngine, namespace, namespace, content));
+            } else {
+                velocityEngine.evaluate(vcontext, writer, namespace, content);
+            }
 
             return writer.toString();
         } catch (Exception e) {
@@ -0,0 +1,210 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.velocity;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.velocity.VelocityEngine;
+import org.xwiki.velocity.VelocityTemplate;
+import org.xwiki.velocity.XWikiVelocityException;
+
+/**
+ * Keep the compiled version of the Velocity contents which are executed often (skin templates, wiki content, etc.) to
+ * avoid parsing them again on each execution.
+ * <p>
+ * The entries are indexed by an identifier of the source of the content (the template id, the document reference,
+ * etc.) and the hash of the content, so that several contents evaluated with the same source (like the LESS files of
+ * a skin) don't keep replacing each other. A cached compiled content is only reused if it was produced for exactly the
+ * same content and by the same {@link VelocityEngine}, so an outdated entry can never be executed even if the
+ * invalidation event was missed.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = VelocityTemplateCache.class)
+@Singleton
+public class VelocityTemplateCache implements Initializable, Disposable
+{
+    private static final class CachedTemplate
+    {
+        private final String source;
+
+        private final VelocityEngine engine;
+
+        private final String content;
+
+        private final VelocityTemplate template;
+
+        CachedTemplate(String source, VelocityEngine engine, String content, VelocityTemplate template)
+        {
+            this.source = source;
+            this.engine = engine;
+            this.content = content;
+            this.template = template;
+        }
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    private Cache<CachedTemplate> cache;
+
+    /**
+     * Keep an index of the keys associated with each source to be able to invalidate them.
+     */
+    private final Map<String, Set<String>> sourceIndex = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int capacity = this.configuration.getProperty("xwiki.render.velocity.templatecache.capacity", 1000);
+
+        try {
+            // Compiled templates are bound to the local Velocity engines so they can't be shared with other members
+            this.cache = this.cacheManager
+                .createNewLocalCache(new LRUCacheConfiguration("xwiki.render.velocity.templates", capacity));
+            this.cache.addCacheEntryListener(new AbstractCacheEntryListener<CachedTemplate>()
+            {
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<CachedTemplate> event)
+                {
+                    removeFromIndex(event.getEntry().getValue().source, event.getEntry().getKey());
+                }
+            });
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the Velocity template cache", e);
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (this.cache != null) {
+            this.cache.dispose();
+        }
+    }
+
+    private void removeFromIndex(String source, String key)
+    {
+        this.sourceIndex.computeIfPresent(source, (k, keys) -> {
+            keys.remove(key);
+
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * @param engine the Velocity engine which is going to execute the template
+     * @param source the identifier of the source of the content
+     * @param name the name to give to the template (used in error messages)
+     * @param content the Velocity content
+     * @return the compiled content
+     * @throws XWikiVelocityException when failing to compile the content
+     */
+    public VelocityTemplate getTemplate(VelocityEngine engine, String source, String name, String content)
+        throws XWikiVelocityException
+    {
+        // The content is compared anyway so a collision only means a miss
+        String key = source + ':' + content.hashCode();
+
+        CachedTemplate cachedTemplate = this.cache.get(key);
+
+        if (cachedTemplate != null && cachedTemplate.engine == engine && cachedTemplate.content.equals(content)) {
+            this.hitCount.incrementAndGet();
+
+            return cachedTemplate.template;
+        }
+
+        this.missCount.incrementAndGet();
+
+        VelocityTemplate template = engine.compile(name, new StringReader(content));
+
+        this.cache.set(key, new CachedTemplate(source, engine, content, template));
+        this.sourceIndex.computeIfAbsent(source, k -> ConcurrentHashMap.newKeySet()).add(key);
+
+        return template;
+    }
+
+    /**
+     * @param source the identifier of the source of the contents to forget
+     */
+    public void invalidate(String source)
+    {
+        Set<String> keys = this.sourceIndex.remove(source);
+
+        if (keys != null) {
+            for (String key : keys) {
+                this.cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Forget all the compiled templates.
+     */
+    public void invalidateAll()
+    {
+        this.cache.removeAll();
+        this.sourceIndex.clear();
+    }
+
+    /**
+     * @return the number of times a compiled template was found in the cache
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of times a template had to be compiled
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.velocity;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.template.event.TemplateDeletedEvent;
+import org.xwiki.template.event.TemplateEvent;
+import org.xwiki.template.event.TemplateUpdatedEvent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Remove from {@link VelocityTemplateCache} the compiled templates associated with modified templates and documents.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named(VelocityTemplateCacheListener.NAME)
+@Singleton
+public class VelocityTemplateCacheListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "com.xpn.xwiki.internal.velocity.VelocityTemplateCacheListener";
+
+    @Inject
+    private VelocityTemplateCache cache;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * Default constructor.
+     */
+    public VelocityTemplateCacheListener()
+    {
+        super(NAME, new TemplateUpdatedEvent(), new TemplateDeletedEvent(), new DocumentUpdatedEvent(),
+            new DocumentDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof TemplateEvent) {
+            this.cache.invalidate(((TemplateEvent) event).getId());
+        } else {
+            this.cache.invalidate(this.serializer.serialize(((XWikiDocument) source).getDocumentReference()));
+        }
+    }
+}
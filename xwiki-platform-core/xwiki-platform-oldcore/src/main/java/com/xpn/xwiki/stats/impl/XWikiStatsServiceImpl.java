@@ -42,6 +42,7 @@
 import com.xpn.xwiki.criteria.impl.Range;
 import com.xpn.xwiki.criteria.impl.Scope;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.stats.StatsStoreShutdownFlusher;
 import com.xpn.xwiki.stats.api.XWikiStatsService;
 import com.xpn.xwiki.stats.impl.xwiki.XWikiStatsReader;
 import com.xpn.xwiki.stats.impl.xwiki.XWikiStatsStoreService;
@@ -118,12 +119,23 @@ public void init(XWikiContext context)
             // Start statistics store thread
             this.statsRegister = new XWikiStatsStoreService(context);
             this.statsRegister.start();
+            // Make sure the aggregated statistics are stored when XWiki is stopped
+            Utils.getComponent(StatsStoreShutdownFlusher.class).register(this.statsRegister);
 
             // Adding the rule which will allow this module to be called on each page view
             Utils.getComponent(ObservationManager.class).addListener(this);
         }
     }
 
+    /**
+     * @return the number of aggregated statistics waiting to be stored in the database, 0 if statistics are disabled
+     * @since 12.6RC1
+     */
+    public int getPendingStatisticsCount()
+    {
+        return this.statsRegister != null ? this.statsRegister.getPendingCount() : 0;
+    }
+
     @Override
     public Collection<Object> getRecentActions(String action, int size, XWikiContext context)
     {
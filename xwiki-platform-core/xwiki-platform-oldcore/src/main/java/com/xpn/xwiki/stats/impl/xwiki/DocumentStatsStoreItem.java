@@ -50,9 +50,14 @@ public class DocumentStatsStoreItem extends AbstractStatsStoreItem
     private String action;
 
     /**
-     * Is this part of a user visit.
+     * The number of actions aggregated in this item.
      */
-    private boolean isVisit;
+    private int pageViews = 1;
+
+    /**
+     * The number of visits aggregated in this item.
+     */
+    private int visits;
 
     /**
      * Create new instance of {@link DocumentStatsStoreItem}.
@@ -75,7 +80,21 @@ public DocumentStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
         super(name, periodDate, periodType, context);
 
         this.action = action;
-        this.isVisit = isVisit;
+        this.visits = isVisit ? 1 : 0;
+    }
+
+    /**
+     * Aggregate a new action in this item instead of creating a new item.
+     *
+     * @param visit true if the new action is part of a user visit
+     * @since 12.6RC1
+     */
+    void increment(boolean visit)
+    {
+        this.pageViews++;
+        if (visit) {
+            this.visits++;
+        }
     }
 
     @Override
@@ -108,14 +127,16 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        documentStat.setIntValue("pageViews", documentStat.getPageViews() + stats.size());
+        int newPageViews = 0;
+        int newVisits = 0;
         for (XWikiStatsStoreItem statItem : stats) {
             DocumentStatsStoreItem docStat = (DocumentStatsStoreItem) statItem;
 
-            if (docStat.isVisit) {
-                documentStat.incVisits();
-            }
+            newPageViews += docStat.pageViews;
+            newVisits += docStat.visits;
         }
+        documentStat.setPageViews(documentStat.getPageViews() + newPageViews);
+        documentStat.setVisits(documentStat.getVisits() + newVisits);
 
         // Re-save statistics object
         try {
@@ -49,6 +49,11 @@ public class RefererStatsStoreItem extends AbstractStatsStoreItem
      */
     private String referer;
 
+    /**
+     * The number of views aggregated in this item.
+     */
+    private int pageViews = 1;
+
     /**
      * Create new instance of {@link RefererStatsStoreItem}.
      *
@@ -66,6 +71,16 @@ public RefererStatsStoreItem(String name, Date periodDate, PeriodType periodType
         this.referer = referer;
     }
 
+    /**
+     * Aggregate a new view in this item instead of creating a new item.
+     *
+     * @since 12.6RC1
+     */
+    void increment()
+    {
+        this.pageViews++;
+    }
+
     @Override
     public String getId()
     {
@@ -96,7 +111,11 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        refererStat.setIntValue("pageViews", refererStat.getPageViews() + stats.size());
+        int newPageViews = 0;
+        for (XWikiStatsStoreItem statItem : stats) {
+            newPageViews += ((RefererStatsStoreItem) statItem).pageViews;
+        }
+        refererStat.setPageViews(refererStat.getPageViews() + newPageViews);
 
         // Re-save statistics object
         try {
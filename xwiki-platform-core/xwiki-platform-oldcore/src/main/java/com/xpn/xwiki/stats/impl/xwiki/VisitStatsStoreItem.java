@@ -49,6 +49,11 @@ public class VisitStatsStoreItem extends AbstractStatsStoreItem
      */
     private VisitStats visitStats;
 
+    /**
+     * The {@link VisitStats} object to remove from the database before storing the new one.
+     */
+    private VisitStats oldVisitStats;
+
     /**
      * Create new instance of {@link VisitStatsStoreItem}.
      *
@@ -61,6 +66,18 @@ public VisitStatsStoreItem(VisitStats visitStats, XWikiContext context)
         this.period = visitStats.getPeriod();
 
         this.visitStats = (VisitStats) visitStats.clone();
+        this.oldVisitStats = this.visitStats.getOldObject();
+    }
+
+    /**
+     * Replace the visit to store with a more recent state of the same visit.
+     *
+     * @param newVisitStats the new state of the visit
+     * @since 12.6RC1
+     */
+    void update(VisitStats newVisitStats)
+    {
+        this.visitStats = (VisitStats) newVisitStats.clone();
     }
 
     @Override
@@ -74,7 +91,7 @@ public String getId()
     public void storeInternal(List<XWikiStatsStoreItem> stats)
     {
         VisitStatsStoreItem firstItem = (VisitStatsStoreItem) stats.get(0);
-        VisitStats oldVisitStats = firstItem.visitStats.getOldObject();
+        VisitStats oldVisitStats = firstItem.oldVisitStats;
 
         VisitStatsStoreItem lastItem = (VisitStatsStoreItem) stats.get(stats.size() - 1);
         VisitStats newVisitStats = lastItem.visitStats;
@@ -20,11 +20,14 @@
 package com.xpn.xwiki.stats.impl.xwiki;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +36,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.stats.impl.StatsUtil;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
 import com.xpn.xwiki.stats.impl.VisitStats;
 import com.xpn.xwiki.util.AbstractXWikiRunnable;
 import com.xpn.xwiki.web.DownloadAction;
@@ -41,6 +45,10 @@
 
 /**
  * Back-end statistics storing service.
+ * <p>
+ * The statistics are not stored by the request threads: they are aggregated in memory (one counter per document,
+ * space, wiki, action and period) and the storing thread periodically writes the aggregated counters to the database.
+ * So a page viewed a thousand times between two flushes costs a single database update instead of a thousand.
  *
  * @version $Id$
  * @since 1.4M2
@@ -53,9 +61,53 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiStatsStoreService.class);
 
     /**
-     * The queue containing the statistics to store.
+     * Separator used to build the aggregation keys (can't be found in any of the key elements).
      */
-    private ArrayBlockingQueue<XWikiStatsStoreItem> queue;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    /**
+     * The statistics waiting to be stored, indexed by aggregation key.
+     * <p>
+     * The items are only modified from inside the map atomic operations so that an item removed by the storing thread
+     * cannot be modified anymore.
+     */
+    private final ConcurrentMap<String, PendingStats> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Used to store the statistics in the order they were first produced.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The total number of statistics items written to the database.
+     */
+    private final AtomicLong storedCount = new AtomicLong();
+
+    /**
+     * Used to wake up the storing thread.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * The maximum time in milliseconds between two flushes.
+     */
+    private final long flushInterval;
+
+    /**
+     * The number of waiting statistics from which the storing thread is woken up without waiting for the end of the
+     * flush interval.
+     */
+    private final int maxPending;
+
+    /**
+     * True when the storing thread has been asked to flush before the end of the interval.
+     */
+    private boolean flushRequested;
+
+    /**
+     * True when the storing thread has been asked to stop.
+     */
+    private boolean stopRequested;
 
     /**
      * The thread on which the storing service is running.
@@ -67,6 +119,24 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
      */
     private XWikiContext xwikiContext;
 
+    /**
+     * Statistics waiting to be stored.
+     *
+     * @version $Id$
+     */
+    private static final class PendingStats
+    {
+        private final long sequence;
+
+        private final List<XWikiStatsStoreItem> items = new ArrayList<>(1);
+
+        PendingStats(long sequence, XWikiStatsStoreItem item)
+        {
+            this.sequence = sequence;
+            this.items.add(item);
+        }
+    }
+
     /**
      * Create new instance of XWikiStatsRegister and init statistics queue.
      *
@@ -75,8 +145,8 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     public XWikiStatsStoreService(XWikiContext context)
     {
         this.xwikiContext = context.clone();
-        long queueSize = context.getWiki().ParamAsLong("stats.queue.size", 200);
-        this.queue = new ArrayBlockingQueue<>((int) queueSize);
+        this.maxPending = (int) context.getWiki().ParamAsLong("stats.queue.size", 1000);
+        this.flushInterval = context.getWiki().ParamAsLong("xwiki.stats.flushInterval", 5000);
     }
 
     @Override
@@ -100,82 +170,159 @@ public void start()
     }
 
     /**
-     * Stop storing thread.
+     * Store the waiting statistics and stop storing thread.
      */
     public void stop()
     {
-        this.queue.clear();
-        try {
-            this.queue.put(new StopStatsRegisterObject());
-            this.thread.join();
-            this.thread = null;
-        } catch (InterruptedException e) {
-            if (LOGGER.isWarnEnabled()) {
-                LOGGER.warn("Thread join has been interrupted", e);
+        if (this.thread != null) {
+            synchronized (this.flushLock) {
+                this.stopRequested = true;
+                this.flushLock.notifyAll();
+            }
+
+            try {
+                this.thread.join();
+                this.thread = null;
+            } catch (InterruptedException e) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Thread join has been interrupted", e);
+                }
+                Thread.currentThread().interrupt();
             }
         }
     }
 
+    /**
+     * @return the number of aggregated statistics waiting to be stored
+     * @since 12.6RC1
+     */
+    public int getPendingCount()
+    {
+        return this.pending.size();
+    }
+
+    /**
+     * @return the total number of aggregated statistics stored since the service started
+     * @since 12.6RC1
+     */
+    public long getStoredCount()
+    {
+        return this.storedCount.get();
+    }
+
     @Override
     public void runInternal() throws InterruptedException
     {
         try {
-            while (true) {
-                register();
+            boolean stop = false;
+            while (!stop) {
+                synchronized (this.flushLock) {
+                    if (!this.flushRequested && !this.stopRequested) {
+                        this.flushLock.wait(this.flushInterval);
+                    }
+                    this.flushRequested = false;
+                    stop = this.stopRequested;
+                }
+
+                flush();
+            }
+
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("Statistics storing thread received stop order.");
             }
         } catch (InterruptedException e) {
             if (LOGGER.isWarnEnabled()) {
                 LOGGER.warn("Statistics storing thread has been interrupted.", e);
             }
+
+            // Don't lose what was already aggregated
+            flush();
+
             throw e;
-        } catch (StopStatsStoreException e) {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.warn("Statistics storing thread received stop order.", e);
-            }
         }
     }
 
     /**
-     * Store the statistics in the queue.
-     *
-     * @throws InterruptedException thread has been interrupted.
-     * @throws StopStatsStoreException service received stop order.
+     * Store the waiting statistics.
      */
-    private void register() throws InterruptedException, StopStatsStoreException
+    private void flush()
     {
-        XWikiStatsStoreItem stat = this.queue.take();
+        List<PendingStats> statsList = new ArrayList<>(this.pending.size());
+        for (String key : this.pending.keySet()) {
+            PendingStats stats = this.pending.remove(key);
+            if (stats != null) {
+                statsList.add(stats);
+            }
+        }
 
-        List<List<XWikiStatsStoreItem>> statsList = new ArrayList<>();
-        Map<String, List<XWikiStatsStoreItem>> statsMap = new HashMap<>();
+        // Some statistics depend on each other (a visit changing of identifier for example)
+        statsList.sort(Comparator.comparingLong(stats -> stats.sequence));
 
-        do {
-            if (stat instanceof StopStatsRegisterObject) {
-                throw new StopStatsStoreException();
+        for (PendingStats stats : statsList) {
+            XWikiStatsStoreItem item = stats.items.get(0);
+            try {
+                item.store(stats.items);
+            } catch (Exception e) {
+                LOGGER.error("Failed to store statistics [{}]", item.getId(), e);
             }
+        }
 
-            String statId = stat.getId();
+        this.storedCount.addAndGet(statsList.size());
+    }
 
-            List<XWikiStatsStoreItem> stats = statsMap.get(statId);
+    /**
+     * Wake up the storing thread without waiting for the end of the flush interval.
+     */
+    private void requestFlush()
+    {
+        synchronized (this.flushLock) {
+            if (!this.flushRequested) {
+                this.flushRequested = true;
+                this.flushLock.notifyAll();
+            }
+        }
+    }
 
+    /**
+     * @param key the aggregation key
+     * @param creator create the item to store when there is no waiting statistics for the key
+     * @param aggregator aggregate the new statistic in the items waiting to be stored
+     */
+    private void add(String key, Supplier<XWikiStatsStoreItem> creator,
+        Consumer<List<XWikiStatsStoreItem>> aggregator)
+    {
+        this.pending.compute(key, (k, stats) -> {
             if (stats == null) {
-                stats = new ArrayList<>();
-
-                statsMap.put(statId, stats);
-                statsList.add(stats);
+                return new PendingStats(this.sequence.incrementAndGet(), creator.get());
             }
 
-            stats.add(stat);
+            aggregator.accept(stats.items);
 
-            stat = this.queue.poll();
-        } while (stat != null);
+            return stats;
+        });
 
-        for (List<XWikiStatsStoreItem> stats : statsList) {
-            stats.get(0).store(stats);
+        if (this.pending.size() >= this.maxPending) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * @param elements the elements of the key
+     * @return the aggregation key
+     */
+    private static String key(Object... elements)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (Object element : elements) {
+            builder.append(element);
+            builder.append(KEY_SEPARATOR);
         }
+
+        return builder.toString();
     }
 
     // ////////////////////////////////////////////////////////////////////////////
-    // Add stats to queue
+    // Add stats to the waiting statistics
     // ////////////////////////////////////////////////////////////////////////////
 
     /**
@@ -185,15 +332,11 @@ private void register() throws InterruptedException, StopStatsStoreException
      */
     public void add(XWikiStatsStoreItem statsRegisterItem)
     {
-        try {
-            this.queue.put(statsRegisterItem);
-        } catch (InterruptedException e) {
-            LOGGER.error("Statistics storage thread has been interrupted", e);
-        }
+        add(statsRegisterItem.getId(), () -> statsRegisterItem, items -> items.add(statsRegisterItem));
     }
 
     /**
-     * Add all the statistics to the save queue.
+     * Add all the statistics to store.
      *
      * @param doc the document.
      * @param action the user action.
@@ -228,7 +371,7 @@ public void addStats(XWikiDocument doc, String action, XWikiContext context)
     }
 
     /**
-     * Add visit statistics to the save queue.
+     * Add visit statistics to the waiting statistics.
      *
      * @param vobject the visit statistics object.
      * @param context the XWiki context.
@@ -238,12 +381,14 @@ private void addVisitStats(VisitStats vobject, XWikiContext context)
         Date currentDate = new Date();
 
         vobject.setEndDate(currentDate);
-        add(new VisitStatsStoreItem(vobject, context));
+        add(key("visit", context.getWikiId(), vobject.getName(), vobject.getUniqueID(), vobject.getCookie()),
+            () -> new VisitStatsStoreItem(vobject, context),
+            items -> ((VisitStatsStoreItem) items.get(0)).update(vobject));
         vobject.unrememberOldObject();
     }
 
     /**
-     * Add document statistics to the save queue.
+     * Add document statistics to the waiting statistics.
      *
      * @param doc the document.
      * @param action the user action.
@@ -254,20 +399,34 @@ private void addDocumentStats(XWikiDocument doc, String action, boolean isVisit,
     {
         Date currentDate = new Date();
 
-        add(new DocumentStatsStoreItem(doc.getFullName(), currentDate, StatsUtil.PeriodType.MONTH, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem(doc.getSpace(), currentDate, StatsUtil.PeriodType.MONTH, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem("", currentDate, StatsUtil.PeriodType.MONTH, action, false, context));
-        add(new DocumentStatsStoreItem(doc.getFullName(), currentDate, StatsUtil.PeriodType.DAY, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem(doc.getSpace(), currentDate, StatsUtil.PeriodType.DAY, action, isVisit,
-            context));
-        add(new DocumentStatsStoreItem("", currentDate, StatsUtil.PeriodType.DAY, action, false, context));
+        addDocumentStats(doc.getFullName(), currentDate, PeriodType.MONTH, action, isVisit, context);
+        addDocumentStats(doc.getSpace(), currentDate, PeriodType.MONTH, action, isVisit, context);
+        addDocumentStats("", currentDate, PeriodType.MONTH, action, false, context);
+        addDocumentStats(doc.getFullName(), currentDate, PeriodType.DAY, action, isVisit, context);
+        addDocumentStats(doc.getSpace(), currentDate, PeriodType.DAY, action, isVisit, context);
+        addDocumentStats("", currentDate, PeriodType.DAY, action, false, context);
     }
 
     /**
-     * Add referer statistics to the save queue.
+     * Aggregate a document statistic with the waiting statistics of the same document, action and period.
+     *
+     * @param name the name of the document or space, or "" for the entire wiki
+     * @param periodDate the period date
+     * @param periodType the period type
+     * @param action the user action
+     * @param isVisit indicate if it's included in a visit
+     * @param context the XWiki context
+     */
+    private void addDocumentStats(String name, Date periodDate, PeriodType periodType, String action,
+        boolean isVisit, XWikiContext context)
+    {
+        add(key("document", context.getWikiId(), name, action, StatsUtil.getPeriodAsInt(periodDate, periodType)),
+            () -> new DocumentStatsStoreItem(name, periodDate, periodType, action, isVisit, context),
+            items -> ((DocumentStatsStoreItem) items.get(0)).increment(isVisit));
+    }
+
+    /**
+     * Add referer statistics to the waiting statistics.
      *
      * @param doc the document.
      * @param context the XWiki context.
@@ -276,36 +435,13 @@ private void addRefererStats(XWikiDocument doc, XWikiContext context)
     {
         String referer = StatsUtil.getReferer(context);
         if ((referer != null) && (!referer.equals(""))) {
-            add(new RefererStatsStoreItem(doc.getFullName(), new Date(), StatsUtil.PeriodType.MONTH, referer, context));
-        }
-    }
-}
+            Date periodDate = new Date();
+            String name = doc.getFullName();
+            int period = StatsUtil.getPeriodAsInt(periodDate, PeriodType.MONTH);
 
-/**
- * Item used to stop the statistics storing.
- *
- * @version $Id$
- */
-class StopStatsRegisterObject implements XWikiStatsStoreItem
-{
-    @Override
-    public String getId()
-    {
-        return null;
-    }
-
-    @Override
-    public void store(List<XWikiStatsStoreItem> register)
-    {
+            add(key("referer", context.getWikiId(), name, referer, period),
+                () -> new RefererStatsStoreItem(name, periodDate, PeriodType.MONTH, referer, context),
+                items -> ((RefererStatsStoreItem) items.get(0)).increment());
+        }
     }
 }
-
-/**
- * Used to order stopping storing thread.
- *
- * @version $Id$
- */
-class StopStatsStoreException extends Exception
-{
-
-}
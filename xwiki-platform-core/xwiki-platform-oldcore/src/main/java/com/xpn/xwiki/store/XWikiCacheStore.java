@@ -19,7 +19,9 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -41,6 +43,7 @@
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
@@ -57,6 +60,7 @@
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
+import com.xpn.xwiki.internal.store.InFlightLoadRegistry;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
 
@@ -98,6 +102,9 @@ public class XWikiCacheStore extends AbstractXWikiStore
     @Named("xwikicfg")
     private ConfigurationSource configuration;
 
+    @Inject
+    private MetricsManager metrics;
+
     private XWikiStoreInterface store;
 
     private Cache<XWikiDocument> cache;
@@ -109,6 +116,16 @@ public class XWikiCacheStore extends AbstractXWikiStore
      */
     private Cache<Integer> limitSizePropertyCache;
 
+    /**
+     * Make sure concurrent cache misses on the same document trigger a single load from the underlying store.
+     */
+    private final InFlightLoadRegistry<XWikiDocument> documentLoads = new InFlightLoadRegistry<>();
+
+    /**
+     * Make sure concurrent cache misses on the same document existence trigger a single check in the underlying store.
+     */
+    private final InFlightLoadRegistry<Boolean> existLoads = new InFlightLoadRegistry<>();
+
     /**
      * Default constructor generally used by the Component Manager.
      */
@@ -129,6 +146,7 @@ public XWikiCacheStore(XWikiStoreInterface store, XWikiContext context) throws X
         this.uidStringEntityReferenceSerializer = Utils.getComponent(EntityReferenceSerializer.TYPE_STRING, "uid");
         this.cacheManager = Utils.getComponent(CacheManager.class);
         this.configuration = Utils.getComponent(ConfigurationSource.class, "xwikicfg");
+        this.metrics = Utils.getComponent(MetricsManager.class);
 
         initCache(context);
 
@@ -231,6 +249,7 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
             String key = getKey(doc, context);
             getCache().remove(key);
             getPageExistCache().remove(key);
+            invalidateInFlightLoads(key);
 
             WikiReference originalWikiReference = doc.getDocumentReference().getWikiReference();
             // Flushing the cache for new document
@@ -241,6 +260,7 @@ public void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, XW
             key = getKey(newDoc, context);
             getCache().remove(key);
             getPageExistCache().remove(key);
+            invalidateInFlightLoads(key);
             context.setWikiReference(originalWikiReference);
 
             // Restore the previous XWikiContext
@@ -263,6 +283,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
             String key = getKey(doc, context);
             getCache().remove(key);
             getPageExistCache().remove(key);
+            invalidateInFlightLoads(key);
 
             /*
              * We do not want to save the document in the cache at this time. If we did, this would introduce the
@@ -280,6 +301,15 @@ public void flushCache()
         getCache().removeAll();
         getPageExistCache().removeAll();
         getLimitSizePropertyCache().removeAll();
+        this.documentLoads.invalidateAll();
+        this.existLoads.invalidateAll();
+    }
+
+    private void invalidateInFlightLoads(String key)
+    {
+        // Make sure a load started before the modification is not shared with the next callers
+        this.documentLoads.invalidate(key);
+        this.existLoads.invalidate(key);
     }
 
     @Override
@@ -300,6 +330,7 @@ public void onEvent(Event event, Object source, Object data)
                 if (getPageExistCache() != null) {
                     getPageExistCache().remove(key);
                 }
+                invalidateInFlightLoads(key);
             }
         }
     }
@@ -362,61 +393,189 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
             LOGGER.debug("Cache: Trying to get doc {} from cache", key);
 
-            XWikiDocument cachedoc;
-            try {
-                cachedoc = getCache().get(key);
-            } catch (Exception e) {
-                LOGGER.error("Failed to get document from the cache", e);
-
-                cachedoc = null;
-            }
-
-            if (cachedoc != null) {
-                cachedoc.setFromCache(true);
+            XWikiDocument cachedoc = getCachedDocument(key);
 
-                LOGGER.debug("Cache: got doc {} from cache", key);
-            } else {
+            if (cachedoc == null) {
                 Boolean result = getPageExistCache().get(key);
 
                 if (result == Boolean.FALSE) {
                     LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
 
-                    cachedoc = doc;
-                    cachedoc.setNew(true);
-
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    cachedoc
-                        .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
+                    cachedoc = getNotExistingDocument(doc);
                 } else {
-                    LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+                    cachedoc = this.documentLoads.load(key, () -> loadXWikiDocFromStore(key, doc, context));
 
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+                    if (cachedoc != doc && cachedoc.isNew()) {
+                        // The document does not exist (and was possibly loaded by another thread)
+                        cachedoc = getNotExistingDocument(doc);
+                    }
+                }
+            }
 
-                    LOGGER.debug("Cache: Got doc {} from storage", key);
+            cachedoc.setStore(this);
+            LOGGER.debug("Cache: end for doc {} in cache", key);
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
+            return cachedoc;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    private XWikiDocument loadXWikiDocFromStore(String key, XWikiDocument doc, XWikiContext context)
+        throws XWikiException
+    {
+        LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+
+        XWikiDocument storedoc = this.store.loadXWikiDoc(doc, context);
+
+        LOGGER.debug("Cache: Got doc {} from storage", key);
+
+        cacheStoredDocument(key, storedoc);
+
+        return storedoc;
+    }
+
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String currentWiki = context.getWikiId();
+        try {
+            List<XWikiDocument> documents = new ArrayList<>(references.size());
+
+            List<DocumentReference> missingReferences = new ArrayList<>();
+            List<String> missingKeys = new ArrayList<>();
+            List<Integer> missingIndexes = new ArrayList<>();
+
+            for (DocumentReference reference : references) {
+                XWikiDocument doc = new XWikiDocument(reference, reference.getLocale());
+
+                context.setWikiId(reference.getWikiReference().getName());
+                String key = getKey(doc, context);
+
+                XWikiDocument cachedoc = getCachedDocument(key);
+                if (cachedoc == null) {
+                    if (getPageExistCache().get(key) == Boolean.FALSE) {
+                        cachedoc = getNotExistingDocument(doc);
                     } else {
-                        getCache().set(key, cachedoc);
+                        // Remember the documents to load from the persistent storage
+                        missingReferences.add(reference);
+                        missingKeys.add(key);
+                        missingIndexes.add(documents.size());
+                    }
+                }
+
+                documents.add(cachedoc);
+            }
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
+            if (!missingReferences.isEmpty()) {
+                context.setWikiId(currentWiki);
+
+                // Documents already being loaded by other threads are not loaded again
+                List<XWikiDocument> storedocs = this.documentLoads.loadAll(missingKeys,
+                    indexes -> loadXWikiDocsFromStore(indexes, missingKeys, missingReferences, context));
+
+                for (int i = 0; i < storedocs.size(); ++i) {
+                    XWikiDocument storedoc = storedocs.get(i);
+
+                    if (storedoc.isNew()) {
+                        // The document does not exist (and was possibly loaded by another thread)
+                        DocumentReference reference = missingReferences.get(i);
+                        storedoc = getNotExistingDocument(new XWikiDocument(reference, reference.getLocale()));
                     }
 
-                    LOGGER.debug("Cache: put doc {} in cache", key);
+                    documents.set(missingIndexes.get(i), storedoc);
                 }
             }
 
-            cachedoc.setStore(this);
-            LOGGER.debug("Cache: end for doc {} in cache", key);
+            for (XWikiDocument document : documents) {
+                document.setStore(this);
+            }
 
-            return cachedoc;
+            return documents;
         } finally {
+            context.setWikiId(currentWiki);
+
             restoreExecutionXContext();
         }
     }
 
+    private List<XWikiDocument> loadXWikiDocsFromStore(List<Integer> indexes, List<String> keys,
+        List<DocumentReference> references, XWikiContext context) throws XWikiException
+    {
+        List<String> loadedKeys = new ArrayList<>(indexes.size());
+        List<DocumentReference> loadedReferences = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            loadedKeys.add(keys.get(index));
+            loadedReferences.add(references.get(index));
+        }
+
+        LOGGER.debug("Cache: Trying to get docs {} from persistent storage", loadedKeys);
+
+        List<XWikiDocument> storedocs = this.store.loadXWikiDocs(loadedReferences, context);
+
+        for (int i = 0; i < storedocs.size(); ++i) {
+            cacheStoredDocument(loadedKeys.get(i), storedocs.get(i));
+        }
+
+        return storedocs;
+    }
+
+    private XWikiDocument getCachedDocument(String key)
+    {
+        XWikiDocument cachedoc;
+        try {
+            cachedoc = getCache().get(key);
+        } catch (Exception e) {
+            LOGGER.error("Failed to get document from the cache", e);
+
+            cachedoc = null;
+        }
+
+        if (cachedoc != null) {
+            cachedoc.setFromCache(true);
+
+            this.metrics.increment("store.cache.hit");
+
+            LOGGER.debug("Cache: got doc {} from cache", key);
+        } else {
+            this.metrics.increment("store.cache.miss");
+        }
+
+        return cachedoc;
+    }
+
+    private void cacheStoredDocument(String key, XWikiDocument storedoc)
+    {
+        if (storedoc.isNew()) {
+            getPageExistCache().set(key, Boolean.FALSE);
+        } else {
+            // Make sure the document is fully initialized before it's shared with other threads
+            storedoc.setStore(this);
+
+            getCache().set(key, storedoc);
+
+            // Also update exist cache
+            getPageExistCache().set(key, Boolean.TRUE);
+        }
+
+        LOGGER.debug("Cache: put doc {} in cache", key);
+    }
+
+    private XWikiDocument getNotExistingDocument(XWikiDocument doc)
+    {
+        doc.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+
+        return doc;
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -431,6 +590,7 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
 
             getCache().remove(key);
             getPageExistCache().remove(key);
+            invalidateInFlightLoads(key);
             getPageExistCache().set(key, Boolean.FALSE);
         } finally {
             restoreExecutionXContext();
@@ -754,10 +914,12 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
             } catch (Exception e) {
             }
 
-            boolean result = this.store.exists(doc, context);
-            getPageExistCache().set(key, Boolean.valueOf(result));
+            return this.existLoads.load(key, () -> {
+                boolean result = this.store.exists(doc, context);
+                getPageExistCache().set(key, Boolean.valueOf(result));
 
-            return result;
+                return result;
+            });
         } finally {
             restoreExecutionXContext();
         }
@@ -793,6 +955,47 @@ public Cache<Integer> getLimitSizePropertyCache()
         return this.limitSizePropertyCache;
     }
 
+    /**
+     * @return the number of documents actually loaded from the underlying store
+     * @since 12.6RC1
+     */
+    @Unstable
+    public long getDocumentLoadCount()
+    {
+        return this.documentLoads.getLoadCount();
+    }
+
+    /**
+     * @return the number of document loads which reused the result of a load executed in parallel by another thread
+     * @since 12.6RC1
+     */
+    @Unstable
+    public long getCoalescedDocumentLoadCount()
+    {
+        return this.documentLoads.getCoalescedCount();
+    }
+
+    /**
+     * @return the number of document existence checks actually executed in the underlying store
+     * @since 12.6RC1
+     */
+    @Unstable
+    public long getExistCheckCount()
+    {
+        return this.existLoads.getLoadCount();
+    }
+
+    /**
+     * @return the number of document existence checks which reused the result of a check executed in parallel by
+     *         another thread
+     * @since 12.6RC1
+     */
+    @Unstable
+    public long getCoalescedExistCheckCount()
+    {
+        return this.existLoads.getCoalescedCount();
+    }
+
     @Override
     public List<String> getCustomMappingPropertyList(BaseClass bclass)
     {
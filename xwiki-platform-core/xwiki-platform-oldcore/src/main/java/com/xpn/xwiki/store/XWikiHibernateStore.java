@@ -25,12 +25,14 @@
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -45,6 +47,7 @@
 import javax.persistence.criteria.CriteriaUpdate;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.FlushMode;
@@ -54,8 +57,10 @@
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.Metadata;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.mapping.PersistentClass;
 import org.hibernate.mapping.Property;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
 import org.slf4j.Logger;
@@ -66,6 +71,7 @@
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -117,6 +123,11 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface, Initializable
 {
+    /**
+     * The maximum number of values in an {@code IN} list (Oracle does not support more than 1000).
+     */
+    private static final int MAX_IN_SIZE = 1000;
+
     @Inject
     private Logger logger;
 
@@ -173,6 +184,9 @@ public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWik
     @Named(HINT)
     private AttachmentVersioningStore attachmentArchiveStore;
 
+    @Inject
+    private MetricsManager metrics;
+
     private Map<String, String[]> validTypesMap = new HashMap<>();
 
     /**
@@ -443,6 +457,7 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
         try {
             boolean bTransaction = true;
             MonitorPlugin monitor = Util.getMonitorPlugin(context);
+            long timerStart = this.metrics.startTimer();
             try {
 
                 doc.setStore(this);
@@ -486,6 +501,7 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
                 if (monitor != null) {
                     monitor.endTimer(HINT);
                 }
+                this.metrics.stopTimer("store.hibernate.exists", timerStart);
 
                 try {
                     if (bTransaction) {
@@ -506,6 +522,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
 
         try {
             MonitorPlugin monitor = Util.getMonitorPlugin(context);
+            long timerStart = this.metrics.startTimer();
             try {
                 // Start monitoring timer
                 if (monitor != null) {
@@ -693,6 +710,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                 if (monitor != null) {
                     monitor.endTimer(HINT);
                 }
+                this.metrics.stopTimer("store.hibernate.save", timerStart);
             }
         } finally {
             restoreExecutionXContext();
@@ -951,6 +969,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
         try {
             boolean bTransaction = true;
             MonitorPlugin monitor = Util.getMonitorPlugin(context);
+            long timerStart = this.metrics.startTimer();
             try {
                 // Start monitoring timer
                 if (monitor != null) {
@@ -966,18 +985,9 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
                 try {
                     session.load(doc, Long.valueOf(doc.getId()));
-                    doc.setNew(false);
-                    doc.setMostRecent(true);
-                    // Fix for XWIKI-1651
-                    doc.setDate(new Date(doc.getDate().getTime()));
-                    doc.setCreationDate(new Date(doc.getCreationDate().getTime()));
-                    doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
+                    initLoadedDocument(doc);
                 } catch (ObjectNotFoundException e) { // No document
-                    doc.setNew(true);
-
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+                    initMissingDocument(doc);
 
                     return doc;
                 }
@@ -987,18 +997,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                     loadAttachmentList(doc, context, false);
                 }
 
-                // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
-                BaseClass bclass = new BaseClass();
-                String cxml = doc.getXClassXML();
-                if (cxml != null) {
-                    bclass.fromXML(cxml);
-                    doc.setXClass(bclass);
-                    bclass.setDirty(false);
-                }
-
-                // Store this XWikiClass in the context so that we can use it in case of recursive usage
-                // of classes
-                context.addBaseClass(bclass);
+                loadXClass(doc, context);
 
                 if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
                     Query<BaseObject> query = session.createQuery(
@@ -1015,35 +1014,14 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
                     boolean hasGroups = false;
                     while (it.hasNext()) {
-                        BaseObject object = it.next();
-                        DocumentReference classReference = object.getXClassReference();
+                        BaseObject storedObject = it.next();
+                        BaseObject object = newXObject(storedObject, doc, context);
 
-                        if (classReference == null) {
+                        if (object == null) {
                             continue;
                         }
 
-                        // It seems to search before is case insensitive. And this would break the loading if we get an
-                        // object which doesn't really belong to this document
-                        if (!object.getDocumentReference().equals(doc.getDocumentReference())) {
-                            continue;
-                        }
-
-                        BaseObject newobject;
-                        if (classReference.equals(doc.getDocumentReference())) {
-                            newobject = bclass.newCustomClassInstance(true);
-                        } else {
-                            newobject = BaseClass.newCustomClassInstance(classReference, true, context);
-                        }
-                        if (newobject != null) {
-                            newobject.setId(object.getId());
-                            newobject.setXClassReference(object.getRelativeXClassReference());
-                            newobject.setDocumentReference(object.getDocumentReference());
-                            newobject.setNumber(object.getNumber());
-                            newobject.setGuid(object.getGuid());
-                            object = newobject;
-                        }
-
-                        if (classReference.equals(groupsDocumentReference)) {
+                        if (storedObject.getXClassReference().equals(groupsDocumentReference)) {
                             // Groups objects are handled differently.
                             hasGroups = true;
                         } else {
@@ -1079,11 +1057,7 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                     }
                 }
 
-                doc.setContentDirty(false);
-                doc.setMetaDataDirty(false);
-
-                // We need to ensure that the loaded document becomes the original document
-                doc.setOriginalDocument(doc.clone());
+                finishLoadedDocument(doc);
 
                 if (bTransaction) {
                     endTransaction(context, false);
@@ -1105,16 +1079,421 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                 if (monitor != null) {
                     monitor.endTimer(HINT);
                 }
+                this.metrics.stopTimer("store.hibernate.load", timerStart);
             }
 
-            this.logger.debug("Loaded XWikiDocument: [{}]", doc.getDocumentReference());
-
             return doc;
         } finally {
             restoreExecutionXContext();
         }
     }
 
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String currentWiki = context.getWikiId();
+        try {
+            List<XWikiDocument> documents = new ArrayList<>(references.size());
+
+            // Each wiki has its own database
+            Map<String, Map<Long, XWikiDocument>> documentsByWiki = new LinkedHashMap<>();
+            for (DocumentReference reference : references) {
+                XWikiDocument document = new XWikiDocument(reference, reference.getLocale());
+
+                Map<Long, XWikiDocument> wikiDocuments =
+                    documentsByWiki.computeIfAbsent(reference.getWikiReference().getName(), k -> new LinkedHashMap<>());
+                XWikiDocument existingDocument = wikiDocuments.putIfAbsent(document.getId(), document);
+
+                documents.add(existingDocument != null ? existingDocument : document);
+            }
+
+            for (Map.Entry<String, Map<Long, XWikiDocument>> entry : documentsByWiki.entrySet()) {
+                context.setWikiId(entry.getKey());
+
+                if (context.getWiki().hasDynamicCustomMappings()) {
+                    // Each document might need its own session factory
+                    for (XWikiDocument document : entry.getValue().values()) {
+                        loadXWikiDoc(document, context);
+                    }
+                } else {
+                    loadXWikiDocs(entry.getValue(), context);
+                }
+            }
+
+            return documents;
+        } finally {
+            context.setWikiId(currentWiki);
+
+            restoreExecutionXContext();
+        }
+    }
+
+    /**
+     * Load documents located in the current wiki with a constant number of queries: one for the documents, one for
+     * the attachments, one for the objects, one for the property types and one per property type.
+     *
+     * @param documentsById the documents to load, indexed by identifier
+     * @param context the XWiki context
+     */
+    private void loadXWikiDocs(Map<Long, XWikiDocument> documentsById, XWikiContext context) throws XWikiException
+    {
+        boolean bTransaction = true;
+        MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        long timerStart = this.metrics.startTimer();
+        try {
+            // Start monitoring timer
+            if (monitor != null) {
+                monitor.startTimer(HINT);
+            }
+            checkHibernate(context);
+
+            bTransaction = beginTransaction(context);
+            Session session = getSession(context);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+
+            for (XWikiDocument document : documentsById.values()) {
+                document.setStore(this);
+                document.setNew(true);
+            }
+
+            List<XWikiDocument> existingDocuments = loadDocumentsMetaData(documentsById, session);
+
+            loadAttachmentLists(existingDocuments, session);
+
+            loadClassesAndObjects(existingDocuments, session, context);
+
+            for (XWikiDocument document : documentsById.values()) {
+                if (document.isNew()) {
+                    initMissingDocument(document);
+                } else {
+                    finishLoadedDocument(document);
+                }
+            }
+        } catch (Exception e) {
+            Object[] args = { documentsById.values() };
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Exception while reading documents {0}", e,
+                args);
+        } finally {
+            try {
+                if (bTransaction) {
+                    endTransaction(context, false);
+                }
+            } catch (Exception e) {
+            }
+
+            // End monitoring timer
+            if (monitor != null) {
+                monitor.endTimer(HINT);
+            }
+            this.metrics.stopTimer("store.hibernate.loadBatch", timerStart);
+        }
+    }
+
+    private List<XWikiDocument> loadDocumentsMetaData(Map<Long, XWikiDocument> documentsById, Session session)
+    {
+        // Select all the mapped properties instead of the entities so that we can fill the passed document instances
+        // exactly like Session#load(Object, Serializable) would do
+        EntityPersister persister = ((SessionFactoryImplementor) session.getSessionFactory()).getMetamodel()
+            .entityPersister(XWikiDocument.class);
+        String[] propertyNames = persister.getPropertyNames();
+        StringBuilder statement = new StringBuilder("select doc.id");
+        for (String propertyName : propertyNames) {
+            statement.append(", doc.");
+            statement.append(propertyName);
+        }
+        statement.append(" from XWikiDocument as doc where doc.id in (:ids)");
+
+        List<XWikiDocument> documents = new ArrayList<>(documentsById.size());
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(documentsById.keySet()), MAX_IN_SIZE)) {
+            Query<Object[]> query = session.createQuery(statement.toString(), Object[].class);
+            query.setParameterList("ids", ids);
+
+            for (Object[] result : query.list()) {
+                XWikiDocument document = documentsById.get(result[0]);
+
+                persister.setPropertyValues(document, Arrays.copyOfRange(result, 1, result.length));
+                initLoadedDocument(document);
+
+                documents.add(document);
+            }
+        }
+
+        return documents;
+    }
+
+    /**
+     * Update a document after its row has been loaded from the database.
+     *
+     * @param document the loaded document
+     */
+    private void initLoadedDocument(XWikiDocument document)
+    {
+        document.setNew(false);
+        document.setMostRecent(true);
+        // Fix for XWIKI-1651
+        document.setDate(new Date(document.getDate().getTime()));
+        document.setCreationDate(new Date(document.getCreationDate().getTime()));
+        document.setContentUpdateDate(new Date(document.getContentUpdateDate().getTime()));
+    }
+
+    /**
+     * Update a document which could not be found in the database.
+     *
+     * @param document the document which does not exist
+     */
+    private void initMissingDocument(XWikiDocument document)
+    {
+        document.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        document.setOriginalDocument(new XWikiDocument(document.getDocumentReference(), document.getLocale()));
+    }
+
+    /**
+     * Update a document once its attachments, class and objects have been loaded.
+     *
+     * @param document the loaded document
+     */
+    private void finishLoadedDocument(XWikiDocument document)
+    {
+        document.setContentDirty(false);
+        document.setMetaDataDirty(false);
+
+        // We need to ensure that the loaded document becomes the original document
+        document.setOriginalDocument(document.clone());
+
+        this.logger.debug("Loaded XWikiDocument: [{}]", document.getDocumentReference());
+    }
+
+    private void loadAttachmentLists(List<XWikiDocument> documents, Session session)
+    {
+        Map<Long, XWikiDocument> documentsById = new HashMap<>();
+        for (XWikiDocument document : documents) {
+            if (document.hasElement(XWikiDocument.HAS_ATTACHMENTS)) {
+                documentsById.put(document.getId(), document);
+            }
+        }
+
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(documentsById.keySet()), MAX_IN_SIZE)) {
+            Query<XWikiAttachment> query = session
+                .createQuery("from XWikiAttachment as attach where attach.docId in (:docids)", XWikiAttachment.class);
+            query.setParameterList("docids", ids);
+
+            for (XWikiAttachment attachment : query.list()) {
+                documentsById.get(attachment.getDocId()).setAttachment(attachment);
+            }
+        }
+    }
+
+    private void loadClassesAndObjects(List<XWikiDocument> documents, Session session, XWikiContext context)
+        throws XWikiException
+    {
+        // Several documents (the translations) can have the same name
+        Map<String, List<XWikiDocument>> documentsByName = new HashMap<>();
+        for (XWikiDocument document : documents) {
+            loadXClass(document, context);
+
+            if (document.hasElement(XWikiDocument.HAS_OBJECTS)) {
+                documentsByName.computeIfAbsent(document.getFullName(), k -> new ArrayList<>()).add(document);
+            }
+        }
+
+        Map<String, List<BaseObject>> objectsByName = new HashMap<>();
+        for (List<String> names : ListUtils.partition(new ArrayList<>(documentsByName.keySet()), MAX_IN_SIZE)) {
+            Query<BaseObject> query = session.createQuery(
+                "from BaseObject as bobject where bobject.name in (:names) order by bobject.number", BaseObject.class);
+            query.setParameterList("names", names);
+
+            for (BaseObject object : query.list()) {
+                objectsByName.computeIfAbsent(object.getName(), k -> new ArrayList<>()).add(object);
+            }
+        }
+
+        // Translations share the same objects but each one needs its own instances
+        Map<Long, List<BaseObject>> objectsById = new LinkedHashMap<>();
+        Map<Long, List<XWikiDocument>> objectDocuments = new HashMap<>();
+        for (Map.Entry<String, List<XWikiDocument>> entry : documentsByName.entrySet()) {
+            for (XWikiDocument document : entry.getValue()) {
+                for (BaseObject storedObject : objectsByName.getOrDefault(entry.getKey(), Collections.emptyList())) {
+                    BaseObject object = newXObject(storedObject, document, context);
+                    if (object != null) {
+                        if (isCustomMapped(object, document, context)) {
+                            loadXWikiCollectionInternal(object, document, context, false, true);
+                        } else {
+                            objectsById.computeIfAbsent(object.getId(), k -> new ArrayList<>()).add(object);
+                            objectDocuments.computeIfAbsent(object.getId(), k -> new ArrayList<>()).add(document);
+                        }
+
+                        document.setXObject(object.getNumber(), object);
+                    }
+                }
+            }
+        }
+
+        loadProperties(objectsById, objectDocuments, session, context);
+    }
+
+    private void loadXClass(XWikiDocument document, XWikiContext context) throws XWikiException
+    {
+        // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
+        BaseClass bclass = new BaseClass();
+        String cxml = document.getXClassXML();
+        if (cxml != null) {
+            bclass.fromXML(cxml);
+            document.setXClass(bclass);
+            bclass.setDirty(false);
+        }
+
+        // Store this XWikiClass in the context so that we can use it in case of recursive usage of classes
+        context.addBaseClass(bclass);
+    }
+
+    private BaseObject newXObject(BaseObject storedObject, XWikiDocument document, XWikiContext context)
+        throws XWikiException
+    {
+        DocumentReference classReference = storedObject.getXClassReference();
+
+        // It seems the search is case insensitive and this would break the loading if we get an object which doesn't
+        // really belong to this document
+        if (classReference == null || !storedObject.getDocumentReference().equals(document.getDocumentReference())) {
+            return null;
+        }
+
+        BaseObject object;
+        if (classReference.equals(document.getDocumentReference())) {
+            object = document.getXClass().newCustomClassInstance(true);
+        } else {
+            object = BaseClass.newCustomClassInstance(classReference, true, context);
+        }
+
+        if (object == null) {
+            return storedObject;
+        }
+
+        object.setId(storedObject.getId());
+        object.setXClassReference(storedObject.getRelativeXClassReference());
+        object.setDocumentReference(storedObject.getDocumentReference());
+        object.setNumber(storedObject.getNumber());
+        object.setGuid(storedObject.getGuid());
+
+        return object;
+    }
+
+    private boolean isCustomMapped(BaseObject object, XWikiDocument document, XWikiContext context)
+    {
+        if (!context.getWiki().hasCustomMappings()) {
+            return false;
+        }
+
+        BaseClass bclass;
+        if (object.getXClassReference().equals(object.getDocumentReference())) {
+            bclass = document.getXClass();
+        } else {
+            bclass = object.getXClass(context);
+        }
+
+        return bclass != null && bclass.hasCustomMapping();
+    }
+
+    private void loadProperties(Map<Long, List<BaseObject>> objectsById,
+        Map<Long, List<XWikiDocument>> objectDocuments, Session session, XWikiContext context) throws XWikiException
+    {
+        // Get the name and type of each property
+        Map<Long, List<String>> propertyNamesById = new HashMap<>();
+        Map<String, Set<Long>> idsByType = new HashMap<>();
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(objectsById.keySet()), MAX_IN_SIZE)) {
+            Query<Object[]> query = session.createQuery(
+                "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)",
+                Object[].class);
+            query.setParameterList("ids", ids);
+
+            for (Object[] result : query.list()) {
+                propertyNamesById.computeIfAbsent((Long) result[0], k -> new ArrayList<>()).add((String) result[1]);
+                idsByType.computeIfAbsent((String) result[2], k -> new HashSet<>()).add((Long) result[0]);
+            }
+        }
+
+        // Load the properties of each type (strings, integers, dates, etc.) all at once
+        Map<Long, Map<String, BaseProperty>> propertiesById = new HashMap<>();
+        for (Map.Entry<String, Set<Long>> entry : idsByType.entrySet()) {
+            for (List<Long> ids : ListUtils.partition(new ArrayList<>(entry.getValue()), MAX_IN_SIZE)) {
+                Query<BaseProperty> query = session.createQuery(
+                    "select prop from " + entry.getKey() + " as prop where prop.id.id in (:ids)", BaseProperty.class);
+                query.setParameterList("ids", ids);
+
+                for (BaseProperty property : query.list()) {
+                    if (property.getClassType().equals(entry.getKey())) {
+                        propertiesById.computeIfAbsent(property.getId(), k -> new HashMap<>())
+                            .put(property.getName(), property);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<Long, List<BaseObject>> entry : objectsById.entrySet()) {
+            List<String> propertyNames = propertyNamesById.getOrDefault(entry.getKey(), Collections.emptyList());
+            Map<String, BaseProperty> properties = propertiesById.getOrDefault(entry.getKey(), Collections.emptyMap());
+            boolean complete = properties.keySet().containsAll(propertyNames);
+
+            for (int i = 0; i < entry.getValue().size(); ++i) {
+                BaseObject object = entry.getValue().get(i);
+
+                if (complete) {
+                    for (String propertyName : propertyNames) {
+                        BaseProperty property = properties.get(propertyName);
+                        if (i > 0) {
+                            property = property.clone();
+                        }
+
+                        addLoadedProperty(object, property);
+                    }
+                } else {
+                    // Some properties are not stored in the table matching their type (see the workaround in
+                    // #loadXWikiCollectionInternal())
+                    loadXWikiCollectionInternal(object, objectDocuments.get(entry.getKey()).get(i), context, false,
+                        true);
+                }
+            }
+        }
+    }
+
+    private void addLoadedProperty(BaseObject object, BaseProperty property)
+    {
+        property.setObject(object);
+
+        initLoadedProperty(property);
+
+        // Let's force reading lists if there is a list (see #loadXWikiProperty())
+        if (property instanceof ListProperty) {
+            ((ListProperty) property).getList();
+        }
+
+        object.addField(property.getName(), property);
+    }
+
+    /**
+     * Update a property after its value has been loaded from the database.
+     *
+     * @param property the loaded property
+     */
+    private void initLoadedProperty(BaseProperty property)
+    {
+        // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is safe
+        // to assume that a retrieved NULL value should actually be an empty string.
+        if (property instanceof BaseStringProperty) {
+            BaseStringProperty stringProperty = (BaseStringProperty) property;
+            if (stringProperty.getValue() == null) {
+                stringProperty.setValue("");
+            }
+        }
+        property.setValueDirty(false);
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -1128,6 +1507,7 @@ private void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boole
 
         try {
             MonitorPlugin monitor = Util.getMonitorPlugin(context);
+            long timerStart = this.metrics.startTimer();
             try {
                 // Start monitoring timer
                 if (monitor != null) {
@@ -1206,6 +1586,7 @@ private void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boole
                 if (monitor != null) {
                     monitor.endTimer(HINT);
                 }
+                this.metrics.stopTimer("store.hibernate.delete", timerStart);
             }
         } finally {
             restoreExecutionXContext();
@@ -1660,15 +2041,7 @@ private void loadXWikiProperty(PropertyInterface property, XWikiContext context,
 
             try {
                 session.load(property, (Serializable) property);
-                // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
-                // safe to assume that a retrieved NULL value should actually be an empty string.
-                if (property instanceof BaseStringProperty) {
-                    BaseStringProperty stringProperty = (BaseStringProperty) property;
-                    if (stringProperty.getValue() == null) {
-                        stringProperty.setValue("");
-                    }
-                }
-                ((BaseProperty) property).setValueDirty(false);
+                initLoadedProperty((BaseProperty) property);
             } catch (ObjectNotFoundException e) {
                 // Let's accept that there is no data in property tables but log it
                 this.logger.error("No data for property [{}] of object id [{}]", property.getName(), property.getId());
@@ -2489,6 +2862,7 @@ public <T> List<T> search(String sql, int nb, int start, Object[][] whereParams,
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
         MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        long timerStart = this.metrics.startTimer();
         try {
             // Start monitoring timer
             if (monitor != null) {
@@ -2548,6 +2922,7 @@ public <T> List<T> search(String sql, int nb, int start, Object[][] whereParams,
             if (monitor != null) {
                 monitor.endTimer(HINT);
             }
+            this.metrics.stopTimer("store.hibernate.search", timerStart);
         }
     }
 
@@ -2596,6 +2971,7 @@ public List search(Query query, int nb, int start, XWikiContext inputxcontext) t
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
         MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        long timerStart = this.metrics.startTimer();
         try {
             // Start monitoring timer
             if (monitor != null) {
@@ -2639,6 +3015,7 @@ public List search(Query query, int nb, int start, XWikiContext inputxcontext) t
             if (monitor != null) {
                 monitor.endTimer(HINT);
             }
+            this.metrics.stopTimer("store.hibernate.search", timerStart);
         }
     }
 
@@ -2718,6 +3095,7 @@ private <T> List<T> searchGenericInternal(String sql, int nb, int start, List<?>
     {
         boolean bTransaction = false;
         MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        long timerStart = this.metrics.startTimer();
         try {
             // Start monitoring timer
             if (monitor != null) {
@@ -2757,6 +3135,7 @@ private <T> List<T> searchGenericInternal(String sql, int nb, int start, List<?>
             if (monitor != null) {
                 monitor.endTimer(HINT);
             }
+            this.metrics.stopTimer("store.hibernate.count", timerStart);
         }
     }
 
@@ -2778,6 +3157,7 @@ public List<XWikiDocument> searchDocuments(String wheresql, boolean distinctbyla
         List documentDatas = new ArrayList<>();
         boolean bTransaction = true;
         MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        long timerStart = this.metrics.startTimer();
         try {
             String sql;
             if (distinctbylanguage) {
@@ -2830,6 +3210,7 @@ public List<XWikiDocument> searchDocuments(String wheresql, boolean distinctbyla
             if (monitor != null) {
                 monitor.endTimer(HINT);
             }
+            this.metrics.stopTimer("store.hibernate.searchDocuments", timerStart);
         }
 
         // Resolve documents. We use two separated sessions because rights service could need to switch database to
@@ -19,6 +19,8 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
@@ -60,6 +62,38 @@ default void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, X
 
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Load several documents at once. Stores supporting it load all the documents with a constant number of requests,
+     * whatever the number of documents.
+     *
+     * @param references the references of the documents to load, with the locale of the translation to load if any
+     *            (the documents can be located in different wikis)
+     * @param context the XWiki context
+     * @return the documents, in the same order as the passed references (a new document for each reference that does
+     *         not exist, like {@link #loadXWikiDoc(XWikiDocument, XWikiContext)})
+     * @throws XWikiException when failing to load the documents
+     * @since 12.6RC1
+     */
+    @Unstable
+    default List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        List<XWikiDocument> documents = new ArrayList<>(references.size());
+
+        String currentWiki = context.getWikiId();
+        try {
+            for (DocumentReference reference : references) {
+                context.setWikiId(reference.getWikiReference().getName());
+
+                documents.add(loadXWikiDoc(new XWikiDocument(reference, reference.getLocale()), context));
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+
+        return documents;
+    }
+
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     List<String> getClassList(XWikiContext context) throws XWikiException;
@@ -19,21 +19,30 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -52,6 +61,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.util.Util;
@@ -89,7 +99,31 @@ public class DownloadAction extends XWikiAction
     private static final String RANGE_HEADER_NAME = "Range";
 
     /** The format of a valid range header. */
-    private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
+    private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=(.+)");
+
+    /** The format of a valid byte range, several of them can be requested at once, separated by commas. */
+    private static final Pattern RANGE_PATTERN = Pattern.compile("([0-9]+)?-([0-9]+)?");
+
+    /** The name of the HTTP Header that makes a range request conditional. */
+    private static final String IF_RANGE_HEADER_NAME = "If-Range";
+
+    /** The name of the HTTP Header holding the entity tags of the content already known by the client. */
+    private static final String IF_NONE_MATCH_HEADER_NAME = "If-None-Match";
+
+    /** The name of the HTTP Header holding the range of a partial content. */
+    private static final String CONTENT_RANGE_HEADER_NAME = "Content-Range";
+
+    /** The prefix of the value of the Content-Range header. */
+    private static final String CONTENT_RANGE_PREFIX = "bytes ";
+
+    /** The line separator used in the multipart responses. */
+    private static final String CRLF = "\r\n";
+
+    /** The prefix of a multipart boundary. */
+    private static final String BOUNDARY_PREFIX = "--";
+
+    /** The maximum number of distinct byte ranges sent in a multipart response. */
+    private static final int MAX_RANGES = 16;
 
     /**
      * Default constructor.
@@ -161,15 +195,27 @@ public String render(XWikiContext context) throws XWikiException
                     args);
             }
 
-            long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
-            long lastModifiedOnServer = attachment.getDate().getTime();
-            if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
-                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                return null;
+            String etag = getETag(attachment, context);
+            response.setHeader("ETag", etag);
+
+            String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER_NAME);
+            if (ifNoneMatch != null) {
+                // If-None-Match takes precedence over If-Modified-Since
+                if (matches(ifNoneMatch, etag)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return null;
+                }
+            } else {
+                long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
+                long lastModifiedOnServer = attachment.getDate().getTime();
+                if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return null;
+                }
             }
 
             // Sending the content of the attachment
-            if (request.getHeader(RANGE_HEADER_NAME) != null) {
+            if (request.getHeader(RANGE_HEADER_NAME) != null && isRangeApplicable(attachment, etag, request)) {
                 try {
                     if (sendPartialContent(attachment, request, response, context)) {
                         return null;
@@ -195,11 +241,78 @@ private void throwNotFoundException(String filename) throws XWikiException
             message);
     }
 
+    /**
+     * Compute a strong entity tag identifying the content of the attachment. The content of an attachment can only be
+     * modified by creating a new version, so the version, size and date of the attachment identify its content without
+     * having to read it.
+     *
+     * @param attachment the attachment for which to compute the entity tag
+     * @param context the current request context
+     * @return the entity tag, including the surrounding quotes
+     * @throws XWikiException if the attachment content cannot be retrieved
+     */
+    private String getETag(XWikiAttachment attachment, XWikiContext context) throws XWikiException
+    {
+        String hash = DigestUtils.sha1Hex(attachment.getReference() + SEPARATOR + attachment.getVersion() + SEPARATOR
+            + attachment.getContentLongSize(context) + SEPARATOR + attachment.getDate().getTime());
+
+        return '"' + attachment.getVersion() + '-' + hash + '"';
+    }
+
+    /**
+     * @param ifNoneMatch the value of the If-None-Match header
+     * @param etag the entity tag of the attachment
+     * @return {@code true} if one of the entity tags sent by the client matches the attachment one
+     */
+    private boolean matches(String ifNoneMatch, String etag)
+    {
+        for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+            // The comparison is weak for If-None-Match
+            String value = StringUtils.removeStart(clientETag.trim(), "W/");
+            if ("*".equals(value) || value.equals(etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param attachment the attachment to get content from
+     * @param etag the entity tag of the attachment
+     * @param request the current client request
+     * @return {@code false} if the range request is conditional and the content known by the client is not the current
+     *         one, in which case the full content should be sent
+     */
+    private boolean isRangeApplicable(XWikiAttachment attachment, String etag, XWikiRequest request)
+    {
+        String ifRange = request.getHeader(IF_RANGE_HEADER_NAME);
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.trim().startsWith("\"")) {
+            // The comparison is strong for If-Range
+            return ifRange.trim().equals(etag);
+        }
+
+        try {
+            // HTTP dates have a precision of one second
+            return request.getDateHeader(IF_RANGE_HEADER_NAME) / 1000L >= attachment.getDate().getTime() / 1000L;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     /**
      * Respond to a range request, either with the requested bytes, or with a {@code 416 REQUESTED RANGE NOT
-     * SATISFIABLE} response if the requested byte range falls outside the length of the attachment. If the range
+     * SATISFIABLE} response if all the requested byte ranges fall outside the length of the attachment. If the range
      * request header is syntactically invalid, nothing is written, and instead {@code false} is returned, letting the
      * action handler ignore the Range header and treat this as a normal (full) download request.
+     * <p>
+     * Overlapping and adjacent byte ranges are merged. When several byte ranges remain, they are sent in a
+     * {@code multipart/byteranges} response, unless there are more than {@value #MAX_RANGES} of them, in which case the
+     * Range header is ignored like a syntactically invalid one.
      *
      * @param attachment the attachment to get content from
      * @param request the current client request
@@ -215,32 +328,85 @@ private boolean sendPartialContent(final XWikiAttachment attachment, final XWiki
     {
         String range = request.getHeader(RANGE_HEADER_NAME);
         Matcher m = RANGE_HEADER_PATTERN.matcher(range);
-        if (m.matches()) {
-            String startStr = m.group(1);
-            String endStr = m.group(2);
-            Long start = NumberUtils.createLong(startStr);
-            Long end = NumberUtils.createLong(endStr);
+        if (!m.matches()) {
+            return false;
+        }
+
+        long size = attachment.getContentLongSize(context);
+
+        List<Pair<Long, Long>> ranges = new ArrayList<>();
+        for (String rangeString : StringUtils.split(m.group(1), ',')) {
+            Matcher rangeMatcher = RANGE_PATTERN.matcher(rangeString.trim());
+            if (!rangeMatcher.matches()) {
+                return false;
+            }
+            Long start = NumberUtils.createLong(rangeMatcher.group(1));
+            Long end = NumberUtils.createLong(rangeMatcher.group(2));
             if (start == null && end != null && end > 0) {
                 // Tail request, output the last <end> bytes
-                start = Math.max(attachment.getContentLongSize(context) - end, 0L);
-                end = attachment.getContentLongSize(context) - 1L;
+                start = Math.max(size - end, 0L);
+                end = size - 1L;
             }
             if (!isValidRange(start, end)) {
                 return false;
             }
-            if (end == null) {
-                end = attachment.getContentLongSize(context) - 1L;
+            // Ignore the ranges falling outside the file limits
+            if (start != null && start < size) {
+                ranges.add(new ImmutablePair<>(start, end == null ? size - 1L : Math.min(end, size - 1L)));
             }
-            end = Math.min(end, attachment.getContentLongSize(context) - 1L);
-            writeByteRange(attachment, start, end, request, response, context);
-            return true;
         }
-        return false;
+
+        List<Pair<Long, Long>> mergedRanges = mergeRanges(ranges);
+        if (mergedRanges.size() > MAX_RANGES) {
+            // Avoid sending a huge multipart response made of many small parts
+            return false;
+        }
+
+        if (mergedRanges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(CONTENT_RANGE_HEADER_NAME, CONTENT_RANGE_PREFIX + "*/" + size);
+        } else if (mergedRanges.size() == 1) {
+            Pair<Long, Long> range = mergedRanges.get(0);
+            writeByteRange(attachment, range.getLeft(), range.getRight(), request, response, context);
+        } else {
+            writeByteRanges(attachment, mergedRanges, request, response, context);
+        }
+
+        return true;
     }
 
     /**
-     * Write a byte range from the attachment to the response, if the requested range is valid and falls within the file
-     * limits.
+     * Merge the overlapping and adjacent byte ranges.
+     *
+     * @param ranges the first and last bytes of each range
+     * @return the merged ranges, sorted by first byte
+     */
+    private List<Pair<Long, Long>> mergeRanges(List<Pair<Long, Long>> ranges)
+    {
+        List<Pair<Long, Long>> sortedRanges = new ArrayList<>(ranges);
+        sortedRanges.sort(Comparator.comparing(Pair::getLeft));
+
+        List<Pair<Long, Long>> mergedRanges = new ArrayList<>(sortedRanges.size());
+        Pair<Long, Long> current = null;
+        for (Pair<Long, Long> range : sortedRanges) {
+            if (current == null) {
+                current = range;
+            } else if (range.getLeft() <= current.getRight() + 1L) {
+                current = new ImmutablePair<>(current.getLeft(), Math.max(current.getRight(), range.getRight()));
+            } else {
+                mergedRanges.add(current);
+                current = range;
+            }
+        }
+        if (current != null) {
+            mergedRanges.add(current);
+        }
+
+        return mergedRanges;
+    }
+
+    /**
+     * Write a byte range from the attachment to the response.
      *
      * @param attachment the attachment to get content from
      * @param start the first byte to write
@@ -251,23 +417,106 @@ private boolean sendPartialContent(final XWikiAttachment attachment, final XWiki
      * @throws XWikiException if the attachment content cannot be retrieved
      * @throws IOException if the response cannot be written
      */
-    private void writeByteRange(final XWikiAttachment attachment, Long start, Long end, final XWikiRequest request,
+    private void writeByteRange(final XWikiAttachment attachment, long start, long end, final XWikiRequest request,
         final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
     {
-        if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
-            setCommonHeaders(attachment, request, response, context);
-            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-            if ((end - start + 1L) < Integer.MAX_VALUE) {
-                setContentLength(response, end - start + 1);
+        setCommonHeaders(attachment, request, response, context);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if ((end - start + 1L) < Integer.MAX_VALUE) {
+            setContentLength(response, end - start + 1);
+        }
+        response.setHeader(CONTENT_RANGE_HEADER_NAME, getContentRange(attachment, start, end, context));
+        writeContent(attachment, start, end - start + 1L, response.getOutputStream(), context);
+    }
+
+    /**
+     * Write several byte ranges from the attachment to the response, as a {@code multipart/byteranges} content.
+     *
+     * @param attachment the attachment to get content from
+     * @param ranges the first and last bytes of each range to write
+     * @param request the current client request
+     * @param response the response to write to.
+     * @param context the current request context
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the response cannot be written
+     */
+    private void writeByteRanges(final XWikiAttachment attachment, List<Pair<Long, Long>> ranges,
+        final XWikiRequest request, final XWikiResponse response, final XWikiContext context)
+        throws XWikiException, IOException
+    {
+        String boundary = UUID.randomUUID().toString();
+
+        setCommonHeaders(attachment, request, response, context);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        String partContentType = attachment.getMimeType(context);
+        if (attachment.getCharset() != null) {
+            partContentType += "; charset=" + attachment.getCharset();
+        }
+
+        OutputStream output = response.getOutputStream();
+        for (Pair<Long, Long> range : ranges) {
+            StringBuilder partHeaders = new StringBuilder();
+            partHeaders.append(CRLF).append(BOUNDARY_PREFIX).append(boundary).append(CRLF);
+            partHeaders.append("Content-Type: ").append(partContentType).append(CRLF);
+            partHeaders.append(CONTENT_RANGE_HEADER_NAME).append(": ")
+                .append(getContentRange(attachment, range.getLeft(), range.getRight(), context)).append(CRLF);
+            partHeaders.append(CRLF);
+            output.write(partHeaders.toString().getBytes(StandardCharsets.US_ASCII));
+
+            writeContent(attachment, range.getLeft(), range.getRight() - range.getLeft() + 1L, output, context);
+        }
+        output.write((CRLF + BOUNDARY_PREFIX + boundary + BOUNDARY_PREFIX + CRLF).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String getContentRange(XWikiAttachment attachment, long start, long end, XWikiContext context)
+        throws XWikiException
+    {
+        return CONTENT_RANGE_PREFIX + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context);
+    }
+
+    /**
+     * Write a byte range from the attachment content. When the content is stored in a file it's read directly from
+     * the requested position, and transferred to the output without going through an intermediate stream.
+     *
+     * @param attachment the attachment to get content from
+     * @param start the first byte to write
+     * @param length the number of bytes to write, or a negative value to write everything after the first byte
+     * @param output the stream to write to
+     * @param context the current request context
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the content cannot be written
+     */
+    private void writeContent(XWikiAttachment attachment, long start, long length, OutputStream output,
+        XWikiContext context) throws XWikiException, IOException
+    {
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+        File file = content != null ? content.getContentFile() : null;
+
+        if (file != null && file.isFile()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                // Don't close the target channel since it would close the response output stream
+                WritableByteChannel target = Channels.newChannel(output);
+                long position = start;
+                long remaining = length < 0 ? channel.size() - start : length;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        // The file is shorter than expected
+                        break;
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
             }
-            response.setHeader("Content-Range",
-                "bytes " + start + "-" + end + SEPARATOR + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
         } else {
-            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            InputStream stream = attachment.getContentInputStream(context);
+            try {
+                IOUtils.copyLarge(stream, output, start, length);
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
         }
     }
 
@@ -283,19 +532,13 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
     protected void sendContent(final XWikiAttachment attachment, final XWikiRequest request,
         final XWikiResponse response, final XWikiContext context) throws XWikiException
     {
-        InputStream stream = null;
         try {
             setCommonHeaders(attachment, request, response, context);
             setContentLength(response, attachment.getContentLongSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            writeContent(attachment, 0L, -1L, response.getOutputStream(), context);
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
-        } finally {
-            if (stream != null) {
-                IOUtils.closeQuietly(stream);
-            }
         }
     }
 
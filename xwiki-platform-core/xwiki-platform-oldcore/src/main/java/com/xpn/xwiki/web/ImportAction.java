@@ -29,6 +29,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.input.BeanInputFilterStream;
@@ -80,6 +81,11 @@ public class ImportAction extends XWikiAction
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ImportAction.class);
 
+    /**
+     * The configuration property indicating how many threads are used to save the imported documents.
+     */
+    private static final String SAVE_THREADS_PROPERTY = "store.import.saveThreads";
+
     @Override
     public String render(XWikiContext context) throws XWikiException
     {
@@ -241,6 +247,8 @@ private void importPackageFilterStream(XWikiAttachment packFile, XWikiRequest re
         XARInputProperties xarProperties = new XARInputProperties();
         DocumentInstanceOutputProperties instanceProperties = new DocumentInstanceOutputProperties();
         instanceProperties.setSaveComment("Imported from XAR");
+        instanceProperties.setSaveThreads(Utils.getComponent(ConfigurationSource.class, "xwikiproperties")
+            .getProperty(SAVE_THREADS_PROPERTY, 1));
 
         if (pages != null) {
             EntityReferenceSet entities = new EntityReferenceSet();
@@ -21,7 +21,9 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.net.URL;
 import java.util.Collections;
@@ -46,6 +48,7 @@
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.async.internal.AsyncRendererStreamer;
 import org.xwiki.xml.XMLUtils;
 
 import com.xpn.xwiki.XWiki;
@@ -65,6 +68,9 @@
     private static final String PLACEHOLDERS_ENABLED_CONTEXT_KEY = Utils.class.getCanonicalName()
         + "_placeholders_enabled";
 
+    /** The end of the page body, before which the results of the asynchronous placeholders are streamed. */
+    private static final String BODY_END = "</body>";
+
     /**
      * The component manager used by {@link #getComponent(Class)} and {@link #getComponent(Class, String)}. It is useful
      * for any non component code that need to initialize/access components.
@@ -193,8 +199,16 @@ public static void parseTemplate(String template, boolean write, XWikiContext co
             }
         }
 
+        // The result of the asynchronous placeholders can be sent at the end of the page body instead of being
+        // requested by the client
+        AsyncRendererStreamer streamer = write ? getAsyncRendererStreamer(content, context) : null;
+        if (streamer != null) {
+            content = streamer.prepare(content);
+        }
+
         if (!context.isFinished()) {
-            if (context.getResponse() instanceof XWikiServletResponse) {
+            // The length of a streamed response is not known in advance
+            if (context.getResponse() instanceof XWikiServletResponse && streamer == null) {
                 // Set the content length to the number of bytes, not the
                 // string length, so as to handle multi-byte encodings
                 try {
@@ -209,15 +223,15 @@ public static void parseTemplate(String template, boolean write, XWikiContext co
             // response has already been written to and we shouldn't try to write in it.
             if (write && response.getStatus() != HttpServletResponse.SC_FOUND)
             {
-                try {
-                    try {
-                        response.getOutputStream().write(content.getBytes(context.getWiki().getEncoding()));
-                    } catch (IllegalStateException ex) {
-                        response.getWriter().write(content);
-                    }
-                } catch (IOException e) {
-                    throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
-                        XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
+                if (streamer != null) {
+                    // Stream the results inside the body so that the page remains valid HTML
+                    int bodyEnd = StringUtils.lastIndexOfIgnoreCase(content, BODY_END);
+
+                    write(content.substring(0, bodyEnd), context);
+                    streamAsyncResults(streamer, context);
+                    write(content.substring(bodyEnd), context);
+                } else {
+                    write(content, context);
                 }
             }
         }
@@ -232,6 +246,71 @@ public static void parseTemplate(String template, boolean write, XWikiContext co
         }
     }
 
+    private static void write(String content, XWikiContext context) throws XWikiException
+    {
+        XWikiResponse response = context.getResponse();
+
+        try {
+            try {
+                response.getOutputStream().write(content.getBytes(context.getWiki().getEncoding()));
+            } catch (IllegalStateException ex) {
+                response.getWriter().write(content);
+            }
+        } catch (IOException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
+                XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION, "Exception while sending response", e);
+        }
+    }
+
+    private static AsyncRendererStreamer getAsyncRendererStreamer(String content, XWikiContext context)
+    {
+        XWikiResponse response = context.getResponse();
+
+        // Only a complete HTML page can receive the streamed results
+        if (response instanceof XWikiServletResponse && StringUtils.startsWith(response.getContentType(), "text/html")
+            && StringUtils.endsWithIgnoreCase(content, "</html>")
+            && StringUtils.containsIgnoreCase(content, BODY_END)) {
+            ComponentManager componentManager = getContextComponentManager();
+
+            if (componentManager != null && componentManager.hasComponent(AsyncRendererStreamer.class)) {
+                try {
+                    AsyncRendererStreamer streamer = componentManager.getInstance(AsyncRendererStreamer.class);
+
+                    if (streamer.isEnabled()) {
+                        return streamer;
+                    }
+                } catch (ComponentLookupException e) {
+                    LOGGER.warn("Failed to lookup the asynchronous renderer streamer: {}",
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static void streamAsyncResults(AsyncRendererStreamer streamer, XWikiContext context)
+    {
+        XWikiResponse response = context.getResponse();
+
+        try {
+            Writer writer;
+            try {
+                // Make sure the client get the page before we wait for the asynchronous results
+                response.getOutputStream().flush();
+
+                writer = new OutputStreamWriter(response.getOutputStream(), context.getWiki().getEncoding());
+            } catch (IllegalStateException e) {
+                writer = response.getWriter();
+                writer.flush();
+            }
+
+            streamer.stream(writer);
+        } catch (IOException e) {
+            LOGGER.debug("Failed to stream the asynchronous results (the client probably left)", e);
+        }
+    }
+
     /**
      * Retrieve the URL to which the client should be redirected after the successful completion of the requested
      * action. This is taken from the {@code xredirect} parameter in the query string. If this parameter is not set, or
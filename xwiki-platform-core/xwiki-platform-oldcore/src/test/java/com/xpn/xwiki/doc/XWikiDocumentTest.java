@@ -38,6 +38,8 @@
 import org.mockito.stubbing.Answer;
 import org.xwiki.context.Execution;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.configuration.ExtendedRenderingConfiguration;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.test.annotation.AllComponents;
@@ -675,6 +677,49 @@ public void rename10() throws XWikiException
         assertEquals("[pageinsamespace]", this.document.getContent());
     }
 
+    @Test
+    public void getReadOnlyXDOM()
+    {
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+        this.document.setContent("content");
+
+        XDOM xdom = this.document.getReadOnlyXDOM();
+
+        assertSame(xdom, this.document.getReadOnlyXDOM());
+        assertNotSame(xdom, this.document.getXDOM());
+        assertEquals(xdom.getChildren().size(), this.document.getXDOM().getChildren().size());
+
+        this.document.setContent("other content");
+
+        assertNotSame(xdom, this.document.getReadOnlyXDOM());
+    }
+
+    @Test
+    public void sectionsDontModifyReadOnlyXDOM() throws XWikiException
+    {
+        String content = "content not in section\n\n= header 1 =\n\nheader 1 content\n\n== header 2 ==\n\n"
+            + "header 2 content";
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+        this.document.setContent(content);
+
+        XDOM xdom = this.document.getReadOnlyXDOM();
+        List<Block> children = new ArrayList<>(xdom.getChildren());
+        Block section = children.get(1);
+
+        this.document.getSections();
+        this.document.getContentOfSection(2);
+        assertEquals("content not in section\n\n= header 1 =\n\nheader 1 content\n\n== header 2 ==\n\n"
+            + "modified header 2 content",
+            this.document.updateDocumentSection(2, "== header 2 ==\n\nmodified header 2 content"));
+        this.document.updateDocumentSection(1, "");
+
+        assertSame(xdom, this.document.getReadOnlyXDOM());
+        assertEquals(children, xdom.getChildren());
+        assertSame(xdom, section.getParent());
+        assertEquals(content, this.document.getContent());
+        assertEquals("== header 2 ==\n\nheader 2 content", this.document.getContentOfSection(2));
+    }
+
     /**
      * @see "XWIKI-7515: 'getIncludedPages' in class com.xpn.xwiki.api.Document threw java.lang.NullPointerException"
      */
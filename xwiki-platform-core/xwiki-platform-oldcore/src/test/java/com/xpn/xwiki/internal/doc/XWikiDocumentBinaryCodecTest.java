@@ -0,0 +1,216 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.doc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.classes.StringClass;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link XWikiDocumentBinaryCodec}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+public class XWikiDocumentBinaryCodecTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "space", "page");
+
+    private static final DocumentReference USER_REFERENCE = new DocumentReference("wiki", "XWiki", "user");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @InjectMockComponents
+    private XWikiDocumentBinaryCodec codec;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        this.oldcore.registerMockEnvironment();
+    }
+
+    private XWikiDocument createDocument() throws IOException
+    {
+        XWikiDocument document = new XWikiDocument(DOCUMENT_REFERENCE, Locale.FRENCH);
+
+        document.setDefaultLocale(Locale.ENGLISH);
+        document.setVersion("4.2");
+        document.setTitle("title");
+        document.setContent("content");
+        document.setSyntax(Syntax.XWIKI_2_1);
+        document.setParentReference(new DocumentReference("wiki", "space", "parent").getLocalDocumentReference());
+        document.setCreatorReference(USER_REFERENCE);
+        document.setAuthorReference(USER_REFERENCE);
+        document.setContentAuthorReference(USER_REFERENCE);
+        document.setCreationDate(new Date(1000));
+        document.setDate(new Date(2000));
+        document.setContentUpdateDate(new Date(3000));
+        document.setComment("comment");
+        document.setMinorEdit(true);
+        document.setHidden(true);
+        document.setNew(false);
+
+        document.getXClass().addTextField("string", "String", 30);
+        document.getXClass().addNumberField("int", "Int", 10, "integer");
+        document.getXClass().addStaticListField("list", "List", 5, true, "a|b|c");
+
+        BaseObject xobject = new BaseObject();
+        xobject.setXClassReference(DOCUMENT_REFERENCE);
+        xobject.setStringValue("string", "value");
+        xobject.setIntValue("int", 42);
+        xobject.setDateValue("date", new Date(4000));
+        xobject.setStringListValue("list", Arrays.asList("a", "c"));
+        document.addXObject(xobject);
+        document.addXObject(DOCUMENT_REFERENCE, null);
+        BaseObject xobject2 = new BaseObject();
+        xobject2.setXClassReference(DOCUMENT_REFERENCE);
+        xobject2.setLargeStringValue("string", "other value");
+        document.addXObject(xobject2);
+
+        XWikiAttachment attachment = document.setAttachment("file.txt",
+            new ByteArrayInputStream(new byte[] { 1, 2, 3 }), this.oldcore.getXWikiContext());
+        attachment.setAuthorReference(USER_REFERENCE);
+        attachment.setMimeType("text/plain");
+
+        return document;
+    }
+
+    @Test
+    public void copy() throws Exception
+    {
+        XWikiDocument document = createDocument();
+
+        XWikiDocument copy = this.codec.copy(document);
+
+        assertNotSame(document, copy);
+        assertTrue(document.equalsData(copy));
+        assertEquals(document.getDocumentReferenceWithLocale(), copy.getDocumentReferenceWithLocale());
+        assertEquals(Locale.ENGLISH, copy.getDefaultLocale());
+        assertEquals("4.2", copy.getVersion());
+        assertEquals(USER_REFERENCE, copy.getCreatorReference());
+        assertEquals(USER_REFERENCE, copy.getAuthorReference());
+        assertEquals(USER_REFERENCE, copy.getContentAuthorReference());
+        assertEquals(new Date(1000), copy.getCreationDate());
+        assertEquals(new Date(2000), copy.getDate());
+        assertEquals(new Date(3000), copy.getContentUpdateDate());
+        assertEquals("comment", copy.getComment());
+        assertTrue(copy.isMinorEdit());
+        assertFalse(copy.isNew());
+        assertEquals(document.isMetaDataDirty(), copy.isMetaDataDirty());
+        assertEquals(document.isContentDirty(), copy.isContentDirty());
+
+        assertEquals(3, copy.getXObjects(DOCUMENT_REFERENCE).size());
+        assertNull(copy.getXObject(DOCUMENT_REFERENCE, 1));
+        BaseObject xobject = copy.getXObject(DOCUMENT_REFERENCE, 0);
+        assertEquals(document.getXObject(DOCUMENT_REFERENCE, 0).getGuid(), xobject.getGuid());
+        assertEquals(42, xobject.getIntValue("int"));
+        assertEquals(new Date(4000), xobject.getDateValue("date"));
+        assertEquals(Arrays.asList("a", "c"), xobject.getListValue("list"));
+        assertEquals(2, copy.getXObject(DOCUMENT_REFERENCE, 2).getNumber());
+
+        XWikiAttachment attachment = copy.getAttachment("file.txt");
+        assertEquals(USER_REFERENCE, attachment.getAuthorReference());
+        assertEquals("text/plain", attachment.getMimeType());
+        assertEquals(3, attachment.getLongSize());
+        assertArrayEquals(new byte[] { 1, 2, 3 },
+            IOUtils.toByteArray(attachment.getContentInputStream(this.oldcore.getXWikiContext())));
+    }
+
+    @Test
+    public void decodeWithUnknownFormat() throws Exception
+    {
+        byte[] bytes = this.codec.encode(createDocument());
+
+        // Change the version
+        bytes[4] = (byte) (XWikiDocumentBinaryCodec.VERSION + 1);
+
+        assertThrows(IOException.class, () -> this.codec.decode(bytes));
+        assertThrows(IOException.class, () -> this.codec.decode("<xwikidoc/>".getBytes()));
+    }
+
+    @Test
+    public void decodeWithUnexpectedClass() throws Exception
+    {
+        byte[] bytes = this.codec.encode(createDocument());
+
+        // Replace the class of a property with a class which is not a property class
+        byte[] stringClass = replaceString(bytes, StringClass.class.getName(), Thread.class.getName());
+        IOException exception = assertThrows(IOException.class, () -> this.codec.decode(stringClass));
+        assertEquals("Class [java.lang.Thread] is not a [com.xpn.xwiki.objects.classes.PropertyClass]",
+            exception.getMessage());
+
+        // Unknown classes
+        byte[] unknownClass = replaceString(bytes, StringClass.class.getName(), "org.xwiki.UnknownClass");
+        assertThrows(IOException.class, () -> this.codec.decode(unknownClass));
+    }
+
+    private byte[] replaceString(byte[] bytes, String oldValue, String newValue) throws IOException
+    {
+        byte[] oldBytes = oldValue.getBytes(StandardCharsets.UTF_8);
+        byte[] newBytes = newValue.getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i <= bytes.length - oldBytes.length; ++i) {
+            if (Arrays.equals(oldBytes, Arrays.copyOfRange(bytes, i, i + oldBytes.length))) {
+                ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                DataOutputStream output = new DataOutputStream(stream);
+                // The string is prefixed by its length
+                output.write(bytes, 0, i - Integer.BYTES);
+                output.writeInt(newBytes.length);
+                output.write(newBytes);
+                output.write(bytes, i + oldBytes.length, bytes.length - i - oldBytes.length);
+
+                return stream.toByteArray();
+            }
+        }
+
+        throw new IOException(String.format("Could not find [%s]", oldValue));
+    }
+}
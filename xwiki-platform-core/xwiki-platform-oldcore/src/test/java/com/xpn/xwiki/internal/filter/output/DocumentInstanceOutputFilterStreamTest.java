@@ -23,7 +23,10 @@
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -34,22 +37,37 @@
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.EventListener;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.syntax.SyntaxType;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.internal.event.DocumentsImportedEvent;
 import com.xpn.xwiki.internal.filter.AbstractInstanceFilterStreamTest;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.NumberClass;
 
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiDocument;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Validate {@link DocumentInstanceOutputFilterStream}.
@@ -555,4 +573,110 @@ public void importDocumentWithRevisionsAndPreserveVersion() throws FilterExcepti
 
         assertEquals("42.3", document3.getVersion());
     }
+
+    @Test
+    public void importDocument1InParallel() throws FilterException, XWikiException, ParseException
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVersionPreserved(true);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(2);
+
+        importFromXML("document1", outputProperties);
+
+        XWikiDocument document = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", "space", "page"),
+            this.oldcore.getXWikiContext());
+
+        assertFalse(document.isNew());
+
+        assertDocument1PreserveVersion(document);
+    }
+
+    @Test
+    public void importDocumentWithRevisionsInParallel() throws FilterException, XWikiException
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVersionPreserved(true);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(4);
+
+        importFromXML("documentwithrevisions", outputProperties);
+
+        XWikiDocument document = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", "space", "page"),
+            this.oldcore.getXWikiContext());
+
+        // The revisions of a same document are saved in order
+        assertEquals("42.3", document.getVersion());
+        assertEquals(3, document.getRevisions(this.oldcore.getXWikiContext()).length);
+    }
+
+    @Test
+    public void importDocument1InParallelSavesClassesFirst() throws Exception
+    {
+        DocumentReference classReference = new DocumentReference("wiki", "otherspace", "otherclass");
+        DocumentReference pageReference = new DocumentReference("wiki", "space", "page");
+
+        List<DocumentReference> saved = Collections.synchronizedList(new ArrayList<>());
+        List<XWikiContext> contexts = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            XWikiDocument document = invocation.getArgument(0);
+            if (document.getDocumentReference().equals(classReference)) {
+                // Give a chance to the document using the class to be saved first
+                Thread.sleep(500);
+            }
+
+            contexts.add(invocation.getArgument(2));
+            Object result = invocation.callRealMethod();
+            saved.add(document.getDocumentReference());
+
+            return result;
+        }).when(this.oldcore.getSpyXWiki()).saveDocument(anyXWikiDocument(), anyString(), anyXWikiContext());
+
+        EventListener listener = mock(EventListener.class);
+        when(listener.getName()).thenReturn("test");
+        when(listener.getEvents()).thenReturn(Arrays.asList(DocumentsImportedEvent.EVENT));
+        this.oldcore.getObservationManager().addListener(listener);
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(4);
+
+        importFromXML("document1", outputProperties);
+
+        // The class is saved before the document containing an object of that class
+        assertTrue(saved.indexOf(classReference) >= 0);
+        assertTrue(saved.indexOf(classReference) < saved.indexOf(pageReference), "Wrong save order: " + saved);
+
+        // Each save has its own context, initialized from the context of the import
+        assertEquals(saved.size(), contexts.stream().distinct().count());
+        for (XWikiContext context : contexts) {
+            assertNotSame(this.oldcore.getXWikiContext(), context);
+            assertEquals("wiki", context.getWikiId());
+        }
+
+        // The listeners are notified of all the imported documents at the end of the import
+        verify(listener).onEvent(any(DocumentsImportedEvent.class), isNull(),
+            argThat(documents -> ((Collection<?>) documents).size() == saved.size()
+                && ((Collection<?>) documents).contains(new DocumentReference(classReference, Locale.ROOT))
+                && ((Collection<?>) documents).contains(new DocumentReference(pageReference, Locale.ROOT))));
+    }
+
+    @Test
+    public void importDocument1DoesNotSendImportedEvent() throws Exception
+    {
+        EventListener listener = mock(EventListener.class);
+        when(listener.getName()).thenReturn("test");
+        when(listener.getEvents()).thenReturn(Arrays.asList(DocumentsImportedEvent.EVENT));
+        this.oldcore.getObservationManager().addListener(listener);
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+        outputProperties.setVerbose(false);
+
+        importFromXML("document1", outputProperties);
+
+        // Documents saved by the import thread are processed by the listeners as they are saved
+        verify(listener, never()).onEvent(any(), any(), any());
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.metrics;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.bridge.event.ActionExecutedEvent;
+import org.xwiki.bridge.event.ActionExecutingEvent;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.metrics.MetricSnapshot;
+import org.xwiki.metrics.MetricType;
+import org.xwiki.metrics.MetricsManager;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link RequestMetricsListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class RequestMetricsListenerTest
+{
+    @MockComponent
+    private MetricsManager metrics;
+
+    @MockComponent
+    private ConfigurationSource configuration;
+
+    @InjectMockComponents
+    private RequestMetricsListener listener;
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @BeforeComponent
+    public void beforeComponent()
+    {
+        when(this.configuration.getProperty("metrics.slowRequestThreshold", -1L)).thenReturn(0L);
+    }
+
+    @Test
+    public void onEvent()
+    {
+        XWikiContext xcontext = new XWikiContext();
+
+        when(this.metrics.isEnabled()).thenReturn(true);
+        when(this.metrics.startTimer()).thenReturn(System.nanoTime());
+        when(this.metrics.stopRecording()).thenReturn(
+            Collections.singletonMap("store.cache.hit", new MetricSnapshot(MetricType.COUNTER, 3, 3, 1, 1)));
+
+        this.listener.onEvent(new ActionExecutingEvent("view"), null, xcontext);
+
+        verify(this.metrics).startRecording();
+
+        this.listener.onEvent(new ActionExecutedEvent("view"), null, xcontext);
+
+        verify(this.metrics).stopTimer(eq("request.view"), anyLong());
+
+        assertEquals(1, this.logCapture.size());
+        assertTrue(this.logCapture.getMessage(0).endsWith("ms:\n  store.cache.hit: 3"));
+    }
+
+    @Test
+    public void onEventWhenDisabled()
+    {
+        XWikiContext xcontext = new XWikiContext();
+
+        this.listener.onEvent(new ActionExecutingEvent("view"), null, xcontext);
+        this.listener.onEvent(new ActionExecutedEvent("view"), null, xcontext);
+
+        verify(this.metrics, never()).startRecording();
+        verify(this.metrics, never()).stopTimer(eq("request.view"), anyLong());
+    }
+}
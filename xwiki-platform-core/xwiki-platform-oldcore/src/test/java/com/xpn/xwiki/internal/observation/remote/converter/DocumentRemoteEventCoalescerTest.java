@@ -0,0 +1,92 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Validate {@link DocumentRemoteEventCoalescer}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DocumentRemoteEventCoalescerTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "space", "page");
+
+    @InjectMockComponents
+    private DocumentRemoteEventCoalescer coalescer;
+
+    private RemoteEventData update(String origVersion, String version, String user)
+    {
+        HashMap<String, Serializable> source = new HashMap<>();
+        source.put(AbstractXWikiEventConverter.DOC_NAME, DOCUMENT_REFERENCE);
+        source.put(AbstractXWikiEventConverter.DOC_VERSION, version);
+        source.put(AbstractXWikiEventConverter.DOC_LANGUAGE, "");
+        source.put(AbstractXWikiEventConverter.ORIGDOC_VERSION, origVersion);
+        source.put(AbstractXWikiEventConverter.ORIGDOC_LANGUAGE, "");
+
+        HashMap<String, Serializable> data = new HashMap<>();
+        data.put(AbstractXWikiEventConverter.CONTEXT_WIKI, "wiki");
+        data.put(AbstractXWikiEventConverter.CONTEXT_USER, user);
+
+        return new RemoteEventData(new DocumentUpdatedEvent(DOCUMENT_REFERENCE), source, data);
+    }
+
+    @Test
+    public void coalesceSuccessiveUpdates()
+    {
+        RemoteEventData merged = this.coalescer.coalesce(update("1.1", "1.2", "user"), update("1.2", "1.3", "user"));
+
+        Map<String, Serializable> source = (Map<String, Serializable>) merged.getSource();
+        assertEquals(DOCUMENT_REFERENCE, source.get(AbstractXWikiEventConverter.DOC_NAME));
+        assertEquals("1.1", source.get(AbstractXWikiEventConverter.ORIGDOC_VERSION));
+        assertEquals("1.3", source.get(AbstractXWikiEventConverter.DOC_VERSION));
+        assertEquals(new DocumentUpdatedEvent(DOCUMENT_REFERENCE), merged.getEvent());
+    }
+
+    @Test
+    public void coalesceWhenNotMergeable()
+    {
+        // Not consecutive versions
+        assertNull(this.coalescer.coalesce(update("1.1", "1.2", "user"), update("1.3", "1.4", "user")));
+
+        // Different authors
+        assertNull(this.coalescer.coalesce(update("1.1", "1.2", "user"), update("1.2", "1.3", "other")));
+
+        // Other events
+        RemoteEventData deleted = update("1.1", "1.2", "user");
+        deleted.setEvent(new DocumentDeletedEvent(DOCUMENT_REFERENCE));
+        assertNull(this.coalescer.coalesce(deleted, update("1.2", "1.3", "user")));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.stats;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.stats.impl.xwiki.XWikiStatsStoreItem;
+import com.xpn.xwiki.stats.impl.xwiki.XWikiStatsStoreService;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link StatsStoreShutdownFlusher}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class StatsStoreShutdownFlusherTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    @InjectMockComponents
+    private StatsStoreShutdownFlusher flusher;
+
+    @AfterEach
+    public void afterEach()
+    {
+        Utils.setComponentManager(null);
+    }
+
+    @Test
+    public void disposeStopsRegisteredServices()
+    {
+        XWikiStatsStoreService service1 = mock(XWikiStatsStoreService.class);
+        XWikiStatsStoreService service2 = mock(XWikiStatsStoreService.class);
+
+        this.flusher.register(service1);
+        this.flusher.register(service2);
+
+        this.flusher.dispose();
+
+        verify(service1).stop();
+        verify(service2).stop();
+
+        // The services are only stopped once
+        this.flusher.dispose();
+
+        verify(service1).stop();
+        verify(service2).stop();
+    }
+
+    @Test
+    public void disposeStoresPendingStatistics()
+    {
+        Utils.setComponentManager(this.componentManager);
+
+        XWikiContext context = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        when(context.clone()).thenReturn(context);
+        when(context.getWiki()).thenReturn(xwiki);
+        when(xwiki.ParamAsLong("stats.queue.size", 1000)).thenReturn(1000L);
+        // Make sure nothing is stored before the flusher is disposed
+        when(xwiki.ParamAsLong("xwiki.stats.flushInterval", 5000)).thenReturn(3600000L);
+
+        XWikiStatsStoreService service = new XWikiStatsStoreService(context);
+        service.start();
+        this.flusher.register(service);
+
+        XWikiStatsStoreItem item = mock(XWikiStatsStoreItem.class);
+        when(item.getId()).thenReturn("item");
+        service.add(item);
+
+        this.flusher.dispose();
+
+        verify(item).store(Collections.singletonList(item));
+        assertEquals(0, service.getPendingCount());
+        assertEquals(1, service.getStoredCount());
+    }
+}
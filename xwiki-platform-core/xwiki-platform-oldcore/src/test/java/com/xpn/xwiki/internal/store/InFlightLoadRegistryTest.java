@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.xpn.xwiki.XWikiException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link InFlightLoadRegistry}.
+ *
+ * @version $Id$
+ */
+public class InFlightLoadRegistryTest
+{
+    private final InFlightLoadRegistry<String> registry = new InFlightLoadRegistry<>();
+
+    @Test
+    public void loadAll() throws Exception
+    {
+        List<List<Integer>> calls = new ArrayList<>();
+
+        List<String> values = this.registry.loadAll(Arrays.asList("a", "b", "c"), indexes -> {
+            calls.add(indexes);
+
+            List<String> result = new ArrayList<>();
+            for (int index : indexes) {
+                result.add("value" + index);
+            }
+
+            return result;
+        });
+
+        assertEquals(Arrays.asList("value0", "value1", "value2"), values);
+        assertEquals(Collections.singletonList(Arrays.asList(0, 1, 2)), calls);
+        assertEquals(3, this.registry.getLoadCount());
+        assertEquals(0, this.registry.getCoalescedCount());
+    }
+
+    @Test
+    public void loadAllWaitsForOtherThreads() throws Exception
+    {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> future = executor.submit(() -> this.registry.load("b", () -> {
+                loadStarted.countDown();
+
+                // Wait for the bulk load to be waiting for this load
+                while (this.registry.getCoalescedCount() < 1) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+
+                        return "interrupted";
+                    }
+                }
+
+                return "other";
+            }));
+
+            assertTrue(loadStarted.await(20, TimeUnit.SECONDS));
+
+            List<List<Integer>> calls = new ArrayList<>();
+            List<String> values = this.registry.loadAll(Arrays.asList("a", "b", "c"), indexes -> {
+                calls.add(indexes);
+
+                List<String> result = new ArrayList<>();
+                for (int index : indexes) {
+                    result.add("value" + index);
+                }
+
+                return result;
+            });
+
+            // The key loaded by the other thread is not loaded again
+            assertEquals(Arrays.asList("value0", "other", "value2"), values);
+            assertEquals(Collections.singletonList(Arrays.asList(0, 2)), calls);
+            assertEquals("other", future.get(20, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(3, this.registry.getLoadCount());
+        assertEquals(1, this.registry.getCoalescedCount());
+    }
+
+    @Test
+    public void loadAllFailure() throws Exception
+    {
+        XWikiException exception = new XWikiException();
+
+        assertSame(exception, assertThrows(XWikiException.class,
+            () -> this.registry.loadAll(Arrays.asList("a", "b"), indexes -> {
+                throw exception;
+            })));
+
+        // The failed loads are forgotten
+        assertEquals("value", this.registry.load("a", () -> "value"));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.velocity;
+
+import java.io.Writer;
+
+import org.apache.velocity.VelocityContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.velocity.VelocityEngine;
+import org.xwiki.velocity.VelocityManager;
+import org.xwiki.velocity.VelocityTemplate;
+import org.xwiki.velocity.XWikiVelocityException;
+
+import com.xpn.xwiki.XWikiException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultVelocityEvaluator}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultVelocityEvaluatorTest
+{
+    @MockComponent
+    private RenderingContext renderingContext;
+
+    @MockComponent
+    private VelocityManager velocityManager;
+
+    @MockComponent
+    private VelocityTemplateCache templateCache;
+
+    @InjectMockComponents
+    private DefaultVelocityEvaluator evaluator;
+
+    private VelocityEngine engine;
+
+    private final VelocityContext vcontext = new VelocityContext();
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        this.engine = mock(VelocityEngine.class);
+        when(this.velocityManager.getVelocityEngine()).thenReturn(this.engine);
+    }
+
+    private Answer<Boolean> write(String result)
+    {
+        return invocation -> {
+            invocation.<Writer>getArgument(1).write(result);
+
+            return true;
+        };
+    }
+
+    @Test
+    public void evaluateVelocityWithNamespace() throws Exception
+    {
+        VelocityTemplate template = mock(VelocityTemplate.class);
+        when(this.templateCache.getTemplate(this.engine, "namespace", "namespace", "content")).thenReturn(template);
+        doAnswer(write("result")).when(this.engine).evaluate(same(this.vcontext), any(Writer.class), eq("namespace"),
+            same(template));
+
+        assertEquals("result", this.evaluator.evaluateVelocity("content", "namespace", this.vcontext));
+
+        verify(this.engine, never()).evaluate(any(), any(), any(), anyString());
+    }
+
+    @Test
+    public void evaluateVelocityWithoutNamespace() throws Exception
+    {
+        doAnswer(write("result")).when(this.engine).evaluate(same(this.vcontext), any(Writer.class), eq(null),
+            eq("content"));
+
+        assertEquals("result", this.evaluator.evaluateVelocity("content", null, this.vcontext));
+
+        verify(this.templateCache, never()).getTemplate(any(), any(), any(), any());
+    }
+
+    @Test
+    public void evaluateVelocityWhenCompilationFails() throws Exception
+    {
+        XWikiVelocityException cause = new XWikiVelocityException("error");
+        when(this.templateCache.getTemplate(this.engine, "namespace", "namespace", "content")).thenThrow(cause);
+
+        XWikiException exception = assertThrows(XWikiException.class,
+            () -> this.evaluator.evaluateVelocity("content", "namespace", this.vcontext));
+
+        assertSame(cause, exception.getCause());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.velocity;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.template.event.TemplateDeletedEvent;
+import org.xwiki.template.event.TemplateUpdatedEvent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link VelocityTemplateCacheListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class VelocityTemplateCacheListenerTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "space", "page");
+
+    @MockComponent
+    private VelocityTemplateCache cache;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @InjectMockComponents
+    private VelocityTemplateCacheListener listener;
+
+    @Test
+    public void onTemplateEvent()
+    {
+        this.listener.onEvent(new TemplateUpdatedEvent("updated.vm"), null, null);
+        this.listener.onEvent(new TemplateDeletedEvent("deleted.vm"), null, null);
+
+        verify(this.cache).invalidate("updated.vm");
+        verify(this.cache).invalidate("deleted.vm");
+    }
+
+    @Test
+    public void onDocumentEvent()
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(DOCUMENT_REFERENCE);
+        when(this.serializer.serialize(DOCUMENT_REFERENCE)).thenReturn("wiki:space.page");
+
+        this.listener.onEvent(new DocumentUpdatedEvent(DOCUMENT_REFERENCE), document, null);
+        this.listener.onEvent(new DocumentDeletedEvent(DOCUMENT_REFERENCE), document, null);
+
+        verify(this.cache, times(2)).invalidate("wiki:space.page");
+    }
+}
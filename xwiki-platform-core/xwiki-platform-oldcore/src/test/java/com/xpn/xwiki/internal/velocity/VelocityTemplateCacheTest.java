@@ -0,0 +1,143 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.velocity;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.velocity.VelocityEngine;
+import org.xwiki.velocity.VelocityTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link VelocityTemplateCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class VelocityTemplateCacheTest
+{
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @InjectMockComponents
+    private VelocityTemplateCache templateCache;
+
+    private final Map<String, Object> cacheMap = new HashMap<>();
+
+    @BeforeComponent
+    public void beforeComponent() throws Exception
+    {
+        Cache<Object> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> this.cacheMap.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.cacheMap.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        doAnswer(invocation -> this.cacheMap.remove(invocation.getArgument(0))).when(cache).remove(anyString());
+
+        when(this.cacheManager.createNewLocalCache(any(CacheConfiguration.class))).thenReturn((Cache) cache);
+        when(this.configuration.getProperty("xwiki.render.velocity.templatecache.capacity", 1000)).thenReturn(1000);
+    }
+
+    private VelocityEngine mockEngine() throws Exception
+    {
+        VelocityEngine engine = mock(VelocityEngine.class);
+        when(engine.compile(eq("name"), any(Reader.class))).then(invocation -> mock(VelocityTemplate.class));
+
+        return engine;
+    }
+
+    @Test
+    public void getTemplate() throws Exception
+    {
+        VelocityEngine engine = mockEngine();
+
+        VelocityTemplate template = this.templateCache.getTemplate(engine, "key", "name", "content");
+
+        assertSame(template, this.templateCache.getTemplate(engine, "key", "name", "content"));
+        assertEquals(1, this.templateCache.getHitCount());
+        assertEquals(1, this.templateCache.getMissCount());
+
+        // Modified content
+        VelocityTemplate template2 = this.templateCache.getTemplate(engine, "key", "name", "content2");
+        assertNotSame(template, template2);
+
+        // Other engine
+        assertNotSame(template2, this.templateCache.getTemplate(mockEngine(), "key", "name", "content2"));
+
+        // Invalidated entry
+        VelocityEngine engine2 = mockEngine();
+        VelocityTemplate template3 = this.templateCache.getTemplate(engine2, "key", "name", "content2");
+        this.templateCache.invalidate("key");
+        assertNotSame(template3, this.templateCache.getTemplate(engine2, "key", "name", "content2"));
+
+        assertEquals(1, this.templateCache.getHitCount());
+        assertEquals(5, this.templateCache.getMissCount());
+    }
+
+    @Test
+    public void getTemplateWithSeveralContentsForTheSameSource() throws Exception
+    {
+        VelocityEngine engine = mockEngine();
+
+        VelocityTemplate template1 = this.templateCache.getTemplate(engine, "key", "name", "content1");
+        VelocityTemplate template2 = this.templateCache.getTemplate(engine, "key", "name", "content2");
+        VelocityTemplate otherTemplate = this.templateCache.getTemplate(engine, "otherkey", "name", "content1");
+
+        assertNotSame(template1, template2);
+        assertSame(template1, this.templateCache.getTemplate(engine, "key", "name", "content1"));
+        assertSame(template2, this.templateCache.getTemplate(engine, "key", "name", "content2"));
+        assertEquals(2, this.templateCache.getHitCount());
+        assertEquals(3, this.templateCache.getMissCount());
+
+        // Invalidating a source forget all its contents
+        this.templateCache.invalidate("key");
+
+        assertNotSame(template1, this.templateCache.getTemplate(engine, "key", "name", "content1"));
+        assertNotSame(template2, this.templateCache.getTemplate(engine, "key", "name", "content2"));
+        assertSame(otherTemplate, this.templateCache.getTemplate(engine, "otherkey", "name", "content1"));
+        assertEquals(3, this.templateCache.getHitCount());
+        assertEquals(5, this.templateCache.getMissCount());
+    }
+}
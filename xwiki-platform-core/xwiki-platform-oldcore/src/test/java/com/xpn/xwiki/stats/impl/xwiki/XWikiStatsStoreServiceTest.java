@@ -0,0 +1,219 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.stats.impl.DocumentStats;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XWikiStatsStoreService}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class XWikiStatsStoreServiceTest
+{
+    private static final long NEVER = 3600000L;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager executionContextManager;
+
+    private XWikiContext context = mock(XWikiContext.class);
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    private XWikiStatsStoreService service;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        Utils.setComponentManager(this.componentManager);
+
+        when(this.context.clone()).thenReturn(this.context);
+        when(this.context.getWiki()).thenReturn(this.xwiki);
+        when(this.execution.getContext()).thenReturn(new ExecutionContext());
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        if (this.service != null) {
+            this.service.stop();
+        }
+
+        Utils.setComponentManager(null);
+    }
+
+    private XWikiStatsStoreService startService(long maxPending, long flushInterval)
+    {
+        when(this.xwiki.ParamAsLong("stats.queue.size", 1000)).thenReturn(maxPending);
+        when(this.xwiki.ParamAsLong("xwiki.stats.flushInterval", 5000)).thenReturn(flushInterval);
+
+        this.service = new XWikiStatsStoreService(this.context);
+        this.service.start();
+
+        return this.service;
+    }
+
+    private XWikiStatsStoreItem mockItem(String id)
+    {
+        XWikiStatsStoreItem item = mock(XWikiStatsStoreItem.class);
+        when(item.getId()).thenReturn(id);
+
+        return item;
+    }
+
+    @Test
+    public void stopStoresAggregatedStatistics()
+    {
+        XWikiStatsStoreItem item1 = mockItem("first");
+        XWikiStatsStoreItem item2 = mockItem("second");
+        XWikiStatsStoreItem item3 = mockItem("first");
+
+        startService(1000, NEVER);
+
+        this.service.add(item1);
+        this.service.add(item2);
+        this.service.add(item3);
+
+        assertEquals(2, this.service.getPendingCount());
+
+        this.service.stop();
+
+        // Each aggregated statistic is written once, in the order it was first produced
+        InOrder inOrder = inOrder(item1, item2);
+        inOrder.verify(item1).store(Arrays.asList(item1, item3));
+        inOrder.verify(item2).store(Collections.singletonList(item2));
+        verify(item3, never()).store(any());
+
+        assertEquals(0, this.service.getPendingCount());
+        assertEquals(2, this.service.getStoredCount());
+    }
+
+    @Test
+    public void flushWhenTooManyPendingStatistics()
+    {
+        XWikiStatsStoreItem item1 = mockItem("first");
+        XWikiStatsStoreItem item2 = mockItem("second");
+
+        startService(2, NEVER);
+
+        this.service.add(item1);
+        this.service.add(item2);
+
+        verify(item1, timeout(10000)).store(Collections.singletonList(item1));
+        verify(item2, timeout(10000)).store(Collections.singletonList(item2));
+    }
+
+    @Test
+    public void flushPeriodically()
+    {
+        XWikiStatsStoreItem item1 = mockItem("first");
+        XWikiStatsStoreItem item2 = mockItem("first");
+
+        startService(1000, 10);
+
+        this.service.add(item1);
+
+        verify(item1, timeout(10000)).store(Collections.singletonList(item1));
+
+        // A statistic produced after a flush is written again with the next flush
+        this.service.add(item2);
+
+        verify(item2, timeout(10000)).store(Collections.singletonList(item2));
+        verify(item1).store(any());
+    }
+
+    @Test
+    public void storeFailureDoesNotPreventOtherStatistics()
+    {
+        XWikiStatsStoreItem item1 = mockItem("first");
+        XWikiStatsStoreItem item2 = mockItem("second");
+        doThrow(new RuntimeException("error")).when(item1).store(any());
+
+        startService(1000, NEVER);
+
+        this.service.add(item1);
+        this.service.add(item2);
+
+        this.service.stop();
+
+        verify(item2).store(Collections.singletonList(item2));
+        assertEquals(2, this.service.getStoredCount());
+    }
+
+    @Test
+    public void documentStatisticsAreWrittenOncePerFlush() throws Exception
+    {
+        XWikiHibernateStore store = mock(XWikiHibernateStore.class);
+        when(this.xwiki.getHibernateStore()).thenReturn(store);
+
+        DocumentStatsStoreItem item =
+            new DocumentStatsStoreItem("Space.Page", new Date(), PeriodType.MONTH, "view", true, this.context);
+        item.increment(false);
+        item.increment(true);
+
+        item.store(Collections.singletonList(item));
+
+        ArgumentCaptor<DocumentStats> statsCaptor = ArgumentCaptor.forClass(DocumentStats.class);
+        verify(store).saveXWikiCollection(statsCaptor.capture(), eq(this.context), eq(true));
+        assertEquals("Space.Page", statsCaptor.getValue().getName());
+        assertEquals(3, statsCaptor.getValue().getPageViews());
+        assertEquals(2, statsCaptor.getValue().getVisits());
+    }
+}
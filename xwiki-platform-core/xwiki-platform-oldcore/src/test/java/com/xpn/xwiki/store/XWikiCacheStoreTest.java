@@ -19,10 +19,20 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.internal.reference.UidStringEntityReferenceSerializer;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -39,9 +49,12 @@
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -70,6 +83,7 @@ public void beforeEach() throws Exception
     {
         this.oldcore.getMocker().registerMockComponent(RemoteObservationManagerContext.class);
         this.oldcore.getMocker().registerMockComponent(ObservationManager.class);
+        this.oldcore.getMocker().registerMockComponent(MetricsManager.class);
 
         CacheManager cacheManager = this.oldcore.getMocker().registerMockComponent(CacheManager.class);
         cache = mock(Cache.class);
@@ -143,4 +157,181 @@ public void saveXWikiDocumentFailing() throws XWikiException
         verify(this.cache).remove("4:wiki5:space4:page0:");
         verify(this.existCache).remove("4:wiki5:space4:page0:");
     }
+
+    @Test
+    public void loadXWikiDocConcurrentMisses() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+        XWikiDocument storedDocument = new XWikiDocument(reference);
+        storedDocument.setNew(false);
+
+        int threads = 10;
+
+        XWikiStoreInterface underlyingStore = mock(XWikiStoreInterface.class);
+        XWikiCacheStore store = new XWikiCacheStore(underlyingStore, this.oldcore.getXWikiContext());
+
+        when(underlyingStore.loadXWikiDoc(any(XWikiDocument.class), any())).then(invocation -> {
+            // Wait for all the other threads to be waiting for this load
+            while (store.getCoalescedDocumentLoadCount() < threads - 1) {
+                Thread.sleep(10);
+            }
+
+            return storedDocument;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<XWikiDocument>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                futures.add(executor.submit(
+                    () -> store.loadXWikiDoc(new XWikiDocument(reference), this.oldcore.getXWikiContext())));
+            }
+
+            for (Future<XWikiDocument> future : futures) {
+                assertSame(storedDocument, future.get(20, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(underlyingStore).loadXWikiDoc(any(XWikiDocument.class), any());
+        verify(this.cache).set(eq("4:wiki5:space4:page0:"), same(storedDocument));
+        assertEquals(1, store.getDocumentLoadCount());
+        assertEquals(threads - 1, store.getCoalescedDocumentLoadCount());
+    }
+
+    @Test
+    public void existsConcurrentMisses() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+
+        int threads = 10;
+
+        XWikiStoreInterface underlyingStore = mock(XWikiStoreInterface.class);
+        XWikiCacheStore store = new XWikiCacheStore(underlyingStore, this.oldcore.getXWikiContext());
+
+        when(underlyingStore.exists(any(XWikiDocument.class), any())).then(invocation -> {
+            // Wait for all the other threads to be waiting for this check
+            while (store.getCoalescedExistCheckCount() < threads - 1) {
+                Thread.sleep(10);
+            }
+
+            return true;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                futures.add(
+                    executor.submit(() -> store.exists(new XWikiDocument(reference), this.oldcore.getXWikiContext())));
+            }
+
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(20, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(underlyingStore).exists(any(XWikiDocument.class), any());
+        verify(this.existCache).set("4:wiki5:space4:page0:", Boolean.TRUE);
+        assertEquals(1, store.getExistCheckCount());
+        assertEquals(threads - 1, store.getCoalescedExistCheckCount());
+    }
+
+    @Test
+    public void loadXWikiDocs() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference cachedReference = new DocumentReference("wiki", "space", "cached");
+        DocumentReference missingReference = new DocumentReference("wiki", "space", "missing");
+        DocumentReference storedReference = new DocumentReference("otherwiki", "space", "stored");
+
+        XWikiDocument cachedDocument = new XWikiDocument(cachedReference);
+        when(this.cache.get("4:wiki5:space6:cached0:")).thenReturn(cachedDocument);
+        when(this.existCache.get("4:wiki5:space7:missing0:")).thenReturn(Boolean.FALSE);
+
+        XWikiDocument storedDocument = new XWikiDocument(storedReference);
+        storedDocument.setNew(false);
+
+        XWikiStoreInterface underlyingStore = mock(XWikiStoreInterface.class);
+        when(underlyingStore.loadXWikiDocs(eq(Arrays.asList(storedReference)), any()))
+            .thenReturn(Arrays.asList(storedDocument));
+
+        XWikiCacheStore store = new XWikiCacheStore(underlyingStore, this.oldcore.getXWikiContext());
+
+        List<XWikiDocument> documents = store.loadXWikiDocs(
+            Arrays.asList(cachedReference, missingReference, storedReference), this.oldcore.getXWikiContext());
+
+        assertEquals(3, documents.size());
+        assertSame(cachedDocument, documents.get(0));
+        assertTrue(documents.get(1).isNew());
+        assertEquals(missingReference, documents.get(1).getDocumentReference());
+        assertSame(storedDocument, documents.get(2));
+
+        // Only the document missing from the caches is loaded from the store
+        verify(underlyingStore).loadXWikiDocs(eq(Arrays.asList(storedReference)), any());
+        verify(this.cache).set("9:otherwiki5:space6:stored0:", storedDocument);
+        verify(this.existCache).set("9:otherwiki5:space6:stored0:", Boolean.TRUE);
+        assertEquals("wiki", this.oldcore.getXWikiContext().getWikiId());
+    }
+
+    @Test
+    public void loadXWikiDocsWhileLoadingXWikiDoc() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference loadingReference = new DocumentReference("wiki", "space", "loading");
+        DocumentReference storedReference = new DocumentReference("wiki", "space", "stored");
+        XWikiDocument loadingDocument = new XWikiDocument(loadingReference);
+        loadingDocument.setNew(false);
+        XWikiDocument storedDocument = new XWikiDocument(storedReference);
+        storedDocument.setNew(false);
+
+        XWikiStoreInterface underlyingStore = mock(XWikiStoreInterface.class);
+        XWikiCacheStore store = new XWikiCacheStore(underlyingStore, this.oldcore.getXWikiContext());
+
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        when(underlyingStore.loadXWikiDoc(any(XWikiDocument.class), any())).then(invocation -> {
+            loadStarted.countDown();
+
+            // Wait for the bulk load to be waiting for this load
+            while (store.getCoalescedDocumentLoadCount() < 1) {
+                Thread.sleep(10);
+            }
+
+            return loadingDocument;
+        });
+        when(underlyingStore.loadXWikiDocs(eq(Arrays.asList(storedReference)), any()))
+            .thenReturn(Arrays.asList(storedDocument));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<XWikiDocument> future = executor.submit(
+                () -> store.loadXWikiDoc(new XWikiDocument(loadingReference), this.oldcore.getXWikiContext()));
+
+            assertTrue(loadStarted.await(20, TimeUnit.SECONDS));
+
+            List<XWikiDocument> documents = store.loadXWikiDocs(Arrays.asList(loadingReference, storedReference),
+                this.oldcore.getXWikiContext());
+
+            assertSame(loadingDocument, documents.get(0));
+            assertSame(storedDocument, documents.get(1));
+            assertSame(loadingDocument, future.get(20, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The document already being loaded is not loaded again by the bulk load
+        verify(underlyingStore).loadXWikiDoc(any(XWikiDocument.class), any());
+        verify(underlyingStore).loadXWikiDocs(eq(Arrays.asList(storedReference)), any());
+        assertEquals(2, store.getDocumentLoadCount());
+        assertEquals(1, store.getCoalescedDocumentLoadCount());
+    }
 }
@@ -33,6 +33,9 @@
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
 import org.junit.jupiter.api.BeforeEach;
@@ -59,6 +62,7 @@
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
 import com.xpn.xwiki.objects.BaseObject;
@@ -67,11 +71,15 @@
 import com.xpn.xwiki.objects.StringProperty;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -451,4 +459,64 @@ void loadBacklinksFromSubwiki() throws Exception
         verify(this.hibernateStore).beginTransaction();
         verify(this.hibernateStore).endTransaction(false);
     }
+
+    @Test
+    void loadXWikiDocs() throws Exception
+    {
+        DocumentReference existingReference = new DocumentReference("wiki", "Space", "Existing");
+        DocumentReference missingReference = new DocumentReference("wiki", "Space", "Missing");
+        long existingId = new XWikiDocument(existingReference).getId();
+        long missingId = new XWikiDocument(missingReference).getId();
+
+        when(this.hibernateStore.beginTransaction()).thenReturn(true);
+
+        // The document rows are applied to the documents with the entity persister
+        SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+        MetamodelImplementor metamodel = mock(MetamodelImplementor.class);
+        EntityPersister persister = mock(EntityPersister.class);
+        when(this.session.getSessionFactory()).thenReturn(sessionFactory);
+        when(sessionFactory.getMetamodel()).thenReturn(metamodel);
+        when(metamodel.entityPersister(XWikiDocument.class)).thenReturn(persister);
+        when(persister.getPropertyNames()).thenReturn(new String[] { "content" });
+        doAnswer(invocation -> {
+            XWikiDocument document = invocation.getArgument(0);
+            document.setContent((String) invocation.<Object[]>getArgument(1)[0]);
+            // No attachments and no objects
+            document.setElements(0);
+
+            return null;
+        }).when(persister).setPropertyValues(any(), any());
+
+        Query<Object[]> query = mock(Query.class);
+        when(this.session.createQuery("select doc.id, doc.content from XWikiDocument as doc where doc.id in (:ids)",
+            Object[].class)).thenReturn(query);
+        when(query.list()).thenReturn(Collections.singletonList(new Object[] { existingId, "content" }));
+
+        List<XWikiDocument> documents = this.store
+            .loadXWikiDocs(Arrays.asList(existingReference, missingReference, existingReference), this.xcontext);
+
+        assertEquals(3, documents.size());
+
+        XWikiDocument existingDocument = documents.get(0);
+        assertEquals(existingReference, existingDocument.getDocumentReference());
+        assertFalse(existingDocument.isNew());
+        assertFalse(existingDocument.isContentDirty());
+        assertEquals("content", existingDocument.getContent());
+        assertEquals("content", existingDocument.getOriginalDocument().getContent());
+
+        XWikiDocument missingDocument = documents.get(1);
+        assertEquals(missingReference, missingDocument.getDocumentReference());
+        assertTrue(missingDocument.isNew());
+        assertNotNull(missingDocument.getOriginalDocument());
+
+        // A document asked several times is loaded once
+        assertSame(existingDocument, documents.get(2));
+
+        // All the documents are loaded with a single query in a single transaction
+        verify(query).setParameterList("ids", Arrays.asList(existingId, missingId));
+        verify(this.session, never()).createQuery(anyString(), same(XWikiAttachment.class));
+        verify(this.session, never()).createQuery(anyString(), same(BaseObject.class));
+        verify(this.hibernateStore).beginTransaction();
+        verify(this.hibernateStore).endTransaction(false);
+    }
 }
@@ -20,16 +20,25 @@
 package com.xpn.xwiki.web;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
@@ -49,13 +58,16 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -76,6 +88,9 @@
     @Rule
     public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /** Mocked context document. */
     private XWikiDocument document;
 
@@ -613,6 +628,158 @@ public void downloadWhenEmptyRange() throws XWikiException, IOException
         verifyResponseExpectations(d.getTime(), this.fileContent.length);
     }
 
+    @Test
+    public void downloadWhenIfNoneMatchSame() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        ArgumentCaptor<String> etagCaptor = ArgumentCaptor.forClass(String.class);
+        verify(this.response).setHeader(eq("ETag"), etagCaptor.capture());
+        String etag = etagCaptor.getValue();
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", " + etag);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        // The content was only sent the first time
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenIfNoneMatchDifferent() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, d.getTime(), DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        // If-None-Match takes precedence over If-Modified-Since
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenIfRangeDifferent() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range")).thenReturn("\"other\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenMultipleRanges() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=0-1, 5-6,-2, 129-145", -1l, DEFAULT_FILE_NAME);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            output.write(invocation.<byte[]>getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(this.out).write(any(byte[].class), anyInt(), anyInt());
+        doAnswer(invocation -> {
+            output.write(invocation.<byte[]>getArgument(0));
+            return null;
+        }).when(this.out).write(any(byte[].class));
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        ArgumentCaptor<String> contentTypeCaptor = ArgumentCaptor.forClass(String.class);
+        verify(this.response, times(2)).setContentType(contentTypeCaptor.capture());
+        String contentType = contentTypeCaptor.getValue();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring("multipart/byteranges; boundary=".length());
+
+        String length = "/" + this.fileContent.length;
+        assertEquals("\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1" + length
+            + "\r\n\r\nab\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 5-6" + length
+            + "\r\n\r\nfg\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 12-13" + length
+            + "\r\n\r\nmn\r\n--" + boundary + "--\r\n", new String(output.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void downloadWhenOverlappingRanges() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        // Overlapping and adjacent ranges, not in order
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=6-7,2-4,3-5", -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        // Sent as a single range
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 2-7/" + this.fileContent.length);
+        verifyResponseExpectations(d.getTime(), 6);
+        verifyOutputExpectations(2, 8);
+    }
+
+    @Test
+    public void downloadWhenTooManyRanges() throws XWikiException, IOException
+    {
+        this.fileContent = StringUtils.repeat("abcdefgh", 8).getBytes(StandardCharsets.US_ASCII);
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        List<String> ranges = new ArrayList<>();
+        for (int i = 0; i < 17; ++i) {
+            ranges.add(i * 2 + "-" + i * 2);
+        }
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=" + StringUtils.join(ranges, ','), -1l,
+            DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        // The full content is sent
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenRangeOfContentInFile() throws XWikiException, IOException
+    {
+        File file = this.folder.newFile();
+        Files.write(file.toPath(), this.fileContent);
+
+        XWikiAttachment filetxt = new XWikiAttachment(this.document, DEFAULT_FILE_NAME);
+        XWikiAttachmentContent content = mock(XWikiAttachmentContent.class);
+        when(content.getAttachment()).thenReturn(filetxt);
+        when(content.getContentFile()).thenReturn(file);
+        when(content.getLongSize()).thenReturn((long) this.fileContent.length);
+        filetxt.setAttachment_content(content);
+        filetxt.setLongSize(this.fileContent.length);
+        Date d = new Date();
+        filetxt.setDate(d);
+        this.document.getAttachmentList().add(filetxt);
+
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=3-5", -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 3-5/" + this.fileContent.length);
+        verifyResponseExpectations(d.getTime(), 3);
+        verifyOutputExpectations(3, 6);
+        // The content was not read through a stream
+        verify(content, times(0)).getContentInputStream();
+    }
+
     private void createAttachment(Date d, String name) throws IOException
     {
         XWikiAttachment filetxt = new XWikiAttachment(this.document, name);
@@ -0,0 +1,65 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Send the result of the asynchronous placeholders of a page in the same response as the page, as soon as each of
+ * them is available, instead of letting the client request them one by one.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Role
+public interface AsyncRendererStreamer
+{
+    /**
+     * @return true if the placeholders of the current request should be streamed
+     */
+    boolean isEnabled();
+
+    /**
+     * Remember a placeholder produced during the current request.
+     * 
+     * @param response the response associated with the placeholder
+     */
+    void register(AsyncRendererExecutorResponse response);
+
+    /**
+     * Mark the registered placeholders found in the page so that the client waits for them to be streamed instead of
+     * requesting them.
+     * 
+     * @param content the page content
+     * @return the page content to send
+     */
+    String prepare(String content);
+
+    /**
+     * Write the result of each prepared placeholder as soon as it's available, in the order they are finished.
+     * 
+     * @param writer the writer where to send the results
+     * @throws IOException when failing to write a result (usually because the client is gone)
+     */
+    void stream(Writer writer) throws IOException;
+}
@@ -24,6 +24,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.inject.Inject;
@@ -73,6 +74,10 @@ public class AsyncRendererCache implements Initializable, CacheEntryListener<Asy
 
     private final Map<RightEntry, Set<String>> rightMapping = new ConcurrentHashMap<>();
 
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
@@ -181,6 +186,44 @@ public void put(AsyncRendererJobStatus status)
         }
     }
 
+    /**
+     * Indicate that a cached result was reused.
+     * 
+     * @since 12.6RC1
+     */
+    public void addHit()
+    {
+        this.hitCount.incrementAndGet();
+    }
+
+    /**
+     * Indicate that a renderer allowed to be cached had to be executed.
+     * 
+     * @since 12.6RC1
+     */
+    public void addMiss()
+    {
+        this.missCount.incrementAndGet();
+    }
+
+    /**
+     * @return the number of times a cached result was reused
+     * @since 12.6RC1
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of times a renderer allowed to be cached had to be executed
+     * @since 12.6RC1
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
     /**
      * Remove all the entries the cache contains.
      */
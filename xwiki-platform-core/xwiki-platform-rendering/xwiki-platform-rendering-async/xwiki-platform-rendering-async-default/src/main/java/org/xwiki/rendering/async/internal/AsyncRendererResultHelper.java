@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.text.StringEscapeUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.async.AsyncContextHandler;
+
+/**
+ * Produce the HTML sent to the client for the result of an asynchronous renderer, whether it's requested by the
+ * client or streamed with the page.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = AsyncRendererResultHelper.class)
+@Singleton
+public class AsyncRendererResultHelper
+{
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param status the status of the finished asynchronous renderer
+     * @return the HTML to insert in place of the placeholder
+     */
+    public String getHTML(AsyncRendererJobStatus status)
+    {
+        if (status.getError() != null) {
+            return toHTML(status.getError());
+        } else if (status.getResult() != null && status.getResult().getResult() != null) {
+            return status.getResult().getResult();
+        }
+
+        // TODO: print more details about the status of the job ?
+        return "";
+    }
+
+    /**
+     * Add the HTML required by the resources (skin extensions, etc.) used by the asynchronous renderer.
+     *
+     * @param status the status of the finished asynchronous renderer
+     * @param head the HTML to add to the page head
+     * @param scripts the HTML scripts to add to the page
+     */
+    public void addUses(AsyncRendererJobStatus status, StringBuilder head, StringBuilder scripts)
+    {
+        Map<String, Collection<Object>> uses = status.getUses();
+
+        if (uses != null) {
+            for (Map.Entry<String, Collection<Object>> entry : uses.entrySet()) {
+                try {
+                    AsyncContextHandler handler =
+                        this.componentManagerProvider.get().getInstance(AsyncContextHandler.class, entry.getKey());
+
+                    handler.addHTMLHead(head, entry.getValue(), false);
+                    handler.addHTMLScripts(scripts, entry.getValue());
+                } catch (ComponentLookupException e) {
+                    this.logger.error("Failed to get HTML head for handler type [{}]", entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private String toHTML(Throwable t)
+    {
+        String content = StringEscapeUtils.escapeHtml4(ExceptionUtils.getStackTrace(t));
+
+        content = content.replace(" ", "&nbsp;");
+        content = content.replace("\n", "<br/>");
+
+        return content;
+    }
+}
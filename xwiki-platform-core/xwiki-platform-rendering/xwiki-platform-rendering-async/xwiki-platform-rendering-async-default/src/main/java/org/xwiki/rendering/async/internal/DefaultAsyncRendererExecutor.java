@@ -24,8 +24,11 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -46,12 +49,16 @@
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
 import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.rendering.RenderingException;
 import org.xwiki.rendering.async.AsyncContext;
 import org.xwiki.rendering.async.AsyncContextHandler;
 import org.xwiki.rendering.async.internal.DefaultAsyncContext.ContextUse;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
 import org.xwiki.security.authorization.AuthorExecutor;
+import org.xwiki.security.authorization.AuthorizationManager;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.internal.context.XWikiContextContextStore;
 
 /**
@@ -90,6 +97,15 @@ public class DefaultAsyncRendererExecutor implements AsyncRendererExecutor
     @Inject
     private CacheControl cacheControl;
 
+    @Inject
+    private AsyncRendererStreamer streamer;
+
+    @Inject
+    private AuthorizationManager authorization;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
     @Inject
     private Logger logger;
 
@@ -150,6 +166,8 @@ public AsyncRendererJobStatus getAsyncStatus(List<String> id, String clientId, l
     public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendererConfiguration configuration)
         throws JobException, RenderingException
     {
+        AsyncRendererExecutorResponse response;
+
         // if placeholder is forced, then we always consider it as async.
         boolean asyncAllowed = configuration.isPlaceHolderForced()
                                 || (renderer.isAsyncAllowed() && this.asyncContext.isEnabled());
@@ -170,26 +188,33 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
                 if (status != null
                     && (status.getEndDate() == null || this.cacheControl.isCacheReadAllowed(status.getEndDate()))) {
                     if (status.getResult() != null && !configuration.isPlaceHolderForced()) {
-                        // Available cached result, return it
+                        if (isRightValid(status)) {
+                            // Available cached result, return it
+                            this.cache.addHit();
 
-                        injectUses(status);
+                            injectUses(status);
 
-                        return new AsyncRendererExecutorResponse(status);
+                            return new AsyncRendererExecutorResponse(status);
+                        }
                     } else if (asyncAllowed) {
                         // Already running job, associate it with another client
-                        return new AsyncRendererExecutorResponse(status, newClientId());
+                        response = new AsyncRendererExecutorResponse(status, newClientId());
+
+                        this.streamer.register(response);
+
+                        return response;
                     }
                 }
             } finally {
                 this.cache.getLock().readLock().unlock();
             }
+
+            this.cache.addMiss();
         }
 
         ////////////////////////////////
         // Execute the renderer
 
-        AsyncRendererExecutorResponse response;
-
         AsyncRendererJobRequest request = new AsyncRendererJobRequest();
         request.setRenderer(renderer);
         request.setJobGroupPath(renderer.getJobGroupPath());
@@ -216,6 +241,8 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, AsyncRendere
                 AsyncRendererJobStatus status = (AsyncRendererJobStatus) job.getStatus();
 
                 response = new AsyncRendererExecutorResponse(status, asyncClientId);
+
+                this.streamer.register(response);
             } finally {
                 this.cache.getLock().writeLock().unlock();
             }
@@ -300,9 +327,19 @@ private Map<String, Serializable> getContext(boolean asyncAllowed, boolean cache
         Map<String, Serializable> savedContext = null;
 
         if (asyncAllowed || cacheAllowed) {
-            if (configuration.getContextEntries() != null) {
+            Set<String> contextEntries = configuration.getContextEntries();
+
+            // The result of a cached renderer is very likely to depend on the current locale (translations, dates,
+            // etc.)
+            if (cacheAllowed
+                && (contextEntries == null || !contextEntries.contains(XWikiContextContextStore.PROP_LOCALE))) {
+                contextEntries = contextEntries != null ? new LinkedHashSet<>(contextEntries) : new LinkedHashSet<>();
+                contextEntries.add(XWikiContextContextStore.PROP_LOCALE);
+            }
+
+            if (contextEntries != null) {
                 try {
-                    savedContext = this.contextStore.save(configuration.getContextEntries());
+                    savedContext = this.contextStore.save(contextEntries);
                 } catch (ComponentLookupException e) {
                     throw new JobException("Failed to save the context", e);
                 }
@@ -326,6 +363,31 @@ private Map<String, Serializable> getContext(boolean asyncAllowed, boolean cache
         return savedContext;
     }
 
+    /**
+     * A cached result produced for another user is reused only if the right checks made during its execution give the
+     * same result for the current user.
+     */
+    private boolean isRightValid(AsyncRendererJobStatus status)
+    {
+        Set<RightEntry> rights = status.getRights();
+
+        if (rights == null || rights.isEmpty()) {
+            return true;
+        }
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        DocumentReference currentUser = xcontext != null ? xcontext.getUserReference() : null;
+
+        for (RightEntry right : rights) {
+            if (!Objects.equals(right.getUserReference(), currentUser) && this.authorization
+                .hasAccess(right.getRight(), currentUser, right.getEntityReference()) != right.isAllowed()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private AsyncRendererJobStatus getCurrent(List<String> jobId)
     {
         // Try to find the job status in a running job
@@ -0,0 +1,294 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.job.event.status.JobStatus.State;
+
+/**
+ * Default implementation of {@link AsyncRendererStreamer}.
+ * <p>
+ * Each streamed result is sent as a {@code <template class="xwiki-async-result">} element at the end of the page body,
+ * which the client moves to the position of the corresponding placeholder.
+ * 
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Singleton
+public class DefaultAsyncRendererStreamer implements AsyncRendererStreamer
+{
+    private static final String KEY_PLACEHOLDERS = "rendering.async.streamer.placeholders";
+
+    private static final String KEY_PREPARED = "rendering.async.streamer.prepared";
+
+    private static final String PROPERTY_ENABLED = "rendering.async.streaming.enabled";
+
+    private static final String PROPERTY_TIMEOUT = "rendering.async.streaming.timeout";
+
+    private static final long DEFAULT_TIMEOUT = 10000L;
+
+    /**
+     * The maximum time to wait for a specific placeholder before checking the other ones again.
+     */
+    private static final long WAIT = 100L;
+
+    private static final String CLIENT_ID_ATTRIBUTE = "data-xwiki-async-client-id=\"";
+
+    private static final String ATTRIBUTE_END = "\"";
+
+    private static class Placeholder
+    {
+        private final List<String> id;
+
+        private final String clientId;
+
+        Placeholder(List<String> id, String clientId)
+        {
+            this.id = id;
+            this.clientId = clientId;
+        }
+    }
+
+    @Inject
+    private Provider<AsyncRendererExecutor> executorProvider;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private AsyncRendererResultHelper resultHelper;
+
+    @Override
+    public boolean isEnabled()
+    {
+        return this.configuration.getProperty(PROPERTY_ENABLED, false);
+    }
+
+    @Override
+    public void register(AsyncRendererExecutorResponse response)
+    {
+        ExecutionContext econtext = this.execution.getContext();
+
+        if (econtext != null && response.getAsyncClientId() != null) {
+            Map<String, Placeholder> placeholders = getPlaceholders(econtext);
+
+            if (placeholders == null) {
+                placeholders = new LinkedHashMap<>();
+                econtext.newProperty(KEY_PLACEHOLDERS).initial(placeholders).declare();
+            }
+
+            placeholders.put(response.getAsyncClientId(),
+                new Placeholder(response.getStatus().getRequest().getId(), response.getAsyncClientId()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Placeholder> getPlaceholders(ExecutionContext econtext)
+    {
+        return (Map<String, Placeholder>) econtext.getProperty(KEY_PLACEHOLDERS);
+    }
+
+    @Override
+    public String prepare(String content)
+    {
+        ExecutionContext econtext = this.execution.getContext();
+
+        if (econtext == null) {
+            return content;
+        }
+
+        Map<String, Placeholder> placeholders = getPlaceholders(econtext);
+
+        if (placeholders == null || placeholders.isEmpty()) {
+            return content;
+        }
+
+        List<Placeholder> prepared = new ArrayList<>(placeholders.size());
+
+        String result = content;
+        for (Placeholder placeholder : placeholders.values()) {
+            String attribute = CLIENT_ID_ATTRIBUTE + placeholder.clientId + ATTRIBUTE_END;
+
+            if (result.contains(attribute)) {
+                // Tell the client not to request the result since it's going to be part of the response
+                result = result.replace(attribute, attribute + " data-xwiki-async-streamed=\"true\"");
+
+                prepared.add(placeholder);
+            }
+        }
+
+        placeholders.clear();
+
+        if (!prepared.isEmpty()) {
+            if (econtext.hasProperty(KEY_PREPARED)) {
+                econtext.setProperty(KEY_PREPARED, prepared);
+            } else {
+                econtext.newProperty(KEY_PREPARED).initial(prepared).declare();
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void stream(Writer writer) throws IOException
+    {
+        ExecutionContext econtext = this.execution.getContext();
+
+        if (econtext == null || !econtext.hasProperty(KEY_PREPARED)) {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Placeholder> pending = new LinkedList<>((List<Placeholder>) econtext.getProperty(KEY_PREPARED));
+        econtext.removeProperty(KEY_PREPARED);
+
+        long deadline = System.currentTimeMillis() + this.configuration.getProperty(PROPERTY_TIMEOUT, DEFAULT_TIMEOUT);
+
+        try {
+            while (!pending.isEmpty()) {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    // Let the client request the remaining results
+                    for (Placeholder placeholder : pending) {
+                        writeFallback(writer, placeholder);
+                    }
+
+                    break;
+                }
+
+                if (!writeFinished(writer, pending)) {
+                    // Nothing is ready, wait for the first placeholder in the page
+                    Placeholder placeholder = pending.get(0);
+
+                    AsyncRendererJobStatus status = this.executorProvider.get().getAsyncStatus(placeholder.id,
+                        placeholder.clientId, Math.min(remaining, WAIT), TimeUnit.MILLISECONDS);
+
+                    if (status == null || status.getState() == State.FINISHED) {
+                        writeResult(writer, placeholder, status);
+
+                        pending.remove(0);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            // Let the client request the remaining results
+            for (Placeholder placeholder : pending) {
+                writeFallback(writer, placeholder);
+            }
+        }
+    }
+
+    private boolean writeFinished(Writer writer, List<Placeholder> pending) throws IOException
+    {
+        boolean written = false;
+
+        for (Iterator<Placeholder> it = pending.iterator(); it.hasNext();) {
+            Placeholder placeholder = it.next();
+
+            AsyncRendererJobStatus status = this.executorProvider.get().getAsyncStatus(placeholder.id,
+                placeholder.clientId);
+
+            if (status == null || status.getState() == State.FINISHED) {
+                writeResult(writer, placeholder, status);
+
+                it.remove();
+
+                written = true;
+            }
+        }
+
+        return written;
+    }
+
+    private void writeResult(Writer writer, Placeholder placeholder, AsyncRendererJobStatus status)
+        throws IOException
+    {
+        if (status == null) {
+            // Should never happen but let the client deal with it as if there was no streaming
+            writeFallback(writer, placeholder);
+
+            return;
+        }
+
+        StringBuilder head = new StringBuilder();
+        StringBuilder scripts = new StringBuilder();
+        this.resultHelper.addUses(status, head, scripts);
+
+        writer.write("<template class=\"xwiki-async-result\" ");
+        writer.write(CLIENT_ID_ATTRIBUTE);
+        writer.write(placeholder.clientId);
+        writer.write(ATTRIBUTE_END);
+        if (head.length() > 0) {
+            writer.write(" data-xwiki-html-head=\"");
+            writer.write(StringEscapeUtils.escapeHtml4(head.toString()));
+            writer.write(ATTRIBUTE_END);
+        }
+        if (scripts.length() > 0) {
+            writer.write(" data-xwiki-html-scripts=\"");
+            writer.write(StringEscapeUtils.escapeHtml4(scripts.toString()));
+            writer.write(ATTRIBUTE_END);
+        }
+        writer.write('>');
+
+        writer.write(this.resultHelper.getHTML(status));
+
+        writer.write("</template>\n");
+
+        writer.flush();
+    }
+
+    private void writeFallback(Writer writer, Placeholder placeholder) throws IOException
+    {
+        writer.write("<template class=\"xwiki-async-result\" data-xwiki-async-fallback=\"true\" ");
+        writer.write(CLIENT_ID_ATTRIBUTE);
+        writer.write(placeholder.clientId);
+        writer.write("\"></template>\n");
+
+        writer.flush();
+    }
+}
@@ -22,9 +22,7 @@
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -34,18 +32,15 @@
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.commons.text.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
-import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.container.Container;
 import org.xwiki.container.Response;
 import org.xwiki.container.servlet.ServletResponse;
 import org.xwiki.job.event.status.JobStatus.State;
-import org.xwiki.rendering.async.AsyncContextHandler;
 import org.xwiki.rendering.async.internal.AsyncRendererExecutor;
 import org.xwiki.rendering.async.internal.AsyncRendererJobStatus;
+import org.xwiki.rendering.async.internal.AsyncRendererResultHelper;
 import org.xwiki.resource.AbstractResourceReferenceHandler;
 import org.xwiki.resource.ResourceReference;
 import org.xwiki.resource.ResourceReferenceHandlerChain;
@@ -83,7 +78,7 @@ public class AsyncRendererResourceReferenceHandler extends AbstractResourceRefer
     private Container container;
 
     @Inject
-    private ComponentManager componentManager;
+    private AsyncRendererResultHelper resultHelper;
 
     @Inject
     private Provider<XWikiContext> xcontextProvider;
@@ -159,14 +154,7 @@ private void sendFINISHEDResponse(AsyncRendererResourceReference reference, Asyn
         addUse(reference, status, response);
 
         try (OutputStream stream = response.getOutputStream()) {
-            if (status.getError() != null) {
-                IOUtils.write(toHTML(status.getError()), stream, StandardCharsets.UTF_8);
-            } else if (status.getResult() != null && status.getResult().getResult() != null) {
-                IOUtils.write(status.getResult().getResult(), stream, StandardCharsets.UTF_8);
-            } else {
-                // TODO: print more details about the status of the job ?
-                IOUtils.write("", stream, StandardCharsets.UTF_8);
-            }
+            IOUtils.write(this.resultHelper.getHTML(status), stream, StandardCharsets.UTF_8);
         } catch (Exception e) {
             throw new ResourceReferenceHandlerException("Failed to send content", e);
         }
@@ -174,25 +162,18 @@ private void sendFINISHEDResponse(AsyncRendererResourceReference reference, Asyn
 
     private void addUse(AsyncRendererResourceReference reference, AsyncRendererJobStatus status, Response response)
     {
-        Map<String, Collection<Object>> uses = status.getUses();
-        if (uses != null && response instanceof ServletResponse) {
+        if (status.getUses() != null && response instanceof ServletResponse) {
+            // Setup a proper request and URL factory for the passed wiki
+            try {
+                this.requestInitializer.restoreRequest(reference.getWiki(), this.xcontextProvider.get());
+            } catch (Exception e) {
+                this.logger.error("Failed to restore the request for wiki [{}]", reference.getWiki(), e);
+            }
+
             // Create the asynchronous HTML meta
             StringBuilder head = new StringBuilder();
             StringBuilder scripts = new StringBuilder();
-            for (Map.Entry<String, Collection<Object>> entry : uses.entrySet()) {
-                try {
-                    AsyncContextHandler handler =
-                        this.componentManager.getInstance(AsyncContextHandler.class, entry.getKey());
-
-                    // Setup a proper request and URL factory for the passed wiki
-                    this.requestInitializer.restoreRequest(reference.getWiki(), this.xcontextProvider.get());
-
-                    handler.addHTMLHead(head, entry.getValue(), false);
-                    handler.addHTMLScripts(scripts, entry.getValue());
-                } catch (Exception e) {
-                    this.logger.error("Failed to get HTML head for handler type [{}]", entry.getKey(), e);
-                }
-            }
+            this.resultHelper.addUses(status, head, scripts);
             if (head.length() > 0) {
                 ((ServletResponse) response).getHttpServletResponse().addHeader("X-XWIKI-HTML-HEAD", head.toString());
             }
@@ -202,14 +183,4 @@ private void addUse(AsyncRendererResourceReference reference, AsyncRendererJobSt
             }
         }
     }
-
-    private String toHTML(Throwable t)
-    {
-        String content = StringEscapeUtils.escapeHtml4(ExceptionUtils.getStackTrace(t));
-
-        content = content.replace(" ", "&nbsp;");
-        content = content.replace("\n", "<br/>");
-
-        return content;
-    }
 }
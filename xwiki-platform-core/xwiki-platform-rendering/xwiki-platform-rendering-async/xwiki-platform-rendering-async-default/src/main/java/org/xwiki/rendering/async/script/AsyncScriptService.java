@@ -72,6 +72,24 @@ public void flushCache()
         this.cache.flush();
     }
 
+    /**
+     * @return the number of times a cached asynchronous renderer result was reused
+     * @since 12.6RC1
+     */
+    public long getCacheHitCount()
+    {
+        return this.cache.getHitCount();
+    }
+
+    /**
+     * @return the number of times an asynchronous renderer allowed to be cached had to be executed
+     * @since 12.6RC1
+     */
+    public long getCacheMissCount()
+    {
+        return this.cache.getMissCount();
+    }
+
     /**
      * Indicate that the current execution manipulate the passed entity and the result will need to be removed from the
      * cache if it's modified in any way.
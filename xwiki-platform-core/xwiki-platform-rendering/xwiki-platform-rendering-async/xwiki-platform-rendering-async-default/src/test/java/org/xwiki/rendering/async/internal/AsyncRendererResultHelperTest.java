@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.async.AsyncContextHandler;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AsyncRendererResultHelper}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class AsyncRendererResultHelperTest
+{
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @InjectMockComponents
+    private AsyncRendererResultHelper helper;
+
+    private AsyncContextHandler handler = mock(AsyncContextHandler.class);
+
+    @BeforeEach
+    public void beforeEach() throws ComponentLookupException
+    {
+        ComponentManager componentManager = mock(ComponentManager.class);
+        when(this.componentManagerProvider.get()).thenReturn(componentManager);
+        when(componentManager.getInstance(AsyncContextHandler.class, "test")).thenReturn(this.handler);
+        when(componentManager.getInstance(AsyncContextHandler.class, "unknown"))
+            .thenThrow(new ComponentLookupException("unknown"));
+    }
+
+    @Test
+    public void getHTML()
+    {
+        AsyncRendererJobStatus status = mock(AsyncRendererJobStatus.class);
+
+        assertEquals("", this.helper.getHTML(status));
+
+        when(status.getResult()).thenReturn(new AsyncRendererResult("<p>result</p>"));
+
+        assertEquals("<p>result</p>", this.helper.getHTML(status));
+
+        when(status.getError()).thenReturn(new Exception("<error> message"));
+
+        String html = this.helper.getHTML(status);
+        assertTrue(html.startsWith("java.lang.Exception:&nbsp;&lt;error&gt;&nbsp;message<br/>"), html);
+    }
+
+    @Test
+    public void addUses()
+    {
+        Collection<Object> values = Arrays.asList("value");
+        Map<String, Collection<Object>> uses = new HashMap<>();
+        uses.put("test", values);
+        uses.put("unknown", Collections.emptyList());
+
+        AsyncRendererJobStatus status = mock(AsyncRendererJobStatus.class);
+        when(status.getUses()).thenReturn(uses);
+
+        doAnswer(invocation -> invocation.<StringBuilder>getArgument(0).append("<link/>")).when(this.handler)
+            .addHTMLHead(any(), any(), anyBoolean());
+        doAnswer(invocation -> invocation.<StringBuilder>getArgument(0).append("<script/>")).when(this.handler)
+            .addHTMLScripts(any(), any());
+
+        StringBuilder head = new StringBuilder();
+        StringBuilder scripts = new StringBuilder();
+        this.helper.addUses(status, head, scripts);
+
+        assertEquals("<link/>", head.toString());
+        assertEquals("<script/>", scripts.toString());
+    }
+}
@@ -29,22 +29,32 @@
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.inject.Provider;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.xwiki.cache.CacheControl;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.context.concurrent.ContextStoreManager;
 import org.xwiki.job.Job;
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
 import org.xwiki.job.JobGroupPath;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.rendering.RenderingException;
 import org.xwiki.rendering.async.AsyncContext;
+import org.xwiki.rendering.async.internal.DefaultAsyncContext.RightEntry;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
 
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.context.XWikiContextContextStore;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -52,6 +62,8 @@
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -68,6 +80,18 @@
 
     private static final Set<String> CELEMENTS = new LinkedHashSet<>(Arrays.asList(CELEMENT1, CELEMENT2));
 
+    private static final Set<String> CELEMENTS_LOCALE =
+        new LinkedHashSet<>(Arrays.asList(CELEMENT1, CELEMENT2, XWikiContextContextStore.PROP_LOCALE));
+
+    private static final List<String> JOBID =
+        Arrays.asList("1", "2", "celement1", "value1%5c", "celement2", "value2%2f");
+
+    private static final DocumentReference USER1 = new DocumentReference("wiki", "XWiki", "user1");
+
+    private static final DocumentReference USER2 = new DocumentReference("wiki", "XWiki", "user2");
+
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
     private AsyncRendererConfiguration configuration;
 
     @MockComponent
@@ -82,6 +106,15 @@
     @MockComponent
     private ContextStoreManager context;
 
+    @MockComponent
+    private AuthorizationManager authorization;
+
+    @MockComponent
+    private CacheControl cacheControl;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
     @InjectMockComponents
     private DefaultAsyncRendererExecutor executor;
 
@@ -114,6 +147,8 @@ private void beforeEach() throws RenderingException, ComponentLookupException, J
         map.put(CELEMENT1, "value1\\");
         map.put(CELEMENT2, "value2/");
         when(this.context.save(CELEMENTS)).thenReturn(Collections.unmodifiableMap(map));
+        // Simulate a context without locale
+        when(this.context.save(CELEMENTS_LOCALE)).thenReturn(Collections.unmodifiableMap(map));
 
         this.job = mock(AsyncRendererJob.class);
 
@@ -256,4 +291,47 @@ public void rendererAsyncAlreadyRunning() throws JobException, RenderingExceptio
         assertNotNull(response.getAsyncClientId());
         assertSame(status, response.getStatus());
     }
+
+    private void mockCachedResult(boolean allowed)
+    {
+        Set<RightEntry> rights = Collections.singleton(new RightEntry(Right.VIEW, USER1, DOCUMENT, true));
+        AsyncRendererJobStatus status = new AsyncRendererJobStatus(new AsyncRendererJobRequest(),
+            new AsyncRendererResult("cached"), null, null, null, rights, null);
+        when(this.cache.getSync(JOBID)).thenReturn(status);
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontext.getUserReference()).thenReturn(USER2);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        when(this.authorization.hasAccess(Right.VIEW, USER2, DOCUMENT)).thenReturn(allowed);
+        when(this.cacheControl.isCacheReadAllowed(any())).thenReturn(true);
+
+        when(this.renderer.getId()).thenReturn(Arrays.asList("1", "2"));
+        when(this.renderer.isAsyncAllowed()).thenReturn(false);
+        when(this.renderer.isCacheAllowed()).thenReturn(true);
+    }
+
+    @Test
+    public void rendererCachedSameRights() throws JobException, RenderingException
+    {
+        mockCachedResult(true);
+
+        AsyncRendererExecutorResponse response = this.executor.render(this.renderer, this.configuration);
+
+        assertEquals("cached", response.getStatus().getResult().getResult());
+        verify(this.context).save(CELEMENTS_LOCALE);
+        verify(this.cache).addHit();
+        verify(this.cache, never()).addMiss();
+    }
+
+    @Test
+    public void rendererCachedDifferentRights() throws JobException, RenderingException
+    {
+        mockCachedResult(false);
+
+        AsyncRendererExecutorResponse response = this.executor.render(this.renderer, this.configuration);
+
+        assertEquals("false true", response.getStatus().getResult().getResult());
+        verify(this.cache, never()).addHit();
+        verify(this.cache).addMiss();
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.job.event.status.JobStatus.State;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultAsyncRendererStreamer}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultAsyncRendererStreamerTest
+{
+    private static final List<String> ID1 = Arrays.asList("id1");
+
+    private static final List<String> ID2 = Arrays.asList("id2");
+
+    @MockComponent
+    private AsyncRendererExecutor executor;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @MockComponent
+    private AsyncRendererResultHelper resultHelper;
+
+    @InjectMockComponents
+    private DefaultAsyncRendererStreamer streamer;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        when(this.execution.getContext()).thenReturn(new ExecutionContext());
+        when(this.configuration.getProperty("rendering.async.streaming.enabled", false)).thenReturn(false);
+        when(this.configuration.getProperty("rendering.async.streaming.timeout", 10000L)).thenReturn(10000L);
+    }
+
+    private AsyncRendererJobStatus register(List<String> id, String clientId)
+    {
+        AsyncRendererJobRequest request = new AsyncRendererJobRequest();
+        request.setId(id);
+
+        AsyncRendererJobStatus status = mock(AsyncRendererJobStatus.class);
+        when(status.getRequest()).thenReturn(request);
+
+        this.streamer.register(new AsyncRendererExecutorResponse(status, clientId));
+
+        return status;
+    }
+
+    @Test
+    public void isEnabled()
+    {
+        assertFalse(this.streamer.isEnabled());
+
+        when(this.configuration.getProperty("rendering.async.streaming.enabled", false)).thenReturn(true);
+
+        assertTrue(this.streamer.isEnabled());
+    }
+
+    @Test
+    public void prepareAndStream() throws IOException, InterruptedException
+    {
+        register(ID1, "1");
+        register(ID2, "2");
+
+        // Only the first placeholder ended up in the page
+        String content = this.streamer.prepare("<html><div class=\"xwiki-async\" data-xwiki-async-id=\"id1\" "
+            + "data-xwiki-async-client-id=\"1\"></div></html>");
+
+        assertEquals("<html><div class=\"xwiki-async\" data-xwiki-async-id=\"id1\" "
+            + "data-xwiki-async-client-id=\"1\" data-xwiki-async-streamed=\"true\"></div></html>", content);
+
+        AsyncRendererJobStatus running = mock(AsyncRendererJobStatus.class);
+        when(running.getState()).thenReturn(State.RUNNING);
+        AsyncRendererJobStatus finished =
+            new AsyncRendererJobStatus(new AsyncRendererJobRequest(), new AsyncRendererResult("<p>result</p>"));
+        when(this.resultHelper.getHTML(finished)).thenReturn("<p>result</p>");
+
+        when(this.executor.getAsyncStatus(ID1, "1")).thenReturn(running);
+        when(this.executor.getAsyncStatus(eq(ID1), eq("1"), anyLong(), eq(TimeUnit.MILLISECONDS)))
+            .thenReturn(finished);
+
+        StringWriter writer = new StringWriter();
+        this.streamer.stream(writer);
+
+        assertEquals("<template class=\"xwiki-async-result\" data-xwiki-async-client-id=\"1\"><p>result</p>"
+            + "</template>\n", writer.toString());
+    }
+
+    @Test
+    public void streamWhenTimeout() throws IOException
+    {
+        when(this.configuration.getProperty("rendering.async.streaming.timeout", 10000L)).thenReturn(0L);
+
+        register(ID1, "1");
+
+        this.streamer.prepare("<html><div data-xwiki-async-client-id=\"1\"></div></html>");
+
+        StringWriter writer = new StringWriter();
+        this.streamer.stream(writer);
+
+        assertEquals("<template class=\"xwiki-async-result\" data-xwiki-async-fallback=\"true\" "
+            + "data-xwiki-async-client-id=\"1\"></template>\n", writer.toString());
+    }
+
+    @Test
+    public void streamWhenNothingPrepared() throws IOException
+    {
+        register(ID1, "1");
+
+        assertEquals("<html></html>", this.streamer.prepare("<html></html>"));
+
+        StringWriter writer = new StringWriter();
+        this.streamer.stream(writer);
+
+        assertEquals("", writer.toString());
+    }
+}
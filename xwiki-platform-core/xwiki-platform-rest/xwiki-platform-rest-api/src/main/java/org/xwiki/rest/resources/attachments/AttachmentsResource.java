@@ -48,7 +48,8 @@
             @QueryParam("prettyNames") @DefaultValue("false") Boolean withPrettyNames,
             @QueryParam("name") @DefaultValue("") String name,
             @QueryParam("author") @DefaultValue("") String author,
-            @QueryParam("types") @DefaultValue("") String types
+            @QueryParam("types") @DefaultValue("") String types,
+            @QueryParam("cursor") String cursor
     ) throws XWikiRestException;
 
     @POST
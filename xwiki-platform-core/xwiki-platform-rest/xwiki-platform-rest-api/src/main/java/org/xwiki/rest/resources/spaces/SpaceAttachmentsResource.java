@@ -43,6 +43,7 @@
             @QueryParam("types") @DefaultValue("") String types,
             @QueryParam("start") @DefaultValue("0") Integer start,
             @QueryParam("number") @DefaultValue("25") Integer number,
-            @QueryParam("prettyNames") @DefaultValue("false") Boolean withPrettyNames
+            @QueryParam("prettyNames") @DefaultValue("false") Boolean withPrettyNames,
+            @QueryParam("cursor") String cursor
     ) throws XWikiRestException;
 }
@@ -0,0 +1,163 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+
+/**
+ * The position of the last element returned by a list resource, used to continue the listing from where it stopped
+ * (keyset paging) instead of skipping the previous elements (offset paging). Skipping elements gets slower with the
+ * depth of the range while continuing from a key uses the database index whatever the position.
+ * <p>
+ * The cursor is made of the values of the sort keys of the last element, serialized as an opaque URL safe token.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class KeysetCursor
+{
+    /**
+     * The name of the query parameter holding the cursor.
+     */
+    public static final String PARAMETER = "cursor";
+
+    private static final String SEPARATOR = ".";
+
+    private static final String START_PARAMETER = "start";
+
+    private final List<String> values;
+
+    /**
+     * @param values the values of the sort keys of the last returned element
+     */
+    public KeysetCursor(Object... values)
+    {
+        this.values = new ArrayList<>(values.length);
+        for (Object value : values) {
+            this.values.add(value instanceof Date ? String.valueOf(((Date) value).getTime()) : String.valueOf(value));
+        }
+    }
+
+    private KeysetCursor(List<String> values)
+    {
+        this.values = values;
+    }
+
+    /**
+     * @param token the token sent by the client
+     * @return the cursor, or {@code null} if no token was provided
+     * @throws WebApplicationException when the token is not a valid cursor
+     */
+    public static KeysetCursor parse(String token)
+    {
+        if (StringUtils.isEmpty(token)) {
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        try {
+            for (String value : StringUtils.splitPreserveAllTokens(token, SEPARATOR)) {
+                values.add(new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e, Status.BAD_REQUEST);
+        }
+
+        return new KeysetCursor(values);
+    }
+
+    /**
+     * @param index the index of the key
+     * @return the value of the key as a string
+     */
+    public String getString(int index)
+    {
+        if (index >= this.values.size()) {
+            throw new WebApplicationException(Status.BAD_REQUEST);
+        }
+
+        return this.values.get(index);
+    }
+
+    /**
+     * @param index the index of the key
+     * @return the value of the key as a number
+     */
+    public long getLong(int index)
+    {
+        try {
+            return Long.parseLong(getString(index));
+        } catch (NumberFormatException e) {
+            throw new WebApplicationException(e, Status.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * @param index the index of the key
+     * @return the value of the key as a date
+     */
+    public Date getDate(int index)
+    {
+        return new Date(getLong(index));
+    }
+
+    /**
+     * @return the token to send to the client
+     */
+    public String serialize()
+    {
+        List<String> encodedValues = new ArrayList<>(this.values.size());
+        for (String value : this.values) {
+            encodedValues.add(
+                Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return StringUtils.join(encodedValues, SEPARATOR);
+    }
+
+    /**
+     * @param objectFactory the factory used to create the link
+     * @param uriInfo the current request
+     * @return the link to the next range, which is the current request continued from this cursor
+     */
+    public Link toNextLink(ObjectFactory objectFactory, UriInfo uriInfo)
+    {
+        Link link = objectFactory.createLink();
+        // The offset is relative to the cursor so it must not be applied again
+        link.setHref(uriInfo.getRequestUriBuilder().replaceQueryParam(START_PARAMETER)
+            .replaceQueryParam(PARAMETER, serialize()).build().toString());
+        link.setRel(Relations.NEXT);
+
+        return link;
+    }
+}
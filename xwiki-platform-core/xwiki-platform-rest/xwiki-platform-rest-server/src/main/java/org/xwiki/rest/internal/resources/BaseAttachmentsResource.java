@@ -46,6 +46,7 @@
 import org.xwiki.query.QueryFilter;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
+import org.xwiki.rest.internal.KeysetCursor;
 import org.xwiki.rest.internal.ModelFactory;
 import org.xwiki.rest.internal.RangeIterable;
 import org.xwiki.rest.internal.Utils;
@@ -129,13 +130,17 @@ public boolean isAlreadyExisting()
      * @param limit the maximum number of attachments to include in the range
      * @param withPrettyNames whether to include pretty names (like author full name and document title) in the returned
      *            attachment metadata
+     * @param cursor the position of the last attachment of the previous range, {@code null} to start from the
+     *            beginning
      * @return the list of attachments from the specified scope that match the given filters and that are within the
      *         specified range
      * @throws XWikiRestException if we fail to retrieve the attachments
      */
     protected Attachments getAttachments(EntityReference scope, Map<String, String> filters, Integer offset,
-        Integer limit, Boolean withPrettyNames) throws XWikiRestException
+        Integer limit, Boolean withPrettyNames, String cursor) throws XWikiRestException
     {
+        KeysetCursor keysetCursor = KeysetCursor.parse(cursor);
+
         XWikiContext xcontext = this.xcontextProvider.get();
         String database = xcontext.getWikiId();
 
@@ -144,11 +149,20 @@ protected Attachments getAttachments(EntityReference scope, Map<String, String>
         try {
             xcontext.setWikiId(scope.extractReference(EntityType.WIKI).getName());
 
-            List<Object> queryResults = getAttachmentsQuery(scope, filters).setLimit(limit).setOffset(offset).execute();
-            attachments.withAttachments(queryResults.stream().map(this::processAttachmentsQueryResult)
+            List<Object> queryResults =
+                getAttachmentsQuery(scope, filters, keysetCursor).setLimit(limit).setOffset(offset).execute();
+            List<XWikiAttachment> xwikiAttachments =
+                queryResults.stream().map(this::processAttachmentsQueryResult).collect(Collectors.toList());
+            attachments.withAttachments(xwikiAttachments.stream()
                 .filter(getFileTypeFilter(filters.getOrDefault(FILTER_FILE_TYPES, "")))
                 .map(xwikiAttachment -> toRestAttachment(xwikiAttachment, withPrettyNames))
                 .collect(Collectors.toList()));
+
+            // A full range means there might be more attachments (the last one is taken before the filtering)
+            if (limit > 0 && xwikiAttachments.size() == limit) {
+                KeysetCursor nextCursor = new KeysetCursor(xwikiAttachments.get(limit - 1).getId());
+                attachments.getLinks().add(nextCursor.toNextLink(objectFactory, uriInfo));
+            }
         } catch (QueryException e) {
             throw new XWikiRestException(e);
         } finally {
@@ -158,7 +172,8 @@ protected Attachments getAttachments(EntityReference scope, Map<String, String>
         return attachments;
     }
 
-    private Query getAttachmentsQuery(EntityReference scope, Map<String, String> filters) throws QueryException
+    private Query getAttachmentsQuery(EntityReference scope, Map<String, String> filters, KeysetCursor cursor)
+        throws QueryException
     {
         StringBuilder statement = new StringBuilder().append("select doc.space, doc.name, doc.version, attachment")
             .append(" from XWikiDocument as doc, XWikiAttachment as attachment");
@@ -188,10 +203,20 @@ private Query getAttachmentsQuery(EntityReference scope, Map<String, String> fil
         // We need to handle the file type filter separately.
         applyFileTypeFilter(filters, whereClause, suffixParams, containsParams);
 
-        statement.append(" where ").append(StringUtils.join(whereClause, " and "));
+        // Continue from the last attachment of the previous range.
+        if (cursor != null) {
+            whereClause.add("attachment.id > :cursorId");
+        }
+
+        // The attachment identifier makes the order total so that the listing can be continued from a cursor.
+        statement.append(" where ").append(StringUtils.join(whereClause, " and ")).append(" order by attachment.id");
 
         Query query = queryManager.createQuery(statement.toString(), Query.HQL);
 
+        if (cursor != null) {
+            query.bindValue("cursorId", cursor.getLong(0));
+        }
+
         // Bind the query parameter values.
         for (Map.Entry<String, String> entry : exactParams.entrySet()) {
             query.bindValue(entry.getKey(), entry.getValue());
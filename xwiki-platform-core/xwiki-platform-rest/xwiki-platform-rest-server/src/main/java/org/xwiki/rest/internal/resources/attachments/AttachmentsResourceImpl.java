@@ -65,7 +65,7 @@ public class AttachmentsResourceImpl extends BaseAttachmentsResource implements
 
     @Override
     public Attachments getAttachments(String wiki, String spaces, String page, Integer offset, Integer limit,
-        Boolean withPrettyNames, String name, String author, String fileTypes) throws XWikiRestException
+        Boolean withPrettyNames, String name, String author, String fileTypes, String cursor) throws XWikiRestException
     {
         Map<String, String> filters = new HashMap<>();
         filters.put(NAME, name);
@@ -73,7 +73,7 @@ public Attachments getAttachments(String wiki, String spaces, String page, Integ
         filters.put("fileTypes", fileTypes);
 
         return super.getAttachments(new DocumentReference(wiki, parseSpaceSegments(spaces), page), filters, offset,
-            limit, withPrettyNames);
+            limit, withPrettyNames, cursor);
     }
 
     @Override
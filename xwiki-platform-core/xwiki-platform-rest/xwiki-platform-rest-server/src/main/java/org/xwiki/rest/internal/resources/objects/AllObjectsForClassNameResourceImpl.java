@@ -23,12 +23,14 @@
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
 
 import org.xwiki.component.annotation.Component;
 import org.xwiki.query.Query;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.KeysetCursor;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.ObjectSummary;
 import org.xwiki.rest.model.jaxb.Objects;
@@ -52,7 +54,7 @@ public class AllObjectsForClassNameResourceImpl extends XWikiResource implements
 
     @Override
     public Objects getObjects(String wikiName, String className, Integer start, Integer number, String order,
-            Boolean withPrettyNames) throws XWikiRestException
+            Boolean withPrettyNames, String cursor) throws XWikiRestException
     {
         String database = Utils.getXWikiContext(componentManager).getWikiId();
 
@@ -61,16 +63,30 @@ public Objects getObjects(String wikiName, String className, Integer start, Inte
 
             Utils.getXWikiContext(componentManager).setWikiId(wikiName);
 
+            KeysetCursor keysetCursor = KeysetCursor.parse(cursor);
+            boolean orderByDate = "date".equals(order);
+
+            // The object identifier makes the order total so that the listing can be continued from a cursor.
             String query = "select doc, obj from BaseObject as obj, XWikiDocument as doc "
                 + "where obj.name=doc.fullName and obj.className=:className";
-            if ("date".equals(order)) {
-                query += " order by doc.date desc";
+            if (keysetCursor != null) {
+                query += orderByDate
+                    ? " and (doc.date < :cursorDate or (doc.date = :cursorDate and obj.id > :cursorId))"
+                    : " and obj.id > :cursorId";
+            }
+            query += orderByDate ? " order by doc.date desc, obj.id" : " order by obj.id";
+
+            Query objectsQuery = queryManager.createQuery(query, Query.XWQL).bindValue("className", className);
+            if (keysetCursor != null) {
+                if (orderByDate) {
+                    objectsQuery.bindValue("cursorDate", keysetCursor.getDate(0));
+                    objectsQuery.bindValue("cursorId", keysetCursor.getLong(1));
+                } else {
+                    objectsQuery.bindValue("cursorId", keysetCursor.getLong(0));
+                }
             }
 
-            List<Object> queryResult = null;
-            queryResult =
-                    queryManager.createQuery(query, Query.XWQL).bindValue("className", className).setLimit(number)
-                            .setOffset(start).execute();
+            List<Object> queryResult = objectsQuery.setLimit(number).setOffset(start).execute();
 
             for (Object object : queryResult) {
                 Object[] fields = (Object[]) object;
@@ -92,7 +108,19 @@ public Objects getObjects(String wikiName, String className, Integer start, Inte
                 }
             }
 
+            // A full range means there might be more objects (the last one is taken before the access filtering)
+            if (number > 0 && queryResult.size() == number) {
+                Object[] fields = (Object[]) queryResult.get(queryResult.size() - 1);
+                XWikiDocument lastDocument = (XWikiDocument) fields[0];
+                BaseObject lastObject = (BaseObject) fields[1];
+                KeysetCursor nextCursor = orderByDate ? new KeysetCursor(lastDocument.getDate(), lastObject.getId())
+                    : new KeysetCursor(lastObject.getId());
+                objects.getLinks().add(nextCursor.toNextLink(objectFactory, uriInfo));
+            }
+
             return objects;
+        } catch (WebApplicationException e) {
+            throw e;
         } catch (Exception e) {
             throw new XWikiRestException(e);
         } finally {
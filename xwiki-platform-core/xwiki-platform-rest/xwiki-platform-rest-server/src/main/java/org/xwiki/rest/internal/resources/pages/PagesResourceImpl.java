@@ -19,21 +19,26 @@
  */
 package org.xwiki.rest.internal.resources.pages;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryFilter;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.KeysetCursor;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Pages;
 import org.xwiki.rest.resources.pages.PagesResource;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Document;
 
 /**
@@ -45,26 +50,25 @@ public class PagesResourceImpl extends XWikiResource implements PagesResource
 {
     @Override
     public Pages getPages(String wikiName, String spaceName, Integer start, Integer number,
-            String parentFilterExpression, String order, Boolean withPrettyNames)
+            String parentFilterExpression, String order, Boolean withPrettyNames, String cursor)
             throws XWikiRestException
     {
-        String database = Utils.getXWikiContext(componentManager).getWikiId();
+        XWikiContext xcontext = Utils.getXWikiContext(componentManager);
+        String database = xcontext.getWikiId();
         List<String> spaces = parseSpaceSegments(spaceName);
         String spaceId = Utils.getLocalSpaceId(spaces);
 
         Pages pages = objectFactory.createPages();
 
         try {
-            Utils.getXWikiContext(componentManager).setWikiId(wikiName);
+            xcontext.setWikiId(wikiName);
 
-            Query query = ("date".equals(order)) ? queryManager.createQuery(
-                    "select doc.name from Document doc where doc.space=:space and language='' order by doc.date desc",
-                    "xwql") : queryManager.getNamedQuery("getSpaceDocsName");
+            KeysetCursor keysetCursor = KeysetCursor.parse(cursor);
+            boolean orderByDate = "date".equals(order);
 
             /* Use an explicit query to improve performance */
-            List<String> pageNames =
-                    query.addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
-                        .bindValue("space", spaceId).setOffset(start).setLimit(number).execute();
+            List<String> pageNames = orderByDate ? getPageNamesByDate(spaceId, start, number, keysetCursor, pages)
+                : getPageNamesByName(spaceId, start, number, keysetCursor, pages);
 
             Pattern parentFilter = null;
             if (parentFilterExpression != null) {
@@ -75,6 +79,13 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
                 }
             }
 
+            // Load all the listed documents at once (they end up in the document cache) instead of one by one
+            List<DocumentReference> pageReferences = new ArrayList<>(pageNames.size());
+            for (String pageName : pageNames) {
+                pageReferences.add(new DocumentReference(wikiName, spaces, pageName));
+            }
+            xcontext.getWiki().getDocuments(pageReferences, xcontext);
+
             for (String pageName : pageNames) {
                 String pageFullName = Utils.getPageId(wikiName, spaces, pageName);
 
@@ -105,12 +116,69 @@ public Pages getPages(String wikiName, String spaceName, Integer start, Integer
                     }
                 }
             }
+        } catch (WebApplicationException e) {
+            throw e;
         } catch (Exception e) {
             throw new XWikiRestException(e);
         } finally {
-            Utils.getXWikiContext(componentManager).setWikiId(database);
+            xcontext.setWikiId(database);
         }
 
         return pages;
     }
+
+    private List<String> getPageNamesByName(String spaceId, Integer start, Integer number, KeysetCursor cursor,
+        Pages pages) throws Exception
+    {
+        Query query;
+        if (cursor != null) {
+            query = queryManager.createQuery("select distinct doc.name from Document doc"
+                + " where doc.space=:space and doc.name > :cursorName order by doc.name asc", Query.XWQL);
+            query.bindValue("cursorName", cursor.getString(0));
+        } else {
+            query = queryManager.getNamedQuery("getSpaceDocsName");
+        }
+
+        List<String> pageNames = query.addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
+            .bindValue("space", spaceId).setOffset(start).setLimit(number).execute();
+
+        // A full range means there might be more pages (the last one is taken before the access filtering)
+        if (number > 0 && pageNames.size() == number) {
+            KeysetCursor nextCursor = new KeysetCursor(pageNames.get(pageNames.size() - 1));
+            pages.getLinks().add(nextCursor.toNextLink(objectFactory, uriInfo));
+        }
+
+        return pageNames;
+    }
+
+    private List<String> getPageNamesByDate(String spaceId, Integer start, Integer number, KeysetCursor cursor,
+        Pages pages) throws Exception
+    {
+        // The page name makes the order total so that the listing can be continued from a cursor.
+        String statement = "select doc.name, doc.date from Document doc where doc.space=:space and language=''";
+        if (cursor != null) {
+            statement += " and (doc.date < :cursorDate or (doc.date = :cursorDate and doc.name > :cursorName))";
+        }
+        Query query = queryManager.createQuery(statement + " order by doc.date desc, doc.name", Query.XWQL);
+        if (cursor != null) {
+            query.bindValue("cursorDate", cursor.getDate(0));
+            query.bindValue("cursorName", cursor.getString(1));
+        }
+
+        List<Object[]> results = query.addFilter(componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden"))
+            .bindValue("space", spaceId).setOffset(start).setLimit(number).execute();
+
+        List<String> pageNames = new ArrayList<>(results.size());
+        for (Object[] result : results) {
+            pageNames.add((String) result[0]);
+        }
+
+        if (number > 0 && results.size() == number) {
+            Object[] last = results.get(results.size() - 1);
+            KeysetCursor nextCursor = new KeysetCursor(last[1], last[0]);
+            pages.getLinks().add(nextCursor.toNextLink(objectFactory, uriInfo));
+        }
+
+        return pageNames;
+    }
 }
@@ -40,7 +40,8 @@ public class SpaceAttachmentsResourceImpl extends BaseAttachmentsResource implem
 {
     @Override
     public Attachments getAttachments(String wiki, String spaces, String name, String page, String author,
-        String fileTypes, Integer offset, Integer limit, Boolean withPrettyNames) throws XWikiRestException
+        String fileTypes, Integer offset, Integer limit, Boolean withPrettyNames, String cursor)
+        throws XWikiRestException
     {
         Map<String, String> filters = new HashMap<>();
         filters.put("page", page);
@@ -49,6 +50,6 @@ public Attachments getAttachments(String wiki, String spaces, String name, Strin
         filters.put("fileTypes", fileTypes);
 
         return super.getAttachments(new SpaceReference(wiki, parseSpaceSegments(spaces)), filters, offset, limit,
-            withPrettyNames);
+            withPrettyNames, cursor);
     }
 }
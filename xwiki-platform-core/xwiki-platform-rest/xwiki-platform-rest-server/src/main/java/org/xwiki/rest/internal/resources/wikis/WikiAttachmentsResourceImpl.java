@@ -40,7 +40,8 @@ public class WikiAttachmentsResourceImpl extends BaseAttachmentsResource impleme
 {
     @Override
     public Attachments getAttachments(String wiki, String name, String page, String space, String author,
-        String fileTypes, Integer offset, Integer limit, Boolean withPrettyNames) throws XWikiRestException
+        String fileTypes, Integer offset, Integer limit, Boolean withPrettyNames, String cursor)
+        throws XWikiRestException
     {
         Map<String, String> filters = new HashMap<>();
         filters.put("space", space);
@@ -49,6 +50,6 @@ public Attachments getAttachments(String wiki, String name, String page, String
         filters.put("author", author);
         filters.put("fileTypes", fileTypes);
 
-        return super.getAttachments(new WikiReference(wiki), filters, offset, limit, withPrettyNames);
+        return super.getAttachments(new WikiReference(wiki), filters, offset, limit, withPrettyNames, cursor);
     }
 }
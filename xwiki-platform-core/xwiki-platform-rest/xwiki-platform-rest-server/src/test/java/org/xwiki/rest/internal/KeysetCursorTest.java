@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.util.Date;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link KeysetCursor}.
+ *
+ * @version $Id$
+ */
+public class KeysetCursorTest
+{
+    @Test
+    public void serializeAndParse()
+    {
+        Date date = new Date(1592316000123L);
+        String token = new KeysetCursor(date, "Page.With/Special?Chars&é", -42L).serialize();
+
+        KeysetCursor cursor = KeysetCursor.parse(token);
+
+        assertEquals(date, cursor.getDate(0));
+        assertEquals("Page.With/Special?Chars&é", cursor.getString(1));
+        assertEquals(-42L, cursor.getLong(2));
+    }
+
+    @Test
+    public void parseEmpty()
+    {
+        assertNull(KeysetCursor.parse(null));
+        assertNull(KeysetCursor.parse(""));
+    }
+
+    @Test
+    public void parseInvalid()
+    {
+        WebApplicationException exception =
+            assertThrows(WebApplicationException.class, () -> KeysetCursor.parse("not a cursor!"));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+
+        KeysetCursor cursor = KeysetCursor.parse(new KeysetCursor("name").serialize());
+        exception = assertThrows(WebApplicationException.class, () -> cursor.getLong(0));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+        exception = assertThrows(WebApplicationException.class, () -> cursor.getString(1));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+    }
+}
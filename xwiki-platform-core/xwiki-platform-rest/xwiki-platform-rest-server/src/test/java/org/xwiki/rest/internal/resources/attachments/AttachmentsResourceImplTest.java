@@ -106,7 +106,7 @@ public void getAttachments() throws Exception
             + "where attachment.docId = doc.id and doc.fullName = :localDocumentReference and"
             + " upper(attachment.author) like :author and upper(attachment.filename) like :name and"
             + " (attachment.mimeType is null or attachment.mimeType = '' or upper(attachment.mimeType) like :mediaType0"
-            + " or upper(attachment.filename) like :extension0)", Query.HQL)).thenReturn(query);
+            + " or upper(attachment.filename) like :extension0) order by attachment.id", Query.HQL)).thenReturn(query);
         mockContainsQueryParam(query, "author", "MFLOREA");
         mockContainsQueryParam(query, "name", "LOGO");
         mockContainsQueryParam(query, "mediaType0", "VIDEO/");
@@ -141,7 +141,7 @@ public void getAttachments() throws Exception
             .thenReturn(videoRestAttachment, imageRestAttachment);
 
         Attachments attachments = this.attachmentsResource.getAttachments("test", "Path/spaces/To", "Page", 10, 5, true,
-            "logo", "mflorea", ".png,video/");
+            "logo", "mflorea", ".png,video/", null);
 
         verify(query).bindValue("localDocumentReference", "Path.To.Page");
         verify(this.modelFactory, times(2)).toRestAttachment(eq(this.uriInfo.getBaseUri()), any(), eq(true), eq(false));
@@ -0,0 +1,193 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.objects;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.internal.KeysetCursor;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.Objects;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AllObjectsForClassNameResourceImpl}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+public class AllObjectsForClassNameResourceImplTest
+{
+    private static final String STATEMENT = "select doc, obj from BaseObject as obj, XWikiDocument as doc "
+        + "where obj.name=doc.fullName and obj.className=:className";
+
+    @InjectMockComponents
+    private AllObjectsForClassNameResourceImpl resource;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorization;
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldCore;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @Mock
+    private Query query;
+
+    private UriBuilder requestUriBuilder;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        when(this.uriInfo.getBaseUri()).thenReturn(new URI("https://test/"));
+        this.requestUriBuilder = mock(UriBuilder.class, RETURNS_SELF);
+        when(this.requestUriBuilder.build()).thenReturn(new URI("https://test/next"));
+        when(this.uriInfo.getRequestUriBuilder()).thenReturn(this.requestUriBuilder);
+        FieldUtils.writeField(this.resource, "uriInfo", this.uriInfo, true);
+
+        when(this.query.bindValue("className", "XWiki.TestClass")).thenReturn(this.query);
+        when(this.query.setLimit(2)).thenReturn(this.query);
+        when(this.query.setOffset(0)).thenReturn(this.query);
+    }
+
+    private Object[] mockRow(String pageName, Date date, long objectId)
+    {
+        XWikiDocument document = mock(XWikiDocument.class, pageName);
+        when(document.getDocumentReference()).thenReturn(new DocumentReference("test", "Space", pageName));
+        when(document.getDate()).thenReturn(date);
+        BaseObject object = mock(BaseObject.class, pageName + "Object");
+        when(object.getId()).thenReturn(objectId);
+
+        return new Object[] {document, object};
+    }
+
+    private void assertNextCursor(Objects objects, KeysetCursor expectedCursor)
+    {
+        assertEquals(1, objects.getLinks().size());
+        Link next = objects.getLinks().get(0);
+        assertEquals(Relations.NEXT, next.getRel());
+        assertEquals("https://test/next", next.getHref());
+        verify(this.requestUriBuilder).replaceQueryParam("start");
+        verify(this.requestUriBuilder).replaceQueryParam(KeysetCursor.PARAMETER, expectedCursor.serialize());
+    }
+
+    @Test
+    public void getObjectsFromCursor() throws Exception
+    {
+        when(this.queryManager.createQuery(STATEMENT + " and obj.id > :cursorId order by obj.id", Query.XWQL))
+            .thenReturn(this.query);
+        Date date = new Date(1592316000000L);
+        List<Object> results = Arrays.asList(mockRow("First", date, 43L), mockRow("Last", date, 47L));
+        when(this.query.execute()).thenReturn(results);
+
+        Objects objects = this.resource.getObjects("test", "XWiki.TestClass", 0, 2, null, false,
+            new KeysetCursor(42L).serialize());
+
+        verify(this.query).bindValue("cursorId", 42L);
+        assertNextCursor(objects, new KeysetCursor(47L));
+    }
+
+    @Test
+    public void getObjectsByDateFromCursor() throws Exception
+    {
+        // The objects of the documents modified at the same date as the cursor are ordered by identifier.
+        when(this.queryManager.createQuery(STATEMENT
+            + " and (doc.date < :cursorDate or (doc.date = :cursorDate and obj.id > :cursorId))"
+            + " order by doc.date desc, obj.id", Query.XWQL)).thenReturn(this.query);
+        Date cursorDate = new Date(1592316000000L);
+        Date olderDate = new Date(1592315000000L);
+        List<Object> results = Arrays.asList(mockRow("Tie", cursorDate, 43L), mockRow("Older", olderDate, 12L));
+        when(this.query.execute()).thenReturn(results);
+
+        Objects objects = this.resource.getObjects("test", "XWiki.TestClass", 0, 2, "date", false,
+            new KeysetCursor(cursorDate, 42L).serialize());
+
+        verify(this.query).bindValue("cursorDate", cursorDate);
+        verify(this.query).bindValue("cursorId", 42L);
+        assertNextCursor(objects, new KeysetCursor(olderDate, 12L));
+    }
+
+    @Test
+    public void getObjectsWithoutNextRange() throws Exception
+    {
+        when(this.queryManager.createQuery(STATEMENT + " order by obj.id", Query.XWQL)).thenReturn(this.query);
+        List<Object> results = Arrays.asList(mockRow("Last", new Date(), 43L));
+        when(this.query.execute()).thenReturn(results);
+
+        Objects objects = this.resource.getObjects("test", "XWiki.TestClass", 0, 2, null, false, null);
+
+        assertEquals(0, objects.getLinks().size());
+    }
+
+    @Test
+    public void getObjectsWithInvalidCursor() throws Exception
+    {
+        when(this.queryManager.createQuery(anyString(), eq(Query.XWQL))).thenReturn(this.query);
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+            () -> this.resource.getObjects("test", "XWiki.TestClass", 0, 2, null, false, "!!!"));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+
+        // The date order expects both a date and an identifier.
+        exception = assertThrows(WebApplicationException.class, () -> this.resource.getObjects("test",
+            "XWiki.TestClass", 0, 2, "date", false, new KeysetCursor(new Date()).serialize()));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+
+        // The wiki of the context is restored even when the request is rejected.
+        assertEquals("xwiki", this.oldCore.getXWikiContext().getWikiId());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal.resources.pages;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.internal.KeysetCursor;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.Pages;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link PagesResourceImpl}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+public class PagesResourceImplTest
+{
+    @InjectMockComponents
+    private PagesResourceImpl resource;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("hidden")
+    private QueryFilter hiddenFilter;
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldCore;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @Mock
+    private Query query;
+
+    private UriBuilder requestUriBuilder;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        when(this.uriInfo.getBaseUri()).thenReturn(new URI("https://test/"));
+        this.requestUriBuilder = mock(UriBuilder.class, RETURNS_SELF);
+        when(this.requestUriBuilder.build()).thenReturn(new URI("https://test/next"));
+        when(this.uriInfo.getRequestUriBuilder()).thenReturn(this.requestUriBuilder);
+        FieldUtils.writeField(this.resource, "uriInfo", this.uriInfo, true);
+
+        when(this.query.addFilter(this.hiddenFilter)).thenReturn(this.query);
+        when(this.query.bindValue("space", "Space")).thenReturn(this.query);
+        when(this.query.setOffset(0)).thenReturn(this.query);
+        when(this.query.setLimit(2)).thenReturn(this.query);
+    }
+
+    private void assertNextCursor(Pages pages, KeysetCursor expectedCursor)
+    {
+        assertEquals(1, pages.getLinks().size());
+        Link next = pages.getLinks().get(0);
+        assertEquals(Relations.NEXT, next.getRel());
+        assertEquals("https://test/next", next.getHref());
+        verify(this.requestUriBuilder).replaceQueryParam("start");
+        verify(this.requestUriBuilder).replaceQueryParam(KeysetCursor.PARAMETER, expectedCursor.serialize());
+    }
+
+    @Test
+    public void getPagesFromCursor() throws Exception
+    {
+        when(this.queryManager.createQuery("select distinct doc.name from Document doc"
+            + " where doc.space=:space and doc.name > :cursorName order by doc.name asc", Query.XWQL))
+            .thenReturn(this.query);
+        when(this.query.<String>execute()).thenReturn(Arrays.asList("Bar", "Foo"));
+
+        Pages pages =
+            this.resource.getPages("test", "Space", 0, 2, null, null, false, new KeysetCursor("Alice").serialize());
+
+        verify(this.query).bindValue("cursorName", "Alice");
+        assertNextCursor(pages, new KeysetCursor("Foo"));
+    }
+
+    @Test
+    public void getPagesWithoutCursor() throws Exception
+    {
+        when(this.queryManager.getNamedQuery("getSpaceDocsName")).thenReturn(this.query);
+        when(this.query.<String>execute()).thenReturn(Collections.singletonList("Foo"));
+
+        Pages pages = this.resource.getPages("test", "Space", 0, 2, null, null, false, null);
+
+        // The range is not full so there is no next range.
+        assertEquals(0, pages.getLinks().size());
+    }
+
+    @Test
+    public void getPagesByDateFromCursor() throws Exception
+    {
+        // The pages modified at the same date as the cursor are ordered by name.
+        when(this.queryManager.createQuery("select doc.name, doc.date from Document doc"
+            + " where doc.space=:space and language=''"
+            + " and (doc.date < :cursorDate or (doc.date = :cursorDate and doc.name > :cursorName))"
+            + " order by doc.date desc, doc.name", Query.XWQL)).thenReturn(this.query);
+        Date cursorDate = new Date(1592316000000L);
+        Date olderDate = new Date(1592315000000L);
+        List<Object[]> results =
+            Arrays.asList(new Object[] {"Bob", cursorDate}, new Object[] {"Alice", olderDate});
+        when(this.query.<Object[]>execute()).thenReturn(results);
+
+        Pages pages = this.resource.getPages("test", "Space", 0, 2, null, "date", false,
+            new KeysetCursor(cursorDate, "Alice").serialize());
+
+        verify(this.query).bindValue("cursorDate", cursorDate);
+        verify(this.query).bindValue("cursorName", "Alice");
+        assertNextCursor(pages, new KeysetCursor(olderDate, "Alice"));
+    }
+
+    @Test
+    public void getPagesWithInvalidCursor() throws Exception
+    {
+        when(this.queryManager.createQuery(anyString(), eq(Query.XWQL))).thenReturn(this.query);
+
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+            () -> this.resource.getPages("test", "Space", 0, 2, null, null, false, "!!!"));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+
+        // The date order expects both a date and a page name.
+        exception = assertThrows(WebApplicationException.class, () -> this.resource.getPages("test", "Space", 0, 2,
+            null, "date", false, new KeysetCursor("Alice").serialize()));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+
+        // The wiki of the context is restored even when the request is rejected.
+        assertEquals("xwiki", this.oldCore.getXWikiContext().getWikiId());
+    }
+}
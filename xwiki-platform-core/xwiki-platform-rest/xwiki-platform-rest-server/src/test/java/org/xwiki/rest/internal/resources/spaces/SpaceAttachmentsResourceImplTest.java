@@ -67,7 +67,7 @@ public void getAttachments() throws Exception
         when(this.queryManager.createQuery("select doc.space, doc.name, doc.version, attachment"
             + " from XWikiDocument as doc, XWikiAttachment as attachment where attachment.docId = doc.id and "
             + "(doc.space = :localSpaceReference or doc.space like :localSpaceReferencePrefix) and "
-            + "upper(doc.fullName) like :page", Query.HQL)).thenReturn(query);
+            + "upper(doc.fullName) like :page order by attachment.id", Query.HQL)).thenReturn(query);
         mockPreifxQueryParam(query, "localSpaceReferencePrefix", "Path.To.");
         mockContainsQueryParam(query, "page", "XYZ");
         when(query.setOffset(10)).thenReturn(query);
@@ -85,8 +85,8 @@ public void getAttachments() throws Exception
         when(this.modelFactory.toRestAttachment(eq(this.uriInfo.getBaseUri()), any(), eq(false), eq(false)))
             .thenReturn(attachment);
 
-        Attachments attachments =
-            this.spaceAttachmentsResource.getAttachments("test", "Path/spaces/To", "", "xyz", "", "", 10, 5, false);
+        Attachments attachments = this.spaceAttachmentsResource.getAttachments("test", "Path/spaces/To", "", "xyz", "",
+            "", 10, 5, false, null);
 
         verify(query).bindValue("localSpaceReference", "Path.To");
 
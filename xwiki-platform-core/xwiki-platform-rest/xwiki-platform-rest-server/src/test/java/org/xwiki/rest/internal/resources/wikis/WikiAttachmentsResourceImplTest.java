@@ -19,25 +19,38 @@
  */
 package org.xwiki.rest.internal.resources.wikis;
 
+import java.net.URI;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriBuilder;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.query.Query;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.internal.KeysetCursor;
 import org.xwiki.rest.internal.resources.AbstractAttachmentsResourceTest;
 import org.xwiki.rest.model.jaxb.Attachment;
 import org.xwiki.rest.model.jaxb.Attachments;
+import org.xwiki.rest.model.jaxb.Link;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -65,7 +78,8 @@ public void getAttachments() throws Exception
         Query query = mock(Query.class);
         when(this.queryManager.createQuery("select doc.space, doc.name, doc.version, attachment"
             + " from XWikiDocument as doc, XWikiAttachment as attachment"
-            + " where attachment.docId = doc.id and upper(doc.space) like :space", Query.HQL)).thenReturn(query);
+            + " where attachment.docId = doc.id and upper(doc.space) like :space order by attachment.id", Query.HQL))
+            .thenReturn(query);
         mockContainsQueryParam(query, "space", "ABC");
         when(query.setOffset(0)).thenReturn(query);
         when(query.setLimit(10)).thenReturn(query);
@@ -82,8 +96,63 @@ public void getAttachments() throws Exception
             .thenReturn(attachment);
 
         Attachments attachments =
-            this.wikiAttachmentsResource.getAttachments("test", "", "", "abc", "", "", 0, 10, true);
+            this.wikiAttachmentsResource.getAttachments("test", "", "", "abc", "", "", 0, 10, true, null);
 
         assertEquals(Collections.singletonList(attachment), attachments.getAttachments());
     }
+
+    @Test
+    public void getAttachmentsFromCursor() throws Exception
+    {
+        Query query = mock(Query.class);
+        when(this.queryManager.createQuery("select doc.space, doc.name, doc.version, attachment"
+            + " from XWikiDocument as doc, XWikiAttachment as attachment"
+            + " where attachment.docId = doc.id and upper(doc.space) like :space and attachment.id > :cursorId"
+            + " order by attachment.id", Query.HQL)).thenReturn(query);
+        mockContainsQueryParam(query, "space", "ABC");
+        when(query.setOffset(0)).thenReturn(query);
+        when(query.setLimit(2)).thenReturn(query);
+
+        XWikiAttachment firstAttachment = mock(XWikiAttachment.class, "first");
+        when(firstAttachment.getId()).thenReturn(43L);
+        XWikiAttachment lastAttachment = mock(XWikiAttachment.class, "last");
+        when(lastAttachment.getId()).thenReturn(47L);
+        List<Object> results = Arrays.asList(new Object[] {"Path.To", "Page", "1.3", firstAttachment},
+            new Object[] {"Path.To", "Page", "1.3", lastAttachment});
+        when(query.execute()).thenReturn(results);
+
+        when(this.defaultSpaceReferenceResover.resolve(eq("Path.To"), any()))
+            .thenReturn(new SpaceReference("test", "Path", "To"));
+
+        UriBuilder requestUriBuilder = mock(UriBuilder.class, RETURNS_SELF);
+        when(requestUriBuilder.build()).thenReturn(new URI("https://test/next"));
+        when(this.uriInfo.getRequestUriBuilder()).thenReturn(requestUriBuilder);
+
+        Attachments attachments = this.wikiAttachmentsResource.getAttachments("test", "", "", "abc", "", "", 0, 2,
+            true, new KeysetCursor(42L).serialize());
+
+        verify(query).bindValue("cursorId", 42L);
+
+        // The range is full so the next range continues after the last attachment.
+        assertEquals(1, attachments.getLinks().size());
+        Link next = attachments.getLinks().get(0);
+        assertEquals(Relations.NEXT, next.getRel());
+        assertEquals("https://test/next", next.getHref());
+        verify(requestUriBuilder).replaceQueryParam("start");
+        verify(requestUriBuilder).replaceQueryParam(KeysetCursor.PARAMETER, new KeysetCursor(47L).serialize());
+    }
+
+    @Test
+    public void getAttachmentsWithInvalidCursor() throws Exception
+    {
+        WebApplicationException exception = assertThrows(WebApplicationException.class,
+            () -> this.wikiAttachmentsResource.getAttachments("test", "", "", "", "", "", 0, 10, true, "!!!"));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+
+        // A well formed token which doesn't hold an attachment identifier.
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).thenReturn(mock(Query.class));
+        exception = assertThrows(WebApplicationException.class, () -> this.wikiAttachmentsResource
+            .getAttachments("test", "", "", "", "", "", 0, 10, true, new KeysetCursor("Page").serialize()));
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), exception.getResponse().getStatus());
+    }
 }
@@ -124,6 +124,20 @@ public class DefaultSolrConfiguration implements SolrConfiguration
      */
     public static final int SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT = 100000;
 
+    /**
+     * The name of the configuration property containing the number of extraction threads.
+     *
+     * @since 12.6RC1
+     */
+    public static final String SOLR_INDEXER_EXTRACTION_THREADS_PROPERTY = "solr.indexer.extraction.threads";
+
+    /**
+     * The default number of extraction threads.
+     *
+     * @since 12.6RC1
+     */
+    public static final int SOLR_INDEXER_EXTRACTION_THREADS_DEFAULT = 1;
+
     /**
      * The name of the configuration property indicating if a synchronization should be run at startup.
      */
@@ -200,6 +214,13 @@ public int getIndexerQueueCapacity()
             SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public int getIndexerExtractionThreads()
+    {
+        return this.configuration.getProperty(SOLR_INDEXER_EXTRACTION_THREADS_PROPERTY,
+            SOLR_INDEXER_EXTRACTION_THREADS_DEFAULT);
+    }
+
     @Override
     public boolean synchronizeAtStartup()
     {
@@ -20,12 +20,21 @@
 package org.xwiki.search.solr.internal;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -42,6 +51,7 @@
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
@@ -61,7 +71,8 @@
  * <p>
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
- * processes the queue.
+ * processes the queue: the extraction of the data to index is delegated to a pool of threads but the result is sent to
+ * the Solr server (and committed) in the order the references were received.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -96,6 +107,11 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * The future to complete once the entry is processed ({@link IndexOperation#FLUSH} only).
+         */
+        public CompletableFuture<Void> flushed;
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -116,6 +132,15 @@ public IndexQueueEntry(String deleteQuery, IndexOperation operation)
             this.operation = operation;
         }
 
+        /**
+         * @param flushed the future to complete once the entry is processed
+         */
+        public IndexQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.flushed = flushed;
+            this.operation = IndexOperation.FLUSH;
+        }
+
         @Override
         public String toString()
         {
@@ -128,6 +153,9 @@ public String toString()
                 case DELETE:
                     str = "DELETE " + this.deleteQuery;
                     break;
+                case FLUSH:
+                    str = "FLUSH";
+                    break;
                 case STOP:
                     str = "STOP";
                     break;
@@ -162,6 +190,11 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * The future to complete once the entry is processed ({@link IndexOperation#FLUSH} only).
+         */
+        public CompletableFuture<Void> flushed;
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
@@ -173,6 +206,43 @@ public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperat
             this.recurse = recurse;
             this.operation = operation;
         }
+
+        /**
+         * @param flushed the future to complete once the entry is processed
+         */
+        public ResolveQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.flushed = flushed;
+            this.operation = IndexOperation.FLUSH;
+        }
+    }
+
+    /**
+     * An index queue entry for which the extraction of the data to index is in progress.
+     * 
+     * @version $Id$
+     */
+    private static class ExtractionEntry
+    {
+        /**
+         * The index queue entry.
+         */
+        public IndexQueueEntry entry;
+
+        /**
+         * The data to index, {@code null} if the operation is not {@link IndexOperation#INDEX}.
+         */
+        public Future<LengthSolrInputDocument> document;
+
+        /**
+         * @param entry the index queue entry
+         * @param document the data to index
+         */
+        public ExtractionEntry(IndexQueueEntry entry, Future<LengthSolrInputDocument> document)
+        {
+            this.entry = entry;
+            this.document = document;
+        }
     }
 
     /**
@@ -215,6 +285,8 @@ public void runInternal()
                         for (EntityReference reference : references) {
                             indexQueue.put(new IndexQueueEntry(reference, queueEntry.operation));
                         }
+                    } else if (queueEntry.operation == IndexOperation.FLUSH) {
+                        indexQueue.put(new IndexQueueEntry(queueEntry.flushed));
                     } else {
                         if (queueEntry.recurse) {
                             indexQueue.put(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
@@ -284,6 +356,9 @@ public void runInternal()
     @Inject
     private JobExecutor jobs;
 
+    @Inject
+    private MetricsManager metrics;
+
     /**
      * The queue of index operation to perform.
      */
@@ -294,6 +369,16 @@ public void runInternal()
      */
     private BlockingQueue<ResolveQueueEntry> resolveQueue;
 
+    /**
+     * The entries for which the data to index is being extracted, in the order they were taken from the index queue.
+     */
+    private BlockingQueue<ExtractionEntry> extractionQueue;
+
+    /**
+     * The threads in which the data to index is extracted.
+     */
+    private ExecutorService extractionExecutor;
+
     /**
      * Thread in which the indexUpdater will be executed.
      */
@@ -321,6 +406,14 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Initialize the extraction threads
+        int extractionThreads = Math.max(1, this.configuration.getIndexerExtractionThreads());
+        // Make sure there is always something to extract for each thread while the oldest entry is being sent
+        this.extractionQueue = new ArrayBlockingQueue<>(extractionThreads * 2);
+        this.extractionExecutor = Executors.newFixedThreadPool(extractionThreads,
+            new BasicThreadFactory.Builder().namingPattern("XWiki Solr extraction thread %d").daemon(true)
+                .priority(Thread.NORM_PRIORITY - 1).build());
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -353,6 +446,8 @@ public void dispose() throws ComponentLifecycleException
         // the index queue was full) and just one entry will be added to the queue before the special stop entry.
         this.indexQueue.clear();
         this.indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
+
+        // The extraction threads will be stopped by the index thread
     }
 
     @Override
@@ -378,6 +473,9 @@ public void run()
             }
         }
 
+        // Stop the extraction threads
+        this.extractionExecutor.shutdownNow();
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
@@ -390,40 +488,30 @@ public void run()
      */
     private boolean processBatch(IndexQueueEntry queueEntry)
     {
+        this.metrics.update("solr.index.queue", this.indexQueue.size());
+
         int length = 0;
 
-        for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
-            if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
-                // Discard the current batch and stop the indexing thread.
-                return false;
-            }
+        IndexQueueEntry batchEntry = queueEntry;
+        do {
+            // Start the extraction of the next entries while there is room for them
+            while (batchEntry != null && this.extractionQueue.remainingCapacity() > 0) {
+                if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
+                    // Discard the current batch and stop the indexing thread.
+                    cancelExtraction();
 
-            IndexOperation operation = batchEntry.operation;
+                    return false;
+                }
 
-            // For the current contiguous operations queue, group the changes
-            try {
-                this.ecim.initialize(new ExecutionContext());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
+                this.extractionQueue.add(startExtraction(batchEntry));
 
-                    ++this.batchSize;
-                }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
+                batchEntry = this.indexQueue.poll();
+            }
+
+            // Send the oldest entry to Solr (the extraction of the following ones continue in the meantime)
+            ExtractionEntry extractionEntry = this.extractionQueue.poll();
+            if (extractionEntry != null) {
+                length += processEntry(extractionEntry);
             }
 
             // Commit the index changes so that they become available to queries. This is a costly operation and that is
@@ -432,7 +520,11 @@ private boolean processBatch(IndexQueueEntry queueEntry)
                 commit();
                 length = 0;
             }
-        }
+
+            if (batchEntry == null) {
+                batchEntry = this.indexQueue.poll();
+            }
+        } while (batchEntry != null || !this.extractionQueue.isEmpty());
 
         // Commit what's left
         if (this.batchSize > 0) {
@@ -442,11 +534,112 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * @param queueEntry the index queue entry
+     * @return the entry to send to Solr once its extraction is done
+     */
+    private ExtractionEntry startExtraction(IndexQueueEntry queueEntry)
+    {
+        Future<LengthSolrInputDocument> document = null;
+
+        if (IndexOperation.INDEX.equals(queueEntry.operation)) {
+            document = this.extractionExecutor.submit(() -> {
+                try {
+                    this.ecim.initialize(new ExecutionContext());
+
+                    long start = this.metrics.startTimer();
+                    try {
+                        return getSolrDocument(queueEntry.reference);
+                    } finally {
+                        this.metrics.stopTimer("solr.index.extract", start);
+                    }
+                } finally {
+                    this.execution.removeContext();
+                }
+            });
+        }
+
+        return new ExtractionEntry(queueEntry, document);
+    }
+
+    /**
+     * Cancel the extraction in progress.
+     */
+    private void cancelExtraction()
+    {
+        for (ExtractionEntry extractionEntry = this.extractionQueue.poll(); extractionEntry != null;
+            extractionEntry = this.extractionQueue.poll()) {
+            if (extractionEntry.document != null) {
+                extractionEntry.document.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @param extractionEntry the entry to send to Solr
+     * @return the length of the data sent to Solr
+     */
+    private int processEntry(ExtractionEntry extractionEntry)
+    {
+        int length = 0;
+
+        IndexQueueEntry batchEntry = extractionEntry.entry;
+        IndexOperation operation = batchEntry.operation;
+
+        // For the current contiguous operations queue, group the changes
+        try {
+            if (IndexOperation.INDEX.equals(operation)) {
+                LengthSolrInputDocument solrDocument = extractionEntry.document.get();
+                if (solrDocument != null) {
+                    long start = this.metrics.startTimer();
+                    solrInstance.add(solrDocument);
+                    this.metrics.stopTimer("solr.index.add", start);
+                    length = solrDocument.getLength();
+                    ++this.batchSize;
+                }
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                try {
+                    this.ecim.initialize(new ExecutionContext());
+
+                    long start = this.metrics.startTimer();
+                    if (batchEntry.reference == null) {
+                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
+                    } else {
+                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
+                    }
+                    this.metrics.stopTimer("solr.index.delete", start);
+                } finally {
+                    this.execution.removeContext();
+                }
+
+                ++this.batchSize;
+            } else if (IndexOperation.FLUSH.equals(operation)) {
+                // Make sure everything which was queued before is committed
+                if (this.batchSize > 0) {
+                    commit();
+                }
+
+                batchEntry.flushed.complete(null);
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while processing entry [{}]", batchEntry);
+
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e.getCause());
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e);
+        }
+
+        return length;
+    }
+
     /**
      * Commit.
      */
     private void commit()
     {
+        long start = this.metrics.startTimer();
         try {
             solrInstance.commit();
         } catch (Exception e) {
@@ -461,6 +654,8 @@ private void commit()
         }
 
         this.batchSize = 0;
+
+        this.metrics.stopTimer("solr.index.commit", start);
     }
 
     /**
@@ -549,10 +744,41 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
         }
     }
 
+    @Override
+    public CompletableFuture<Void> flush()
+    {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+        if (!this.disposed) {
+            try {
+                this.resolveQueue.put(new ResolveQueueEntry(flushed));
+            } catch (InterruptedException e) {
+                this.logger.error("Failed to add flush marker to Solr indexing queue", e);
+
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return flushed;
+    }
+
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.extractionQueue.size() + this.batchSize;
+    }
+
+    @Override
+    public Map<String, Integer> getQueueSizes()
+    {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+
+        sizes.put("resolve", this.resolveQueue.size());
+        sizes.put("index", this.indexQueue.size());
+        sizes.put("extraction", this.extractionQueue.size());
+        sizes.put("commit", this.batchSize);
+
+        return sizes;
     }
 
     @Override
@@ -39,6 +39,13 @@
 
     // General operations
 
+    /**
+     * Commit everything which was queued before and notify the caller.
+     * 
+     * @since 12.6RC1
+     */
+    FLUSH,
+
     /**
      * Stop indexing thread.
      */
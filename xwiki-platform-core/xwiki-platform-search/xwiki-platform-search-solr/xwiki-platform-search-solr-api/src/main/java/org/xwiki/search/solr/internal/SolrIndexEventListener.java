@@ -20,6 +20,7 @@
 package org.xwiki.search.solr.internal;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 
@@ -38,6 +39,7 @@
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationContext;
 import org.xwiki.observation.event.Event;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 
@@ -49,6 +51,8 @@
 import com.xpn.xwiki.internal.event.AttachmentAddedEvent;
 import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
 import com.xpn.xwiki.internal.event.AttachmentUpdatedEvent;
+import com.xpn.xwiki.internal.event.DocumentsImportedEvent;
+import com.xpn.xwiki.internal.event.DocumentsImportingEvent;
 import com.xpn.xwiki.internal.event.EntityEvent;
 import com.xpn.xwiki.internal.event.XObjectAddedEvent;
 import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
@@ -75,7 +79,7 @@ public class SolrIndexEventListener implements EventListener
         new DocumentCreatedEvent(), new DocumentDeletedEvent(), new AttachmentAddedEvent(),
         new AttachmentDeletedEvent(), new AttachmentUpdatedEvent(), new XObjectAddedEvent(), new XObjectDeletedEvent(),
         new XObjectUpdatedEvent(), new XObjectPropertyAddedEvent(), new XObjectPropertyDeletedEvent(),
-        new XObjectPropertyUpdatedEvent(), new WikiDeletedEvent());
+        new XObjectPropertyUpdatedEvent(), new WikiDeletedEvent(), DocumentsImportedEvent.EVENT);
 
     /**
      * Logging framework.
@@ -91,6 +95,9 @@ public class SolrIndexEventListener implements EventListener
     @Inject
     private Provider<SolrIndexer> solrIndexer;
 
+    @Inject
+    private ObservationContext observationContext;
+
     @Override
     public List<Event> getEvents()
     {
@@ -106,6 +113,15 @@ public String getName()
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        if (event instanceof DocumentsImportedEvent) {
+            indexImportedDocuments((Collection<DocumentReference>) data);
+
+            return;
+        } else if (this.observationContext.isIn(DocumentsImportingEvent.EVENT)) {
+            // The imported documents are indexed all at once at the end of the import
+            return;
+        }
+
         try {
             if (event instanceof DocumentUpdatedEvent) {
                 XWikiDocument document = (XWikiDocument) source;
@@ -181,6 +197,20 @@ public void onEvent(Event event, Object source, Object data)
         }
     }
 
+    private void indexImportedDocuments(Collection<DocumentReference> documents)
+    {
+        SolrIndexer indexer = this.solrIndexer.get();
+
+        for (DocumentReference document : documents) {
+            try {
+                // Also index the attachments and objects since the events related to them were skipped too
+                indexer.index(document, true);
+            } catch (Exception e) {
+                this.logger.error("Failed to index imported document [{}]", document, e);
+            }
+        }
+    }
+
     /**
      * Helper method to index all the translations of a document. We don't rely on the {@code recurse} parameter of the
      * {@link SolrIndexer#index(org.xwiki.model.reference.EntityReference, boolean)} because we want to update only the
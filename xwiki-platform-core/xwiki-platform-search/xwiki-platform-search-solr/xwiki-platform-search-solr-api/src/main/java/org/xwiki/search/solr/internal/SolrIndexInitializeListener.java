@@ -130,6 +130,9 @@ public void onEvent(Event event, Object source, Object data)
                 }
 
                 if (request != null) {
+                    // Only take into account what changed since the previous synchronization
+                    request.setIncremental(true);
+
                     this.solrIndexer.get().startIndex(request);
                 }
             } catch (SolrIndexerException | WikiManagerException e) {
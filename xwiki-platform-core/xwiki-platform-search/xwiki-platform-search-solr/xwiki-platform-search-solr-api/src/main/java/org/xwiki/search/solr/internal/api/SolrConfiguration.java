@@ -98,6 +98,12 @@
      */
     int getIndexerQueueCapacity();
 
+    /**
+     * @return the number of threads used to extract the data to index from the enqueued entities
+     * @since 12.6RC1
+     */
+    int getIndexerExtractionThreads();
+
     /**
      * @return true if a full synchronization job between the database and SOLR index should be run when XWiki starts
      * @since 6.1M2
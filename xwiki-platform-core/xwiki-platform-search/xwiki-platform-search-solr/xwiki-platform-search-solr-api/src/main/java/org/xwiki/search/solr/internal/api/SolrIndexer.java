@@ -19,6 +19,10 @@
  */
 package org.xwiki.search.solr.internal.api;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.job.IndexerJob;
@@ -55,11 +59,29 @@
      */
     void delete(EntityReference reference, boolean recurse);
 
+    /**
+     * Add a marker to the queue of entities to index or delete.
+     * 
+     * @return a future completed when all the operations added to the queue before the call have been committed
+     * @since 12.6RC1
+     */
+    CompletableFuture<Void> flush();
+
     /**
      * @return the number of element in the index/delete queue
      */
     int getQueueSize();
 
+    /**
+     * @return the number of elements waiting in each stage of the indexer, in the order the elements go through the
+     *         stages
+     * @since 12.6RC1
+     */
+    default Map<String, Integer> getQueueSizes()
+    {
+        return Collections.singletonMap("index", getQueueSize());
+    }
+
     /**
      * Start an indexing with specific criteria.
      * 
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Properties;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+
+/**
+ * Persist, for each wiki, the date before which all the modified documents are known to be indexed.
+ * <p>
+ * The checkpoints are stored in a properties file located in the permanent directory so that they survive a restart.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = IndexerCheckpointStore.class)
+@Singleton
+public class IndexerCheckpointStore
+{
+    private static final String FILE_PATH = "solr/indexer/checkpoints.properties";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Logger logger;
+
+    private Properties checkpoints;
+
+    /**
+     * @param wiki the identifier of the wiki
+     * @return the date before which all the modified documents of the wiki are known to be indexed, {@code null} if
+     *         unknown
+     */
+    public synchronized Date getCheckpoint(String wiki)
+    {
+        long time = NumberUtils.toLong(getCheckpoints().getProperty(wiki), -1);
+
+        return time >= 0 ? new Date(time) : null;
+    }
+
+    /**
+     * @param wiki the identifier of the wiki
+     * @param checkpoint the date before which all the modified documents of the wiki are known to be indexed
+     */
+    public synchronized void setCheckpoint(String wiki, Date checkpoint)
+    {
+        getCheckpoints().setProperty(wiki, String.valueOf(checkpoint.getTime()));
+
+        save();
+    }
+
+    private File getFile()
+    {
+        return new File(this.environment.getPermanentDirectory(), FILE_PATH);
+    }
+
+    private Properties getCheckpoints()
+    {
+        if (this.checkpoints == null) {
+            this.checkpoints = new Properties();
+
+            File file = getFile();
+            if (file.exists()) {
+                try (InputStream stream = Files.newInputStream(file.toPath())) {
+                    this.checkpoints.load(stream);
+                } catch (IOException e) {
+                    // Not a big deal, the next synchronization will just be a full one
+                    this.logger.warn("Failed to load Solr indexer checkpoints from [{}]", file, e);
+                }
+            }
+        }
+
+        return this.checkpoints;
+    }
+
+    private void save()
+    {
+        File file = getFile();
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+
+            try (OutputStream stream = Files.newOutputStream(tmpFile.toPath())) {
+                this.checkpoints.store(stream, null);
+            }
+
+            // Make sure a crash never leave a partially written file
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            this.logger.error("Failed to save Solr indexer checkpoints in [{}]", file, e);
+        }
+    }
+}
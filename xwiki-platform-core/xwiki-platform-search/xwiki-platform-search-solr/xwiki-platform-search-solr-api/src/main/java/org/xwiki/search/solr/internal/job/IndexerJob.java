@@ -19,11 +19,21 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -33,11 +43,18 @@
 import org.xwiki.job.GroupedJob;
 import org.xwiki.job.JobGroupPath;
 import org.xwiki.job.Request;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.job.DiffDocumentIterator.Action;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 /**
  * Provide progress information and store logging of an advanced indexing.
@@ -60,6 +77,29 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
      */
     private static final JobGroupPath GROUP = new JobGroupPath(Arrays.asList("solr", "indexer"));
 
+    /**
+     * The maximum number of documents to query at once.
+     */
+    private static final int LIMIT = 100;
+
+    /**
+     * Documents saved slightly before the start of the synchronization (but committed in the database after it) or on
+     * another cluster member with a shifted clock should still be taken into account by the next one.
+     */
+    private static final long CHECKPOINT_MARGIN = 60000L;
+
+    private static final String PARAMETER_DATE = "date";
+
+    private static final String PARAMETER_ID = "id";
+
+    private static final String DELETED_STATEMENT = "select ddoc.fullName, ddoc.language, ddoc.date, ddoc.id"
+        + " from XWikiDeletedDocument ddoc where ddoc.date > :date or (ddoc.date = :date and ddoc.id > :id)"
+        + " order by ddoc.date, ddoc.id";
+
+    private static final String MODIFIED_STATEMENT = "select doc.fullName, doc.language, doc.date, doc.id"
+        + " from XWikiDocument doc where doc.date > :date or (doc.date = :date and doc.id > :id)"
+        + " order by doc.date, doc.id";
+
     /**
      * Used to send documents to index or delete to/from Solr index.
      */
@@ -68,11 +108,24 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
 
     @Inject
     @Named("database")
-    private transient DocumentIterator<String> databaseIterator;
+    private transient Provider<DocumentIterator<String>> databaseIteratorProvider;
 
     @Inject
     @Named("solr")
-    private transient DocumentIterator<String> solrIterator;
+    private transient Provider<DocumentIterator<String>> solrIteratorProvider;
+
+    @Inject
+    private transient IndexerCheckpointStore checkpointStore;
+
+    @Inject
+    private transient QueryManager queryManager;
+
+    @Inject
+    private transient WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    @Named("current")
+    private transient DocumentReferenceResolver<String> documentReferenceResolver;
 
     @Inject
     private EntityReferenceSerializer<String> entityReferenceSerializer;
@@ -113,18 +166,194 @@ protected void runInternal() throws Exception
             EntityReference rootReference = getRequest().getRootReference();
             this.logger.info("Index documents in [{}].", rootReference);
             this.indexer.index(rootReference, true);
+        } else if (getRequest().isIncremental()) {
+            updateSolrIndexIncrementally();
+        } else {
+            updateSolrIndex(getRequest().getRootReference());
+        }
+    }
+
+    /**
+     * Update the Solr index to match the current state of the database, only looking at what changed since the
+     * previous synchronization when possible.
+     */
+    private void updateSolrIndexIncrementally() throws Exception
+    {
+        EntityReference rootReference = getRequest().getRootReference();
+
+        // Checkpoints are only maintained for whole wikis
+        if (rootReference != null && rootReference.getType() != EntityType.WIKI) {
+            updateSolrIndex(rootReference);
+
+            return;
+        }
+
+        List<String> wikis;
+        if (rootReference != null) {
+            wikis = Collections.singletonList(rootReference.getName());
         } else {
-            updateSolrIndex();
+            wikis = new ArrayList<>(this.wikiDescriptorManager.getAllIds());
+        }
+
+        Map<String, Date> checkpoints = new HashMap<>();
+
+        this.progressManager.pushLevelProgress(wikis.size(), this);
+
+        try {
+            for (String wiki : wikis) {
+                this.progressManager.startStep(this);
+
+                // Anything modified after this date will be taken into account by the next synchronization
+                Date newCheckpoint = new Date(System.currentTimeMillis() - CHECKPOINT_MARGIN);
+
+                WikiReference wikiReference = new WikiReference(wiki);
+                Date checkpoint = this.checkpointStore.getCheckpoint(wiki);
+                if (checkpoint != null && isSynchronized(wikiReference)) {
+                    this.logger.info("Index documents modified in wiki [{}] since [{}].", wiki, checkpoint);
+
+                    updateSolrIndex(wikiReference, checkpoint);
+
+                    // Some changes are invisible to the incremental synchronization (e.g. a document deleted without
+                    // going through the recycle bin or an index operation lost in a crash) but they all leave the
+                    // index with a different number of documents than the database once everything is committed
+                    this.indexer.flush().get();
+                    if (!isSynchronized(wikiReference)) {
+                        this.logger.info("The Solr index of wiki [{}] is not in sync with the database after the"
+                            + " incremental synchronization, falling back to a full synchronization.", wiki);
+
+                        updateSolrIndex(wikiReference);
+                    }
+                } else {
+                    updateSolrIndex(wikiReference);
+                }
+
+                checkpoints.put(wiki, newCheckpoint);
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+
+        // Move the checkpoints only when everything sent to the indexer is in the index so that the next
+        // synchronization starts from the previous checkpoints if anything goes wrong in the meantime
+        this.indexer.flush().thenRun(() -> checkpoints.forEach(this.checkpointStore::setCheckpoint));
+    }
+
+    /**
+     * @param wikiReference the wiki
+     * @return true if the Solr index contains as many documents as the database for the passed wiki (a mismatch means
+     *         the index was lost or is not in sync anymore and a full synchronization is required); this is checked
+     *         both before and after the incremental synchronization so that a difference compensated by the changes
+     *         made since the checkpoint (e.g. a document created and another one deleted without going through the
+     *         recycle bin) is still detected
+     */
+    private boolean isSynchronized(WikiReference wikiReference)
+    {
+        DocumentIterator<String> databaseIterator = this.databaseIteratorProvider.get();
+        databaseIterator.setRootReference(wikiReference);
+        DocumentIterator<String> solrIterator = this.solrIteratorProvider.get();
+        solrIterator.setRootReference(wikiReference);
+
+        return databaseIterator.size() == solrIterator.size();
+    }
+
+    /**
+     * Index the documents modified or deleted since the passed date.
+     * 
+     * @param wikiReference the wiki
+     * @param checkpoint the date since when to look for modifications
+     * @throws QueryException when failing to query the database
+     */
+    private void updateSolrIndex(WikiReference wikiReference, Date checkpoint) throws QueryException
+    {
+        this.progressManager.pushLevelProgress(2, this);
+
+        try {
+            // Deleted documents first so that a document deleted and created again ends up in the index
+            this.progressManager.startStep(this);
+            long deleted = forEachModified(DELETED_STATEMENT, wikiReference, checkpoint, documentReference -> {
+                if (getRequest().isRemoveMissing()) {
+                    this.indexer.delete(documentReference, true);
+                }
+            });
+            this.progressManager.endStep(this);
+
+            this.progressManager.startStep(this);
+            long modified = forEachModified(MODIFIED_STATEMENT, wikiReference, checkpoint,
+                documentReference -> this.indexer.index(documentReference, true));
+            this.progressManager.endStep(this);
+
+            this.logger.info("{} documents modified and {} deleted since [{}] in wiki [{}].", modified, deleted,
+                checkpoint, wikiReference.getName());
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    /**
+     * Call the passed consumer for each document returned by the passed statement.
+     * <p>
+     * The results are paged using the date and id of the last returned row (instead of an offset) so that a document
+     * modified during the synchronization is moved at the end of the results instead of shifting the following rows
+     * (which would make an offset based paging skip some of them).
+     * 
+     * @param statement the HQL statement returning the full name, locale, date and id of the documents, ordered by
+     *            date and id
+     * @param wikiReference the wiki
+     * @param checkpoint the date since when to look for modifications
+     * @param consumer called for each returned document
+     * @return the number of returned documents
+     * @throws QueryException when failing to query the database
+     */
+    private long forEachModified(String statement, WikiReference wikiReference, Date checkpoint,
+        Consumer<DocumentReference> consumer) throws QueryException
+    {
+        Query query = this.queryManager.createQuery(statement, Query.HQL);
+        query.setWiki(wikiReference.getName()).setLimit(LIMIT);
+
+        long count = 0;
+        Date date = checkpoint;
+        long id = Long.MIN_VALUE;
+        List<Object[]> results;
+        do {
+            results = query.bindValue(PARAMETER_DATE, date).bindValue(PARAMETER_ID, id).execute();
+
+            for (Object[] result : results) {
+                consumer.accept(getDocumentReference((String) result[0], (String) result[1], wikiReference));
+            }
+
+            if (!results.isEmpty()) {
+                Object[] last = results.get(results.size() - 1);
+                date = (Date) last[2];
+                id = ((Number) last[3]).longValue();
+                count += results.size();
+            }
+        } while (results.size() >= LIMIT);
+
+        return count;
+    }
+
+    private DocumentReference getDocumentReference(String fullName, String locale, WikiReference wikiReference)
+    {
+        DocumentReference documentReference = this.documentReferenceResolver.resolve(fullName, wikiReference);
+        if (!StringUtils.isEmpty(locale)) {
+            documentReference = new DocumentReference(documentReference, LocaleUtils.toLocale(locale));
         }
+
+        return documentReference;
     }
 
     /**
      * Update the Solr index to match the current state of the database.
+     * 
+     * @param rootReference the reference from which to work
      */
-    private void updateSolrIndex()
+    private void updateSolrIndex(EntityReference rootReference)
     {
-        DiffDocumentIterator<String> iterator = new DiffDocumentIterator<>(this.solrIterator, this.databaseIterator);
-        iterator.setRootReference(getRequest().getRootReference());
+        DiffDocumentIterator<String> iterator =
+            new DiffDocumentIterator<>(this.solrIteratorProvider.get(), this.databaseIteratorProvider.get());
+        iterator.setRootReference(rootReference);
 
         this.progressManager.pushLevelProgress(2, this);
 
@@ -53,6 +53,11 @@ public class IndexerRequest extends AbstractRequest
      */
     private boolean removeMissing = true;
 
+    /**
+     * @see #isIncremental()
+     */
+    private boolean incremental;
+
     /**
      * The default constructor.
      */
@@ -118,6 +123,29 @@ public void setRemoveMissing(boolean removeMissing)
         this.removeMissing = removeMissing;
     }
 
+    /**
+     * @return if true only the documents modified or deleted since the last synchronization of each wiki are taken into
+     *         account (when the wiki was never synchronized or the index does not seem to be in sync anymore a full
+     *         synchronization is performed), if false all the documents are compared with the Solr index
+     * @since 12.6RC1
+     */
+    public boolean isIncremental()
+    {
+        return this.incremental;
+    }
+
+    /**
+     * @param incremental if true only the documents modified or deleted since the last synchronization of each wiki are
+     *            taken into account (when the wiki was never synchronized or the index does not seem to be in sync
+     *            anymore a full synchronization is performed), if false all the documents are compared with the Solr
+     *            index
+     * @since 12.6RC1
+     */
+    public void setIncremental(boolean incremental)
+    {
+        this.incremental = incremental;
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -135,6 +163,7 @@ public boolean equals(Object o)
             .appendSuper(super.equals(o))
             .append(overwrite, that.overwrite)
             .append(removeMissing, that.removeMissing)
+            .append(incremental, that.incremental)
             .append(rootReference, that.rootReference)
             .isEquals();
     }
@@ -147,6 +176,7 @@ public int hashCode()
             .append(rootReference)
             .append(overwrite)
             .append(removeMissing)
+            .append(incremental)
             .toHashCode();
     }
 }
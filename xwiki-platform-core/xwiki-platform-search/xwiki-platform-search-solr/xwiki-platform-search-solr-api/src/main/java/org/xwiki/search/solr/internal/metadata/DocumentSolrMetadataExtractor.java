@@ -109,7 +109,7 @@ public boolean setFieldsInternal(LengthSolrInputDocument solrDocument, EntityRef
 
         // Rendered content
         WikiPrinter plainContentPrinter = new DefaultWikiPrinter();
-        this.renderer.render(translatedDocument.getXDOM(), plainContentPrinter);
+        this.renderer.render(translatedDocument.getReadOnlyXDOM(), plainContentPrinter);
         solrDocument.setField(FieldUtils.getFieldName(FieldUtils.DOCUMENT_RENDERED_CONTENT, locale),
             plainContentPrinter.toString());
 
@@ -85,6 +85,15 @@ public void getIndexerQueueCapacity()
 
     }
 
+    @Test
+    public void getIndexerExtractionThreads()
+    {
+        when(this.source.getProperty(DefaultSolrConfiguration.SOLR_INDEXER_EXTRACTION_THREADS_PROPERTY,
+            DefaultSolrConfiguration.SOLR_INDEXER_EXTRACTION_THREADS_DEFAULT)).thenReturn(4);
+
+        assertEquals(4, this.configuration.getIndexerExtractionThreads());
+    }
+
     @Test
     public void synchronizeAtStartup()
     {
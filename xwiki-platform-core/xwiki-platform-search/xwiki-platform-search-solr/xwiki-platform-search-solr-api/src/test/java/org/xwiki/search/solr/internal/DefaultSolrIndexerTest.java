@@ -0,0 +1,183 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.metrics.MetricsManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultSolrIndexer}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultSolrIndexerTest
+{
+    private static final int EXTRACTION_THREADS = 4;
+
+    @InjectMockComponents
+    private DefaultSolrIndexer indexer;
+
+    @MockComponent
+    private SolrConfiguration configuration;
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
+    @MockComponent
+    private SolrReferenceResolver solrReferenceResolver;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager ecim;
+
+    @MockComponent
+    private JobExecutor jobs;
+
+    @MockComponent
+    private MetricsManager metrics;
+
+    @MockComponent
+    @Named("document")
+    private SolrMetadataExtractor documentExtractor;
+
+    @BeforeComponent
+    public void beforeComponent()
+    {
+        when(this.configuration.getIndexerQueueCapacity()).thenReturn(100);
+        when(this.configuration.getIndexerBatchSize()).thenReturn(100);
+        when(this.configuration.getIndexerBatchMaxLengh()).thenReturn(Integer.MAX_VALUE);
+        when(this.configuration.getIndexerExtractionThreads()).thenReturn(EXTRACTION_THREADS);
+    }
+
+    @AfterEach
+    public void afterEach() throws ComponentLifecycleException
+    {
+        this.indexer.dispose();
+    }
+
+    private LengthSolrInputDocument createSolrDocument(DocumentReference reference)
+    {
+        LengthSolrInputDocument document = new LengthSolrInputDocument();
+        document.setField("id", reference.getName());
+
+        return document;
+    }
+
+    @Test
+    public void indexExtractsInParallelAndKeepsOrder() throws Exception
+    {
+        List<DocumentReference> references = new ArrayList<>();
+        List<LengthSolrInputDocument> documents = new ArrayList<>();
+        for (int i = 0; i < EXTRACTION_THREADS; ++i) {
+            DocumentReference reference = new DocumentReference("wiki", "Space", "Page" + i);
+            references.add(reference);
+            documents.add(createSolrDocument(reference));
+        }
+
+        // Each extraction waits for all the others to be started: this can only succeed if they run in parallel.
+        CountDownLatch started = new CountDownLatch(EXTRACTION_THREADS);
+        when(this.documentExtractor.getSolrDocument(any())).thenAnswer(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            int index = references.indexOf(reference);
+
+            started.countDown();
+            if (!started.await(10, TimeUnit.SECONDS)) {
+                return null;
+            }
+
+            // Make the first entries finish last
+            Thread.sleep((EXTRACTION_THREADS - index) * 50L);
+
+            return documents.get(index);
+        });
+
+        for (DocumentReference reference : references) {
+            this.indexer.index(reference, false);
+        }
+
+        this.indexer.flush().get(20, TimeUnit.SECONDS);
+
+        assertEquals(0, started.getCount(), "The extractions were not executed in parallel");
+
+        // The documents are sent to Solr in the order they were queued, not in the order they were extracted
+        InOrder inOrder = inOrder(this.solrInstance);
+        for (LengthSolrInputDocument document : documents) {
+            inOrder.verify(this.solrInstance).add(document);
+        }
+        inOrder.verify(this.solrInstance).commit();
+    }
+
+    @Test
+    public void indexThenDeleteKeepsOrder() throws Exception
+    {
+        DocumentReference reference = new DocumentReference("wiki", "Space", "Page");
+        LengthSolrInputDocument document = createSolrDocument(reference);
+        when(this.solrReferenceResolver.getId(reference)).thenReturn("id");
+        when(this.documentExtractor.getSolrDocument(reference)).thenAnswer(invocation -> {
+            // Make sure the delete is queued while the extraction is still running
+            Thread.sleep(200);
+
+            return document;
+        });
+
+        this.indexer.index(reference, false);
+        this.indexer.delete(reference, false);
+
+        this.indexer.flush().get(20, TimeUnit.SECONDS);
+
+        InOrder inOrder = inOrder(this.solrInstance);
+        inOrder.verify(this.solrInstance).add(document);
+        inOrder.verify(this.solrInstance).delete("id");
+        verify(this.solrInstance, atLeastOnce()).commit();
+    }
+}
@@ -30,14 +30,18 @@
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationContext;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.DocumentsImportedEvent;
+import com.xpn.xwiki.internal.event.DocumentsImportingEvent;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -107,4 +111,34 @@ public void onDocumentDefaultTranslationUpdated() throws Exception
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.FRENCH), false);
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.GERMAN), false);
     }
+
+    @Test
+    public void onDocumentsImported() throws Exception
+    {
+        DocumentReference document1 = new DocumentReference("wiki", "Path", "Page1", Locale.ROOT);
+        DocumentReference document2 = new DocumentReference("wiki", "Path", "Page2", Locale.FRENCH);
+
+        this.mocker.getComponentUnderTest().onEvent(DocumentsImportedEvent.EVENT, null,
+            Arrays.asList(document1, document2));
+
+        verify(this.indexer, times(2)).index(any(EntityReference.class), any(Boolean.class));
+        verify(this.indexer).index(document1, true);
+        verify(this.indexer).index(document2, true);
+    }
+
+    @Test
+    public void onDocumentUpdatedDuringParallelImport() throws Exception
+    {
+        ObservationContext observationContext = this.mocker.getInstance(ObservationContext.class);
+        when(observationContext.isIn(DocumentsImportingEvent.EVENT)).thenReturn(true);
+
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReferenceWithLocale())
+            .thenReturn(new DocumentReference("wiki", "Path", "Page", Locale.FRENCH));
+
+        this.mocker.getComponentUnderTest().onEvent(new DocumentUpdatedEvent(), document, null);
+
+        // Indexed at the end of the import
+        verify(this.indexer, never()).index(any(EntityReference.class), any(Boolean.class));
+    }
 }
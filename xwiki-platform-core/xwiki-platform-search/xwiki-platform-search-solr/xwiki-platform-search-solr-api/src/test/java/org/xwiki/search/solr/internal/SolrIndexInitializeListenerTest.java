@@ -92,6 +92,7 @@ void onEventApplicationReadyForFarm() throws SolrIndexerException
         this.solrIndexInitializeListener.onEvent(new ApplicationReadyEvent(), null, null);
         IndexerRequest indexerRequest = new IndexerRequest();
         indexerRequest.setId(Arrays.asList("solr", "indexer"));
+        indexerRequest.setIncremental(true);
         verify(this.solrIndexer).startIndex(indexerRequest);
     }
 
@@ -110,6 +111,7 @@ void onEventWikiReadyForWiki() throws SolrIndexerException
         IndexerRequest indexerRequest = new IndexerRequest();
         indexerRequest.setRootReference(new WikiReference("mywiki"));
         indexerRequest.setId(Arrays.asList("solr", "indexer", "wiki:mywiki"));
+        indexerRequest.setIncremental(true);
         verify(this.solrIndexer).startIndex(indexerRequest);
     }
 
@@ -147,6 +149,7 @@ void onEventApplicationReadyForWiki() throws SolrIndexerException, WikiManagerEx
         IndexerRequest indexerRequest = new IndexerRequest();
         indexerRequest.setRootReference(wikiReference);
         indexerRequest.setId(Arrays.asList("solr", "indexer", "wiki:foo"));
+        indexerRequest.setIncremental(true);
         verify(this.solrIndexer).startIndex(indexerRequest);
     }
 }
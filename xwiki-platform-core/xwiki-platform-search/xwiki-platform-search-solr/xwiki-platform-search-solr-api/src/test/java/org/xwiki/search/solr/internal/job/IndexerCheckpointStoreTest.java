@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link IndexerCheckpointStore}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class IndexerCheckpointStoreTest
+{
+    @InjectMockComponents
+    private IndexerCheckpointStore store;
+
+    @MockComponent
+    private Environment environment;
+
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    private File file;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        when(this.environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+
+        this.file = new File(this.permanentDirectory, "solr/indexer/checkpoints.properties");
+    }
+
+    private Properties load() throws IOException
+    {
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(this.file.toPath())) {
+            properties.load(stream);
+        }
+
+        return properties;
+    }
+
+    @Test
+    public void getCheckpointWhenNone()
+    {
+        assertNull(this.store.getCheckpoint("wiki"));
+    }
+
+    @Test
+    public void setCheckpoint() throws IOException
+    {
+        Date date = new Date(42000L);
+
+        this.store.setCheckpoint("wiki", date);
+
+        assertEquals(date, this.store.getCheckpoint("wiki"));
+        assertNull(this.store.getCheckpoint("otherwiki"));
+
+        // Make sure it's persisted
+        assertEquals("42000", load().getProperty("wiki"));
+        assertFalse(new File(this.file.getParentFile(), "checkpoints.properties.tmp").exists());
+
+        // Move the checkpoint
+        this.store.setCheckpoint("wiki", new Date(43000L));
+        this.store.setCheckpoint("otherwiki", new Date(44000L));
+
+        Properties properties = load();
+        assertEquals("43000", properties.getProperty("wiki"));
+        assertEquals("44000", properties.getProperty("otherwiki"));
+    }
+
+    @Test
+    public void getCheckpointFromFile() throws IOException
+    {
+        // Resume from the checkpoints saved before a restart
+        FileUtils.write(this.file, "wiki=42000\ninvalid=notanumber\n", "ISO-8859-1");
+
+        assertEquals(new Date(42000L), this.store.getCheckpoint("wiki"));
+        assertNull(this.store.getCheckpoint("invalid"));
+        assertNull(this.store.getCheckpoint("otherwiki"));
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link IndexerJob}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class IndexerJobTest
+{
+    private static final String WIKI = "wiki";
+
+    private static final WikiReference WIKI_REFERENCE = new WikiReference(WIKI);
+
+    private static final Date CHECKPOINT = new Date(1000L);
+
+    @InjectMockComponents
+    private IndexerJob job;
+
+    @MockComponent
+    private SolrIndexer indexer;
+
+    @MockComponent
+    @Named("database")
+    private Provider<DocumentIterator<String>> databaseIteratorProvider;
+
+    @MockComponent
+    @Named("solr")
+    private Provider<DocumentIterator<String>> solrIteratorProvider;
+
+    @MockComponent
+    private IndexerCheckpointStore checkpointStore;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    /**
+     * The rows of the XWikiDocument table: full name, locale, date and id.
+     */
+    private final List<Object[]> documents = new ArrayList<>();
+
+    /**
+     * The rows of the XWikiDeletedDocument table: full name, locale, date and id.
+     */
+    private final List<Object[]> deletedDocuments = new ArrayList<>();
+
+    /**
+     * Called after each execution of the query on the XWikiDocument table.
+     */
+    private Consumer<List<Object[]>> afterDocumentsQuery = results -> {
+    };
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.documentReferenceResolver.resolve(anyString(), any(WikiReference.class)))
+            .then(invocation -> new DocumentReference(WIKI, "Space", invocation.<String>getArgument(0)));
+
+        when(this.indexer.flush()).thenReturn(CompletableFuture.completedFuture(null));
+
+        Query documentsQuery = mockQuery(this.documents, results -> this.afterDocumentsQuery.accept(results));
+        when(this.queryManager.createQuery(startsWith("select doc."), eq(Query.HQL))).thenReturn(documentsQuery);
+        Query deletedDocumentsQuery = mockQuery(this.deletedDocuments, results -> {
+        });
+        when(this.queryManager.createQuery(startsWith("select ddoc."), eq(Query.HQL)))
+            .thenReturn(deletedDocumentsQuery);
+    }
+
+    /**
+     * Simulate the keyset query on the passed table.
+     */
+    private Query mockQuery(List<Object[]> rows, Consumer<List<Object[]>> afterExecute) throws Exception
+    {
+        Query query = mock(Query.class);
+        Map<String, Object> parameters = new HashMap<>();
+        int[] limit = new int[1];
+
+        when(query.setWiki(WIKI)).thenReturn(query);
+        when(query.setLimit(anyInt())).then(invocation -> {
+            limit[0] = invocation.getArgument(0);
+            return query;
+        });
+        when(query.bindValue(anyString(), any())).then(invocation -> {
+            parameters.put(invocation.getArgument(0), invocation.getArgument(1));
+            return query;
+        });
+        when(query.execute()).then(invocation -> {
+            Date date = (Date) parameters.get("date");
+            long id = (Long) parameters.get("id");
+
+            List<Object[]> results = rows.stream().filter(row -> {
+                int diff = ((Date) row[2]).compareTo(date);
+                return diff > 0 || (diff == 0 && (Long) row[3] > id);
+            }).sorted(Comparator.<Object[], Date>comparing(row -> (Date) row[2])
+                .thenComparing(row -> (Long) row[3])).limit(limit[0]).collect(Collectors.toList());
+
+            afterExecute.accept(results);
+
+            return results;
+        });
+
+        return query;
+    }
+
+    private DocumentIterator<String> mockIterator(long size)
+    {
+        DocumentIterator<String> iterator = mock(DocumentIterator.class);
+        when(iterator.size()).thenReturn(size);
+
+        return iterator;
+    }
+
+    private DocumentReference getDocumentReference(String name)
+    {
+        return new DocumentReference(WIKI, "Space", name);
+    }
+
+    private void run(IndexerRequest request) throws Exception
+    {
+        this.job.initialize(request);
+        this.job.runInternal();
+    }
+
+    private IndexerRequest createIncrementalRequest()
+    {
+        IndexerRequest request = new IndexerRequest();
+        request.setRootReference(WIKI_REFERENCE);
+        request.setIncremental(true);
+        request.setRemoveMissing(true);
+
+        return request;
+    }
+
+    @Test
+    public void incrementalFromCheckpoint() throws Exception
+    {
+        when(this.checkpointStore.getCheckpoint(WIKI)).thenReturn(CHECKPOINT);
+        DocumentIterator<String> databaseIterator = mockIterator(10);
+        when(this.databaseIteratorProvider.get()).thenReturn(databaseIterator);
+        when(this.solrIteratorProvider.get()).thenReturn(mockIterator(10));
+
+        // Several documents share the same date and the pages limit falls in the middle of them
+        for (long i = 0; i < 250; ++i) {
+            this.documents.add(new Object[] { "Page" + i, "", new Date(CHECKPOINT.getTime() + i / 7), i });
+        }
+        this.documents.add(new Object[] { "Old", "", new Date(CHECKPOINT.getTime() - 1), 1000L });
+        this.deletedDocuments.add(new Object[] { "Deleted", "", new Date(CHECKPOINT.getTime() + 1), 1L });
+        this.deletedDocuments.add(new Object[] { "OldDeleted", "", new Date(CHECKPOINT.getTime() - 1), 2L });
+
+        run(createIncrementalRequest());
+
+        for (int i = 0; i < 250; ++i) {
+            verify(this.indexer).index(getDocumentReference("Page" + i), true);
+        }
+        verify(this.indexer, never()).index(getDocumentReference("Old"), true);
+        verify(this.indexer).delete(getDocumentReference("Deleted"), true);
+        verify(this.indexer, never()).delete(getDocumentReference("OldDeleted"), true);
+
+        // No full synchronization
+        verify(databaseIterator, never()).hasNext();
+
+        verify(this.checkpointStore).setCheckpoint(eq(WIKI), any(Date.class));
+    }
+
+    @Test
+    public void incrementalWhenModifiedDuringSynchronization() throws Exception
+    {
+        when(this.checkpointStore.getCheckpoint(WIKI)).thenReturn(CHECKPOINT);
+        when(this.databaseIteratorProvider.get()).thenReturn(mockIterator(10));
+        when(this.solrIteratorProvider.get()).thenReturn(mockIterator(10));
+
+        for (long i = 0; i < 150; ++i) {
+            this.documents.add(new Object[] { "Page" + i, "", new Date(CHECKPOINT.getTime() + i), i });
+        }
+
+        // Modify the first document once the first page has been read: it moves to the end of the results, which
+        // would make an offset based paging skip the first document of the second page
+        this.afterDocumentsQuery = results -> {
+            Object[] first = this.documents.get(0);
+            if (results.contains(first)) {
+                first[2] = new Date(CHECKPOINT.getTime() + 10000);
+            }
+        };
+
+        run(createIncrementalRequest());
+
+        for (int i = 1; i < 150; ++i) {
+            verify(this.indexer).index(getDocumentReference("Page" + i), true);
+        }
+        // Indexed before and after the modification
+        verify(this.indexer, times(2)).index(getDocumentReference("Page0"), true);
+    }
+
+    @Test
+    public void incrementalWhenDeletedWithoutRecycleBin() throws Exception
+    {
+        when(this.checkpointStore.getCheckpoint(WIKI)).thenReturn(CHECKPOINT);
+
+        // A document was created and another one was deleted without going through the recycle bin since the
+        // checkpoint: the counts match before the incremental synchronization but not after it
+        this.documents.add(new Object[] { "Created", "", new Date(CHECKPOINT.getTime() + 1), 1L });
+        DocumentIterator<String> databaseDiffIterator = mockIterator(10);
+        when(this.databaseIteratorProvider.get()).thenReturn(mockIterator(10), mockIterator(10),
+            databaseDiffIterator);
+        DocumentIterator<String> solrDiffIterator = mockIterator(11);
+        when(solrDiffIterator.hasNext()).thenReturn(true, false);
+        when(solrDiffIterator.next()).thenReturn(new ImmutablePair<>(getDocumentReference("Deleted"), "1.1"));
+        when(this.solrIteratorProvider.get()).thenReturn(mockIterator(10), mockIterator(11), solrDiffIterator);
+
+        run(createIncrementalRequest());
+
+        verify(this.indexer).index(getDocumentReference("Created"), true);
+        // Found by the full synchronization
+        verify(this.indexer).delete(getDocumentReference("Deleted"), true);
+        verify(databaseDiffIterator).setRootReference(WIKI_REFERENCE);
+
+        verify(this.checkpointStore).setCheckpoint(eq(WIKI), any(Date.class));
+    }
+
+    @Test
+    public void incrementalWithoutCheckpoint() throws Exception
+    {
+        DocumentIterator<String> databaseIterator = mockIterator(10);
+        when(this.databaseIteratorProvider.get()).thenReturn(databaseIterator);
+        when(this.solrIteratorProvider.get()).thenReturn(mockIterator(10));
+
+        run(createIncrementalRequest());
+
+        // Full synchronization
+        verify(databaseIterator).setRootReference(WIKI_REFERENCE);
+        verify(databaseIterator).hasNext();
+        verify(this.queryManager, never()).createQuery(anyString(), anyString());
+
+        verify(this.checkpointStore).setCheckpoint(eq(WIKI), any(Date.class));
+    }
+
+    @Test
+    public void incrementalDoesNotMoveCheckpointBeforeFlush() throws Exception
+    {
+        when(this.databaseIteratorProvider.get()).thenReturn(mockIterator(10));
+        when(this.solrIteratorProvider.get()).thenReturn(mockIterator(10));
+
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        when(this.indexer.flush()).thenReturn(flushed);
+
+        run(createIncrementalRequest());
+
+        // The next synchronization resumes from the previous checkpoint if the indexer does not commit everything
+        verify(this.checkpointStore, never()).setCheckpoint(any(), any());
+
+        flushed.complete(null);
+
+        verify(this.checkpointStore).setCheckpoint(eq(WIKI), any(Date.class));
+    }
+}
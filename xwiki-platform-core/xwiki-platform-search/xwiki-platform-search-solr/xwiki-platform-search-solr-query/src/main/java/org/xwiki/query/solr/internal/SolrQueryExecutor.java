@@ -22,8 +22,11 @@
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -236,25 +239,36 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         long numFound = results.getNumFound();
 
         // Since we are modifying the results collection, we need to iterate over its copy.
-        for (SolrDocument result : new ArrayList<SolrDocument>(results)) {
+        List<SolrDocument> resultsCopy = new ArrayList<SolrDocument>(results);
+
+        List<DocumentReference> resultDocumentReferences = new ArrayList<>(resultsCopy.size());
+        for (SolrDocument result : resultsCopy) {
+            DocumentReference resultDocumentReference = null;
             try {
-                DocumentReference resultDocumentReference = this.solrDocumentReferenceResolver.resolve(result);
+                resultDocumentReference = this.solrDocumentReferenceResolver.resolve(result);
+            } catch (Exception e) {
+                this.logger.warn("Skipping bad result: {}", result, e);
+            }
+            resultDocumentReferences.add(resultDocumentReference);
+        }
 
-                if (!isAllowed(resultDocumentReference, usersToCheck)) {
+        // Check the rights on all the results at once
+        Set<DocumentReference> deniedDocumentReferences = getDeniedDocuments(resultDocumentReferences, usersToCheck);
 
-                    // Remove the current incompatible result.
-                    results.remove(result);
+        for (int i = 0; i < resultsCopy.size(); i++) {
+            DocumentReference resultDocumentReference = resultDocumentReferences.get(i);
 
-                    // Decrement the number of results.
-                    numFound--;
+            if (resultDocumentReference != null && deniedDocumentReferences.contains(resultDocumentReference)) {
+                // Remove the current incompatible result.
+                results.remove(resultsCopy.get(i));
 
-                    // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
-                    // Sorting based on score might be a not so expensive option.
+                // Decrement the number of results.
+                numFound--;
 
-                    // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
-                }
-            } catch (Exception e) {
-                this.logger.warn("Skipping bad result: {}", result, e);
+                // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
+                // Sorting based on score might be a not so expensive option.
+
+                // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
             }
         }
 
@@ -266,14 +280,22 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         results.setNumFound(numFound);
     }
 
-    protected boolean isAllowed(DocumentReference resultDocumentReference, List<DocumentReference> usersToCheck)
+    private Set<DocumentReference> getDeniedDocuments(List<DocumentReference> resultDocumentReferences,
+        List<DocumentReference> usersToCheck)
     {
+        Set<DocumentReference> deniedDocumentReferences = new HashSet<>();
+
+        Set<DocumentReference> documentReferences = new LinkedHashSet<>(resultDocumentReferences);
+        documentReferences.remove(null);
         for (DocumentReference user : usersToCheck) {
-            if (!this.authorization.hasAccess(Right.VIEW, user, resultDocumentReference)) {
-                return false;
+            for (Entry<DocumentReference, Boolean> access : this.authorization
+                .hasAccesses(Right.VIEW, user, documentReferences).entrySet()) {
+                if (!access.getValue()) {
+                    deniedDocumentReferences.add(access.getKey());
+                }
             }
         }
 
-        return true;
+        return deniedDocumentReferences;
     }
 }
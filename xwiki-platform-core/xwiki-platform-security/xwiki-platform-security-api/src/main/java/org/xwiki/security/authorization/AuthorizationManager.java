@@ -19,9 +19,14 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of any users on any XWiki entities. It replaces
@@ -73,6 +78,34 @@ void checkAccess(Right right, DocumentReference userReference, EntityReference e
      */
     boolean hasAccess(Right right, DocumentReference userReference, EntityReference entityReference);
 
+    /**
+     * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on each of
+     * the entities identified by {@code entityReferences}. The result is the same as calling
+     * {@link #hasAccess(Right, DocumentReference, EntityReference)} for each entity, but implementations are
+     * encouraged to share the work common to the various entities (like the rules of their common spaces and wikis).
+     * This function should be used for interface matters like filtering a list of search results, use
+     * {@link #checkAccess} at security checkpoints.
+     *
+     * @param <T> the type of the entity references
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReferences the entities on which to check the right
+     * @return the access of the user for each entity, in the order of the passed collection
+     * @since 12.6RC1
+     */
+    @Unstable
+    default <T extends EntityReference> Map<T, Boolean> hasAccesses(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        Map<T, Boolean> accesses = new LinkedHashMap<>(entityReferences.size());
+
+        for (T entityReference : entityReferences) {
+            accesses.put(entityReference, hasAccess(right, userReference, entityReference));
+        }
+
+        return accesses;
+    }
+
     /**
      * Register a new custom {@link Right}.
      *
@@ -19,6 +19,13 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -115,6 +122,75 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public <T extends EntityReference> Map<T, Boolean> hasAccesses(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        Map<T, Boolean> accesses = new LinkedHashMap<>(entityReferences.size());
+
+        // The checks not depending on the entity are done only once
+        if (isSuperAdmin(userReference)) {
+            setAccesses(accesses, entityReferences, true);
+        } else if (right == null || right == Right.ILLEGAL || (!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
+            || (userReference == null && xwikiBridge.needsAuthentication(right))) {
+            setAccesses(accesses, entityReferences, false);
+        } else {
+            try {
+                evaluateSecurityAccesses(right, userReference, entityReferences, accesses);
+            } catch (Exception e) {
+                this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                    (userReference == null) ? AuthorizationException.NULL_USER : userReference, entityReferences), e);
+
+                setAccesses(accesses, entityReferences, false);
+            }
+        }
+
+        return accesses;
+    }
+
+    private <T extends EntityReference> void setAccesses(Map<T, Boolean> accesses, Collection<T> entityReferences,
+        boolean access)
+    {
+        for (T entityReference : entityReferences) {
+            accesses.put(entityReference, access);
+        }
+    }
+
+    private <T extends EntityReference> void evaluateSecurityAccesses(Right right, DocumentReference userReference,
+        Collection<T> entityReferences, Map<T, Boolean> accesses) throws AuthorizationException
+    {
+        UserSecurityReference user = securityReferenceFactory.newUserReference(userReference);
+
+        List<SecurityReference> entities = new ArrayList<>(entityReferences.size());
+        for (T entityReference : entityReferences) {
+            entities.add(securityReferenceFactory.newEntityReference(entityReference));
+        }
+
+        // Read the rules missing from the cache all at once instead of one entity at a time
+        securityCacheLoader.loadRules(entities);
+
+        // The access of entities without rules of their own is the one of their closest ancestor having rules, which
+        // is usually shared by many of the checked entities
+        Map<SecurityReference, SecurityAccess> ancestorAccesses = new HashMap<>();
+
+        int index = 0;
+        for (T entityReference : entityReferences) {
+            try {
+                SecurityAccess securityAccess = getAccess(user, entities.get(index++), ancestorAccesses);
+
+                RuleState access = securityAccess.get(right);
+                logAccess(access, userReference, entityReference, right, "access inquiry", true);
+                accesses.put(entityReference, access == RuleState.ALLOW);
+            } catch (Exception e) {
+                this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                    (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+                    (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+
+                accesses.put(entityReference, false);
+            }
+        }
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -198,12 +274,36 @@ public Right register(RightDescription rightDescription) throws UnableToRegister
      */
     private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException
+    {
+        return getAccess(user, entity, null);
+    }
+
+    /**
+     * Obtain the access for the user on the given entity and load it into the cache if unavailable.
+     *
+     * @param user The user identity.
+     * @param entity The entity.  May be of type DOCUMENT, WIKI, or SPACE.
+     * @param ancestorAccesses the accesses already resolved for ancestors having rules, filled by this method, or
+     *            {@code null} when only one entity is checked
+     * @return the cached access entry.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> ancestorAccesses) throws AuthorizationException
     {
         for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
             if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
                 // Skip search on entity types that will obviously have empty/useless list of rules.
                 continue;
             }
+            if (ancestorAccesses != null) {
+                SecurityAccess access = ancestorAccesses.get(ref);
+                if (access != null) {
+                    logger.debug("0. Reused entry for user {} on {}: [{}]", user, entity, access);
+
+                    return access;
+                }
+            }
             SecurityRuleEntry entry = securityCache.get(ref);
             if (entry == null) {
                 SecurityAccess access = securityCacheLoader.load(user, entity).getAccess();
@@ -225,6 +325,10 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
 
                     logger.debug("3. Got entry for user {} on {} from cache: [{}]", user, entity, access);
 
+                    if (ancestorAccesses != null) {
+                        ancestorAccesses.put(ref, access);
+                    }
+
                     return access;
                 }
             } 
@@ -19,11 +19,14 @@
  */
 package org.xwiki.security.authorization.cache;
 
+import java.util.Collection;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.UserSecurityReference;
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.stability.Unstable;
 
 /**
  * Loads access and rule entries into the security cache.
@@ -49,4 +52,19 @@
      */
     SecurityAccessEntry load(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException;
+
+    /**
+     * Load into the cache, in bulk, the rule entries of the passed entities which are not already there. This is only
+     * an optimization for callers about to check access to many entities: whatever is not loaded by this method will
+     * be loaded by {@link #load(UserSecurityReference, SecurityReference)} when needed.
+     *
+     * @param entities the entities to check access to
+     * @throws AuthorizationException if an error occurs.
+     * @since 12.6RC1
+     */
+    @Unstable
+    default void loadRules(Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        // Let load() read the missing rules one by one
+    }
 }
@@ -43,6 +43,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.security.GroupSecurityReference;
 import org.xwiki.security.SecurityReference;
@@ -97,6 +98,10 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private CacheManager cacheManager;
 
+    /** Count the cache hits and misses. */
+    @Inject
+    private MetricsManager metrics;
+
     /** The cache instance. */
     private Cache<SecurityCacheEntry> cache;
 
@@ -136,12 +141,12 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
          * Parents of this cached entry.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
          * Children of this cached entry.
@@ -151,7 +156,7 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * True if this entry has been removed.
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -566,12 +571,7 @@ private String getEntryKey(SecurityAccessEntry entry)
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getEntryKey(reference));
     }
 
     /**
@@ -582,12 +582,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -598,9 +593,28 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
+        return getEntry(getShadowEntryKey(userReference, wiki));
+    }
+
+    /**
+     * @param key the key of the entry
+     * @return a security cache entry corresponding to given key, null if none is available in the cache.
+     */
+    private SecurityCacheEntry getEntry(String key)
+    {
+        // No lock is needed to read an entry: the cache itself is thread safe and an entry is only published in the
+        // cache once fully linked to its parents. Reading an entry while another one (or even this one) is being
+        // removed is the same as reading it just before the removal started.
+        SecurityCacheEntry entry = this.cache.get(key);
+        if (entry == null || !entry.disposed) {
+            return entry;
+        }
+
+        // The entry was disposed but not yet removed from the cache: wait for the removal to be finished (only the
+        // readers of this entry have to wait)
         readLock.lock();
         try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
+            return cache.get(key);
         } finally {
             readLock.unlock();
         }
@@ -803,11 +817,13 @@ public SecurityAccessEntry get(UserSecurityReference user, SecurityReference ent
     {
         SecurityCacheEntry entry = getEntry(user, entity);
         if (entry == null) {
+            this.metrics.increment("security.cache.access.miss");
             if (logger.isDebugEnabled()) {
                 logger.debug("Miss read access entry for [{}].", getEntryKey(user, entity));
             }
             return null;
         }
+        this.metrics.increment("security.cache.access.hit");
         if (logger.isDebugEnabled()) {
             logger.debug("Success read access entry for [{}].", getEntryKey(user, entity));
         }
@@ -819,11 +835,13 @@ public SecurityRuleEntry get(SecurityReference entity)
     {
         SecurityCacheEntry entry = getEntry(entity);
         if (entry == null) {
+            this.metrics.increment("security.cache.rule.miss");
             if (logger.isDebugEnabled()) {
                 logger.debug("Miss read rule entry for [{}].", getEntryKey(entity));
             }
             return null;
         }
+        this.metrics.increment("security.cache.rule.hit");
         if (logger.isDebugEnabled()) {
             logger.debug("Success read rule entry for [{}].", getEntryKey(entity));
         }
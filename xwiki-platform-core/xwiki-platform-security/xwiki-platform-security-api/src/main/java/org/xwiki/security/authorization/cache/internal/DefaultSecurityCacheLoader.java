@@ -27,6 +27,7 @@
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -170,6 +171,50 @@ public SecurityAccessEntry load(UserSecurityReference user, SecurityReference en
         }
     }
 
+    @Override
+    public void loadRules(Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        rulesInvalidator.suspend();
+
+        try {
+            List<SecurityReference> missingEntities = new ArrayList<>();
+            Set<SecurityReference> parents = new HashSet<>();
+            for (SecurityReference entity : entities) {
+                SecurityReference parent = entity != null ? entity.getParentSecurityReference() : null;
+                if (parent != null && !Right.getEnabledRights(entity.getSecurityType()).isEmpty()
+                    && getSecurityCache().get(entity) == null) {
+                    // Parents are usually shared by many entities, they are loaded the usual way
+                    if (parents.add(parent)) {
+                        getRules(parent);
+                    }
+                    missingEntities.add(entity);
+                }
+            }
+
+            if (!missingEntities.isEmpty()) {
+                for (SecurityRuleEntry entry : securityEntryReader.readAll(missingEntities)) {
+                    addRuleEntry(entry);
+                }
+            }
+        } catch (ParentEntryEvictedException | ConflictingInsertionException e) {
+            // Not a problem, the missing entries will be loaded one by one when needed
+            this.logger.debug("Failed to load security rules in bulk: {}", e.getMessage());
+        } finally {
+            rulesInvalidator.resume();
+        }
+    }
+
+    private void addRuleEntry(SecurityRuleEntry entry)
+    {
+        try {
+            getSecurityCache().add(entry);
+        } catch (ParentEntryEvictedException | ConflictingInsertionException e) {
+            // Not a problem, the entry will be loaded again when needed
+            this.logger.debug("Failed to add the security rules of [{}] to the cache: {}", entry.getReference(),
+                e.getMessage());
+        }
+    }
+
     /**
      * Load entity entries, group entries, and user entries required to settle the access, settle it, add this decision
      * into the cache and return the access.
@@ -21,8 +21,11 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -32,6 +35,7 @@
 import org.mockito.stubbing.Answer;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.metrics.MetricsManager;
 import org.xwiki.model.internal.DefaultModelConfiguration;
 import org.xwiki.model.internal.reference.DefaultEntityReferenceProvider;
 import org.xwiki.model.internal.reference.DefaultStringEntityReferenceResolver;
@@ -70,8 +74,10 @@
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.xwiki.security.authorization.Right.ADMIN;
@@ -133,6 +139,7 @@ public void initializeMocks() throws Exception
         userBridge = componentManager.registerMockComponent(UserBridge.class);
         securityEntryReader = componentManager.registerMockComponent(SecurityEntryReader.class);
         securityCacheRulesInvalidator = componentManager.registerMockComponent(SecurityCacheRulesInvalidator.class);
+        componentManager.registerMockComponent(MetricsManager.class);
 
         when(xWikiBridge.toCompatibleEntityReference(any(EntityReference.class)))
             .thenAnswer(new Answer<EntityReference>()
@@ -680,6 +687,34 @@ public void testGroupAccess() throws Exception
             getXDoc("docAllowGroupB", "any space"));
     }
 
+    @Test
+    public void testBulkAccess() throws Exception
+    {
+        initialiseWikiMock("groupAccess");
+
+        when(securityEntryReader.readAll(anyCollection())).thenCallRealMethod();
+
+        List<EntityReference> entities = Arrays.asList(getXDoc("any document", "any space"),
+            getXDoc("docAllowGroupA", "any space"), getXDoc("docDenyGroupA", "any space"),
+            getXDoc("docDenyGroupAAllowUserA", "any space"), getDoc("docAllowGroupC", "any space", "subwiki"),
+            getXDoc("any other document", "any space"));
+
+        for (Right right : Arrays.asList(VIEW, EDIT, ADMIN)) {
+            Map<EntityReference, Boolean> accesses =
+                authorizationManager.hasAccesses(right, getXUser("userA"), entities);
+
+            assertEquals(entities, new ArrayList<>(accesses.keySet()));
+            for (EntityReference entity : entities) {
+                assertEquals(String.format("Wrong [%s] access on [%s]", right, entity),
+                    authorizationManager.hasAccess(right, getXUser("userA"), entity), accesses.get(entity));
+            }
+        }
+
+        // Checks not depending on the entities
+        assertEquals(Collections.singletonMap(entities.get(0), false),
+            authorizationManager.hasAccesses(ILLEGAL, getXUser("userA"), entities.subList(0, 1)));
+    }
+
     @Test
     public void testCheckAccess() throws Exception
     {
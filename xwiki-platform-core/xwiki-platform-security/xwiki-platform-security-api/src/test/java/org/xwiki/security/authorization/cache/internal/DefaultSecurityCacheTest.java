@@ -26,6 +26,12 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -34,6 +40,8 @@
 import org.mockito.stubbing.Answer;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.internal.reference.DefaultStringEntityReferenceSerializer;
 import org.xwiki.model.internal.reference.DefaultSymbolScheme;
@@ -862,4 +870,121 @@ public boolean keepAccess(SecurityAccessEntry entry)
             }
         });
     }
+
+    /**
+     * Block the removal of the passed key from the cache until the returned latch is released.
+     */
+    private CountDownLatch blockRemoval(final String key, final CountDownLatch blocked)
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        cache.addCacheEntryListener(new CacheEntryListener<Object>()
+        {
+            @Override
+            public void cacheEntryAdded(CacheEntryEvent<Object> event)
+            {
+            }
+
+            @Override
+            public void cacheEntryRemoved(CacheEntryEvent<Object> event)
+            {
+                if (key.equals(event.getEntry().getKey())) {
+                    blocked.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void cacheEntryModified(CacheEntryEvent<Object> event)
+            {
+            }
+        });
+
+        return release;
+    }
+
+    private String getKey(Map<String, SecurityEntry> entries, SecurityReference reference)
+    {
+        for (Map.Entry<String, SecurityEntry> entry : entries.entrySet()) {
+            if (entry.getValue() instanceof SecurityRuleEntry && reference.equals(entry.getValue().getReference())) {
+                return entry.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    @Test
+    public void testGetDuringRemovalOfAnotherEntry() throws Exception
+    {
+        Map<String, SecurityEntry> entries = InsertUsers();
+        entries.putAll(InsertEntities());
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = blockRemoval(getKey(entries, docRef), blocked);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Remove the document rules and wait until the removal is in progress (the write lock is held)
+            Future<?> removal = executor.submit(() -> securityCache.remove(docRef));
+            assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+
+            // Reading another entry does not wait for the removal to be finished
+            Future<SecurityRuleEntry> read = executor.submit(() -> securityCache.get(spaceRef));
+            assertThat(read.get(5, TimeUnit.SECONDS), sameInstance(entries.get(getKey(entries, spaceRef))));
+            assertThat(removal.isDone(), is(false));
+
+            release.countDown();
+            removal.get(10, TimeUnit.SECONDS);
+
+            assertThat(securityCache.get(docRef), is(nullValue()));
+            assertThat(securityCache.get(spaceRef), sameInstance(entries.get(getKey(entries, spaceRef))));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGetDisposedEntryWaitsForRemoval() throws Exception
+    {
+        Map<String, SecurityEntry> entries = InsertUsers();
+        entries.putAll(InsertEntities());
+
+        // The space entry is disposed (and its children removed) before being removed from the cache
+        cache.setDisposeBeforeRemove(true);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = blockRemoval(getKey(entries, docRef), blocked);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> removal = executor.submit(() -> securityCache.remove(spaceRef));
+            assertThat(blocked.await(10, TimeUnit.SECONDS), is(true));
+
+            // The space entry is still in the cache but disposed: the reader falls back on the lock
+            Future<SecurityRuleEntry> read = executor.submit(() -> securityCache.get(spaceRef));
+            try {
+                read.get(200, TimeUnit.MILLISECONDS);
+                fail("Reading a disposed entry should wait for the end of its removal");
+            } catch (TimeoutException expected) {
+                // Expected
+            }
+
+            // Entries not impacted by the removal are still readable
+            assertThat(securityCache.get(wikiRef), sameInstance(entries.get(getKey(entries, wikiRef))));
+
+            release.countDown();
+            removal.get(10, TimeUnit.SECONDS);
+
+            assertThat(read.get(10, TimeUnit.SECONDS), is(nullValue()));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            cache.setDisposeBeforeRemove(false);
+        }
+    }
 }
@@ -20,8 +20,8 @@
 
 package org.xwiki.security.authorization.cache.internal;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheEntry;
@@ -43,9 +43,10 @@
  */
 public class TestCache<T> implements Cache<T>
 {
-    private Map<String, T> cache = new HashMap<String, T>();
+    private Map<String, T> cache = new ConcurrentHashMap<String, T>();
     private CacheEntryListener<T> listener;
     private String lastInsertedKey;
+    private boolean disposeBeforeRemove;
 
     class TestCacheEntry implements CacheEntry<T>
     {
@@ -123,11 +124,16 @@ public T get(String key)
     @Override
     public void remove(String key)
     {
+        if (disposeBeforeRemove) {
+            disposeCacheValue(cache.get(key));
+        }
         T value = cache.remove(key);
         if (listener != null) {
             listener.cacheEntryRemoved(getEvent(key, value));
         }
-        disposeCacheValue(value);
+        if (!disposeBeforeRemove) {
+            disposeCacheValue(value);
+        }
     }
 
     @Override
@@ -166,6 +172,15 @@ private void disposeCacheValue(T value)
         }
     }
 
+    /**
+     * @param disposeBeforeRemove true if removed values should be disposed before being removed from the cache (like
+     *            some cache implementations do)
+     */
+    public void setDisposeBeforeRemove(boolean disposeBeforeRemove)
+    {
+        this.disposeBeforeRemove = disposeBeforeRemove;
+    }
+
     public String getLastInsertedKey()
     {
         return lastInsertedKey;
@@ -22,21 +22,33 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.Execution;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.EntityTypeNotSupportedException;
@@ -77,6 +89,11 @@ public class DefaultSecurityEntryReader implements SecurityEntryReader
     /** Right set allowed for document creators. */
     private static final Set<Right> CREATOR_RIGHTS = new RightSet(Right.CREATOR);
 
+    /** Maximum number of documents read with the same query. */
+    private static final int BATCH_SIZE = 100;
+
+    private static final String NAMES_PARAMETER = "names";
+
     /** Resolver for user and group names. */
     @Inject
     @Named("user")
@@ -89,6 +106,16 @@ public class DefaultSecurityEntryReader implements SecurityEntryReader
     @Inject
     private List<SecurityEntryReaderExtra> extras;
 
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private Logger logger;
+
     /**
      * @return the current {@code XWikiContext}
      */
@@ -198,6 +225,12 @@ public SecurityRuleEntry read(SecurityReference entity) throws AuthorizationExce
         // Get standard rules
         Collection<SecurityRule> rules = getSecurityRules(documentReference, classReference, wikiReference);
 
+        return newSecurityRuleEntry(entity, rules);
+    }
+
+    private SecurityRuleEntry newSecurityRuleEntry(SecurityReference entity, Collection<SecurityRule> rules)
+        throws AuthorizationException
+    {
         // Add extras
         for (SecurityEntryReaderExtra extra : this.extras) {
             Collection<SecurityRule> extraRules = extra.read(entity);
@@ -209,6 +242,118 @@ public SecurityRuleEntry read(SecurityReference entity) throws AuthorizationExce
         return new InternalSecurityRuleEntry(entity, rules);
     }
 
+    /**
+     * Load the rules of several entities. The documents are first checked in bulk with a couple of queries and only
+     * the ones actually holding rights objects are loaded.
+     *
+     * @param entities the entities for which to read the rules
+     * @return the access rules that could be loaded into the cache, in the same order
+     * @throws AuthorizationException if an issue arise while reading these rules from the wiki.
+     * @since 12.6RC1
+     */
+    @Override
+    public List<SecurityRuleEntry> readAll(Collection<SecurityReference> entities) throws AuthorizationException
+    {
+        Map<SecurityReference, SecurityRuleEntry> entries = new LinkedHashMap<>(entities.size());
+
+        Map<WikiReference, List<SecurityReference>> documents = new LinkedHashMap<>();
+        for (SecurityReference entity : entities) {
+            // Documents hosting global rights have implied rules, they are read the usual way
+            if (entity != null && entity.getOriginalReference() != null && entity.getType() == EntityType.DOCUMENT
+                && !isGlobalRightsReference(new DocumentReference(entity))) {
+                documents.computeIfAbsent(new WikiReference(entity.extractReference(EntityType.WIKI)),
+                    k -> new ArrayList<>()).add(entity);
+                // Reserve the entity position
+                entries.put(entity, null);
+            } else {
+                entries.put(entity, read(entity));
+            }
+        }
+
+        for (Map.Entry<WikiReference, List<SecurityReference>> entry : documents.entrySet()) {
+            for (List<SecurityReference> batch : ListUtils.partition(entry.getValue(), BATCH_SIZE)) {
+                readDocuments(entry.getKey(), batch, entries);
+            }
+        }
+
+        return new ArrayList<>(entries.values());
+    }
+
+    private void readDocuments(WikiReference wikiReference, List<SecurityReference> entities,
+        Map<SecurityReference, SecurityRuleEntry> entries) throws AuthorizationException
+    {
+        Map<String, SecurityReference> names = new HashMap<>(entities.size());
+        for (SecurityReference entity : entities) {
+            names.put(this.localSerializer.serialize(entity), entity);
+        }
+
+        Map<String, String> creators;
+        Set<String> documentsWithRights;
+        try {
+            creators = getCreators(wikiReference, names.keySet());
+            documentsWithRights = getDocumentsWithRights(wikiReference, names.keySet());
+        } catch (QueryException e) {
+            this.logger.warn("Failed to read the security rules of documents in bulk, reading them one by one: {}",
+                ExceptionUtils.getRootCauseMessage(e));
+
+            for (SecurityReference entity : entities) {
+                entries.put(entity, read(entity));
+            }
+
+            return;
+        }
+
+        for (Map.Entry<String, SecurityReference> name : names.entrySet()) {
+            SecurityReference entity = name.getValue();
+
+            if (documentsWithRights.contains(name.getKey())) {
+                entries.put(entity, read(entity));
+            } else {
+                // Without any rights object, only the implied creator rule can apply
+                List<SecurityRule> rules = new ArrayList<>();
+                String creator = creators.get(name.getKey());
+                if (StringUtils.isNotEmpty(creator)) {
+                    DocumentReference creatorReference = this.resolver.resolve(creator, wikiReference);
+                    if (!XWikiConstants.GUEST_USER.equals(creatorReference.getName())) {
+                        rules.add(new XWikiSecurityRule(CREATOR_RIGHTS, RuleState.ALLOW,
+                            Collections.singleton(creatorReference), null));
+                    }
+                }
+
+                entries.put(entity, newSecurityRuleEntry(entity, rules));
+            }
+        }
+    }
+
+    private Map<String, String> getCreators(WikiReference wikiReference, Collection<String> names)
+        throws QueryException
+    {
+        Query query = this.queryManager.createQuery("select doc.fullName, doc.creator from XWikiDocument doc "
+            + "where doc.fullName in (:names) and (doc.language = '' or doc.language is null)", Query.HQL);
+        query.setWiki(wikiReference.getName());
+        query.bindValue(NAMES_PARAMETER, names);
+
+        Map<String, String> creators = new HashMap<>(names.size());
+        for (Object[] result : query.<Object[]>execute()) {
+            creators.put((String) result[0], (String) result[1]);
+        }
+
+        return creators;
+    }
+
+    private Set<String> getDocumentsWithRights(WikiReference wikiReference, Collection<String> names)
+        throws QueryException
+    {
+        Query query = this.queryManager.createQuery(
+            "select distinct obj.name from BaseObject obj where obj.name in (:names) and obj.className = :className",
+            Query.HQL);
+        query.setWiki(wikiReference.getName());
+        query.bindValue(NAMES_PARAMETER, names);
+        query.bindValue("className", XWikiConstants.LOCAL_CLASS);
+
+        return new HashSet<>(query.<String>execute());
+    }
+
     /**
      * Get the document.
      * 
@@ -0,0 +1,268 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.DefaultSecurityReferenceFactory;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.authorization.SecurityRuleEntry;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.security.internal.XWikiConstants;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultSecurityEntryReader}, and in particular that reading the rules in bulk gives the same result
+ * as reading them one by one.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+@ComponentList(DefaultSecurityReferenceFactory.class)
+public class DefaultSecurityEntryReaderTest
+{
+    private static final String WIKI = "xwiki";
+
+    private static final String SUBWIKI = "subwiki";
+
+    private static final String CREATOR = "XWiki.Creator";
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @InjectMockComponents
+    private DefaultSecurityEntryReader reader;
+
+    @MockComponent
+    @Named("user")
+    private DocumentReferenceResolver<String> userResolver;
+
+    @MockComponent
+    private XWikiBridge bridge;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    private SecurityReferenceFactory factory;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.bridge.getMainWikiReference()).thenReturn(new WikiReference(WIKI));
+        when(this.bridge.toCompatibleEntityReference(any(EntityReference.class)))
+            .then(invocation -> invocation.getArgument(0));
+        this.factory = this.oldcore.getMocker().getInstance(SecurityReferenceFactory.class);
+
+        doReturn("XWiki.Admin").when(this.oldcore.getSpyXWiki()).getWikiOwner(anyString(),
+            any(XWikiContext.class));
+
+        when(this.userResolver.resolve(anyString(), any(WikiReference.class))).then(invocation -> {
+            String name = invocation.getArgument(0);
+            WikiReference wiki = invocation.getArgument(1);
+            int index = name.indexOf('.');
+
+            return new DocumentReference(wiki.getName(), name.substring(0, index), name.substring(index + 1));
+        });
+
+        // Answer the bulk queries from the documents stored in the mocked store
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).then(invocation -> {
+            String statement = invocation.getArgument(0);
+            Query query = mock(Query.class);
+            Map<String, Object> parameters = new HashMap<>();
+            when(query.setWiki(anyString())).then(setWiki -> {
+                parameters.put("wiki", setWiki.getArgument(0));
+                return query;
+            });
+            when(query.bindValue(anyString(), any())).then(bindValue -> {
+                parameters.put(bindValue.getArgument(0), bindValue.getArgument(1));
+                return query;
+            });
+            when(query.execute()).then(execute -> execute(statement, parameters));
+
+            return query;
+        });
+    }
+
+    private List<?> execute(String statement, Map<String, Object> parameters)
+    {
+        String wiki = (String) parameters.get("wiki");
+        Collection<?> names = (Collection<?>) parameters.get("names");
+
+        List<XWikiDocument> documents = this.oldcore.getDocuments().values().stream()
+            .filter(document -> document.getDocumentReference().getWikiReference().getName().equals(wiki)
+                && document.getLocale().equals(Locale.ROOT) && names.contains(document.getFullName()))
+            .collect(Collectors.toList());
+
+        if (statement.startsWith("select doc.fullName, doc.creator from XWikiDocument doc ")) {
+            List<Object[]> results = new ArrayList<>();
+            for (XWikiDocument document : documents) {
+                DocumentReference creator = document.getCreatorReference();
+                results.add(new Object[] { document.getFullName(),
+                    creator != null ? creator.getLastSpaceReference().getName() + '.' + creator.getName() : null });
+            }
+
+            return results;
+        } else if (statement.startsWith("select distinct obj.name from BaseObject obj ")) {
+            assertEquals(XWikiConstants.LOCAL_CLASS, parameters.get("className"));
+
+            return documents.stream()
+                .filter(document -> !document.getXObjects(
+                    new DocumentReference(XWikiConstants.LOCAL_CLASS_REFERENCE, new WikiReference(wiki))).isEmpty())
+                .map(XWikiDocument::getFullName).collect(Collectors.toList());
+        }
+
+        throw new AssertionError("Unexpected query: " + statement);
+    }
+
+    private DocumentReference createDocument(String wiki, String name, String creator, String allowedUser)
+        throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+
+        DocumentReference reference = new DocumentReference(wiki, "Space", name);
+        XWikiDocument document = new XWikiDocument(reference);
+        if (creator != null) {
+            document.setCreatorReference(this.userResolver.resolve(creator, new WikiReference(wiki)));
+        }
+        if (allowedUser != null) {
+            BaseObject rights = document.newXObject(
+                new DocumentReference(XWikiConstants.LOCAL_CLASS_REFERENCE, new WikiReference(wiki)), xcontext);
+            rights.setStringValue(XWikiConstants.USERS_FIELD_NAME, allowedUser);
+            rights.setStringValue(XWikiConstants.LEVELS_FIELD_NAME, "view,edit");
+            rights.setIntValue(XWikiConstants.ALLOW_FIELD_NAME, 1);
+        }
+
+        this.oldcore.getSpyXWiki().saveDocument(document, xcontext);
+
+        return reference;
+    }
+
+    private void assertSameRules(SecurityRuleEntry expected, SecurityRuleEntry actual)
+    {
+        assertEquals(expected.getReference(), actual.getReference());
+        assertEquals(new HashSet<>(expected.getRules()), new HashSet<>(actual.getRules()),
+            "Wrong rules for " + expected.getReference());
+    }
+
+    @Test
+    public void readAll() throws Exception
+    {
+        List<SecurityReference> entities = new ArrayList<>();
+
+        DocumentReference noRights = createDocument(WIKI, "NoRights", CREATOR, null);
+        entities.add(this.factory.newEntityReference(noRights));
+        entities.add(this.factory.newEntityReference(createDocument(WIKI, "WithRights", CREATOR, "XWiki.UserA")));
+        entities.add(this.factory.newEntityReference(createDocument(WIKI, "GuestCreator", "XWiki.XWikiGuest", null)));
+        entities.add(this.factory.newEntityReference(createDocument(WIKI, "NoCreator", null, null)));
+        entities.add(this.factory.newEntityReference(new DocumentReference(WIKI, "Space", "Missing")));
+        entities.add(this.factory.newEntityReference(createDocument(SUBWIKI, "WithRights", CREATOR, "XWiki.UserB")));
+        entities.add(this.factory.newEntityReference(createDocument(SUBWIKI, "NoRights", CREATOR, null)));
+        // Read the usual way
+        entities.add(this.factory.newEntityReference(createDocument(WIKI, "WebPreferences", CREATOR, null)));
+        entities.add(this.factory.newEntityReference(new SpaceReference(WIKI, "Space")));
+        entities.add(this.factory.newEntityReference(new WikiReference(WIKI)));
+        // More than one batch
+        for (int i = 0; i < 150; ++i) {
+            entities.add(this.factory.newEntityReference(
+                createDocument(WIKI, "Page" + i, CREATOR, i % 10 == 0 ? "XWiki.UserA" : null)));
+        }
+
+        clearInvocations(this.oldcore.getSpyXWiki());
+
+        List<SecurityRuleEntry> entries = this.reader.readAll(entities);
+
+        // The documents without rights objects are not loaded
+        verify(this.oldcore.getSpyXWiki(), never()).getDocument(eq(noRights), any(XWikiContext.class));
+        // Two queries per batch: 2 batches in the main wiki and 1 in the subwiki
+        verify(this.queryManager, times(3)).createQuery(startsWith("select doc.fullName"), eq(Query.HQL));
+        verify(this.queryManager, times(3)).createQuery(startsWith("select distinct obj.name"), eq(Query.HQL));
+
+        assertEquals(entities.size(), entries.size());
+        for (int i = 0; i < entities.size(); ++i) {
+            assertSameRules(this.reader.read(entities.get(i)), entries.get(i));
+        }
+
+        // Make sure the comparison is not trivial
+        assertEquals(1, entries.get(0).getRules().size(), "The creator rule is missing");
+        assertEquals(2, entries.get(1).getRules().size(), "The rights object rule is missing");
+    }
+
+    @Test
+    public void readAllWhenQueryFails() throws Exception
+    {
+        List<SecurityReference> entities = new ArrayList<>();
+        entities.add(this.factory.newEntityReference(createDocument(WIKI, "NoRights", CREATOR, null)));
+        entities.add(this.factory.newEntityReference(createDocument(WIKI, "WithRights", CREATOR, "XWiki.UserA")));
+
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).thenThrow(new QueryException("error", null,
+            null));
+
+        List<SecurityRuleEntry> entries = this.reader.readAll(entities);
+
+        assertEquals(entities.size(), entries.size());
+        for (int i = 0; i < entities.size(); ++i) {
+            assertSameRules(this.reader.read(entities.get(i)), entries.get(i));
+        }
+    }
+}
@@ -122,6 +122,16 @@ public InputStream getContentInputStream()
         }
     }
 
+    @Override
+    public File getContentFile()
+    {
+        if (this.getFileItem() != null) {
+            return super.getContentFile();
+        }
+
+        return this.storageFile;
+    }
+
     @Override
     public long getLongSize()
     {
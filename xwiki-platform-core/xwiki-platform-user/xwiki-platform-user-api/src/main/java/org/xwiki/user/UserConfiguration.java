@@ -48,4 +48,24 @@
      * @return the overriding preferences for the guest user
      */
     Properties getGuestPreference();
+
+    /**
+     * @return true if the group memberships should be kept in memory to resolve the groups of a user (or the members
+     *         of a group) without querying the database for each level of nested groups
+     * @since 12.6RC1
+     */
+    default boolean isGroupMembershipIndexEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * @return the number of seconds between two comparisons of the group memberships kept in memory with the ones
+     *         stored in the database, 0 to never compare them
+     * @since 12.6RC1
+     */
+    default long getGroupMembershipIndexCheckInterval()
+    {
+        return 86400;
+    }
 }
@@ -70,6 +70,18 @@ public Properties getGuestPreference()
         return getPreferencesFor("guest");
     }
 
+    @Override
+    public boolean isGroupMembershipIndexEnabled()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "group.index.enabled", true);
+    }
+
+    @Override
+    public long getGroupMembershipIndexCheckInterval()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "group.index.checkInterval", 86400L);
+    }
+
     private Properties getPreferencesFor(String userName)
     {
         Properties properties = new Properties();
@@ -36,6 +36,7 @@
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.user.UserConfiguration;
 import org.xwiki.user.group.GroupException;
 import org.xwiki.user.group.GroupManager;
 import org.xwiki.user.group.WikiTarget;
@@ -63,6 +64,12 @@ public class DefaultGroupManager implements GroupManager
     @Inject
     private MembersCache membersCache;
 
+    @Inject
+    private GroupMembershipIndex membershipIndex;
+
+    @Inject
+    private UserConfiguration configuration;
+
     @Inject
     private WikiDescriptorManager wikis;
 
@@ -178,6 +185,14 @@ private Collection<DocumentReference> getGroups(DocumentReference reference, Obj
 
         // Not in the cache
 
+        // Resolve the groups in memory when possible
+        if (this.configuration.isGroupMembershipIndexEnabled()) {
+            groups = this.membershipIndex.getGroups(reference, getSearchWikis(reference, wikiTarget, true), recurse);
+            if (groups != null) {
+                return set(entry, groups, recurse, rootGroups);
+            }
+        }
+
         synchronized (entry) {
             // Check if it was calculated by another thread in the meantime
             groups = get(entry, recurse);
@@ -293,6 +308,24 @@ private Collection<DocumentReference> get(GroupCacheEntry entry, boolean recurse
         return references;
     }
 
+    private Collection<DocumentReference> set(GroupCacheEntry entry, Collection<DocumentReference> references,
+        boolean recurse, Set<DocumentReference> rootReferences)
+    {
+        Collection<DocumentReference> cachedReferences;
+
+        if (recurse) {
+            cachedReferences = entry.setAll(references);
+        } else {
+            cachedReferences = entry.setDirect(references);
+        }
+
+        if (rootReferences != null) {
+            rootReferences.addAll(cachedReferences);
+        }
+
+        return cachedReferences;
+    }
+
     @Override
     public Collection<DocumentReference> getMembers(DocumentReference reference, boolean recurse) throws GroupException
     {
@@ -316,6 +349,14 @@ private Collection<DocumentReference> getMembers(DocumentReference reference, bo
 
         // Not in the cache
 
+        // Resolve the members in memory when possible
+        if (this.configuration.isGroupMembershipIndexEnabled()) {
+            members = this.membershipIndex.getMembers(reference, recurse);
+            if (members != null) {
+                return set(entry, members, recurse, rootMembers);
+            }
+        }
+
         synchronized (entry) {
             // Check if it was calculated by another thread in the meantime
             members = get(entry, recurse);
@@ -19,6 +19,10 @@
  */
 package org.xwiki.user.internal.group;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -26,6 +30,7 @@
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.internal.reference.EntityReferenceFactory;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.ObjectReference;
@@ -59,15 +64,23 @@ public class GroupCacheInvalidationListener extends AbstractEventListener
 
     private static final String USERS_CLASSNAME = "XWiki.XWikiUsers";
 
+    private static final String MEMBER_PROPERTY = "member";
+
     @Inject
     private DocumentReferenceResolver<String> resolver;
 
+    @Inject
+    private EntityReferenceFactory referenceFactory;
+
     @Inject
     private GroupsCache groupsCache;
 
     @Inject
     private MembersCache membersCache;
 
+    @Inject
+    private GroupMembershipIndex membershipIndex;
+
     /**
      * Default constructor.
      */
@@ -84,6 +97,7 @@ public void onEvent(Event event, Object source, Object data)
     {
         if (event instanceof WikiDeletedEvent) {
             WikiReference wikiReference = new WikiReference(((WikiDeletedEvent) event).getWikiId());
+            this.membershipIndex.removeWiki(wikiReference.getName());
             this.groupsCache.cleanCache(wikiReference.getName());
             this.membersCache.cleanCache(wikiReference.getName());
         } else {
@@ -91,6 +105,9 @@ public void onEvent(Event event, Object source, Object data)
 
             DocumentReference documentReference = document.getDocumentReference();
 
+            // Update the group memberships before cleaning the cache so that they are used to fill it again
+            this.membershipIndex.setMembers(documentReference, getMembers(document, documentReference));
+
             // Remove the entity from the cache
             this.groupsCache.cleanCache(documentReference);
             this.membersCache.cleanCache(documentReference);
@@ -107,13 +124,29 @@ public void onEvent(Event event, Object source, Object data)
         }
     }
 
+    private Collection<DocumentReference> getMembers(XWikiDocument document, DocumentReference groupReference)
+    {
+        Set<DocumentReference> members = new LinkedHashSet<>();
+
+        for (BaseObject xobject : document.getXObjects(this.resolver.resolve(GROUPS_CLASSNAME, groupReference))) {
+            if (xobject != null) {
+                String memberString = xobject.getStringValue(MEMBER_PROPERTY);
+                if (StringUtils.isNotEmpty(memberString)) {
+                    members.add(this.referenceFactory.getReference(this.resolver.resolve(memberString, groupReference)));
+                }
+            }
+        }
+
+        return members;
+    }
+
     private void clean(BaseObject xobject, DocumentReference groupReference)
     {
         if (xobject == null) {
             return;
         }
 
-        String memberString = xobject.getStringValue("member");
+        String memberString = xobject.getStringValue(MEMBER_PROPERTY);
         if (StringUtils.isNotEmpty(memberString)) {
             DocumentReference memberReference = this.resolver.resolve(memberString, groupReference);
 
@@ -0,0 +1,226 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.xwiki.model.reference.DocumentReference;
+
+/**
+ * The direct group memberships of a wiki: the members of each group located in the wiki and, the other way around, the
+ * groups of the wiki each entity is a direct member of.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class GroupMembershipGraph
+{
+    private final Map<DocumentReference, Set<DocumentReference>> membersByGroup = new HashMap<>();
+
+    private final Map<DocumentReference, Set<DocumentReference>> groupsByMember = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The groups modified since the beginning of the current synchronization, {@code null} when not synchronizing.
+     */
+    private Set<DocumentReference> modifiedGroups;
+
+    /**
+     * False while the memberships are being loaded from the database.
+     */
+    private volatile boolean loaded;
+
+    /**
+     * @return true if the memberships were loaded from the database, false if they are being loaded
+     */
+    public boolean isLoaded()
+    {
+        return this.loaded;
+    }
+
+    /**
+     * Indicate that the memberships were loaded from the database and the graph can be used.
+     */
+    public void setLoaded()
+    {
+        this.loaded = true;
+    }
+
+    /**
+     * @param group the group
+     * @param member the new direct member of the group
+     */
+    public void addMember(DocumentReference group, DocumentReference member)
+    {
+        this.lock.writeLock().lock();
+
+        try {
+            this.membersByGroup.computeIfAbsent(group, k -> new LinkedHashSet<>()).add(member);
+            this.groupsByMember.computeIfAbsent(member, k -> new LinkedHashSet<>()).add(group);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the direct members of a group.
+     *
+     * @param group the group
+     * @param members the new direct members of the group, empty if the group was deleted
+     */
+    public void setMembers(DocumentReference group, Collection<DocumentReference> members)
+    {
+        this.lock.writeLock().lock();
+
+        try {
+            if (this.modifiedGroups != null) {
+                this.modifiedGroups.add(group);
+            }
+
+            Set<DocumentReference> previousMembers = this.membersByGroup.remove(group);
+            if (previousMembers != null) {
+                for (DocumentReference previousMember : previousMembers) {
+                    Set<DocumentReference> groups = this.groupsByMember.get(previousMember);
+                    groups.remove(group);
+                    if (groups.isEmpty()) {
+                        this.groupsByMember.remove(previousMember);
+                    }
+                }
+            }
+
+            for (DocumentReference member : members) {
+                addMember(group, member);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param group the group
+     * @return the direct members of the group
+     */
+    public Collection<DocumentReference> getMembers(DocumentReference group)
+    {
+        return get(this.membersByGroup, group);
+    }
+
+    /**
+     * @param member the member
+     * @return the groups of the wiki the entity is a direct member of
+     */
+    public Collection<DocumentReference> getGroups(DocumentReference member)
+    {
+        return get(this.groupsByMember, member);
+    }
+
+    private Collection<DocumentReference> get(Map<DocumentReference, Set<DocumentReference>> map,
+        DocumentReference reference)
+    {
+        this.lock.readLock().lock();
+
+        try {
+            Set<DocumentReference> references = map.get(reference);
+
+            return references != null ? new LinkedHashSet<>(references) : Collections.emptySet();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of direct memberships
+     */
+    public int size()
+    {
+        this.lock.readLock().lock();
+
+        try {
+            int size = 0;
+            for (Set<DocumentReference> members : this.membersByGroup.values()) {
+                size += members.size();
+            }
+
+            return size;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Start recording the groups modified with {@link #setMembers(DocumentReference, Collection)} so that
+     * {@link #synchronize(GroupMembershipGraph)} does not revert them with memberships loaded before the modification.
+     */
+    public void startSynchronization()
+    {
+        this.lock.writeLock().lock();
+
+        try {
+            this.modifiedGroups = new HashSet<>();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Make this graph identical to the passed one, except for the groups modified since
+     * {@link #startSynchronization()} was called, which are more recent than the passed graph.
+     *
+     * @param graph the graph to compare with
+     * @return the groups whose direct members were different
+     */
+    public Collection<DocumentReference> synchronize(GroupMembershipGraph graph)
+    {
+        Set<DocumentReference> differentGroups = new LinkedHashSet<>();
+
+        graph.lock.readLock().lock();
+        this.lock.writeLock().lock();
+
+        try {
+            Set<DocumentReference> groups = new LinkedHashSet<>(this.membersByGroup.keySet());
+            groups.addAll(graph.membersByGroup.keySet());
+            if (this.modifiedGroups != null) {
+                groups.removeAll(this.modifiedGroups);
+                this.modifiedGroups = null;
+            }
+
+            for (DocumentReference group : groups) {
+                Set<DocumentReference> members = graph.membersByGroup.getOrDefault(group, Collections.emptySet());
+                if (!members.equals(this.membersByGroup.getOrDefault(group, Collections.emptySet()))) {
+                    setMembers(group, members);
+                    differentGroups.add(group);
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+            graph.lock.readLock().unlock();
+        }
+
+        return differentGroups;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.internal.reference.EntityReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+/**
+ * Keep the group memberships of the wikis in memory to resolve the groups of an entity, or the members of a group,
+ * without querying the database for each level of nested groups.
+ * <p>
+ * The memberships of a wiki are loaded with a single query the first time they are needed, and then kept up to date
+ * by {@link GroupCacheInvalidationListener} each time the {@code XWiki.XWikiGroups} objects of a document change.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component(roles = GroupMembershipIndex.class)
+@Singleton
+public class GroupMembershipIndex
+{
+    private static final String MEMBERSHIPS_QUERY = "select obj.name, prop.value from BaseObject as obj, "
+        + "StringProperty as prop where obj.className = 'XWiki.XWikiGroups' and obj.id = prop.id.id "
+        + "and prop.id.name = 'member'";
+
+    /**
+     * The number of milliseconds to wait before trying again to load the memberships of a wiki after a failure.
+     */
+    private static final long RETRY_DELAY = 60000L;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private EntityReferenceFactory referenceFactory;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The memberships of each wiki, including the ones being loaded so that they receive the modifications made in the
+     * meantime.
+     */
+    private final Map<String, GroupMembershipGraph> graphs = new ConcurrentHashMap<>();
+
+    /**
+     * The time of the last failure to load the memberships of each wiki.
+     */
+    private final Map<String, Long> failures = new ConcurrentHashMap<>();
+
+    /**
+     * @param reference the entity for which to get the groups
+     * @param wikis the wikis where to search for groups
+     * @param recurse false if only the direct groups should be returned, true to take into account groups of groups
+     * @return the groups, or {@code null} if the memberships of one of the wikis could not be loaded
+     */
+    public Collection<DocumentReference> getGroups(DocumentReference reference, Collection<String> wikis,
+        boolean recurse)
+    {
+        List<GroupMembershipGraph> wikiGraphs = new ArrayList<>(wikis.size());
+        for (String wiki : wikis) {
+            GroupMembershipGraph graph = getGraph(wiki);
+            if (graph == null) {
+                return null;
+            }
+            wikiGraphs.add(graph);
+        }
+
+        return resolve(reference, recurse, member -> {
+            Set<DocumentReference> groups = new LinkedHashSet<>();
+            for (GroupMembershipGraph graph : wikiGraphs) {
+                groups.addAll(graph.getGroups(member));
+            }
+
+            return groups;
+        });
+    }
+
+    /**
+     * @param reference the group for which to get the members
+     * @param recurse false if only the direct members should be returned, true to take into account members of
+     *            members
+     * @return the members, or {@code null} if the memberships of one of the wikis could not be loaded
+     */
+    public Collection<DocumentReference> getMembers(DocumentReference reference, boolean recurse)
+    {
+        Set<String> failedWikis = new LinkedHashSet<>();
+        Collection<DocumentReference> members = resolve(reference, recurse, group -> {
+            GroupMembershipGraph graph = getGraph(group.getWikiReference().getName());
+            if (graph == null) {
+                failedWikis.add(group.getWikiReference().getName());
+
+                return Collections.emptySet();
+            }
+
+            return graph.getMembers(group);
+        });
+
+        return failedWikis.isEmpty() ? members : null;
+    }
+
+    private Collection<DocumentReference> resolve(DocumentReference reference, boolean recurse,
+        Function<DocumentReference, Collection<DocumentReference>> next)
+    {
+        Set<DocumentReference> result = new LinkedHashSet<>(next.apply(reference));
+
+        if (recurse) {
+            // Breadth first walk of the graph, protected against cross references between groups
+            Deque<DocumentReference> toResolve = new ArrayDeque<>(result);
+            while (!toResolve.isEmpty()) {
+                for (DocumentReference found : next.apply(toResolve.poll())) {
+                    if (!found.equals(reference) && result.add(found)) {
+                        toResolve.add(found);
+                    }
+                }
+            }
+        }
+
+        result.remove(reference);
+
+        return result;
+    }
+
+    /**
+     * Update the direct members of a group.
+     *
+     * @param group the group
+     * @param members the new direct members of the group, empty if the group was deleted
+     */
+    public void setMembers(DocumentReference group, Collection<DocumentReference> members)
+    {
+        // Nothing to do if the memberships of the wiki are not loaded yet: they will be up to date when loaded. When
+        // they are being loaded the modification is recorded so that it's not reverted by the loaded memberships.
+        GroupMembershipGraph graph = this.graphs.get(group.getWikiReference().getName());
+        if (graph != null) {
+            graph.setMembers(group, members);
+        }
+    }
+
+    /**
+     * Forget the memberships of a wiki.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public void removeWiki(String wiki)
+    {
+        this.graphs.remove(wiki);
+        this.failures.remove(wiki);
+    }
+
+    /**
+     * Compare the memberships of a wiki with the ones stored in the database, and fix them if needed.
+     *
+     * @param wiki the identifier of the wiki
+     * @return the groups whose members were not up to date, or {@code null} if the memberships of the wiki are not
+     *         loaded
+     * @throws QueryException when failing to load the memberships from the database
+     */
+    public synchronized Collection<DocumentReference> check(String wiki) throws QueryException
+    {
+        GroupMembershipGraph graph = this.graphs.get(wiki);
+        if (graph == null || !graph.isLoaded()) {
+            return null;
+        }
+
+        // Groups modified while loading the memberships from the database are kept as they are
+        graph.startSynchronization();
+
+        return graph.synchronize(load(wiki));
+    }
+
+    private GroupMembershipGraph getGraph(String wiki)
+    {
+        GroupMembershipGraph graph = this.graphs.get(wiki);
+        if (graph != null && graph.isLoaded()) {
+            return graph;
+        }
+
+        // Don't query the database again and again when it fails, the caller falls back on the database
+        Long failure = this.failures.get(wiki);
+        if (failure != null && System.currentTimeMillis() - failure < RETRY_DELAY) {
+            return null;
+        }
+
+        synchronized (this) {
+            graph = this.graphs.get(wiki);
+            if (graph != null && graph.isLoaded()) {
+                return graph;
+            }
+
+            // Publish the graph before loading it so that it receives (and records) the modifications made while the
+            // memberships are loaded from the database
+            graph = new GroupMembershipGraph();
+            graph.startSynchronization();
+            this.graphs.put(wiki, graph);
+
+            try {
+                graph.synchronize(load(wiki));
+            } catch (QueryException e) {
+                this.graphs.remove(wiki, graph);
+                this.failures.put(wiki, System.currentTimeMillis());
+
+                this.logger.error("Failed to load the group memberships of wiki [{}]", wiki, e);
+
+                return null;
+            }
+
+            graph.setLoaded();
+            this.failures.remove(wiki);
+
+            return graph;
+        }
+    }
+
+    private GroupMembershipGraph load(String wiki) throws QueryException
+    {
+        Query query = this.queryManager.createQuery(MEMBERSHIPS_QUERY, Query.HQL);
+        query.setWiki(wiki);
+        List<Object[]> memberships = query.execute();
+
+        WikiReference wikiReference = new WikiReference(wiki);
+        GroupMembershipGraph graph = new GroupMembershipGraph();
+        for (Object[] membership : memberships) {
+            String memberString = (String) membership[1];
+            // Groups usually have an object with an empty member to make sure they are seen as groups
+            if (StringUtils.isNotEmpty(memberString)) {
+                DocumentReference group = this.referenceFactory
+                    .getReference(this.resolver.resolve((String) membership[0], wikiReference));
+                DocumentReference member =
+                    this.referenceFactory.getReference(this.resolver.resolve(memberString, group));
+                graph.addMember(group, member);
+            }
+        }
+
+        this.logger.debug("Loaded [{}] group memberships for wiki [{}]", graph.size(), wiki);
+
+        return graph;
+    }
+}
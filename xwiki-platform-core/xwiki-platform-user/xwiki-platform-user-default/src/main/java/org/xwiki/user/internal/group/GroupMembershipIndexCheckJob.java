@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Collection;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+/**
+ * Job comparing the group memberships kept in memory by {@link GroupMembershipIndex} with the ones stored in the
+ * database, and fixing them when they differ.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(GroupMembershipIndexCheckJob.JOB_TYPE)
+public class GroupMembershipIndexCheckJob
+    extends AbstractJob<GroupMembershipIndexCheckJobRequest, DefaultJobStatus<GroupMembershipIndexCheckJobRequest>>
+{
+    /**
+     * Type of the job.
+     */
+    public static final String JOB_TYPE = "GroupMembershipIndexCheckJob";
+
+    @Inject
+    private GroupMembershipIndex membershipIndex;
+
+    @Inject
+    private WikiDescriptorManager wikis;
+
+    @Inject
+    private GroupsCache groupsCache;
+
+    @Inject
+    private MembersCache membersCache;
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        Collection<String> wikiIds = this.request.getWikis();
+        if (wikiIds == null) {
+            wikiIds = this.wikis.getAllIds();
+        }
+
+        boolean different = false;
+
+        this.progressManager.pushLevelProgress(wikiIds.size(), this);
+
+        try {
+            for (String wikiId : wikiIds) {
+                this.progressManager.startStep(this);
+
+                Collection<DocumentReference> groups = this.membershipIndex.check(wikiId);
+                if (groups != null && !groups.isEmpty()) {
+                    this.logger.warn("The members of the following groups of wiki [{}] were not up to date: {}",
+                        wikiId, groups);
+
+                    different = true;
+                }
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+
+        if (different) {
+            // The cached groups of any entity might be impacted by the fixed memberships
+            this.groupsCache.removeAll();
+            this.membersCache.removeAll();
+        }
+    }
+
+    @Override
+    public String getType()
+    {
+        return JOB_TYPE;
+    }
+}
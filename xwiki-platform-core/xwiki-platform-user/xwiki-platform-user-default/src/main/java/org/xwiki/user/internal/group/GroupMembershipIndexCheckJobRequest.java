@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Collection;
+
+import org.xwiki.job.AbstractRequest;
+
+/**
+ * Request for the creation of a {@link GroupMembershipIndexCheckJob}.
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+public class GroupMembershipIndexCheckJobRequest extends AbstractRequest
+{
+    private static final String WIKIS = "wikis";
+
+    /**
+     * Create a request checking the memberships of all the wikis.
+     */
+    public GroupMembershipIndexCheckJobRequest()
+    {
+    }
+
+    /**
+     * Create a request for the given wikis.
+     *
+     * @param wikis the identifiers of the wikis for which to check the memberships
+     */
+    public GroupMembershipIndexCheckJobRequest(Collection<String> wikis)
+    {
+        setWikis(wikis);
+    }
+
+    /**
+     * @param wikis the identifiers of the wikis for which to check the memberships, {@code null} for all the wikis
+     */
+    public void setWikis(Collection<String> wikis)
+    {
+        setProperty(WIKIS, wikis);
+    }
+
+    /**
+     * @return the identifiers of the wikis for which to check the memberships, {@code null} for all the wikis
+     */
+    public Collection<String> getWikis()
+    {
+        return getProperty(WIKIS);
+    }
+}
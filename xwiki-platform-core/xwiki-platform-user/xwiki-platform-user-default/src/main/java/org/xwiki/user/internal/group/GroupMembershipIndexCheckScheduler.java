@@ -0,0 +1,126 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobException;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.user.UserConfiguration;
+
+/**
+ * Regularly start a {@link GroupMembershipIndexCheckJob} to fix the group memberships kept in memory by
+ * {@link GroupMembershipIndex} which were missed (for example a group modified directly in the database).
+ *
+ * @version $Id$
+ * @since 12.6RC1
+ */
+@Component
+@Named(GroupMembershipIndexCheckScheduler.NAME)
+@Singleton
+public class GroupMembershipIndexCheckScheduler extends AbstractEventListener implements Disposable
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.user.internal.group.GroupMembershipIndexCheckScheduler";
+
+    private static final List<String> JOB_ID = Arrays.asList("user", "group", "index", "check");
+
+    @Inject
+    private UserConfiguration configuration;
+
+    @Inject
+    private JobExecutor jobExecutor;
+
+    @Inject
+    private Logger logger;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Default constructor.
+     */
+    public GroupMembershipIndexCheckScheduler()
+    {
+        super(NAME, new ApplicationReadyEvent());
+    }
+
+    @Override
+    public synchronized void onEvent(Event event, Object source, Object data)
+    {
+        long interval = this.configuration.getGroupMembershipIndexCheckInterval();
+        if (this.executor == null && this.configuration.isGroupMembershipIndexEnabled() && interval > 0) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "XWiki group memberships index check");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            this.executor.scheduleWithFixedDelay(this::startCheck, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Start a check of the group memberships, unless the previous one is still running.
+     */
+    public void startCheck()
+    {
+        Job previousJob = this.jobExecutor.getJob(JOB_ID);
+        if (previousJob != null && previousJob.getStatus().getState() != JobStatus.State.FINISHED) {
+            return;
+        }
+
+        GroupMembershipIndexCheckJobRequest request = new GroupMembershipIndexCheckJobRequest();
+        request.setId(JOB_ID);
+        request.setVerbose(false);
+
+        try {
+            this.jobExecutor.execute(GroupMembershipIndexCheckJob.JOB_TYPE, request);
+        } catch (JobException e) {
+            this.logger.error("Failed to start the check of the group memberships index", e);
+        }
+    }
+
+    @Override
+    public synchronized void dispose() throws ComponentLifecycleException
+    {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+}
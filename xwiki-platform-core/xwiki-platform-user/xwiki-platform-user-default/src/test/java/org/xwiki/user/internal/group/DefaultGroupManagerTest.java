@@ -39,6 +39,7 @@
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.UserConfiguration;
 import org.xwiki.user.group.GroupException;
 import org.xwiki.user.group.WikiTarget;
 import org.xwiki.user.internal.group.AbstractGroupCache.GroupCacheEntry;
@@ -56,9 +57,13 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -87,6 +92,12 @@
     @MockComponent
     private CacheManager cacheManager;
 
+    @MockComponent
+    private UserConfiguration configuration;
+
+    @MockComponent
+    private GroupMembershipIndex membershipIndex;
+
     @InjectMockComponents
     private DefaultGroupManager manager;
 
@@ -334,4 +345,55 @@ public void getMembersWhenCrossReference() throws GroupException
         assertGetMembers(GLOBAL_GROUP_1, GLOBAL_GROUP_2, true);
         assertGetMembers(GLOBAL_GROUP_2, GLOBAL_GROUP_1, true);
     }
+
+    @Test
+    public void getGroupsWithIndex() throws GroupException, XWikiException
+    {
+        when(this.configuration.isGroupMembershipIndexEnabled()).thenReturn(true);
+        when(this.membershipIndex.getGroups(GLOBAL_USER_1, Collections.singleton("xwiki"), false))
+            .thenReturn(Arrays.asList(GLOBAL_GROUP_1));
+        when(this.membershipIndex.getGroups(GLOBAL_USER_1, Collections.singleton("xwiki"), true))
+            .thenReturn(Arrays.asList(GLOBAL_GROUP_1, GLOBAL_GROUP_2));
+
+        assertGetGroups(GLOBAL_GROUP_1, GLOBAL_USER_1, WikiTarget.ENTITY, false);
+        assertGetGroups(Arrays.asList(GLOBAL_GROUP_1, GLOBAL_GROUP_2), GLOBAL_USER_1, WikiTarget.ENTITY, true);
+
+        verify(this.groupService, never()).getAllGroupsReferencesForMember(any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void getGroupsWhenIndexFails() throws GroupException
+    {
+        when(this.configuration.isGroupMembershipIndexEnabled()).thenReturn(true);
+        mockGroups("xwiki", GLOBAL_USER_1, Arrays.asList(GLOBAL_GROUP_1));
+        // The index returns null when the memberships of a wiki cannot be loaded
+        when(this.membershipIndex.getGroups(any(), any(), anyBoolean())).thenReturn(null);
+
+        assertGetGroups(GLOBAL_GROUP_1, GLOBAL_USER_1, WikiTarget.ENTITY, true);
+    }
+
+    @Test
+    public void getMembersWithIndex() throws GroupException, XWikiException
+    {
+        when(this.configuration.isGroupMembershipIndexEnabled()).thenReturn(true);
+        when(this.membershipIndex.getMembers(GLOBAL_GROUP_2, false)).thenReturn(Arrays.asList(GLOBAL_GROUP_1));
+        when(this.membershipIndex.getMembers(GLOBAL_GROUP_2, true))
+            .thenReturn(Arrays.asList(GLOBAL_GROUP_1, GLOBAL_USER_1));
+
+        assertGetMembers(GLOBAL_GROUP_1, GLOBAL_GROUP_2, false);
+        assertGetMembers(Arrays.asList(GLOBAL_GROUP_1, GLOBAL_USER_1), GLOBAL_GROUP_2, true);
+
+        verify(this.groupService, never()).getAllMembersNamesForGroup(anyString(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void getMembersWhenIndexFails() throws GroupException
+    {
+        when(this.configuration.isGroupMembershipIndexEnabled()).thenReturn(true);
+        mockMembers(GLOBAL_GROUP_1, Arrays.asList(GLOBAL_USER_1));
+        // The index returns null when the memberships of a wiki cannot be loaded
+        when(this.membershipIndex.getMembers(any(), anyBoolean())).thenReturn(null);
+
+        assertGetMembers(GLOBAL_USER_1, GLOBAL_GROUP_1, true);
+    }
 }
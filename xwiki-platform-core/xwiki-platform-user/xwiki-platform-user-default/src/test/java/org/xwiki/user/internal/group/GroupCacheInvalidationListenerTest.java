@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.XObjectAddedEvent;
+import com.xpn.xwiki.internal.event.XObjectDeletedEvent;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.mockito.Mockito.verify;
+
+/**
+ * Validate {@link GroupCacheInvalidationListener}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+public class GroupCacheInvalidationListenerTest
+{
+    private static final LocalDocumentReference GROUPS_CLASS = new LocalDocumentReference("XWiki", "XWikiGroups");
+
+    private static final DocumentReference GROUP = new DocumentReference("wiki", "XWiki", "group");
+
+    private static final DocumentReference USER1 = new DocumentReference("wiki", "XWiki", "user1");
+
+    private static final DocumentReference USER2 = new DocumentReference("otherwiki", "XWiki", "user2");
+
+    @InjectMockComponents
+    private GroupCacheInvalidationListener listener;
+
+    @MockComponent
+    private GroupsCache groupsCache;
+
+    @MockComponent
+    private MembersCache membersCache;
+
+    @MockComponent
+    private GroupMembershipIndex membershipIndex;
+
+    private BaseObject addMember(XWikiDocument document, String member)
+    {
+        BaseObject xobject = new BaseObject();
+        xobject.setXClassReference(GROUPS_CLASS);
+        xobject.setStringValue("member", member);
+        document.addXObject(xobject);
+
+        return xobject;
+    }
+
+    @Test
+    public void onXObjectAdded()
+    {
+        XWikiDocument document = new XWikiDocument(GROUP);
+        document.setOriginalDocument(new XWikiDocument(GROUP));
+        addMember(document, "XWiki.user1");
+        // Groups usually have an object with an empty member to make sure they are seen as groups
+        addMember(document, "");
+        BaseObject xobject = addMember(document, "otherwiki:XWiki.user2");
+
+        this.listener.onEvent(new XObjectAddedEvent(xobject.getReference()), document, null);
+
+        verify(this.membershipIndex).setMembers(GROUP, new LinkedHashSet<>(Arrays.asList(USER1, USER2)));
+        verify(this.groupsCache).cleanCache(GROUP);
+        verify(this.membersCache).cleanCache(GROUP);
+        verify(this.groupsCache).cleanCache(USER2);
+        verify(this.membersCache).cleanCache(USER2);
+    }
+
+    @Test
+    public void onXObjectDeleted()
+    {
+        XWikiDocument originalDocument = new XWikiDocument(GROUP);
+        BaseObject xobject = addMember(originalDocument, "XWiki.user1");
+        XWikiDocument document = new XWikiDocument(GROUP);
+        document.setOriginalDocument(originalDocument);
+
+        this.listener.onEvent(new XObjectDeletedEvent(xobject.getReference()), document, null);
+
+        verify(this.membershipIndex).setMembers(GROUP, Collections.emptySet());
+        verify(this.groupsCache).cleanCache(USER1);
+        verify(this.membersCache).cleanCache(USER1);
+    }
+
+    @Test
+    public void onWikiDeleted()
+    {
+        this.listener.onEvent(new WikiDeletedEvent("wiki"), "wiki", null);
+
+        verify(this.membershipIndex).removeWiki("wiki");
+        verify(this.groupsCache).cleanCache("wiki");
+        verify(this.membersCache).cleanCache("wiki");
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupMembershipIndexCheckJob}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class GroupMembershipIndexCheckJobTest
+{
+    private static final DocumentReference GROUP = new DocumentReference("wiki2", "XWiki", "group");
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectMockComponents
+    private GroupMembershipIndexCheckJob job;
+
+    @MockComponent
+    private GroupMembershipIndex membershipIndex;
+
+    @MockComponent
+    private WikiDescriptorManager wikis;
+
+    @MockComponent
+    private GroupsCache groupsCache;
+
+    @MockComponent
+    private MembersCache membersCache;
+
+    @Test
+    public void runWhenDifferent() throws Exception
+    {
+        when(this.wikis.getAllIds()).thenReturn(Arrays.asList("wiki1", "wiki2", "wiki3"));
+        when(this.membershipIndex.check("wiki1")).thenReturn(Collections.emptySet());
+        when(this.membershipIndex.check("wiki2")).thenReturn(Collections.singleton(GROUP));
+        // The memberships of wiki3 are not loaded
+        when(this.membershipIndex.check("wiki3")).thenReturn(null);
+
+        this.job.initialize(new GroupMembershipIndexCheckJobRequest());
+        this.job.runInternal();
+
+        assertEquals(1, this.logCapture.size());
+        assertEquals("The members of the following groups of wiki [wiki2] were not up to date: [wiki2:XWiki.group]",
+            this.logCapture.getMessage(0));
+        verify(this.groupsCache).removeAll();
+        verify(this.membersCache).removeAll();
+    }
+
+    @Test
+    public void runWhenUpToDate() throws Exception
+    {
+        when(this.membershipIndex.check("wiki1")).thenReturn(Collections.emptySet());
+
+        this.job.initialize(new GroupMembershipIndexCheckJobRequest(Arrays.asList("wiki1")));
+        this.job.runInternal();
+
+        verify(this.membershipIndex).check("wiki1");
+        verify(this.wikis, never()).getAllIds();
+        verify(this.groupsCache, never()).removeAll();
+        verify(this.membersCache, never()).removeAll();
+    }
+}
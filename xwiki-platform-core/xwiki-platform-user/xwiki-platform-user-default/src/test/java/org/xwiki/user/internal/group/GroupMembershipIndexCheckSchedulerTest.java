@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.event.status.JobStatus;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupMembershipIndexCheckScheduler}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class GroupMembershipIndexCheckSchedulerTest
+{
+    @InjectMockComponents
+    private GroupMembershipIndexCheckScheduler scheduler;
+
+    @MockComponent
+    private JobExecutor jobExecutor;
+
+    @Test
+    public void startCheck() throws Exception
+    {
+        this.scheduler.startCheck();
+
+        ArgumentCaptor<GroupMembershipIndexCheckJobRequest> request =
+            ArgumentCaptor.forClass(GroupMembershipIndexCheckJobRequest.class);
+        verify(this.jobExecutor).execute(eq(GroupMembershipIndexCheckJob.JOB_TYPE), request.capture());
+        assertEquals(Arrays.asList("user", "group", "index", "check"), request.getValue().getId());
+        // Check all the wikis
+        assertNull(request.getValue().getWikis());
+    }
+
+    @Test
+    public void startCheckWhenPreviousIsRunning() throws Exception
+    {
+        Job job = mock(Job.class);
+        JobStatus status = mock(JobStatus.class);
+        when(job.getStatus()).thenReturn(status);
+        when(status.getState()).thenReturn(JobStatus.State.RUNNING);
+        when(this.jobExecutor.getJob(Arrays.asList("user", "group", "index", "check"))).thenReturn(job);
+
+        this.scheduler.startCheck();
+
+        verify(this.jobExecutor, never()).execute(anyString(), any());
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.internal.reference.EntityReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupMembershipIndex}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ReferenceComponentList
+@ComponentList(EntityReferenceFactory.class)
+public class GroupMembershipIndexTest
+{
+    private static final String WIKI = "wiki";
+
+    private static final DocumentReference USER = new DocumentReference(WIKI, "XWiki", "user");
+
+    private static final DocumentReference GROUP1 = new DocumentReference(WIKI, "XWiki", "group1");
+
+    private static final DocumentReference GROUP2 = new DocumentReference(WIKI, "XWiki", "group2");
+
+    private static final DocumentReference GROUP3 = new DocumentReference(WIKI, "XWiki", "group3");
+
+    @InjectMockComponents
+    private GroupMembershipIndex index;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    private Query query;
+
+    private List<Object[]> memberships = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws QueryException
+    {
+        this.query = mock(Query.class);
+        when(this.queryManager.createQuery(anyString(), eq(Query.HQL))).thenReturn(this.query);
+        when(this.query.execute()).thenAnswer(invocation -> new ArrayList<>(this.memberships));
+    }
+
+    private void addMembership(String group, String member)
+    {
+        this.memberships.add(new Object[] { group, member });
+    }
+
+    private Collection<DocumentReference> getGroups(DocumentReference reference, boolean recurse)
+    {
+        return this.index.getGroups(reference, Collections.singletonList(WIKI), recurse);
+    }
+
+    @Test
+    public void getGroupsAndMembers() throws QueryException
+    {
+        addMembership("XWiki.group1", "XWiki.user");
+        addMembership("XWiki.group1", "");
+        addMembership("XWiki.group2", "XWiki.group1");
+        addMembership("XWiki.group3", "group2");
+
+        assertEquals(Arrays.asList(GROUP1), new ArrayList<>(getGroups(USER, false)));
+        assertEquals(Arrays.asList(GROUP1, GROUP2, GROUP3), new ArrayList<>(getGroups(USER, true)));
+        assertEquals(Arrays.asList(GROUP2), new ArrayList<>(this.index.getMembers(GROUP3, false)));
+        assertEquals(Arrays.asList(GROUP2, GROUP1, USER), new ArrayList<>(this.index.getMembers(GROUP3, true)));
+
+        // The memberships of the wiki are loaded only once
+        verify(this.query, times(1)).execute();
+        verify(this.query).setWiki(WIKI);
+    }
+
+    @Test
+    public void getGroupsWithCycle()
+    {
+        addMembership("XWiki.group1", "XWiki.user");
+        addMembership("XWiki.group2", "XWiki.group1");
+        addMembership("XWiki.group1", "XWiki.group2");
+
+        assertEquals(Arrays.asList(GROUP1, GROUP2), new ArrayList<>(getGroups(USER, true)));
+        assertEquals(Arrays.asList(USER, GROUP2), new ArrayList<>(this.index.getMembers(GROUP1, true)));
+    }
+
+    @Test
+    public void setMembers()
+    {
+        addMembership("XWiki.group1", "XWiki.user");
+        addMembership("XWiki.group2", "XWiki.group1");
+
+        assertEquals(Arrays.asList(GROUP1, GROUP2), new ArrayList<>(getGroups(USER, true)));
+
+        this.index.setMembers(GROUP2, Collections.emptySet());
+        this.index.setMembers(GROUP3, Arrays.asList(GROUP1));
+
+        assertEquals(Arrays.asList(GROUP1, GROUP3), new ArrayList<>(getGroups(USER, true)));
+        assertTrue(this.index.getMembers(GROUP2, true).isEmpty());
+    }
+
+    @Test
+    public void getGroupsWhenLoadingFails() throws QueryException
+    {
+        when(this.query.execute()).thenThrow(new QueryException("error", this.query, null));
+
+        assertNull(getGroups(USER, true));
+        assertNull(this.index.getMembers(GROUP1, true));
+
+        // The query is not executed again right after a failure
+        verify(this.query, times(1)).execute();
+    }
+
+    @Test
+    public void getGroupsWithConcurrentModificationDuringLoad() throws QueryException
+    {
+        addMembership("XWiki.group1", "XWiki.user");
+        addMembership("XWiki.group2", "XWiki.user");
+
+        // Simulate groups saved while the memberships are loaded from the database, after the query was executed
+        when(this.query.execute()).thenAnswer(invocation -> {
+            List<Object[]> result = new ArrayList<>(this.memberships);
+            this.index.setMembers(GROUP2, Collections.emptySet());
+            this.index.setMembers(GROUP3, Arrays.asList(USER));
+
+            return result;
+        });
+
+        assertEquals(new HashSet<>(Arrays.asList(GROUP1, GROUP3)), new HashSet<>(getGroups(USER, false)));
+        assertTrue(this.index.getMembers(GROUP2, false).isEmpty());
+    }
+
+    @Test
+    public void check() throws QueryException
+    {
+        assertNull(this.index.check(WIKI));
+
+        addMembership("XWiki.group1", "XWiki.user");
+
+        assertEquals(Arrays.asList(GROUP1), new ArrayList<>(getGroups(USER, true)));
+
+        // Simulate modifications which were missed by the index
+        this.memberships.clear();
+        addMembership("XWiki.group2", "XWiki.user");
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList(GROUP1, GROUP2)), this.index.check(WIKI));
+        assertEquals(Arrays.asList(GROUP2), new ArrayList<>(getGroups(USER, true)));
+        assertTrue(this.index.check(WIKI).isEmpty());
+    }
+
+    @Test
+    public void checkKeepsConcurrentModifications() throws QueryException
+    {
+        addMembership("XWiki.group1", "XWiki.user");
+
+        assertEquals(Arrays.asList(GROUP1), new ArrayList<>(getGroups(USER, true)));
+
+        // Simulate a group saved while the memberships are loaded from the database, after the query was executed
+        this.memberships.clear();
+        addMembership("XWiki.group2", "XWiki.user");
+        when(this.query.execute()).thenAnswer(invocation -> {
+            List<Object[]> result = new ArrayList<>(this.memberships);
+            this.index.setMembers(GROUP2, Collections.emptySet());
+            this.index.setMembers(GROUP3, Arrays.asList(USER));
+
+            return result;
+        });
+
+        assertEquals(Arrays.asList(GROUP1), new ArrayList<>(this.index.check(WIKI)));
+        assertEquals(Arrays.asList(GROUP3), new ArrayList<>(getGroups(USER, true)));
+    }
+}
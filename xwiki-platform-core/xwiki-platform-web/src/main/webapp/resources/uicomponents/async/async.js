@@ -18,6 +18,23 @@
  * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
  */
 require(["jquery", 'xwiki-meta'], function($, xm) {
+  var insertResult = function(element, asyncHead, html, asyncScripts)
+  {
+    // Add asynchronous meta tags
+    if (asyncHead) {
+      $('head').append(asyncHead);
+    }
+
+    // Replace the element by the asynchronous result
+    element.replaceWith(html);
+
+    // Insert the scripts after the HTML
+    if (asyncScripts) {
+      // FIXME: injecting <script> elements this way seems to generate a warning in some conditions
+      $('head').append(asyncScripts);
+    }
+  };
+
   var update = function(element, url)
   {
     // TODO: show progress
@@ -26,21 +43,8 @@ require(["jquery", 'xwiki-meta'], function($, xm) {
       complete: function(xhr, textStatus) {
         switch (xhr.status) {
           case 200:
-            // Add asynchronous meta tags
-            var asyncHead = xhr.getResponseHeader('X-XWIKI-HTML-HEAD');
-            if (asyncHead) {
-              $('head').append(asyncHead);
-            }
-
-            // Replace the element by the asynchronous result
-            element.replaceWith(xhr.responseText);
-
-            // Insert the scripts after the HTML
-            var asyncScripts = xhr.getResponseHeader('X-XWIKI-HTML-SCRIPTS');
-            if (asyncScripts) {
-              // FIXME: injecting <script> elements this way seems to generate a warning in some conditions
-              $('head').append(asyncScripts);
-            }
+            insertResult(element, xhr.getResponseHeader('X-XWIKI-HTML-HEAD'), xhr.responseText,
+              xhr.getResponseHeader('X-XWIKI-HTML-SCRIPTS'));
 
             break;
 
@@ -72,6 +76,11 @@ require(["jquery", 'xwiki-meta'], function($, xm) {
   
   var activateAsyncPlaceHolder = function(element)
   {
+    // The result is going to be sent at the end of the page body
+    if (element.dataset.xwikiAsyncStreamed) {
+      return;
+    }
+
     var url = element.dataset.xwikiAsyncUrl;
 
     // If the URL is not provided calculate it based on the id
@@ -103,6 +112,37 @@ require(["jquery", 'xwiki-meta'], function($, xm) {
     update(element, url);
   };
 
+  // Move a result streamed at the end of the page body to the position of its placeholder
+  var applyStreamedResult = function(template)
+  {
+    var clientId = template.dataset.xwikiAsyncClientId;
+    $(template).remove();
+
+    var element = $('.xwiki-async').filter(function() {
+      return this.dataset.xwikiAsyncClientId === clientId;
+    });
+
+    if (element.length) {
+      if (template.dataset.xwikiAsyncFallback) {
+        // The server could not wait for the result, ask for it
+        delete element[0].dataset.xwikiAsyncStreamed;
+        activateAsyncPlaceHolder(element[0]);
+      } else {
+        insertResult(element, template.dataset.xwikiHtmlHead, template.innerHTML, template.dataset.xwikiHtmlScripts);
+      }
+    }
+  };
+
+  var applyStreamedResults = function(all)
+  {
+    $("template.xwiki-async-result").each(function(index, template) {
+      // The content of the template might still be loading, unless something was already inserted after it
+      if (all || template.nextSibling) {
+        applyStreamedResult(template);
+      }
+    });
+  };
+
   var onMutations = function(mutations)
   {
     for (var i = 0; i < mutations.length; i++) {
@@ -118,6 +158,11 @@ require(["jquery", 'xwiki-meta'], function($, xm) {
         $(element).find(selector).addBack(selector).each(function() {
           activateAsyncPlaceHolder(this);
         });
+
+        // Results streamed at the end of the page body
+        if ($(element).is('template.xwiki-async-result') || $(element).prev('template.xwiki-async-result').length) {
+          applyStreamedResults(false);
+        }
       }
     }
   };
@@ -130,4 +175,10 @@ require(["jquery", 'xwiki-meta'], function($, xm) {
   $(".xwiki-async").each(function(index, element) {
     activateAsyncPlaceHolder(element);
   });
+
+  // Apply the results streamed before this script was loaded
+  applyStreamedResults(false);
+  $(window).on('load', function() {
+    applyStreamedResults(true);
+  });
 });